@@ -19,73 +19,86 @@ package org.bboxdb.commons;
 
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.PriorityQueue;
 
 /**
  * This class merges a set with sorted iterators and returns a sorted 
  * list of elements. Duplicates are eliminated according the 
  * duplicateResolver
+ * 
+ * The head elements of the iterators are kept in a heap, so the next
+ * element is found in O(log k) for k iterators.
  *
  * @param <E>
  */
 public class SortedIteratorMerger<E> implements Iterable<E> {
 
 	private final class SortedIterator implements Iterator<E> {
-		/**
-		 * The list with unconsumed duplicates for the current key
-		 */
-		final List<E> unconsumedDuplicates = new ArrayList<E>();
 
 		@Override
 		public boolean hasNext() {
 			
-			if(! unconsumedDuplicates.isEmpty()) {
+			if(unconsumedDuplicatesPosition < unconsumedDuplicates.size()) {
 				return true;
 			}
 			
 			// Any new values left?
-			return iteratorElementMap.values()
-					.stream()
-					.anyMatch(e -> Objects.nonNull(e));
+			return ! cursorHeap.isEmpty();
 		}
 
 		@Override
 		public E next() {
 						
 			// Consume the duplicates first 
-			if(! unconsumedDuplicates.isEmpty()) {
-				return unconsumedDuplicates.remove(0);
+			if(unconsumedDuplicatesPosition < unconsumedDuplicates.size()) {
+				return unconsumedDuplicates.get(unconsumedDuplicatesPosition++);
 			}
 			
-			final E lowestElement = iteratorElementMap
-					.values()
-					.stream()
-					.filter(e -> Objects.nonNull(e))
-					.min(elementComparator)
-					.orElse(null);
+			if(cursorHeap.isEmpty()) {
+				throw new NoSuchElementException();
+			}
+			
+			unconsumedDuplicates.clear();
+			unconsumedDuplicatesPosition = 0;
+			
+			final IteratorCursor lowestCursor = cursorHeap.poll();
+			final E lowestElement = lowestCursor.element;
 			
-			assert (lowestElement != null);
+			// Move the searched element from the iterators to the result list
+			consumeElementsOfCurrentKey(lowestCursor, lowestElement);
 			
-			for(final Iterator<E> iteratorToCheck : iteratorElementMap.keySet()) {
-				E element = iteratorElementMap.get(iteratorToCheck);
-				
-				// Move the searched element from the iterator list to the result list
-				while(belongsElementToCurrentKey(lowestElement, element)) {	
-					unconsumedDuplicates.add(element);
-					element = refreshIterator(iteratorToCheck);
-				}
+			while(! cursorHeap.isEmpty() 
+					&& belongsElementToCurrentKey(lowestElement, cursorHeap.peek().element)) {
+				consumeElementsOfCurrentKey(cursorHeap.poll(), lowestElement);
 			}
 			
 			assert (! unconsumedDuplicates.isEmpty());
 			duplicateResolver.removeDuplicates(unconsumedDuplicates);
 			assert (! unconsumedDuplicates.isEmpty());
 			
+			return unconsumedDuplicates.get(unconsumedDuplicatesPosition++);				
+		}
+		
+		/**
+		 * Move all elements of the current key from the cursor to the duplicate list 
+		 * and re-add the cursor to the heap, if elements are left
+		 * @param cursor
+		 * @param lowestElement
+		 */
+		private void consumeElementsOfCurrentKey(final IteratorCursor cursor, final E lowestElement) {
+			
+			while(belongsElementToCurrentKey(lowestElement, cursor.element)) {
+				unconsumedDuplicates.add(cursor.element);
+				refreshCursor(cursor);
+			}
 			
-			return unconsumedDuplicates.remove(0);				
+			if(cursor.element != null) {
+				cursorHeap.add(cursor);
+			}
 		}
 
 		/**
@@ -106,12 +119,48 @@ public class SortedIteratorMerger<E> implements Iterable<E> {
 			return false;
 		}
 	}
+	
+	/**
+	 * An iterator and the last fetched element
+	 */
+	private final class IteratorCursor {
+		
+		/**
+		 * The iterator
+		 */
+		private final Iterator<E> iterator;
+		
+		/**
+		 * The position of the iterator in the iterator list
+		 */
+		private final int position;
+		
+		/**
+		 * The last fetched element, null if the iterator is exhausted
+		 */
+		private E element;
+		
+		public IteratorCursor(final Iterator<E> iterator, final int position) {
+			this.iterator = iterator;
+			this.position = position;
+		}
+	}
 
 	/**
-	 * The iterator map, contains all iterators and the
-	 * last fetched element
+	 * The heap with the cursors of the non exhausted iterators, 
+	 * ordered by the last fetched element
+	 */
+	private final PriorityQueue<IteratorCursor> cursorHeap;
+	
+	/**
+	 * The list with unconsumed duplicates for the current key
 	 */
-	protected final Map<Iterator<E>, E> iteratorElementMap;
+	protected final List<E> unconsumedDuplicates;
+	
+	/**
+	 * The position of the next unconsumed duplicate
+	 */
+	protected int unconsumedDuplicatesPosition = 0;
 	
 	/**
 	 * The element comparator
@@ -136,31 +185,39 @@ public class SortedIteratorMerger<E> implements Iterable<E> {
 		this.duplicateResolver = Objects.requireNonNull(duplicateResolver);
 		Objects.requireNonNull(iteratorList);
 
-		iteratorElementMap = new HashMap<>();
+		this.unconsumedDuplicates = new ArrayList<>();
+		
+		// Equal elements are ordered by the position of the iterator
+		final Comparator<IteratorCursor> cursorComparator = (c1, c2) -> {
+			final int result = elementComparator.compare(c1.element, c2.element);
+			return result != 0 ? result : Integer.compare(c1.position, c2.position);
+		};
 		
-		for(final Iterator<E> iterator : iteratorList) {
-			iteratorElementMap.put(iterator, null);
-			refreshIterator(iterator);
+		this.cursorHeap = new PriorityQueue<>(Math.max(1, iteratorList.size()), cursorComparator);
+		
+		for(int i = 0; i < iteratorList.size(); i++) {
+			final IteratorCursor cursor = new IteratorCursor(iteratorList.get(i), i);
+			refreshCursor(cursor);
+			
+			if(cursor.element != null) {
+				cursorHeap.add(cursor);
+			}
 		}		
 	}
 	
 	/**
-	 * Refresh the specified iterator
-	 * @param iterator
+	 * Refresh the specified cursor
+	 * @param cursor
 	 */
-	protected E refreshIterator(final Iterator<E> iterator) {
+	private void refreshCursor(final IteratorCursor cursor) {
 		
-		if(! iterator.hasNext()) {
-			iteratorElementMap.put(iterator, null);
-			return null;
+		if(! cursor.iterator.hasNext()) {
+			cursor.element = null;
+			return;
 		}
 		
-		final E element = iterator.next();
+		cursor.element = cursor.iterator.next();
 		readElements++;
-		
-		iteratorElementMap.put(iterator, element);
-		
-		return element;
 	}
 
 	@Override
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *******************************************************************************/
+package org.bboxdb.commons.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An executor service that forwards the tasks to a shared executor, but limits
+ * the amount of tasks that are queued or running at the same time. When the
+ * limit is reached, the task is executed in the calling thread (like the
+ * CallerRunsPolicy of a ThreadPoolExecutor). This allows many owners to share
+ * one thread pool without a single owner occupying all threads.
+ */
+public class BoundedDelegatingExecutor extends AbstractExecutorService {
+
+	/**
+	 * The shared executor
+	 */
+	private final Executor delegate;
+
+	/**
+	 * The max amount of tasks in the shared executor
+	 */
+	private final int maxPendingTasks;
+
+	/**
+	 * The amount of tasks in the shared executor
+	 */
+	private final AtomicInteger pendingTasks;
+
+	/**
+	 * Is the executor shut down
+	 */
+	private volatile boolean shutdown;
+
+	/**
+	 * The Logger
+	 */
+	private final static Logger logger = LoggerFactory.getLogger(BoundedDelegatingExecutor.class);
+
+	public BoundedDelegatingExecutor(final Executor delegate, final int maxPendingTasks) {
+		this.delegate = delegate;
+		this.maxPendingTasks = maxPendingTasks;
+		this.pendingTasks = new AtomicInteger(0);
+		this.shutdown = false;
+	}
+
+	@Override
+	public void execute(final Runnable command) {
+
+		// Like the CallerRunsPolicy, tasks are discarded after shutdown
+		if(shutdown) {
+			logger.debug("Executor is shut down, discarding task {}", command);
+			return;
+		}
+
+		if(pendingTasks.incrementAndGet() > maxPendingTasks) {
+			pendingTasks.decrementAndGet();
+			command.run();
+			return;
+		}
+
+		try {
+			delegate.execute(() -> {
+				try {
+					command.run();
+				} finally {
+					taskDone();
+				}
+			});
+		} catch(RuntimeException e) {
+			taskDone();
+			throw e;
+		}
+	}
+
+	/**
+	 * A task in the shared executor is done
+	 */
+	private void taskDone() {
+		if(pendingTasks.decrementAndGet() == 0 && shutdown) {
+			synchronized (this) {
+				notifyAll();
+			}
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		shutdown = true;
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		shutdown = true;
+		return new ArrayList<>();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return shutdown && pendingTasks.get() == 0;
+	}
+
+	@Override
+	public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+		synchronized (this) {
+			while(! isTerminated()) {
+				final long waitTime = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+
+				if(waitTime <= 0) {
+					return false;
+				}
+
+				wait(waitTime);
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Get the amount of tasks in the shared executor
+	 * @return
+	 */
+	public int getPendingTasks() {
+		return pendingTasks.get();
+	}
+}
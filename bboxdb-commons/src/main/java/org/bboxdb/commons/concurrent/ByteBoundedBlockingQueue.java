@@ -0,0 +1,151 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.commons.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.function.ToIntFunction;
+
+/**
+ * A blocking queue that is bounded by the size of the elements in bytes instead
+ * of the number of elements. An element is always accepted when the queue is
+ * empty, so elements larger than the limit don't block the producer forever.
+ */
+public class ByteBoundedBlockingQueue<E> {
+
+	/**
+	 * The max amount of bytes in the queue
+	 */
+	private final long maxBytes;
+
+	/**
+	 * The function to calculate the size of an element
+	 */
+	private final ToIntFunction<E> sizeFunction;
+
+	/**
+	 * The elements
+	 */
+	private final Queue<E> elements;
+
+	/**
+	 * The amount of bytes in the queue
+	 */
+	private long queuedBytes;
+
+	public ByteBoundedBlockingQueue(final long maxBytes, final ToIntFunction<E> sizeFunction) {
+
+		if(maxBytes <= 0) {
+			throw new IllegalArgumentException("Invalid queue size: " + maxBytes);
+		}
+
+		this.maxBytes = maxBytes;
+		this.sizeFunction = sizeFunction;
+		this.elements = new ArrayDeque<>();
+		this.queuedBytes = 0;
+	}
+
+	/**
+	 * Add the element, wait until enough space is available
+	 * @param element
+	 * @throws InterruptedException
+	 */
+	public synchronized void put(final E element) throws InterruptedException {
+		final int size = sizeFunction.applyAsInt(element);
+
+		while(! elements.isEmpty() && queuedBytes + size > maxBytes) {
+			wait();
+		}
+
+		elements.add(element);
+		queuedBytes = queuedBytes + size;
+		notifyAll();
+	}
+
+	/**
+	 * Add the element, if enough space is available
+	 * @param element
+	 * @return false if the element was not added
+	 */
+	public synchronized boolean offer(final E element) {
+		final int size = sizeFunction.applyAsInt(element);
+
+		if(! elements.isEmpty() && queuedBytes + size > maxBytes) {
+			return false;
+		}
+
+		elements.add(element);
+		queuedBytes = queuedBytes + size;
+		notifyAll();
+
+		return true;
+	}
+
+	/**
+	 * Add the element without waiting for space (e.g., for terminal elements)
+	 * @param element
+	 */
+	public synchronized void putUnbounded(final E element) {
+		elements.add(element);
+		queuedBytes = queuedBytes + sizeFunction.applyAsInt(element);
+		notifyAll();
+	}
+
+	/**
+	 * Remove the head of the queue, wait until an element is available
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public synchronized E take() throws InterruptedException {
+
+		while(elements.isEmpty()) {
+			wait();
+		}
+
+		final E element = elements.remove();
+		queuedBytes = queuedBytes - sizeFunction.applyAsInt(element);
+		notifyAll();
+
+		return element;
+	}
+
+	/**
+	 * Remove all elements and wake up the waiting producers
+	 */
+	public synchronized void clear() {
+		elements.clear();
+		queuedBytes = 0;
+		notifyAll();
+	}
+
+	/**
+	 * Get the amount of bytes in the queue
+	 * @return
+	 */
+	public synchronized long getQueuedBytes() {
+		return queuedBytes;
+	}
+
+	/**
+	 * Get the amount of elements in the queue
+	 * @return
+	 */
+	public synchronized int size() {
+		return elements.size();
+	}
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *******************************************************************************/
+package org.bboxdb.commons.io;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool for byte buffers of a fixed size. The pool keeps at most
+ * maxPooledBuffers unused buffers, further buffers are left to the
+ * garbage collector.
+ */
+public class ByteBufferPool {
+
+	/**
+	 * The size of the buffers
+	 */
+	private final int bufferSize;
+
+	/**
+	 * The max amount of buffers kept in the pool
+	 */
+	private final int maxPooledBuffers;
+
+	/**
+	 * Allocate direct buffers
+	 */
+	private final boolean direct;
+
+	/**
+	 * The unused buffers
+	 */
+	private final Queue<ByteBuffer> pooledBuffers;
+
+	/**
+	 * The amount of buffers in the pool
+	 */
+	private final AtomicInteger pooledBufferCounter;
+
+	public ByteBufferPool(final int bufferSize, final int maxPooledBuffers, final boolean direct) {
+
+		if(bufferSize <= 0) {
+			throw new IllegalArgumentException("Invalid buffer size: " + bufferSize);
+		}
+
+		this.bufferSize = bufferSize;
+		this.maxPooledBuffers = maxPooledBuffers;
+		this.direct = direct;
+		this.pooledBuffers = new ConcurrentLinkedQueue<>();
+		this.pooledBufferCounter = new AtomicInteger(0);
+	}
+
+	/**
+	 * Get a cleared buffer from the pool or allocate a new one
+	 * @return
+	 */
+	public ByteBuffer acquire() {
+		final ByteBuffer buffer = pooledBuffers.poll();
+
+		if(buffer == null) {
+			return direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+		}
+
+		pooledBufferCounter.decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Return the buffer to the pool. Buffers that are not allocated by this
+	 * pool or exceed the pool size are dropped.
+	 * @param buffer
+	 */
+	public void release(final ByteBuffer buffer) {
+		if(buffer == null || buffer.capacity() != bufferSize || buffer.isDirect() != direct) {
+			return;
+		}
+
+		if(pooledBufferCounter.incrementAndGet() > maxPooledBuffers) {
+			pooledBufferCounter.decrementAndGet();
+			return;
+		}
+
+		buffer.clear();
+		pooledBuffers.offer(buffer);
+	}
+
+	/**
+	 * Get the size of the buffers
+	 * @return
+	 */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * Get the amount of unused buffers in the pool
+	 * @return
+	 */
+	public int getPooledBuffers() {
+		return pooledBufferCounter.get();
+	}
+
+	@Override
+	public String toString() {
+		return "ByteBufferPool [bufferSize=" + bufferSize + ", maxPooledBuffers=" + maxPooledBuffers
+				+ ", direct=" + direct + ", pooledBuffers=" + pooledBufferCounter.get() + "]";
+	}
+}
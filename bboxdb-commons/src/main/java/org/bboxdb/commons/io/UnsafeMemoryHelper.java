@@ -79,6 +79,20 @@ public class UnsafeMemoryHelper {
 		}
 	}
 
+	/**
+	 * Release the given direct byte buffer
+	 * @param memory
+	 */
+	public static void releaseDirectMemory(final ByteBuffer memory) {
+		if(memory == null || ! directMemoryUnmapperAvailable) {
+			return;
+		}
+		
+		if(memory.isDirect()) {
+			((DirectBuffer) memory).cleaner().clean();
+		}
+	}
+
 	/**
 	 * Get the number of mapped segments
 	 * @return
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *******************************************************************************/
+package org.bboxdb.commons.math;
+
+/**
+ * Geometric operations on the packed bounds of a hyperrectangle
+ * (low0, high0, low1, high1, ...). All points of the bounds are
+ * treated as included. The operations don't allocate memory (except
+ * merge) and contain specialized versions for 2 and 3 dimensions.
+ *
+ * The bounds of both arguments need to have the same dimension.
+ */
+public class GeometryKernel {
+
+	/**
+	 * The length of the bounds of a 2 dimensional box
+	 */
+	private final static int LENGTH_2D = 4;
+
+	/**
+	 * The length of the bounds of a 3 dimensional box
+	 */
+	private final static int LENGTH_3D = 6;
+
+	/**
+	 * Do the boxes share some space?
+	 * @param box1
+	 * @param box2
+	 * @return
+	 */
+	public static boolean intersects(final double[] box1, final double[] box2) {
+
+		switch(box1.length) {
+		case LENGTH_2D:
+			return box1[0] <= box2[1] && box2[0] <= box1[1]
+				&& box1[2] <= box2[3] && box2[2] <= box1[3];
+
+		case LENGTH_3D:
+			return box1[0] <= box2[1] && box2[0] <= box1[1]
+				&& box1[2] <= box2[3] && box2[2] <= box1[3]
+				&& box1[4] <= box2[5] && box2[4] <= box1[5];
+
+		default:
+			for(int i = 0; i < box1.length; i += 2) {
+				if(box1[i] > box2[i + 1] || box2[i] > box1[i + 1]) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+	}
+
+	/**
+	 * Is the second box fully covered by the first box?
+	 * @param box1
+	 * @param box2
+	 * @return
+	 */
+	public static boolean covers(final double[] box1, final double[] box2) {
+
+		switch(box1.length) {
+		case LENGTH_2D:
+			return box1[0] <= box2[0] && box2[1] <= box1[1]
+				&& box1[2] <= box2[2] && box2[3] <= box1[3];
+
+		case LENGTH_3D:
+			return box1[0] <= box2[0] && box2[1] <= box1[1]
+				&& box1[2] <= box2[2] && box2[3] <= box1[3]
+				&& box1[4] <= box2[4] && box2[5] <= box1[5];
+
+		default:
+			for(int i = 0; i < box1.length; i += 2) {
+				if(box2[i] < box1[i] || box2[i + 1] > box1[i + 1]) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+	}
+
+	/**
+	 * Get the volume of the box
+	 * @param box
+	 * @return
+	 */
+	public static double volume(final double[] box) {
+
+		switch(box.length) {
+		case LENGTH_2D:
+			return (box[1] - box[0]) * (box[3] - box[2]);
+
+		case LENGTH_3D:
+			return (box[1] - box[0]) * (box[3] - box[2]) * (box[5] - box[4]);
+
+		default:
+			double volume = 1;
+
+			for(int i = 0; i < box.length; i += 2) {
+				volume = volume * (box[i + 1] - box[i]);
+			}
+
+			return volume;
+		}
+	}
+
+	/**
+	 * Get the volume of the box that covers both boxes, without creating
+	 * the covering box. A box without dimensions is ignored.
+	 * @param box1
+	 * @param box2
+	 * @return
+	 */
+	public static double coveringVolume(final double[] box1, final double[] box2) {
+
+		if(box1.length == 0) {
+			return volume(box2);
+		}
+
+		if(box2.length == 0) {
+			return volume(box1);
+		}
+
+		switch(box1.length) {
+		case LENGTH_2D:
+			return (Math.max(box1[1], box2[1]) - Math.min(box1[0], box2[0]))
+				* (Math.max(box1[3], box2[3]) - Math.min(box1[2], box2[2]));
+
+		case LENGTH_3D:
+			return (Math.max(box1[1], box2[1]) - Math.min(box1[0], box2[0]))
+				* (Math.max(box1[3], box2[3]) - Math.min(box1[2], box2[2]))
+				* (Math.max(box1[5], box2[5]) - Math.min(box1[4], box2[4]));
+
+		default:
+			double volume = 1;
+
+			for(int i = 0; i < box1.length; i += 2) {
+				volume = volume * (Math.max(box1[i + 1], box2[i + 1]) - Math.min(box1[i], box2[i]));
+			}
+
+			return volume;
+		}
+	}
+
+	/**
+	 * Get the volume that needs to be added to the first box to cover
+	 * the second box
+	 * @param box1
+	 * @param box2
+	 * @return
+	 */
+	public static double enlargement(final double[] box1, final double[] box2) {
+
+		if(covers(box1, box2)) {
+			return 0;
+		}
+
+		return coveringVolume(box1, box2) - volume(box1);
+	}
+
+	/**
+	 * Enlarge the target box, so that the other box is covered
+	 * @param target
+	 * @param box
+	 */
+	public static void mergeInto(final double[] target, final double[] box) {
+
+		for(int i = 0; i < target.length; i += 2) {
+			if(box[i] < target[i]) {
+				target[i] = box[i];
+			}
+
+			if(box[i + 1] > target[i + 1]) {
+				target[i + 1] = box[i + 1];
+			}
+		}
+	}
+
+	/**
+	 * Get the box that covers both boxes
+	 * @param box1
+	 * @param box2
+	 * @return
+	 */
+	public static double[] merge(final double[] box1, final double[] box2) {
+		final double[] result = box1.clone();
+		mergeInto(result, box2);
+		return result;
+	}
+}
@@ -53,6 +53,11 @@ public class Hyperrectangle implements Comparable<Hyperrectangle> {
 	 */
 	private final boolean[] pointIncluded;
 
+	/**
+	 * Are all points included (allows the usage of the geometry kernel)
+	 */
+	private final boolean allPointsIncluded;
+
 	/**
 	 * Create from Double
 	 * @param args
@@ -74,6 +79,8 @@ public class Hyperrectangle implements Comparable<Hyperrectangle> {
 						" shuould be smaller than " + boundingBox[i]);
 			}
 		}
+
+		this.allPointsIncluded = true;
 	}
 
 	/**
@@ -92,6 +99,8 @@ public class Hyperrectangle implements Comparable<Hyperrectangle> {
 		for(int i = 0; i < values.length; i++) {
 			pointIncluded[i] = true;
 		}
+
+		this.allPointsIncluded = true;
 	}
 
 	/**
@@ -106,6 +115,14 @@ public class Hyperrectangle implements Comparable<Hyperrectangle> {
 		this.pointIncluded = new boolean[elements];
 
 		intervalsToArray(values);
+
+		boolean included = true;
+
+		for(final boolean point : pointIncluded) {
+			included = included && point;
+		}
+
+		this.allPointsIncluded = included;
 	}
 
 	/**
@@ -253,16 +270,20 @@ public class Hyperrectangle implements Comparable<Hyperrectangle> {
 			return true;
 		}
 
-		// Both boxes are equal (Case 5)
-		if(equals(otherBoundingBox)) {
-			return true;
-		}
-
 		// Dimensions are not equal
 		if(otherBoundingBox.getDimension() != getDimension()) {
 			return false;
 		}
 
+		if(allPointsIncluded && otherBoundingBox.allPointsIncluded) {
+			return GeometryKernel.intersects(boundingBox, otherBoundingBox.boundingBox);
+		}
+
+		// Both boxes are equal (Case 5)
+		if(equals(otherBoundingBox)) {
+			return true;
+		}
+
 		// Check the overlapping in each dimension d
 		for(int d = 0; d < getDimension(); d++) {
 
@@ -569,17 +590,8 @@ public class Hyperrectangle implements Comparable<Hyperrectangle> {
 			}
 		}
 
-		final int dimensions = hyperrectangle1.getDimension();
-
-		// Array with data for the result box
-		final double[] coverBox = new double[dimensions * 2];
-
-		for(int d = 0; d < dimensions; d++) {
-			coverBox[2 * d] = Math.min(hyperrectangle1.getCoordinateLow(d), hyperrectangle2.getCoordinateLow(d));
-			coverBox[2 * d + 1] = Math.max(hyperrectangle1.getCoordinateHigh(d), hyperrectangle2.getCoordinateHigh(d));
-		}
-
-		return new Hyperrectangle(coverBox);
+		return new Hyperrectangle(GeometryKernel.merge(hyperrectangle1.boundingBox,
+				hyperrectangle2.boundingBox));
 	}
 
 	/**
@@ -618,26 +630,24 @@ public class Hyperrectangle implements Comparable<Hyperrectangle> {
 		}
 
 		// Array with data for the result box
-		final double[] coverBox = new double[dimensions * 2];
+		double[] coverBox = null;
 
 		// Construct the covering bounding box
-		for(int d = 0; d < dimensions; d++) {
-
-			double resultMin = Double.MAX_VALUE;
-			double resultMax = Double.MIN_VALUE;
-
-			for(final Hyperrectangle currentBox : boundingBoxes) {
+		for(final Hyperrectangle currentBox : boundingBoxes) {
 
-				if(currentBox == FULL_SPACE) {
-					continue;
-				}
+			if(currentBox == FULL_SPACE) {
+				continue;
+			}
 
-				resultMin = Math.min(resultMin, currentBox.getCoordinateLow(d));
-				resultMax = Math.max(resultMax, currentBox.getCoordinateHigh(d));
+			if(coverBox == null) {
+				coverBox = currentBox.boundingBox.clone();
+			} else {
+				GeometryKernel.mergeInto(coverBox, currentBox.boundingBox);
 			}
+		}
 
-			coverBox[2 * d] = resultMin;     // Begin position
-			coverBox[2 * d + 1] = resultMax; // End position
+		if(coverBox == null) {
+			return FULL_SPACE;
 		}
 
 		return new Hyperrectangle(coverBox);
@@ -656,6 +666,10 @@ public class Hyperrectangle implements Comparable<Hyperrectangle> {
 
 		throwExceptionIfDimensionNotMatch(otherBox);
 
+		if(allPointsIncluded) {
+			return GeometryKernel.covers(boundingBox, otherBox.boundingBox);
+		}
+
 		for(int d = 0; d < getDimension(); d++) {
 
 			if(otherBox.getCoordinateLow(d) < getCoordinateLow(d)) {
@@ -713,15 +727,7 @@ public class Hyperrectangle implements Comparable<Hyperrectangle> {
 
 		throwExceptionIfDimensionNotMatch(otherBox);
 
-		if(isCovering(otherBox)) {
-			return 0;
-		}
-
-		final Hyperrectangle mergedBox = getCoveringBox(this, otherBox);
-
-		final double ourVolume = getVolume();
-
-		return mergedBox.getVolume() - ourVolume;
+		return GeometryKernel.enlargement(boundingBox, otherBox.boundingBox);
 	}
 
 	/**
@@ -729,15 +735,7 @@ public class Hyperrectangle implements Comparable<Hyperrectangle> {
 	 * @return
 	 */
 	public double getVolume() {
-
-		double volume = 1;
-
-		for(int d = 0; d < getDimension(); d++) {
-			final double extend = getCoordinateHigh(d) - getCoordinateLow(d);
-			volume = volume * extend;
-		}
-
-		return volume;
+		return GeometryKernel.volume(boundingBox);
 	}
 
 	/**
@@ -40,10 +40,7 @@ public class AcquirableService extends ServiceState implements AcquirableResourc
 			return false;
 		}
 		
-		synchronized (usageCounter) {
-			usageCounter.incrementAndGet();
-			usageCounter.notifyAll();
-		}
+		usageCounter.incrementAndGet();
 		
 		return true;
 	}
@@ -52,9 +49,11 @@ public class AcquirableService extends ServiceState implements AcquirableResourc
 	public void release() {
 		assert (usageCounter.get() > 0) : "Usage counter is 0";
 		
-		synchronized (usageCounter) {
-			usageCounter.decrementAndGet();
-			usageCounter.notifyAll();
+		// Only the last release has to wake up the waiting threads
+		if(usageCounter.decrementAndGet() == 0) {
+			synchronized (usageCounter) {
+				usageCounter.notifyAll();
+			}
 		}
 	}
 	
@@ -73,12 +72,12 @@ public class AcquirableService extends ServiceState implements AcquirableResourc
 	 */
 	public void waitUntilUnused() throws InterruptedException {
 		
-		while(usageCounter.get() > 0) {
-			synchronized (usageCounter) {
+		synchronized (usageCounter) {
+			while(usageCounter.get() > 0) {
 				usageCounter.wait();
 			}
 		}
-		
+
 	}
 
 }
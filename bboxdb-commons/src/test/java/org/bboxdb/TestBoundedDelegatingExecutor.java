@@ -0,0 +1,96 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *******************************************************************************/
+package org.bboxdb;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bboxdb.commons.concurrent.BoundedDelegatingExecutor;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestBoundedDelegatingExecutor {
+
+	/**
+	 * Test the execution in the shared executor
+	 * @throws InterruptedException
+	 */
+	@Test(timeout=60000)
+	public void testExecute() throws InterruptedException {
+		final ExecutorService sharedExecutor = Executors.newFixedThreadPool(2);
+		final BoundedDelegatingExecutor executor = new BoundedDelegatingExecutor(sharedExecutor, 10);
+		final AtomicInteger executions = new AtomicInteger(0);
+
+		for(int i = 0; i < 100; i++) {
+			executor.execute(() -> executions.incrementAndGet());
+		}
+
+		executor.shutdown();
+		Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		Assert.assertEquals(100, executions.get());
+		Assert.assertEquals(0, executor.getPendingTasks());
+		Assert.assertTrue(executor.isTerminated());
+
+		sharedExecutor.shutdown();
+	}
+
+	/**
+	 * Test the execution in the caller thread
+	 * @throws InterruptedException
+	 */
+	@Test(timeout=60000)
+	public void testCallerRuns() throws InterruptedException {
+		final ExecutorService sharedExecutor = Executors.newFixedThreadPool(1);
+		final BoundedDelegatingExecutor executor = new BoundedDelegatingExecutor(sharedExecutor, 1);
+		final CountDownLatch latch = new CountDownLatch(1);
+
+		executor.execute(() -> {
+			try {
+				latch.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		Assert.assertEquals(1, executor.getPendingTasks());
+
+		// The limit is reached, the task is executed by the caller
+		final Thread callerThread = Thread.currentThread();
+		final AtomicInteger callerExecutions = new AtomicInteger(0);
+		executor.execute(() -> {
+			if(Thread.currentThread() == callerThread) {
+				callerExecutions.incrementAndGet();
+			}
+		});
+
+		Assert.assertEquals(1, callerExecutions.get());
+
+		latch.countDown();
+		executor.shutdown();
+		Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+		// Tasks are discarded after shutdown
+		executor.execute(() -> callerExecutions.incrementAndGet());
+		Assert.assertEquals(1, callerExecutions.get());
+
+		sharedExecutor.shutdown();
+	}
+}
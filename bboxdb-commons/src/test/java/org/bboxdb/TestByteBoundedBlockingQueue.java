@@ -0,0 +1,120 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.bboxdb.commons.concurrent.ByteBoundedBlockingQueue;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestByteBoundedBlockingQueue {
+
+	/**
+	 * Test the order and the size of the queue
+	 * @throws InterruptedException
+	 */
+	@Test(timeout=60000)
+	public void testPutAndTake() throws InterruptedException {
+		final ByteBoundedBlockingQueue<String> queue = new ByteBoundedBlockingQueue<>(10, String::length);
+
+		queue.put("abc");
+		queue.put("defg");
+		Assert.assertEquals(2, queue.size());
+		Assert.assertEquals(7, queue.getQueuedBytes());
+
+		Assert.assertEquals("abc", queue.take());
+		Assert.assertEquals(4, queue.getQueuedBytes());
+		Assert.assertEquals("defg", queue.take());
+		Assert.assertEquals(0, queue.getQueuedBytes());
+		Assert.assertEquals(0, queue.size());
+	}
+
+	/**
+	 * Elements larger than the queue are accepted, when the queue is empty
+	 * @throws InterruptedException
+	 */
+	@Test(timeout=60000)
+	public void testLargeElement() throws InterruptedException {
+		final ByteBoundedBlockingQueue<String> queue = new ByteBoundedBlockingQueue<>(2, String::length);
+		queue.put("abcdef");
+		Assert.assertEquals(6, queue.getQueuedBytes());
+
+		queue.putUnbounded("gh");
+		Assert.assertEquals(8, queue.getQueuedBytes());
+		Assert.assertEquals(2, queue.size());
+	}
+
+	/**
+	 * The producer is blocked until the consumer has removed enough bytes
+	 * @throws InterruptedException
+	 */
+	@Test(timeout=60000)
+	public void testBlockingPut() throws InterruptedException {
+		final ByteBoundedBlockingQueue<String> queue = new ByteBoundedBlockingQueue<>(5, String::length);
+		final CountDownLatch putDone = new CountDownLatch(1);
+
+		queue.put("abcd");
+
+		final Thread producer = new Thread(() -> {
+			try {
+				queue.put("ef");
+				putDone.countDown();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		producer.start();
+
+		Assert.assertFalse(putDone.await(200, TimeUnit.MILLISECONDS));
+		Assert.assertEquals("abcd", queue.take());
+		Assert.assertTrue(putDone.await(10, TimeUnit.SECONDS));
+		Assert.assertEquals("ef", queue.take());
+
+		producer.join();
+	}
+
+	/**
+	 * The offer fails when not enough space is available
+	 * @throws InterruptedException
+	 */
+	@Test(timeout=60000)
+	public void testOffer() throws InterruptedException {
+		final ByteBoundedBlockingQueue<String> queue = new ByteBoundedBlockingQueue<>(5, String::length);
+
+		Assert.assertTrue(queue.offer("abcd"));
+		Assert.assertFalse(queue.offer("ef"));
+		Assert.assertEquals(1, queue.size());
+
+		queue.clear();
+		Assert.assertEquals(0, queue.size());
+		Assert.assertEquals(0, queue.getQueuedBytes());
+		Assert.assertTrue(queue.offer("ef"));
+		Assert.assertEquals("ef", queue.take());
+	}
+
+	/**
+	 * Test invalid parameter
+	 */
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidSize() {
+		new ByteBoundedBlockingQueue<String>(0, String::length);
+	}
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *******************************************************************************/
+package org.bboxdb;
+
+import java.nio.ByteBuffer;
+
+import org.bboxdb.commons.io.ByteBufferPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestByteBufferPool {
+
+	/**
+	 * Test the reuse of the buffers
+	 */
+	@Test(timeout=60000)
+	public void testReuse() {
+		final ByteBufferPool pool = new ByteBufferPool(1024, 2, false);
+		Assert.assertEquals(0, pool.getPooledBuffers());
+
+		final ByteBuffer buffer1 = pool.acquire();
+		Assert.assertEquals(1024, buffer1.capacity());
+		Assert.assertFalse(buffer1.isDirect());
+
+		buffer1.putInt(5);
+		pool.release(buffer1);
+		Assert.assertEquals(1, pool.getPooledBuffers());
+
+		final ByteBuffer buffer2 = pool.acquire();
+		Assert.assertTrue(buffer1 == buffer2);
+		Assert.assertEquals(0, buffer2.position());
+		Assert.assertEquals(1024, buffer2.remaining());
+		Assert.assertEquals(0, pool.getPooledBuffers());
+	}
+
+	/**
+	 * Test the limit of the pool
+	 */
+	@Test(timeout=60000)
+	public void testPoolLimit() {
+		final ByteBufferPool pool = new ByteBufferPool(128, 2, true);
+
+		final ByteBuffer buffer1 = pool.acquire();
+		final ByteBuffer buffer2 = pool.acquire();
+		final ByteBuffer buffer3 = pool.acquire();
+		Assert.assertTrue(buffer1.isDirect());
+
+		pool.release(buffer1);
+		pool.release(buffer2);
+		pool.release(buffer3);
+		Assert.assertEquals(2, pool.getPooledBuffers());
+
+		// Buffers of other pools are ignored
+		pool.release(ByteBuffer.allocate(128));
+		pool.release(ByteBuffer.allocateDirect(64));
+		Assert.assertEquals(2, pool.getPooledBuffers());
+	}
+
+	/**
+	 * Test invalid buffer sizes
+	 */
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidSize() {
+		new ByteBufferPool(0, 2, false);
+	}
+}
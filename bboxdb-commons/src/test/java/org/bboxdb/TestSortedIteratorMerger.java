@@ -22,6 +22,9 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import org.bboxdb.commons.DuplicateResolver;
 import org.bboxdb.commons.SortedIteratorMerger;
@@ -267,4 +270,54 @@ public class TestSortedIteratorMerger {
 		Assert.assertTrue(resultList.contains("geh"));
 		Assert.assertEquals(7, mergeIterator.getReadElements());
 	}
+	
+	/**
+	 * Test the merge of many iterators
+	 */
+	@Test(timeout=60000)
+	public void testMergeManyIterators() {
+		final Random random = new Random(42);
+		final List<Iterator<String>> iteratorList = new ArrayList<>();
+		final SortedSet<String> expectedResult = new TreeSet<>();
+		int totalElements = 0;
+		
+		for(int i = 0; i < 25; i++) {
+			final SortedSet<String> elements = new TreeSet<>();
+			
+			for(int j = 0; j < 100; j++) {
+				elements.add(String.format("%05d", random.nextInt(1000)));
+			}
+			
+			totalElements = totalElements + elements.size();
+			expectedResult.addAll(elements);
+			iteratorList.add(elements.iterator());
+		}
+		
+		final SortedIteratorMerger<String> mergeIterator = new SortedIteratorMerger<String>(
+				iteratorList, STRING_COMPARATOR, FIRST_ELEMENT_DUPLICATE_RESOLVER);
+		
+		final List<String> resultList = getResultList(mergeIterator);
+		Assert.assertEquals(new ArrayList<>(expectedResult), resultList);
+		Assert.assertEquals(totalElements, mergeIterator.getReadElements());
+	}
+	
+	/**
+	 * The duplicates are passed in the order of the iterators to the resolver
+	 */
+	@Test(timeout=60000)
+	public void testDuplicateOrder() {
+		final String[] values = {"a1", "a2", "a3", "a4"};
+		final Comparator<String> firstCharComparator = (e1, e2) -> Character.compare(e1.charAt(0), e2.charAt(0));
+		
+		final SortedIteratorMerger<String> mergeIterator = new SortedIteratorMerger<String>(
+				Arrays.asList(Arrays.asList(values[0], values[1]).iterator(), 
+						Arrays.asList(values[2]).iterator(), 
+						Arrays.asList(values[3]).iterator()), 
+				firstCharComparator, 
+				DEFAULT_DUPLICATE_RESOLVER);
+		
+		final List<String> resultList = getResultList(mergeIterator);
+		Assert.assertEquals(Arrays.asList(values), resultList);
+		Assert.assertFalse(mergeIterator.iterator().hasNext());
+	}
 }
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *******************************************************************************/
+package org.bboxdb.math;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.bboxdb.commons.math.DoubleInterval;
+import org.bboxdb.commons.math.GeometryKernel;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestGeometryKernel {
+
+	protected final static double EQUALS_DELTA = 0.0001;
+
+	/**
+	 * Test the intersection in 2 and 3 dimensions
+	 */
+	@Test(timeout=60_000)
+	public void testIntersects() {
+		final double[] box1 = {1, 3, 1, 3};
+		final double[] box2 = {3, 5, 3, 5};
+		final double[] box3 = {4, 5, 1, 3};
+
+		Assert.assertTrue(GeometryKernel.intersects(box1, box1));
+		Assert.assertTrue(GeometryKernel.intersects(box1, box2));
+		Assert.assertTrue(GeometryKernel.intersects(box2, box1));
+		Assert.assertFalse(GeometryKernel.intersects(box1, box3));
+		Assert.assertFalse(GeometryKernel.intersects(box3, box1));
+
+		final double[] box4 = {1, 3, 1, 3, 1, 3};
+		final double[] box5 = {2, 5, 2, 5, 2, 5};
+		final double[] box6 = {2, 5, 2, 5, 4, 5};
+		Assert.assertTrue(GeometryKernel.intersects(box4, box5));
+		Assert.assertFalse(GeometryKernel.intersects(box4, box6));
+	}
+
+	/**
+	 * Compare the intersection with the interval based implementation
+	 */
+	@Test(timeout=60_000)
+	public void testIntersectsRandom() {
+		final Random random = new Random(42);
+
+		for(int dimension = 1; dimension <= 5; dimension++) {
+			for(int i = 0; i < 10_000; i++) {
+				final double[] box1 = createRandomBox(random, dimension);
+				final double[] box2 = createRandomBox(random, dimension);
+
+				final boolean expected = isOverlappingWithIntervals(box1, box2);
+				Assert.assertEquals(expected, GeometryKernel.intersects(box1, box2));
+				Assert.assertEquals(expected, GeometryKernel.intersects(box2, box1));
+			}
+		}
+	}
+
+	/**
+	 * Test the covering
+	 */
+	@Test(timeout=60_000)
+	public void testCovers() {
+		final double[] box1 = {1, 5, 1, 5};
+		final double[] box2 = {2, 3, 1, 5};
+		final double[] box3 = {2, 6, 1, 5};
+
+		Assert.assertTrue(GeometryKernel.covers(box1, box1));
+		Assert.assertTrue(GeometryKernel.covers(box1, box2));
+		Assert.assertFalse(GeometryKernel.covers(box2, box1));
+		Assert.assertFalse(GeometryKernel.covers(box1, box3));
+
+		final double[] box4 = {1, 5, 1, 5, 1, 5, 1, 5};
+		final double[] box5 = {2, 3, 2, 3, 2, 3, 2, 3};
+		Assert.assertTrue(GeometryKernel.covers(box4, box5));
+		Assert.assertFalse(GeometryKernel.covers(box5, box4));
+	}
+
+	/**
+	 * Test the volume and the enlargement
+	 */
+	@Test(timeout=60_000)
+	public void testVolumeAndEnlargement() {
+		Assert.assertEquals(4, GeometryKernel.volume(new double[] {1, 3, 1, 3}), EQUALS_DELTA);
+		Assert.assertEquals(8, GeometryKernel.volume(new double[] {1, 3, 1, 3, 1, 3}), EQUALS_DELTA);
+		Assert.assertEquals(16, GeometryKernel.volume(new double[] {1, 3, 1, 3, 1, 3, 1, 3}), EQUALS_DELTA);
+		Assert.assertEquals(1, GeometryKernel.volume(new double[] {}), EQUALS_DELTA);
+
+		final double[] box1 = {0, 2, 0, 2};
+		final double[] box2 = {1, 4, 1, 2};
+		Assert.assertEquals(8, GeometryKernel.coveringVolume(box1, box2), EQUALS_DELTA);
+		Assert.assertEquals(4, GeometryKernel.enlargement(box1, box2), EQUALS_DELTA);
+		Assert.assertEquals(0, GeometryKernel.enlargement(box1, new double[] {1, 2, 1, 2}), EQUALS_DELTA);
+		Assert.assertEquals(4, GeometryKernel.coveringVolume(box1, new double[] {}), EQUALS_DELTA);
+
+		final double[] box3 = {0, 2, 0, 2, 0, 2};
+		final double[] box4 = {0, 2, 0, 2, 0, 4};
+		Assert.assertEquals(8, GeometryKernel.enlargement(box3, box4), EQUALS_DELTA);
+	}
+
+	/**
+	 * Test the merge of boxes
+	 */
+	@Test(timeout=60_000)
+	public void testMerge() {
+		final double[] box1 = {-5, -3, 1, 2};
+		final double[] box2 = {-4, -1, 0, 1};
+
+		final double[] result = GeometryKernel.merge(box1, box2);
+		Assert.assertArrayEquals(new double[] {-5, -1, 0, 2}, result, EQUALS_DELTA);
+
+		// Box 1 is unchanged
+		Assert.assertArrayEquals(new double[] {-5, -3, 1, 2}, box1, EQUALS_DELTA);
+
+		GeometryKernel.mergeInto(box1, box2);
+		Assert.assertArrayEquals(result, box1, EQUALS_DELTA);
+	}
+
+	/**
+	 * Create a random box with the given dimension
+	 * @param random
+	 * @param dimension
+	 * @return
+	 */
+	private double[] createRandomBox(final Random random, final int dimension) {
+		final double[] box = new double[dimension * 2];
+
+		for(int d = 0; d < dimension; d++) {
+			final double begin = random.nextInt(100);
+			box[2 * d] = begin;
+			box[2 * d + 1] = begin + random.nextInt(20);
+		}
+
+		return box;
+	}
+
+	/**
+	 * Test the intersection with the double intervals
+	 * @param box1
+	 * @param box2
+	 * @return
+	 */
+	private boolean isOverlappingWithIntervals(final double[] box1, final double[] box2) {
+		final List<Boolean> result = new ArrayList<>();
+
+		for(int i = 0; i < box1.length; i += 2) {
+			final DoubleInterval interval1 = new DoubleInterval(box1[i], box1[i + 1]);
+			final DoubleInterval interval2 = new DoubleInterval(box2[i], box2[i + 1]);
+			result.add(interval1.isOverlappingWith(interval2));
+		}
+
+		return ! result.contains(false);
+	}
+}
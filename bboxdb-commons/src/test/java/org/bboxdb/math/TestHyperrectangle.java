@@ -326,6 +326,19 @@ public class TestHyperrectangle {
 		Assert.assertArrayEquals(new double[] {1d, 2d, 1d, 4f}, resultBox.toDoubleArray(), EQUALS_DELTA);
 	}
 
+	/**
+	 * Test merge on array with negative coordinates
+	 */
+	@Test(timeout=60000)
+	public void testMergeBoxes2() {
+		final Hyperrectangle boundingBox1 = new Hyperrectangle(-5d, -4d, -3d, -2d);
+		final Hyperrectangle boundingBox2 = new Hyperrectangle(-6d, -5d, -4d, -3d);
+		final Hyperrectangle resultBox = Hyperrectangle.getCoveringBox(
+				new ArrayList<>(Arrays.asList(boundingBox1, boundingBox2)));
+
+		Assert.assertArrayEquals(new double[] {-6d, -4d, -4d, -2d}, resultBox.toDoubleArray(), EQUALS_DELTA);
+	}
+
 	/**
 	 * Test merge on array
 	 */
@@ -0,0 +1,93 @@
+package org.bboxdb.benchmark;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bboxdb.commons.SortedIteratorMerger;
+import org.bboxdb.commons.math.Hyperrectangle;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.sstable.duplicateresolver.NewestTupleDuplicateResolver;
+import org.bboxdb.storage.util.TupleHelper;
+
+import com.google.common.base.Stopwatch;
+
+public class BenchmarkCompactionMerge {
+
+	/**
+	 * The number of tuples per input (like the tuples of one SSTable)
+	 */
+	private final static int TUPLES_PER_INPUT = 100_000;
+
+	/**
+	 * The number of iterations per benchmark
+	 */
+	private final static int ITERATIONS = 20;
+
+	public static void main(String[] args) {
+
+		for(final int inputs : new int[] {2, 10, 25}) {
+			final List<List<Tuple>> inputTuples = createInputs(inputs);
+			final List<Long> elapsedBenchmarks = new ArrayList<>();
+
+			for(int i = 0; i < ITERATIONS; i++) {
+				final List<Iterator<Tuple>> iterators = new ArrayList<>();
+				inputTuples.forEach(t -> iterators.add(t.iterator()));
+
+				final Stopwatch watch = Stopwatch.createStarted();
+
+				final SortedIteratorMerger<Tuple> sortedIteratorMerger = new SortedIteratorMerger<>(
+						iterators, TupleHelper.TUPLE_KEY_COMPARATOR, new NewestTupleDuplicateResolver());
+
+				long mergedTuples = 0;
+
+				for(final Tuple tuple : sortedIteratorMerger) {
+					if(tuple != null) {
+						mergedTuples++;
+					}
+				}
+
+				final long elapsed = watch.elapsed(TimeUnit.MILLISECONDS);
+				elapsedBenchmarks.add(elapsed);
+
+				System.out.format("Inputs %d, Iteartion %d, Elapsed: %d, Read tuples %d, Merged tuples: %d%n",
+						inputs, i, elapsed, sortedIteratorMerger.getReadElements(), mergedTuples);
+			}
+
+			final long max = elapsedBenchmarks.stream().mapToLong(l -> l).max().orElse(0);
+			final long min = elapsedBenchmarks.stream().mapToLong(l -> l).min().orElse(0);
+			final double avg = elapsedBenchmarks.stream().mapToLong(l -> l).average().orElse(0);
+			final double tuplesPerSecond = (inputs * TUPLES_PER_INPUT) / (Math.max(1, avg) / 1000.0);
+
+			System.out.format("Inputs %d: Max %d, Min %d, Avg %f, Tuples per second %f%n",
+					inputs, max, min, avg, tuplesPerSecond);
+		}
+	}
+
+	/**
+	 * Create the sorted inputs, the keys of the inputs overlap
+	 * @param inputs
+	 * @return
+	 */
+	private static List<List<Tuple>> createInputs(final int inputs) {
+		final List<List<Tuple>> result = new ArrayList<>();
+		final Hyperrectangle boundingBox = new Hyperrectangle(1d, 2d, 1d, 2d);
+		final int keyRange = inputs * TUPLES_PER_INPUT * 2;
+
+		for(int i = 0; i < inputs; i++) {
+			final List<Tuple> tuples = new ArrayList<>(TUPLES_PER_INPUT);
+
+			for(int j = 0; j < TUPLES_PER_INPUT; j++) {
+				final int key = ThreadLocalRandom.current().nextInt(keyRange);
+				tuples.add(new Tuple(String.format("%08d", key), boundingBox, "".getBytes()));
+			}
+
+			tuples.sort(TupleHelper.TUPLE_KEY_COMPARATOR);
+			result.add(tuples);
+		}
+
+		return result;
+	}
+}
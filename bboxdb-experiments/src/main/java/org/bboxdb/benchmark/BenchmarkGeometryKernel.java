@@ -0,0 +1,76 @@
+package org.bboxdb.benchmark;
+
+import java.util.List;
+
+import org.bboxdb.commons.math.DoubleInterval;
+import org.bboxdb.commons.math.Hyperrectangle;
+
+public class BenchmarkGeometryKernel extends BenchmarkHyperrectangle {
+
+	/**
+	 * The number of rectangles per benchmark
+	 */
+	private final static int RECTANGLES = 1_000_000;
+
+	/**
+	 * Prevent the removal of the benchmark code by the JIT
+	 */
+	private static double blackhole = 0;
+
+	public static void main(String[] args) {
+
+		for(int dimension = 2; dimension <= 4; dimension++) {
+			final List<Hyperrectangle> rectangles = createRectangles(RECTANGLES, dimension);
+			final Hyperrectangle queryBox = rectangles.get(0);
+
+			runBenchmark("Interval intersects " + dimension + "d",
+					() -> rectangles.forEach(r -> consume(intersectsWithIntervals(queryBox, r))));
+
+			runBenchmark("Kernel intersects " + dimension + "d",
+					() -> rectangles.forEach(r -> consume(queryBox.intersects(r))));
+
+			runBenchmark("Enlargement " + dimension + "d",
+					() -> rectangles.forEach(r -> blackhole += queryBox.calculateEnlargement(r)));
+
+			runBenchmark("Covering box " + dimension + "d",
+					() -> Hyperrectangle.getCoveringBox(rectangles));
+		}
+
+		System.out.println(blackhole);
+	}
+
+	/**
+	 * Consume the result
+	 * @param result
+	 */
+	private static void consume(final boolean result) {
+		if(result) {
+			blackhole++;
+		}
+	}
+
+	/**
+	 * The intersection based on double intervals (the implementation before
+	 * the geometry kernel was introduced)
+	 * @param box1
+	 * @param box2
+	 * @return
+	 */
+	private static boolean intersectsWithIntervals(final Hyperrectangle box1, final Hyperrectangle box2) {
+
+		if(box1.equals(box2)) {
+			return true;
+		}
+
+		for(int d = 0; d < box1.getDimension(); d++) {
+			final DoubleInterval interval1 = box1.getIntervalForDimension(d);
+			final DoubleInterval interval2 = box2.getIntervalForDimension(d);
+
+			if(! interval1.isOverlappingWith(interval2)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+}
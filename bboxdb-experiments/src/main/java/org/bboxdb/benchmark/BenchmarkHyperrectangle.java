@@ -11,36 +11,64 @@ import com.google.common.base.Stopwatch;
 
 public class BenchmarkHyperrectangle {
 
+	/**
+	 * The number of iterations per benchmark
+	 */
+	protected final static int ITERATIONS = 100;
+
 	public static void main(String[] args) {
-		final List<Hyperrectangle> rectangles = new ArrayList<>();
+		final List<Hyperrectangle> rectangles = createRectangles(10_000_000, 3);
+
+		runBenchmark("getCoveringBox", () -> Hyperrectangle.getCoveringBox(rectangles));
+	}
 
-		for(long i = 0; i < 10_000_000; i++) {
-			final double d1 = ThreadLocalRandom.current().nextDouble();
-			final double d2 = ThreadLocalRandom.current().nextDouble();
-			final double d3 = ThreadLocalRandom.current().nextDouble();
+	/**
+	 * Create random rectangles with the given dimension
+	 * @param number
+	 * @param dimension
+	 * @return
+	 */
+	protected static List<Hyperrectangle> createRectangles(final int number, final int dimension) {
+		final List<Hyperrectangle> rectangles = new ArrayList<>(number);
 
-			final Hyperrectangle hyperrectangle = new Hyperrectangle(d1, d1 + 10.0, d2, d2 + 10.0, d3, d3 + 10.0);
-			rectangles.add(hyperrectangle);
+		for(long i = 0; i < number; i++) {
+			final double[] values = new double[dimension * 2];
+
+			for(int d = 0; d < dimension; d++) {
+				final double begin = ThreadLocalRandom.current().nextDouble();
+				values[2 * d] = begin;
+				values[2 * d + 1] = begin + 10.0;
+			}
+
+			rectangles.add(new Hyperrectangle(values));
 		}
 
+		return rectangles;
+	}
 
+	/**
+	 * Run the benchmark and print the elapsed times
+	 * @param name
+	 * @param benchmark
+	 */
+	protected static void runBenchmark(final String name, final Runnable benchmark) {
 		final List<Long> elapsedBenchmarks = new ArrayList<>();
 
-		for(int i = 0; i < 100; i++) {
-		final Stopwatch watch = Stopwatch.createStarted();
-			Hyperrectangle.getCoveringBox(rectangles);
+		for(int i = 0; i < ITERATIONS; i++) {
+			final Stopwatch watch = Stopwatch.createStarted();
+			benchmark.run();
 
 			final long elapsed = watch.elapsed(TimeUnit.MILLISECONDS);
 			elapsedBenchmarks.add(elapsed);
 
-			System.out.format("Iteartion %d, Elapsed: %d%n", i, elapsed);
+			System.out.format("%s: Iteartion %d, Elapsed: %d%n", name, i, elapsed);
 		}
 
 		final long max = elapsedBenchmarks.stream().mapToLong(l -> l).max().orElse(0);
 		final long min = elapsedBenchmarks.stream().mapToLong(l -> l).min().orElse(0);
 		final double avg = elapsedBenchmarks.stream().mapToLong(l -> l).average().orElse(0);
 
-		System.out.format("Max %d, Min %d, Avg %f%n", max, min, avg);
+		System.out.format("%s: Max %d, Min %d, Avg %f%n", name, max, min, avg);
 	}
 
 }
@@ -0,0 +1,98 @@
+package org.bboxdb.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bboxdb.commons.io.FileUtil;
+import org.bboxdb.commons.math.Hyperrectangle;
+import org.bboxdb.misc.BBoxDBConfigurationManager;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.sstable.SSTableHelper;
+import org.bboxdb.storage.sstable.SSTableWriter;
+import org.bboxdb.storage.sstable.reader.SSTableKeyIndexReader;
+import org.bboxdb.storage.sstable.reader.SSTableReader;
+
+import com.google.common.base.Stopwatch;
+
+public class BenchmarkSSTableConcurrentRead {
+
+	protected final static TupleStoreName TEST_RELATION = new TupleStoreName("testgroup1_concurrentread");
+
+	/**
+	 * The amount of tuples in the SSTable
+	 */
+	protected final static int TUPLES = 100_000;
+
+	/**
+	 * The amount of reads per thread and iteration
+	 */
+	protected final static int READS_PER_THREAD = 1_000_000;
+
+	public static void main(String[] args) throws Exception {
+		final String storageDirectory = BBoxDBConfigurationManager.getConfiguration().getStorageDirectories().get(0);
+
+		final String relationDirectory = SSTableHelper.getSSTableDir(storageDirectory, TEST_RELATION);
+		final File relationDirectoryFile = new File(relationDirectory);
+		FileUtil.deleteRecursive(relationDirectoryFile.toPath());
+		relationDirectoryFile.mkdirs();
+
+		// Write the SSTable
+		try(final SSTableWriter writer = new SSTableWriter(storageDirectory, TEST_RELATION, 1, TUPLES)) {
+			writer.open();
+
+			for(int i = 0; i < TUPLES; i++) {
+				final double d1 = ThreadLocalRandom.current().nextDouble();
+				final double d2 = ThreadLocalRandom.current().nextDouble();
+				final Hyperrectangle hyperrectangle = new Hyperrectangle(d1, d1 + 10.0, d2, d2 + 10.0);
+				final String key = String.format("%010d", i);
+				writer.addTuple(new Tuple(key, hyperrectangle, key.getBytes()));
+			}
+		}
+
+		final SSTableReader reader = new SSTableReader(storageDirectory, TEST_RELATION, 1);
+		reader.init();
+		final SSTableKeyIndexReader indexReader = new SSTableKeyIndexReader(reader);
+		indexReader.init();
+
+		final int maxThreads = Runtime.getRuntime().availableProcessors();
+
+		for(int threads = 1; threads <= maxThreads; threads = threads * 2) {
+			final ExecutorService executor = Executors.newFixedThreadPool(threads);
+			final List<Future<?>> futures = new ArrayList<>();
+
+			final Stopwatch watch = Stopwatch.createStarted();
+
+			for(int thread = 0; thread < threads; thread++) {
+				futures.add(executor.submit(() -> {
+					for(int i = 0; i < READS_PER_THREAD; i++) {
+						final int entry = ThreadLocalRandom.current().nextInt(TUPLES);
+						indexReader.getTupleForIndexEntry(entry);
+					}
+					return null;
+				}));
+			}
+
+			for(final Future<?> future : futures) {
+				future.get();
+			}
+
+			final long elapsed = watch.elapsed(TimeUnit.MILLISECONDS);
+			final double readsPerSecond = (threads * (double) READS_PER_THREAD) / elapsed * 1000.0;
+
+			System.out.format("Threads %d, Elapsed: %d, Reads/s: %f%n", threads, elapsed, readsPerSecond);
+
+			executor.shutdown();
+		}
+
+		indexReader.shutdown();
+		reader.shutdown();
+	}
+
+}
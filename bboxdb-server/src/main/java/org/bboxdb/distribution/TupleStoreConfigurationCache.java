@@ -44,6 +44,11 @@ public class TupleStoreConfigurationCache {
 	 */
 	protected final Map<String, DuplicateResolver<Tuple>> cache;
 	
+	/**
+	 * The configuration cache
+	 */
+	protected final Map<String, TupleStoreConfiguration> configurationCache;
+	
 	/**
 	 * The Logger
 	 */
@@ -56,6 +61,7 @@ public class TupleStoreConfigurationCache {
 	private TupleStoreConfigurationCache() {
 		// private singleton constructor
 		cache = new HashMap<>();
+		configurationCache = new HashMap<>();
 	}
 	
 	@Override
@@ -74,6 +80,30 @@ public class TupleStoreConfigurationCache {
 	public synchronized DuplicateResolver<Tuple> getDuplicateResolverForTupleStore(final String tupleStorename) {
 		
 		if(!cache.containsKey(tupleStorename)) {
+			final TupleStoreConfiguration tupleStoreConfiguration = getTupleStoreConfiguration(tupleStorename);
+			
+			if(tupleStoreConfiguration == null) {
+				logger.error("Table {} is not known, using do nothing duplicate resolver", tupleStorename);
+				return new DoNothingDuplicateResolver();
+			}
+			
+			final DuplicateResolver<Tuple> resolver = TupleDuplicateResolverFactory.build(tupleStoreConfiguration);
+			cache.put(tupleStorename, resolver);
+		}
+		
+		final DuplicateResolver<Tuple> duplicateResolver = cache.get(tupleStorename);
+			
+		return duplicateResolver;
+	}
+	
+	/**
+	 * Get the configuration of the tuple store
+	 * @param tupleStorename
+	 * @return the configuration or null, if the table is not known
+	 */
+	public synchronized TupleStoreConfiguration getTupleStoreConfiguration(final String tupleStorename) {
+		
+		if(!configurationCache.containsKey(tupleStorename)) {
 			try {
 				final TupleStoreAdapter tupleStoreAdapter = ZookeeperClientFactory
 						.getZookeeperClient().getTupleStoreAdapter();
@@ -81,22 +111,18 @@ public class TupleStoreConfigurationCache {
 				final TupleStoreName tupleStoreNameObject = new TupleStoreName(tupleStorename);
 
 				if(! tupleStoreAdapter.isTableKnown(tupleStoreNameObject)) {
-					logger.error("Table {} is not known, using do nothing duplicate resolver", tupleStorename);
-					return new DoNothingDuplicateResolver();
+					return null;
 				}
 				
 				final TupleStoreConfiguration tupleStoreConfiguration = tupleStoreAdapter.readTuplestoreConfiguration(tupleStoreNameObject);
-				final DuplicateResolver<Tuple> resolver = TupleDuplicateResolverFactory.build(tupleStoreConfiguration);
-				cache.put(tupleStorename, resolver);
+				configurationCache.put(tupleStorename, tupleStoreConfiguration);
 			} catch (ZookeeperException e) {
 				logger.error("Exception while reading zookeeper data", e);
-				return new DoNothingDuplicateResolver();
+				return null;
 			}
 		}
 		
-		final DuplicateResolver<Tuple> duplicateResolver = cache.get(tupleStorename);
-			
-		return duplicateResolver;
+		return configurationCache.get(tupleStorename);
 	}
 	
 	/**
@@ -104,6 +130,7 @@ public class TupleStoreConfigurationCache {
 	 */
 	public synchronized void clear() {
 		cache.clear();
+		configurationCache.clear();
 	}
 
 }
@@ -60,6 +60,11 @@ public class MembershipConnectionService implements BBoxDBService {
 	 */
 	private short tuplesPerPage;
 
+	/**
+	 * The amount of pages that are requested in advance
+	 */
+	private int pagesInFlight;
+
 	/**
 	 * The tuple store manager registry (used for gossip, between server<->server connections)
 	 */
@@ -86,6 +91,7 @@ public class MembershipConnectionService implements BBoxDBService {
 		this.knownInstances = new ConcurrentHashMap<>();
 		this.pagingEnabled = false;
 		this.tuplesPerPage = 0;
+		this.pagesInFlight = BBoxDBClient.DEFAULT_PAGES_IN_FLIGHT;
 		this.blacklist = new HashSet<>();
 	}
 
@@ -225,6 +231,7 @@ public class MembershipConnectionService implements BBoxDBService {
 
 		client.setPagingEnabled(pagingEnabled);
 		client.setTuplesPerPage(tuplesPerPage);
+		client.setPagesInFlight(pagesInFlight);
 		client.setTupleStoreManagerRegistry(tupleStoreManagerRegistry);
 
 		final boolean result = connection.connect();
@@ -324,6 +331,23 @@ public class MembershipConnectionService implements BBoxDBService {
 		serverConnections.values().forEach(c -> c.getBboxDBClient().setTuplesPerPage(tuplesPerPage));
 	}
 
+	/**
+	 * Get the amount of pages that are requested in advance
+	 * @return
+	 */
+	public int getPagesInFlight() {
+		return pagesInFlight;
+	}
+
+	/**
+	 * Set the amount of pages that are requested in advance
+	 * @param pagesInFlight
+	 */
+	public void setPagesInFlight(final int pagesInFlight) {
+		this.pagesInFlight = pagesInFlight;
+		serverConnections.values().forEach(c -> c.getBboxDBClient().setPagesInFlight(pagesInFlight));
+	}
+
 	/**
 	 * Get the tuple store manager registry (used for gossip in keep alive)
 	 * @return
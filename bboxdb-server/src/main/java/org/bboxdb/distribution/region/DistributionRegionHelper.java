@@ -85,7 +85,33 @@ public class DistributionRegionHelper {
 			final DistributionRegion rootRegion,
 			final Hyperrectangle boundingBox) {
 
-		return rootRegion.getThisAndChildRegions((d) -> d.getConveringBox().intersects(boundingBox));
+		final List<DistributionRegion> result = new ArrayList<>();
+		addDistributionRegionsForBoundingBox(rootRegion, boundingBox, result);
+		return result;
+	}
+
+	/**
+	 * Add the region and its children to the result, if they are intersected by the
+	 * bounding box. The children are created by splitting the region, so they are
+	 * located inside of the region and the subtree of a not intersected region
+	 * does not need to be visited.
+	 *
+	 * @param region
+	 * @param boundingBox
+	 * @param result
+	 */
+	private static void addDistributionRegionsForBoundingBox(final DistributionRegion region,
+			final Hyperrectangle boundingBox, final List<DistributionRegion> result) {
+
+		if(! region.getConveringBox().intersects(boundingBox)) {
+			return;
+		}
+
+		result.add(region);
+
+		for(final DistributionRegion child : region.getDirectChildren()) {
+			addDistributionRegionsForBoundingBox(child, boundingBox, result);
+		}
 	}
 
 	/**
@@ -18,19 +18,25 @@
 package org.bboxdb.distribution.region;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.bboxdb.commons.math.Hyperrectangle;
 import org.bboxdb.misc.Const;
 import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.sstable.spatialindex.SpatialIndexEntry;
+import org.bboxdb.storage.sstable.spatialindex.rtree.RTreeBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,6 +59,16 @@ public class DistributionRegionIdMapper {
 	 */
 	private final Object MUTEX;
 	
+	/**
+	 * The lock for the mappings and the spatial index
+	 */
+	private final ReadWriteLock indexLock;
+	
+	/**
+	 * The spatial index of the mappings
+	 */
+	private RegionIndex regionIndex;
+	
 	/**
 	 * The Logger
 	 */
@@ -62,17 +78,29 @@ public class DistributionRegionIdMapper {
 		this.distributionGroup = distributionGroup;
 		this.regions = new ConcurrentHashMap<>();
 		this.MUTEX = new Object();
+		this.indexLock = new ReentrantReadWriteLock();
+		this.regionIndex = new RegionIndex();
 	}
 	
 	/**
 	 * Search the region ids that are overlapped by the bounding box
 	 */
 	public Set<Long> getRegionIdsForRegion(final Hyperrectangle region) {
-		return regions.entrySet()
-			.stream()
-			.filter(e -> e.getValue().intersects(region))
-			.map(e -> e.getKey())
-			.collect(Collectors.toSet());
+		indexLock.readLock().lock();
+		
+		try {
+			if(region.getDimension() != regionIndex.dimension) {
+				return regions.entrySet()
+					.stream()
+					.filter(e -> e.getValue().intersects(region))
+					.map(e -> e.getKey())
+					.collect(Collectors.toSet());
+			}
+			
+			return regionIndex.getRegionIdsForRegion(region);
+		} finally {
+			indexLock.readLock().unlock();
+		}
 	}
 	
 	/**
@@ -161,17 +189,24 @@ public class DistributionRegionIdMapper {
 	 * @param boundingBox
 	 */
 	public boolean addMapping(final long regionId, final Hyperrectangle boundingBox) {
+		
+		indexLock.writeLock().lock();
+		
+		try {
+			if(regions.containsKey(regionId)) {
+				logger.debug("Mapping for region {} / {} already exists, ignoring", 
+						regionId, distributionGroup);
 				
-		if(regions.containsKey(regionId)) {
-			logger.debug("Mapping for region {} / {} already exists, ignoring", 
-					regionId, distributionGroup);
+				return false;
+			}
+			
+			logger.info("Add local mapping for: {} / {}", regionId, distributionGroup);
 			
-			return false;
+			regions.put(regionId, boundingBox);
+			regionIndex.addRegion(regionId, boundingBox);
+		} finally {
+			indexLock.writeLock().unlock();
 		}
-		
-		logger.info("Add local mapping for: {} / {}", regionId, distributionGroup);
-		
-		regions.put(regionId, boundingBox);
 			
 		synchronized (MUTEX) {
 			MUTEX.notifyAll();
@@ -186,8 +221,19 @@ public class DistributionRegionIdMapper {
 	 */
 	public boolean removeMapping(final long regionId) {
 		
-		final boolean removed = regions.containsKey(regionId);
-		regions.remove(regionId);
+		indexLock.writeLock().lock();
+		
+		final boolean removed;
+		
+		try {
+			removed = regions.remove(regionId) != null;
+			
+			if(removed) {
+				regionIndex.removeRegion(regionId);
+			}
+		} finally {
+			indexLock.writeLock().unlock();
+		}
 		
 		if(removed) {
 			logger.info("Mapping for region id {} / {} removed", regionId, distributionGroup);
@@ -206,7 +252,14 @@ public class DistributionRegionIdMapper {
 	public void clear() {
 		logger.info("Clear all local mappings in {}", distributionGroup);
 		
-		regions.clear();
+		indexLock.writeLock().lock();
+		
+		try {
+			regions.clear();
+			regionIndex = new RegionIndex();
+		} finally {
+			indexLock.writeLock().unlock();
+		}
 		
 		synchronized (MUTEX) {
 			MUTEX.notifyAll();
@@ -290,4 +343,118 @@ public class DistributionRegionIdMapper {
 			}
 		}
 	}
+	
+	/**
+	 * The spatial index of the mappings. Regions with a different 
+	 * dimension (e.g. the full space) are checked one by one.
+	 */
+	private final static class RegionIndex {
+		
+		/**
+		 * The dimension of the indexed regions, 0 if no region was indexed yet
+		 */
+		private int dimension;
+		
+		/**
+		 * The index, the value of an entry is the key of the region id map
+		 */
+		private final RTreeBuilder rtree;
+		
+		/**
+		 * The index entries of the regions
+		 */
+		private final Map<Long, SpatialIndexEntry> indexEntries;
+		
+		/**
+		 * The region ids of the index entries
+		 */
+		private final Map<Integer, Long> regionIds;
+		
+		/**
+		 * The regions that are not part of the index
+		 */
+		private final Map<Long, Hyperrectangle> unindexedRegions;
+		
+		/**
+		 * The value of the next index entry
+		 */
+		private int nextEntryValue;
+		
+		public RegionIndex() {
+			this.dimension = 0;
+			this.rtree = new RTreeBuilder();
+			this.indexEntries = new HashMap<>();
+			this.regionIds = new HashMap<>();
+			this.unindexedRegions = new HashMap<>();
+			this.nextEntryValue = 0;
+		}
+		
+		/**
+		 * Add the region to the index
+		 * @param regionId
+		 * @param boundingBox
+		 */
+		public void addRegion(final long regionId, final Hyperrectangle boundingBox) {
+			
+			if(dimension == 0 && boundingBox.getDimension() > 0) {
+				dimension = boundingBox.getDimension();
+			}
+			
+			if(dimension == 0 || boundingBox.getDimension() != dimension) {
+				unindexedRegions.put(regionId, boundingBox);
+				return;
+			}
+			
+			final SpatialIndexEntry entry = new SpatialIndexEntry(boundingBox, nextEntryValue++);
+			
+			if(! rtree.insert(entry)) {
+				unindexedRegions.put(regionId, boundingBox);
+				return;
+			}
+			
+			indexEntries.put(regionId, entry);
+			regionIds.put(entry.getValue(), regionId);
+		}
+		
+		/**
+		 * Remove the region from the index
+		 * @param regionId
+		 */
+		public void removeRegion(final long regionId) {
+			
+			if(unindexedRegions.remove(regionId) != null) {
+				return;
+			}
+			
+			final SpatialIndexEntry entry = indexEntries.remove(regionId);
+			
+			if(entry == null) {
+				return;
+			}
+			
+			rtree.delete(entry);
+			regionIds.remove(entry.getValue());
+		}
+		
+		/**
+		 * Get the ids of the regions that intersect the given region
+		 * @param region
+		 * @return
+		 */
+		public Set<Long> getRegionIdsForRegion(final Hyperrectangle region) {
+			final Set<Long> result = new HashSet<>();
+			
+			for(final SpatialIndexEntry entry : rtree.getEntriesForRegion(region)) {
+				result.add(regionIds.get(entry.getValue()));
+			}
+			
+			for(final Entry<Long, Hyperrectangle> entry : unindexedRegions.entrySet()) {
+				if(entry.getValue().intersects(region)) {
+					result.add(entry.getKey());
+				}
+			}
+			
+			return result;
+		}
+	}
 }
@@ -52,6 +52,16 @@ public class TupleStoreAdapter {
 	 * The duplicate ttl
 	 */
 	public static final String ZOOKEEPER_DUPLICATES_TTL = "duplicate_ttl";
+	
+	/**
+	 * The merge strategy
+	 */
+	public static final String ZOOKEEPER_MERGE_STRATEGY = "merge_strategy";
+	
+	/**
+	 * The key index
+	 */
+	public static final String ZOOKEEPER_KEY_INDEX = "key_index";
 
 	/**
 	 * The zookeeper client
@@ -108,6 +118,14 @@ public class TupleStoreAdapter {
 		zookeeperClient.createPersistentNode(getDuplicateVersionsPath(tupleStoreName), 
 				versionsString.getBytes());
 		
+		final String mergeStrategy = tupleStoreConfiguration.getMergeStrategy();
+		zookeeperClient.createPersistentNode(getMergeStrategyPath(tupleStoreName), 
+				mergeStrategy.getBytes());
+		
+		final String keyIndexString = Boolean.toString(tupleStoreConfiguration.isKeyIndex());
+		zookeeperClient.createPersistentNode(getKeyIndexPath(tupleStoreName), 
+				keyIndexString.getBytes());
+		
 		NodeMutationHelper.markNodeMutationAsComplete(zookeeperClient, tablePath);
 		
 		final String allTablesPath = getAllTablesPath(tupleStoreName.getDistributionGroup());
@@ -216,6 +234,22 @@ public class TupleStoreAdapter {
 			
 			final Integer duplicateVersionsInteger = Integer.parseInt(duplicateVersions);
 			tupleStoreConfiguration.setVersions(duplicateVersionsInteger);
+			
+			// Tables created by older versions have no merge strategy node
+			final String mergeStrategyPath = getMergeStrategyPath(tupleStoreName);
+			
+			if(zookeeperClient.exists(mergeStrategyPath)) {
+				final String mergeStrategy = zookeeperClient.readPathAndReturnString(mergeStrategyPath);
+				tupleStoreConfiguration.setMergeStrategy(mergeStrategy);
+			}
+			
+			// Tables created by older versions have no key index node
+			final String keyIndexPath = getKeyIndexPath(tupleStoreName);
+			
+			if(zookeeperClient.exists(keyIndexPath)) {
+				final String keyIndex = zookeeperClient.readPathAndReturnString(keyIndexPath);
+				tupleStoreConfiguration.setKeyIndex(Boolean.parseBoolean(keyIndex));
+			}
 		} catch (ZookeeperNotFoundException | NumberFormatException e) {
 			throw new ZookeeperException(e);
 		}
@@ -256,6 +290,26 @@ public class TupleStoreAdapter {
 		return tablePath + "/" + ZOOKEEPER_DUPLICATES_VERSIONS;
 	}
 
+	/**
+	 * The merge strategy path
+	 * @param tupleStoreName
+	 * @return
+	 */
+	private String getMergeStrategyPath(final TupleStoreName tupleStoreName) {
+		final String tablePath = getTablePath(tupleStoreName);
+		return tablePath + "/" + ZOOKEEPER_MERGE_STRATEGY;
+	}
+
+	/**
+	 * The key index path
+	 * @param tupleStoreName
+	 * @return
+	 */
+	private String getKeyIndexPath(final TupleStoreName tupleStoreName) {
+		final String tablePath = getTablePath(tupleStoreName);
+		return tablePath + "/" + ZOOKEEPER_KEY_INDEX;
+	}
+
 	/**
 	 * The duplicates TTL path
 	 * @param tupleStoreName
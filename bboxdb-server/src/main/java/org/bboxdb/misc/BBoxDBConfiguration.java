@@ -42,6 +42,11 @@ public class BBoxDBConfiguration {
 	 * Size of the memtable in bytes
 	 */
 	private long memtableSizeMax = 128 * 1024 * 1014;
+	
+	/**
+	 * The memtable implementation (heap or offheap)
+	 */
+	private String memtableType = "heap";
 
 	/**
 	 * Number of memtable flush threads per storage
@@ -58,6 +63,26 @@ public class BBoxDBConfiguration {
 	 */
 	private String storageSpatialIndexReader = "org.bboxdb.storage.sstable.spatialindex.rtree.mmf.RTreeMMFReader";
 	
+	/**
+	 * The size of an uncompressed SSTable block in bytes
+	 */
+	private int storageSSTableBlockSize = 4 * 1024;
+	
+	/**
+	 * The compression of the SSTable blocks (none or deflate)
+	 */
+	private String storageSSTableCompression = "none";
+	
+	/**
+	 * The max compaction IO per storage in bytes per second (0 = unlimited)
+	 */
+	private long storageCompactionRateLimit = 0;
+	
+	/**
+	 * The number of threads that run compactions per storage
+	 */
+	private int storageCompactionThreads = 2;
+	
 	/**
 	 * The checkpoint interval
 	 */
@@ -68,16 +93,47 @@ public class BBoxDBConfiguration {
 	 */
 	private boolean storageWriteAheadLog = false;
 	
+	/**
+	 * The sync mode of the write ahead log (none, interval, batch, every-write)
+	 */
+	private String storageWriteAheadLogSyncMode = "batch";
+	
+	/**
+	 * The sync interval of the write ahead log in ms (interval sync mode)
+	 */
+	private long storageWriteAheadLogSyncInterval = 100;
+	
+	/**
+	 * The size of the preallocated write ahead log segments
+	 */
+	private long storageWriteAheadLogSegmentSize = 4 * 1024 * 1024;
+	
+	/**
+	 * The amount of threads to recover the write ahead logs on startup
+	 */
+	private int storageWriteAheadLogRecoveryThreads = 4;
+	
 	/**
 	 * The port for client requests
 	 */
 	private int networkListenPort = 50505;
 
 	/**
-	 *  The amount of threads to handle client connections
+	 *  The amount of worker threads to handle the requests of all client connections
 	 */
 	private int networkConnectionThreads = 25;
 	
+	/**
+	 * The amount of threads to scan the local regions of the queries in parallel 
+	 * (0 = scan the regions sequentially)
+	 */
+	private int queryThreads = 8;
+	
+	/**
+	 * The time (in ms) to wait for the next hop when a package is routed
+	 */
+	private long networkRoutingTimeout = 2000;
+	
 	/**
 	 * The name of the cluster
 	 */
@@ -132,6 +188,14 @@ public class BBoxDBConfiguration {
 		this.memtableSizeMax = memtableSizeMax;
 	}
 
+	public String getMemtableType() {
+		return memtableType;
+	}
+
+	public void setMemtableType(final String memtableType) {
+		this.memtableType = memtableType;
+	}
+
 	public int getNetworkListenPort() {
 		return networkListenPort;
 	}
@@ -148,6 +212,22 @@ public class BBoxDBConfiguration {
 		this.networkConnectionThreads = networkConnectionThreads;
 	}
 
+	public int getQueryThreads() {
+		return queryThreads;
+	}
+
+	public void setQueryThreads(final int queryThreads) {
+		this.queryThreads = queryThreads;
+	}
+
+	public long getNetworkRoutingTimeout() {
+		return networkRoutingTimeout;
+	}
+
+	public void setNetworkRoutingTimeout(final long networkRoutingTimeout) {
+		this.networkRoutingTimeout = networkRoutingTimeout;
+	}
+
 	public String getClustername() {
 		return clustername;
 	}
@@ -236,4 +316,68 @@ public class BBoxDBConfiguration {
 		this.storageWriteAheadLog = storageWriteAheadLog;
 	}
 	
+	public String getStorageWriteAheadLogSyncMode() {
+		return storageWriteAheadLogSyncMode;
+	}
+
+	public void setStorageWriteAheadLogSyncMode(final String storageWriteAheadLogSyncMode) {
+		this.storageWriteAheadLogSyncMode = storageWriteAheadLogSyncMode;
+	}
+	
+	public long getStorageWriteAheadLogSyncInterval() {
+		return storageWriteAheadLogSyncInterval;
+	}
+
+	public void setStorageWriteAheadLogSyncInterval(final long storageWriteAheadLogSyncInterval) {
+		this.storageWriteAheadLogSyncInterval = storageWriteAheadLogSyncInterval;
+	}
+	
+	public long getStorageWriteAheadLogSegmentSize() {
+		return storageWriteAheadLogSegmentSize;
+	}
+
+	public void setStorageWriteAheadLogSegmentSize(final long storageWriteAheadLogSegmentSize) {
+		this.storageWriteAheadLogSegmentSize = storageWriteAheadLogSegmentSize;
+	}
+	
+	public int getStorageWriteAheadLogRecoveryThreads() {
+		return storageWriteAheadLogRecoveryThreads;
+	}
+
+	public void setStorageWriteAheadLogRecoveryThreads(final int storageWriteAheadLogRecoveryThreads) {
+		this.storageWriteAheadLogRecoveryThreads = storageWriteAheadLogRecoveryThreads;
+	}
+	
+	public int getStorageSSTableBlockSize() {
+		return storageSSTableBlockSize;
+	}
+
+	public void setStorageSSTableBlockSize(final int storageSSTableBlockSize) {
+		this.storageSSTableBlockSize = storageSSTableBlockSize;
+	}
+
+	public String getStorageSSTableCompression() {
+		return storageSSTableCompression;
+	}
+
+	public void setStorageSSTableCompression(final String storageSSTableCompression) {
+		this.storageSSTableCompression = storageSSTableCompression;
+	}
+
+	public long getStorageCompactionRateLimit() {
+		return storageCompactionRateLimit;
+	}
+
+	public void setStorageCompactionRateLimit(final long storageCompactionRateLimit) {
+		this.storageCompactionRateLimit = storageCompactionRateLimit;
+	}
+
+	public int getStorageCompactionThreads() {
+		return storageCompactionThreads;
+	}
+
+	public void setStorageCompactionThreads(final int storageCompactionThreads) {
+		this.storageCompactionThreads = storageCompactionThreads;
+	}
+	
 }
@@ -22,7 +22,18 @@ public class NetworkConst {
 	/**
 	 * The version of the network protocol
 	 */
-	public static final byte PROTOCOL_VERSION = 0x01;
+	public static final byte PROTOCOL_VERSION = 0x02;
+	
+	/**
+	 * The first protocol version that supports the fast compression. Older
+	 * servers echo the requested capabilities, so the version is checked too.
+	 */
+	public static final byte PROTOCOL_VERSION_FAST_COMPRESSION = 0x02;
+	
+	/**
+	 * The maximal size of a network package (128 MB)
+	 */
+	public final static int MAX_PACKAGE_BYTES = 128 * 1024 * 1024;
 	
 	/**
 	 * Value of an unused byte
@@ -94,6 +105,11 @@ public class NetworkConst {
 	 */
 	public static final short REQUEST_TYPE_CANCEL_QUERY = 0x13;
 	
+	/**
+	 * Request type insert tuples (batch insert)
+	 */
+	public static final short REQUEST_TYPE_INSERT_TUPLES = 0x14;
+	
 	/**
 	 * Query type key
 	 */
@@ -190,6 +206,11 @@ public class NetworkConst {
 	 */
 	public final static byte COMPRESSION_TYPE_GZIP = 0x00;
 	
+	/**
+	 * The fast deflate compression type
+	 */
+	public final static byte COMPRESSION_TYPE_DEFLATE_FAST = 0x01;
+	
 
 	/**
 	 * The thread wakeup time (100 ms) to flush the pending compression packages
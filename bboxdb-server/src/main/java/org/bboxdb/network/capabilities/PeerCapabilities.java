@@ -28,6 +28,11 @@ public class PeerCapabilities {
 	 */
 	public final static short CAPABILITY_COMPRESSION_GZIP = 0;
 	
+	/**
+	 * The fast compression flag
+	 */
+	public final static short CAPABILITY_COMPRESSION_DEFLATE_FAST = 1;
+	
 	/**
 	 * The readonly flag
 	 */
@@ -83,6 +88,29 @@ public class PeerCapabilities {
 		clearBit(CAPABILITY_COMPRESSION_GZIP);
 	}
 
+	/**
+	 * Is the fast compression bit set?
+	 * 
+	 * @return
+	 */
+	public boolean hasFastCompression() {
+		return getBit(CAPABILITY_COMPRESSION_DEFLATE_FAST);
+	}
+
+	/**
+	 * Set the fast compression bit
+	 */
+	public void setFastCompression() {
+		setBit(CAPABILITY_COMPRESSION_DEFLATE_FAST);
+	}
+
+	/**
+	 * Clear the fast compression bit
+	 */
+	public void clearFastCompression() {
+		clearBit(CAPABILITY_COMPRESSION_DEFLATE_FAST);
+	}
+
 	/**
 	 * Set the bit
 	 * 
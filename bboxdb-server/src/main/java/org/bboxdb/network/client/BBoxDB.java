@@ -18,6 +18,7 @@
 package org.bboxdb.network.client;
 
 import java.io.Closeable;
+import java.util.Collection;
 import java.util.List;
 
 import org.bboxdb.commons.math.Hyperrectangle;
@@ -69,6 +70,15 @@ public interface BBoxDB extends Closeable {
 	 */
 	public EmptyResultFuture insertTuple(final String table, final Tuple tuple) throws BBoxDBException;
 
+	/**
+	 * Insert a batch of tuples into the given table. The tuples are
+	 * transferred with one request per destination instance.
+	 * @param table
+	 * @param tuples
+	 * @return
+	 */
+	public EmptyResultFuture insertTuples(final String table, final Collection<Tuple> tuples) throws BBoxDBException;
+
 	/**
 	 * Lock tuple
 	 * @param table
@@ -223,4 +233,16 @@ public interface BBoxDB extends Closeable {
 	 */
 	public void setTuplesPerPage(final short tuplesPerPage);
 
+	/**
+	 * Get the amount of pages that are requested in advance per server
+	 * @return
+	 */
+	public int getPagesInFlight();
+
+	/**
+	 * Set the amount of pages that are requested in advance per server
+	 * @param pagesInFlight
+	 */
+	public void setPagesInFlight(final int pagesInFlight);
+
 }
\ No newline at end of file
@@ -19,6 +19,7 @@ package org.bboxdb.network.client;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Supplier;
@@ -44,6 +45,7 @@ import org.bboxdb.network.packages.request.CreateTableRequest;
 import org.bboxdb.network.packages.request.DeleteDistributionGroupRequest;
 import org.bboxdb.network.packages.request.DeleteTableRequest;
 import org.bboxdb.network.packages.request.InsertTupleRequest;
+import org.bboxdb.network.packages.request.InsertTuplesRequest;
 import org.bboxdb.network.packages.request.KeepAliveRequest;
 import org.bboxdb.network.packages.request.LockTupleRequest;
 import org.bboxdb.network.packages.request.NextPageRequest;
@@ -81,6 +83,16 @@ public class BBoxDBClient implements BBoxDB {
 	 */
 	private short tuplesPerPage;
 
+	/**
+	 * The amount of pages that are requested in advance
+	 */
+	private int pagesInFlight;
+
+	/**
+	 * The default amount of pages that are requested in advance
+	 */
+	public final static int DEFAULT_PAGES_IN_FLIGHT = 4;
+
 	/**
 	 * The tuple store manager registry (used for gossip)
 	 */
@@ -90,6 +102,7 @@ public class BBoxDBClient implements BBoxDB {
 		this.connection = Objects.requireNonNull(connection);
 		this.pagingEnabled = true;
 		this.tuplesPerPage = 50;
+		this.pagesInFlight = DEFAULT_PAGES_IN_FLIGHT;
 	}
 
 	/* (non-Javadoc)
@@ -163,6 +176,41 @@ public class BBoxDBClient implements BBoxDB {
 		return new EmptyResultFuture(future);
 	}
 
+	/* (non-Javadoc)
+	 * @see org.bboxdb.network.client.BBoxDB#insertTuples(java.lang.String, java.util.Collection)
+	 */
+	@Override
+	public EmptyResultFuture insertTuples(final String table, final Collection<Tuple> tuples)
+			throws BBoxDBException {
+
+		final List<Hyperrectangle> boundingBoxes = tuples.stream()
+				.map(t -> t.getBoundingBox())
+				.collect(Collectors.toList());
+
+		final Hyperrectangle coveringBox = boundingBoxes.contains(Hyperrectangle.FULL_SPACE)
+				? Hyperrectangle.FULL_SPACE : Hyperrectangle.getCoveringBox(boundingBoxes);
+
+		final RoutingHeader routingHeader = RoutingHeaderHelper.getRoutingHeaderForLocalSystemWriteNE(
+				table, coveringBox, false, connection.getServerAddress());
+
+		return insertTuples(table, tuples, routingHeader);
+	}
+
+	/**
+	 * Insert a batch of tuples with the given routing header
+	 * @param table
+	 * @param tuples
+	 * @param routingHeader
+	 * @return
+	 */
+	public EmptyResultFuture insertTuples(final String table, final Collection<Tuple> tuples,
+			final RoutingHeader routingHeader) {
+
+		final Supplier<List<NetworkOperationFuture>> future = getInsertTuplesFuture(table, tuples, routingHeader);
+
+		return new EmptyResultFuture(future);
+	}
+
 	@Override
 	public EmptyResultFuture lockTuple(final String table, final Tuple tuple,
 			final boolean deleteOnTimeout) throws BBoxDBException {
@@ -221,6 +269,27 @@ public class BBoxDBClient implements BBoxDB {
 		return () -> Arrays.asList(new NetworkOperationFutureImpl(connection, packageSupplier));
 	}
 
+	/**
+	 * @param table
+	 * @param tuples
+	 * @param routingHeader
+	 * @return
+	 */
+	public Supplier<List<NetworkOperationFuture>> getInsertTuplesFuture(final String table,
+			final Collection<Tuple> tuples, final RoutingHeader routingHeader) {
+
+		final List<Tuple> tupleList = new ArrayList<>(tuples);
+
+		final Supplier<NetworkRequestPackage> packageSupplier = () -> {
+			final TupleStoreName ssTableName = new TupleStoreName(table);
+			final short sequenceNumber = connection.getNextSequenceNumber();
+
+			return new InsertTuplesRequest(sequenceNumber, routingHeader, ssTableName, tupleList);
+		};
+
+		return () -> Arrays.asList(new NetworkOperationFutureImpl(connection, packageSupplier));
+	}
+
 	/* (non-Javadoc)
 	 * @see org.bboxdb.network.client.BBoxDB#deleteTuple(java.lang.String, java.lang.String)
 	 */
@@ -596,7 +665,9 @@ public class BBoxDBClient implements BBoxDB {
 	public OperationFuture getNextPage(final short queryPackageId) {
 		final Supplier<List<NetworkOperationFuture>> future = getNextPageFuture(queryPackageId);
 
-		return new TupleListFuture(future, new DoNothingDuplicateResolver(), "");
+		// A page can't be requested twice, a retry would skip the page
+		return new TupleListFuture(future, new DoNothingDuplicateResolver(), "",
+				FutureRetryPolicy.RETRY_POLICY_NONE);
 	}
 
 	/**
@@ -684,6 +755,22 @@ public class BBoxDBClient implements BBoxDB {
 		this.tuplesPerPage = tuplesPerPage;
 	}
 
+	/**
+	 * Get the amount of pages that are requested in advance
+	 * @return
+	 */
+	public int getPagesInFlight() {
+		return pagesInFlight;
+	}
+
+	/**
+	 * Set the amount of pages that are requested in advance
+	 * @param pagesInFlight
+	 */
+	public void setPagesInFlight(final int pagesInFlight) {
+		this.pagesInFlight = pagesInFlight;
+	}
+
 	@Override
 	public boolean connect() {
 		return connection.connect();
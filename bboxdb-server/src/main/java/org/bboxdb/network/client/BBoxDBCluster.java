@@ -17,10 +17,17 @@
  *******************************************************************************/
 package org.bboxdb.network.client;
 
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Supplier;
 
 import org.bboxdb.commons.DuplicateResolver;
@@ -37,6 +44,8 @@ import org.bboxdb.distribution.placement.ResourcePlacementStrategy;
 import org.bboxdb.distribution.region.DistributionRegion;
 import org.bboxdb.distribution.region.DistributionRegionHelper;
 import org.bboxdb.distribution.zookeeper.ZookeeperClient;
+import org.bboxdb.distribution.zookeeper.ZookeeperException;
+import org.bboxdb.distribution.zookeeper.ZookeeperNotFoundException;
 import org.bboxdb.misc.BBoxDBException;
 import org.bboxdb.network.client.future.AbstractListFuture;
 import org.bboxdb.network.client.future.EmptyResultFuture;
@@ -46,8 +55,11 @@ import org.bboxdb.network.client.future.NetworkOperationFuture;
 import org.bboxdb.network.client.future.TupleListFuture;
 import org.bboxdb.network.client.tools.AbtractClusterFutureBuilder;
 import org.bboxdb.network.client.tools.ClusterOperationType;
+import org.bboxdb.network.client.tools.KeyIndexHelper;
 import org.bboxdb.network.query.ContinuousQueryPlan;
 import org.bboxdb.network.routing.RoutingHeader;
+import org.bboxdb.network.routing.RoutingHop;
+import org.bboxdb.network.routing.RoutingHopHelper;
 import org.bboxdb.storage.entity.DeletedTuple;
 import org.bboxdb.storage.entity.DistributionGroupConfiguration;
 import org.bboxdb.storage.entity.Tuple;
@@ -137,10 +149,18 @@ public class BBoxDBCluster implements BBoxDB {
 		}
 
 		try {
+			if(configuration.isKeyIndex()) {
+				final KeyIndexHelper keyIndexHelper = new KeyIndexHelper(this);
+				keyIndexHelper.createMissingTables(table);
+			}
+
 			final BBoxDBClient bboxdbClient = getSystemForNewRessources().getBboxDBClient();
 
 			return bboxdbClient.createTable(table, configuration);
-		} catch (ResourceAllocationException e) {
+		} catch (ResourceAllocationException | ZookeeperException | ZookeeperNotFoundException e) {
+			throw new BBoxDBException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 			throw new BBoxDBException(e);
 		}
 	}
@@ -153,10 +173,16 @@ public class BBoxDBCluster implements BBoxDB {
 		}
 
 		try {
+			final KeyIndexHelper keyIndexHelper = new KeyIndexHelper(this);
+			keyIndexHelper.deleteIndexTable(deleteTable);
+
 			final BBoxDBClient bboxdbClient = getSystemForNewRessources().getBboxDBClient();
 
 			return bboxdbClient.deleteTable(deleteTable);
-		} catch (ResourceAllocationException e) {
+		} catch (ResourceAllocationException | ZookeeperException e) {
+			throw new BBoxDBException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 			throw new BBoxDBException(e);
 		}
 	}
@@ -210,6 +236,64 @@ public class BBoxDBCluster implements BBoxDB {
 		return new EmptyResultFuture(builder.getSupplier());
 	}
 
+	@Override
+	public EmptyResultFuture insertTuples(final String table, final Collection<Tuple> tuples)
+			throws BBoxDBException {
+
+		final DistributionRegion rootRegion = SpacePartitionerHelper.getRootNode(table);
+		final List<Tuple> tupleList = new ArrayList<>(tuples);
+
+		final Supplier<List<NetworkOperationFuture>> supplier = () -> {
+			final Map<InetSocketAddress, BBoxDBInstance> instances = new HashMap<>();
+			final Map<InetSocketAddress, Set<Long>> regionsPerInstance = new HashMap<>();
+			final Map<InetSocketAddress, List<Tuple>> tuplesPerInstance = new HashMap<>();
+
+			// Group the tuples per destination instance
+			for(final Tuple tuple : tupleList) {
+				final List<RoutingHop> hops = RoutingHopHelper.getRoutingHopsForWrite(
+						rootRegion, tuple.getBoundingBox());
+
+				if(hops.isEmpty()) {
+					logger.error("Got empty hop list for tuple {}", tuple.getKey());
+				}
+
+				for(final RoutingHop hop : hops) {
+					final BBoxDBInstance instance = hop.getDistributedInstance();
+					final InetSocketAddress address = instance.getInetSocketAddress();
+
+					instances.putIfAbsent(address, instance);
+
+					regionsPerInstance.computeIfAbsent(address, (a) -> new HashSet<>())
+						.addAll(hop.getDistributionRegions());
+
+					tuplesPerInstance.computeIfAbsent(address, (a) -> new ArrayList<>())
+						.add(tuple);
+				}
+			}
+
+			final List<NetworkOperationFuture> futures = new ArrayList<>();
+
+			for(final Entry<InetSocketAddress, BBoxDBInstance> entry : instances.entrySet()) {
+				final InetSocketAddress address = entry.getKey();
+				final BBoxDBInstance instance = entry.getValue();
+
+				final BBoxDBConnection connection
+					= membershipConnectionService.getConnectionForInstance(instance);
+
+				final List<Long> regions = new ArrayList<>(regionsPerInstance.get(address));
+				final RoutingHop hop = new RoutingHop(instance, regions);
+				final RoutingHeader routingHeader = new RoutingHeader((short) 0, Arrays.asList(hop));
+
+				futures.addAll(connection.getBboxDBClient().getInsertTuplesFuture(
+						table, tuplesPerInstance.get(address), routingHeader).get());
+			}
+
+			return futures;
+		};
+
+		return new EmptyResultFuture(supplier);
+	}
+
 	@Override
 	public EmptyResultFuture deleteTuple(final String table, final String key) throws BBoxDBException {
 		final long timestamp = MicroSecondTimestampProvider.getNewTimestamp();
@@ -305,10 +389,16 @@ public class BBoxDBCluster implements BBoxDB {
 		}
 
 		try {
+			final KeyIndexHelper keyIndexHelper = new KeyIndexHelper(this);
+			keyIndexHelper.deleteIndexDistributionGroup(distributionGroup);
+
 			final BBoxDBClient bboxdbClient = getSystemForNewRessources().getBboxDBClient();
 
 			return bboxdbClient.deleteDistributionGroup(distributionGroup);
-		} catch (ResourceAllocationException e) {
+		} catch (ResourceAllocationException | ZookeeperException e) {
+			throw new BBoxDBException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 			throw new BBoxDBException(e);
 		}
 	}
@@ -320,8 +410,10 @@ public class BBoxDBCluster implements BBoxDB {
 			logger.debug("Query by for key {} in table {}", key, table);
 		}
 
+		final Collection<Long> regionIds = getRegionsForKey(table, key);
+
 		final AbtractClusterFutureBuilder builder = new AbtractClusterFutureBuilder(
-				ClusterOperationType.READ_FROM_NODES, table, Hyperrectangle.FULL_SPACE) {
+				ClusterOperationType.READ_FROM_NODES, table, Hyperrectangle.FULL_SPACE, regionIds) {
 
 			@Override
 			protected Supplier<List<NetworkOperationFuture>> buildFuture(final BBoxDBConnection connection,
@@ -337,6 +429,52 @@ public class BBoxDBCluster implements BBoxDB {
 		return new TupleListFuture(builder.getSupplier(), duplicateResolver, table);
 	}
 
+	/**
+	 * Get the regions that store the key from the key index. Null is returned, when
+	 * the table has no key index or the key is not indexed. In this case, all regions
+	 * needs to be queried.
+	 *
+	 * @param table
+	 * @param key
+	 * @return
+	 * @throws BBoxDBException
+	 */
+	private Collection<Long> getRegionsForKey(final String table, final String key) throws BBoxDBException {
+
+		final TupleStoreConfiguration configuration
+			= TupleStoreConfigurationCache.getInstance().getTupleStoreConfiguration(table);
+
+		if(configuration == null || ! configuration.isKeyIndex()) {
+			return null;
+		}
+
+		try {
+			final KeyIndexHelper keyIndexHelper = new KeyIndexHelper(this);
+			final Optional<Set<Long>> regionIds = keyIndexHelper.getRegionsForKey(table, key);
+
+			if(! regionIds.isPresent()) {
+				logger.debug("Key {} is not indexed, querying all regions", key);
+				return null;
+			}
+
+			// Regions of the index might be split or merged in the meantime
+			final DistributionRegion rootNode = SpacePartitionerHelper.getRootNode(table);
+			final boolean readableRegionFound = rootNode.getThisAndChildRegions().stream()
+					.filter(r -> regionIds.get().contains(r.getRegionId()))
+					.anyMatch(r -> DistributionRegionHelper.PREDICATE_REGIONS_FOR_READ.test(r.getState()));
+
+			if(! readableRegionFound) {
+				logger.debug("Regions {} of key {} are not readable, querying all regions", regionIds, key);
+				return null;
+			}
+
+			return regionIds.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BBoxDBException(e);
+		}
+	}
+
 	@Override
 	public TupleListFuture queryRectangle(final String table, final Hyperrectangle boundingBox) throws BBoxDBException {
 
@@ -546,6 +684,22 @@ public class BBoxDBCluster implements BBoxDB {
 		membershipConnectionService.setTuplesPerPage(tuplesPerPage);
 	}
 
+	/**
+	 * Get the amount of pages that are requested in advance per server
+	 * @return
+	 */
+	public int getPagesInFlight() {
+		return membershipConnectionService.getPagesInFlight();
+	}
+
+	/**
+	 * Set the amount of pages that are requested in advance per server
+	 * @param pagesInFlight
+	 */
+	public void setPagesInFlight(final int pagesInFlight) {
+		membershipConnectionService.setPagesInFlight(pagesInFlight);
+	}
+
 	@Override
 	public int getInFlightCalls() {
 		return membershipConnectionService
@@ -58,6 +58,9 @@ import org.bboxdb.network.client.response.PageEndHandler;
 import org.bboxdb.network.client.response.ServerResponseHandler;
 import org.bboxdb.network.client.response.SuccessHandler;
 import org.bboxdb.network.client.response.TupleHandler;
+import org.bboxdb.network.compression.AdaptiveCompressionPolicy;
+import org.bboxdb.network.compression.CompressionCodec;
+import org.bboxdb.network.compression.CompressionCodecFactory;
 import org.bboxdb.network.packages.NetworkRequestPackage;
 import org.bboxdb.network.packages.PackageEncodeException;
 import org.bboxdb.network.packages.request.CompressionEnvelopeRequest;
@@ -167,6 +170,16 @@ public class BBoxDBConnection {
 	 */
 	private PeerCapabilities clientCapabilities = new PeerCapabilities();
 
+	/**
+	 * The compression codec of the connection, null if the packages are not compressed
+	 */
+	private CompressionCodec compressionCodec = null;
+
+	/**
+	 * The compression policy and statistics of the connection
+	 */
+	private final AdaptiveCompressionPolicy compressionPolicy = new AdaptiveCompressionPolicy();
+
 	/**
 	 * The pending packages for compression
 	 */
@@ -217,8 +230,9 @@ public class BBoxDBConnection {
 		this.sequenceNumberGenerator = new SequenceNumberGenerator();
 		this.connectionState = new ServiceState();
 
-		// Default: Enable gzip compression
+		// Default: Enable gzip and fast compression
 		this.clientCapabilities.setGZipCompression();
+		this.clientCapabilities.setFastCompression();
 
 		// No concurrent access
 		this.serverResponseHandler = new HashMap<>();
@@ -355,6 +369,8 @@ public class BBoxDBConnection {
 
 		final HelloResponse helloResponse = helloFuture.get(0);
 		connectionCapabilities = helloResponse.getPeerCapabilities();
+		compressionCodec = CompressionCodecFactory.getCodecForCapabilities(connectionCapabilities,
+				helloResponse.getProtocolVersion());
 
 		connectionState.dispatchToRunning();
 		logger.debug("Handshaking with {} done", getConnectionName());
@@ -544,7 +560,7 @@ public class BBoxDBConnection {
 			return;
 		}
 
-		if(connectionCapabilities.hasGZipCompression()) {
+		if(compressionCodec != null) {
 			writePackageWithCompression(requestPackage, future);
 		} else {
 			writePackageUncompressed(requestPackage, future);
@@ -644,7 +660,8 @@ public class BBoxDBConnection {
 		}
 
 		final NetworkRequestPackage compressionEnvelopeRequest
-			= new CompressionEnvelopeRequest(NetworkConst.COMPRESSION_TYPE_GZIP, packagesToWrite);
+			= new CompressionEnvelopeRequest(compressionCodec.getCompressionType(),
+					compressionPolicy, packagesToWrite);
 
 		try {
 			writePackageToSocket(compressionEnvelopeRequest);
@@ -800,6 +817,14 @@ public class BBoxDBConnection {
 		return clientCapabilities;
 	}
 
+	/**
+	 * Get the compression policy and statistics of the connection
+	 * @return
+	 */
+	public AdaptiveCompressionPolicy getCompressionPolicy() {
+		return compressionPolicy;
+	}
+
 	/**
 	 * Get the result buffer
 	 * @return
@@ -38,6 +38,11 @@ public abstract class AbstractListFuture<T> extends OperationFutureImpl<List<T>>
 		super(futures);
 	}
 
+	public AbstractListFuture(final Supplier<List<NetworkOperationFuture>> futures,
+			final FutureRetryPolicy retryPolicy) {
+		super(futures, retryPolicy);
+	}
+
 	/**
 	 * Get a list with all results
 	 * @return
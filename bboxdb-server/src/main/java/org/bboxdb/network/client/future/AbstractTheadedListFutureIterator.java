@@ -17,13 +17,16 @@
  *******************************************************************************/
 package org.bboxdb.network.client.future;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Future;
 
+import org.bboxdb.commons.concurrent.ByteBoundedBlockingQueue;
 import org.bboxdb.network.client.BBoxDBClient;
 import org.bboxdb.network.client.BBoxDBConnection;
 import org.bboxdb.storage.entity.PagedTransferableEntity;
@@ -35,14 +38,15 @@ import org.slf4j.LoggerFactory;
 public abstract class AbstractTheadedListFutureIterator<T extends PagedTransferableEntity> implements CloseableIterator<T>{
 
 	/**
-	 * The size of the transfer queue
+	 * The max size of the transfer queue in bytes
 	 */
-	protected final static int QUEUE_SIZE = 25;
+	protected final static long MAX_QUEUE_BYTES = 8 * 1024 * 1024;
 
 	/**
 	 * The transfer queue
 	 */
-	protected final BlockingQueue<T> tupleQueue = new LinkedBlockingQueue<>(QUEUE_SIZE);
+	protected final ByteBoundedBlockingQueue<T> tupleQueue
+		= new ByteBoundedBlockingQueue<>(MAX_QUEUE_BYTES, T::getSize);
 
 	/**
 	 * The amount of seen terminals, the iterator is exhausted,
@@ -73,9 +77,18 @@ public abstract class AbstractTheadedListFutureIterator<T extends PagedTransfera
 	protected final AbstractListFuture<T> abstractLisFuture;
 
 	/**
-	 * The executor pool
+	 * The executor pool, shared by all iterators
 	 */
-	protected final ExecutorService executor = Executors.newCachedThreadPool();
+	protected final static ExecutorService executor = Executors.newCachedThreadPool((r) -> {
+		final Thread thread = new Thread(r, "List future iterator producer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * The running producers of this iterator
+	 */
+	protected final List<Future<?>> producers = new ArrayList<>();
 
 	/**
 	 * The tuple duplicate remover
@@ -152,11 +165,19 @@ public abstract class AbstractTheadedListFutureIterator<T extends PagedTransfera
 
 				final short queryRequestId = abstractLisFuture.getRequestId(resultId);
 				final BBoxDBClient bbBoxDBClient = bboxdbConnection.getBboxDBClient();
+				final int pagesInFlight = Math.max(1, bbBoxDBClient.getPagesInFlight());
+
+				// The requested pages, the server answers the requests in order. Requests
+				// for pages after the last page are answered with an error and ignored.
+				final Deque<AbstractListFuture<T>> requestedPages = new ArrayDeque<>();
 
 				AbstractListFuture<T> nextPage = null;
 				do {
-					 nextPage = (AbstractListFuture<T>) bbBoxDBClient.getNextPage(queryRequestId);
+					 while(requestedPages.size() < pagesInFlight) {
+						 requestedPages.add((AbstractListFuture<T>) bbBoxDBClient.getNextPage(queryRequestId));
+					 }
 
+					 nextPage = requestedPages.poll();
 					 nextPage.waitForCompletion();
 
 					 if(nextPage.isFailed()) {
@@ -190,16 +211,13 @@ public abstract class AbstractTheadedListFutureIterator<T extends PagedTransfera
 			 * Add the terminal to the queue
 			 */
 			protected void addTerminalNE() {
-				try {
-					tupleQueue.put(QUEUE_TERMINAL);
-				} catch (InterruptedException e) {
-					// Got the interrupted exception while addint the
-					// terminal, ignoring
-				}
+				tupleQueue.putUnbounded(QUEUE_TERMINAL);
 			}
 		};
 
-		executor.submit(producer);
+		synchronized (producers) {
+			producers.add(executor.submit(producer));
+		}
 	}
 
 	@Override
@@ -254,7 +272,11 @@ public abstract class AbstractTheadedListFutureIterator<T extends PagedTransfera
 	@Override
 	public void close() throws Exception {
 		logger.trace("Close called on iterator");
-		executor.shutdown();
+
+		synchronized (producers) {
+			producers.forEach(f -> f.cancel(true));
+			producers.clear();
+		}
 	}
 
 	@Override
@@ -20,6 +20,7 @@ package org.bboxdb.network.client.future;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 import org.bboxdb.network.client.BBoxDBConnection;
 
@@ -109,4 +110,11 @@ public interface OperationFuture {
 	 */
 	public int getNeededExecutions();
 
+	/**
+	 * Add a callback that is executed when the future is done. If the future
+	 * is already done, the callback is executed immediately.
+	 * @param callback
+	 */
+	public void addCompletionCallback(final Consumer<OperationFuture> callback);
+
 }
\ No newline at end of file
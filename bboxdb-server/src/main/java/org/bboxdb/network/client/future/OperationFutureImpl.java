@@ -17,12 +17,14 @@
  *******************************************************************************/
 package org.bboxdb.network.client.future;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -67,6 +69,11 @@ public class OperationFutureImpl<T> implements OperationFuture, FutureErrorCallb
 	 */
 	private Supplier<List<NetworkOperationFuture>> futureSupplier;
 
+	/**
+	 * The callbacks that are executed when the future is done
+	 */
+	private final List<Consumer<OperationFuture>> completionCallbacks = new ArrayList<>();
+
 	public OperationFutureImpl(final Supplier<List<NetworkOperationFuture>> futures) {
 		this(futures, FutureRetryPolicy.RETRY_POLICY_ALL_FUTURES);
 	}
@@ -114,7 +121,41 @@ public class OperationFutureImpl<T> implements OperationFuture, FutureErrorCallb
 
 		if(allDone) {
 			readyLatch.countDown();
+			fireCompletionCallbacks();
+		}
+	}
+
+	/**
+	 * Execute the pending completion callbacks
+	 */
+	private void fireCompletionCallbacks() {
+		final List<Consumer<OperationFuture>> callbacks;
+
+		synchronized (completionCallbacks) {
+			if(completionCallbacks.isEmpty()) {
+				return;
+			}
+
+			callbacks = new ArrayList<>(completionCallbacks);
+			completionCallbacks.clear();
 		}
+
+		callbacks.forEach(c -> c.accept(this));
+	}
+
+	/* (non-Javadoc)
+	 * @see org.bboxdb.network.client.future.OperationFuture#addCompletionCallback(java.util.function.Consumer)
+	 */
+	@Override
+	public void addCompletionCallback(final Consumer<OperationFuture> callback) {
+		synchronized (completionCallbacks) {
+			if(! isDone()) {
+				completionCallbacks.add(callback);
+				return;
+			}
+		}
+
+		callback.accept(this);
 	}
 
 	/* (non-Javadoc)
@@ -60,6 +60,16 @@ public class TupleListFuture extends AbstractListFuture<Tuple> {
 		this.tablename = tablename;
 	}
 
+	public TupleListFuture(final Supplier<List<NetworkOperationFuture>> futures,
+			final DuplicateResolver<Tuple> duplicateResolver, final String tablename,
+			final FutureRetryPolicy retryPolicy) {
+
+		super(futures, retryPolicy);
+
+		this.duplicateResolver = duplicateResolver;
+		this.tablename = tablename;
+	}
+
 	/**
 	 * Create a new threaded iterator
 	 * @return
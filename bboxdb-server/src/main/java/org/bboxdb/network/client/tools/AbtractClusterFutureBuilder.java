@@ -19,6 +19,7 @@ package org.bboxdb.network.client.tools;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.function.Supplier;
 
@@ -50,6 +51,11 @@ public abstract class AbtractClusterFutureBuilder {
 	 */
 	private final Hyperrectangle boundingBox;
 
+	/**
+	 * The regions to read from (null, if the regions are determined by the bounding box)
+	 */
+	private final Collection<Long> regionIds;
+	
 	/**
 	 * The membership connection service
 	 */
@@ -68,9 +74,17 @@ public abstract class AbtractClusterFutureBuilder {
 	public AbtractClusterFutureBuilder(final ClusterOperationType clusterOperationType, 
 			final String table, final Hyperrectangle boundingBox) throws BBoxDBException {
 		
+		this(clusterOperationType, table, boundingBox, null);
+	}
+	
+	public AbtractClusterFutureBuilder(final ClusterOperationType clusterOperationType, 
+			final String table, final Hyperrectangle boundingBox, final Collection<Long> regionIds) 
+					throws BBoxDBException {
+		
 		this.clusterOperationType = clusterOperationType;
 		this.distributionRegion = SpacePartitionerHelper.getRootNode(table);
 		this.boundingBox = boundingBox;
+		this.regionIds = regionIds;
 		this.membershipConnectionService = MembershipConnectionService.getInstance();
 	}
 
@@ -187,6 +201,10 @@ public abstract class AbtractClusterFutureBuilder {
 	private List<RoutingHop> getHops() {
 		switch(clusterOperationType) {
 			case READ_FROM_NODES:
+				if(regionIds != null) {
+					return RoutingHopHelper.getRoutingHopsForReadRegions(distributionRegion, regionIds);
+				}
+				
 				return RoutingHopHelper.getRoutingHopsForRead(distributionRegion, boundingBox);
 			case WRITE_TO_NODES:
 				return RoutingHopHelper.getRoutingHopsForWrite(distributionRegion, boundingBox);
@@ -0,0 +1,340 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.client.tools;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+
+import org.bboxdb.commons.math.Hyperrectangle;
+import org.bboxdb.distribution.DistributionGroupConfigurationCache;
+import org.bboxdb.distribution.zookeeper.DistributionGroupAdapter;
+import org.bboxdb.distribution.zookeeper.TupleStoreAdapter;
+import org.bboxdb.distribution.zookeeper.ZookeeperClient;
+import org.bboxdb.distribution.zookeeper.ZookeeperException;
+import org.bboxdb.distribution.zookeeper.ZookeeperNotFoundException;
+import org.bboxdb.misc.BBoxDBException;
+import org.bboxdb.network.client.BBoxDBCluster;
+import org.bboxdb.network.client.future.EmptyResultFuture;
+import org.bboxdb.network.client.future.TupleListFuture;
+import org.bboxdb.storage.entity.DistributionGroupConfiguration;
+import org.bboxdb.storage.entity.DistributionGroupConfigurationBuilder;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreConfiguration;
+import org.bboxdb.storage.entity.TupleStoreConfigurationBuilder;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.util.TupleHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The global key index maps a key to the distribution regions that store the key.
+ * The index is stored in a one dimensional distribution group, the entries
+ * are placed by the hash code of the key. For each region of the key, an entry
+ * with the key 'key#regionid' is stored.
+ */
+public class KeyIndexHelper {
+
+	/**
+	 * The reference to the BBoxDB cluster
+	 */
+	private final BBoxDBCluster cluster;
+
+	/**
+	 * The prefix for the key index distribution group
+	 */
+	public final static String KEY_IDX_DGROUP_PREFIX = "#kidx#";
+
+	/**
+	 * The separator between the key and the region id
+	 */
+	private final static char REGION_SEPARATOR = '#';
+
+	/**
+	 * The Logger
+	 */
+	private final static Logger logger = LoggerFactory.getLogger(KeyIndexHelper.class);
+
+	public KeyIndexHelper(final BBoxDBCluster cluster) {
+		this.cluster = cluster;
+	}
+
+	/**
+	 * Get the regions that store the key
+	 * @param table
+	 * @param key
+	 * @return the region ids or an empty optional, when the key is not indexed
+	 * @throws BBoxDBException
+	 * @throws InterruptedException
+	 */
+	public Optional<Set<Long>> getRegionsForKey(final String table, final String key)
+			throws BBoxDBException, InterruptedException {
+
+		final String indexTableName = convertTablenameToKeyIndexTablename(table);
+		final Hyperrectangle boundingBox = getBoundingBoxForKey(key);
+
+		final TupleListFuture resultFuture = cluster.queryRectangle(indexTableName, boundingBox);
+		resultFuture.waitForCompletion();
+
+		if(resultFuture.isFailed()) {
+			logger.error("Key index query future failed {}", resultFuture.getAllMessages());
+			return Optional.empty();
+		}
+
+		final Set<Long> regions = new HashSet<>();
+		final Iterator<Tuple> iterator = resultFuture.iterator();
+
+		while(iterator.hasNext()) {
+			final Tuple indexEntry = iterator.next();
+
+			if(TupleHelper.isDeletedTuple(indexEntry)) {
+				continue;
+			}
+
+			final OptionalLong region = getRegionForIndexEntry(key, indexEntry.getKey());
+
+			if(region.isPresent()) {
+				regions.add(region.getAsLong());
+			}
+		}
+
+		if(regions.isEmpty()) {
+			return Optional.empty();
+		}
+
+		return Optional.of(regions);
+	}
+
+	/**
+	 * Create the distribution group and the table of the key index if missing
+	 *
+	 * @param table
+	 * @return
+	 * @throws ZookeeperException
+	 * @throws ZookeeperNotFoundException
+	 * @throws BBoxDBException
+	 * @throws InterruptedException
+	 */
+	public String createMissingTables(final String table)
+			throws ZookeeperException, ZookeeperNotFoundException, BBoxDBException, InterruptedException {
+
+		final ZookeeperClient zookeeperClient = cluster.getZookeeperClient();
+
+		final String indexTableName = convertTablenameToKeyIndexTablename(table);
+		final TupleStoreName tupleStoreName = new TupleStoreName(table);
+		final TupleStoreName indexTupleStoreName = new TupleStoreName(indexTableName);
+
+		createDistributionGroupIfMissing(zookeeperClient, tupleStoreName, indexTupleStoreName);
+		createTableIfMissing(zookeeperClient, indexTableName, indexTupleStoreName);
+
+		return indexTableName;
+	}
+
+	/**
+	 * Delete the key index table of the table, if the table has a key index
+	 * @param table
+	 * @throws ZookeeperException
+	 * @throws BBoxDBException
+	 * @throws InterruptedException
+	 */
+	public void deleteIndexTable(final String table)
+			throws ZookeeperException, BBoxDBException, InterruptedException {
+
+		final String indexTableName = convertTablenameToKeyIndexTablename(table);
+		final TupleStoreAdapter tupleStoreAdapter = new TupleStoreAdapter(cluster.getZookeeperClient());
+
+		if(! tupleStoreAdapter.isTableKnown(new TupleStoreName(indexTableName))) {
+			return;
+		}
+
+		logger.info("Deleting key index table {}", indexTableName);
+		final EmptyResultFuture deleteResult = cluster.deleteTable(indexTableName);
+		deleteResult.waitForCompletion();
+
+		if(deleteResult.isFailed()) {
+			throw new BBoxDBException("Unable to delete key index table: " + deleteResult.getAllMessages());
+		}
+	}
+
+	/**
+	 * Delete the key index distribution group of the distribution group, if it exists
+	 * @param distributionGroup
+	 * @throws ZookeeperException
+	 * @throws BBoxDBException
+	 * @throws InterruptedException
+	 */
+	public void deleteIndexDistributionGroup(final String distributionGroup)
+			throws ZookeeperException, BBoxDBException, InterruptedException {
+
+		// The key index group has no key index
+		if(distributionGroup.startsWith(KEY_IDX_DGROUP_PREFIX)) {
+			return;
+		}
+
+		final String indexGroup = KEY_IDX_DGROUP_PREFIX + distributionGroup;
+		final DistributionGroupAdapter distributionGroupAdapter
+			= new DistributionGroupAdapter(cluster.getZookeeperClient());
+
+		if(! distributionGroupAdapter.isDistributionGroupRegistered(indexGroup)) {
+			return;
+		}
+
+		logger.info("Deleting key index distribution group {}", indexGroup);
+		final EmptyResultFuture deleteResult = cluster.deleteDistributionGroup(indexGroup);
+		deleteResult.waitForCompletion();
+
+		if(deleteResult.isFailed()) {
+			throw new BBoxDBException("Unable to delete key index distribution group: "
+					+ deleteResult.getAllMessages());
+		}
+	}
+
+	/**
+	 * Create the index table if missing
+	 *
+	 * @param zookeeperClient
+	 * @param tablename
+	 * @param tupleStoreName
+	 * @throws ZookeeperException
+	 * @throws ZookeeperNotFoundException
+	 * @throws BBoxDBException
+	 * @throws InterruptedException
+	 */
+	private void createTableIfMissing(final ZookeeperClient zookeeperClient, final String tablename,
+			final TupleStoreName tupleStoreName)
+			throws ZookeeperException, ZookeeperNotFoundException, BBoxDBException, InterruptedException {
+
+		final String distributionGroup = tupleStoreName.getDistributionGroup();
+
+		final TupleStoreAdapter tupleStoreAdapter = new TupleStoreAdapter(zookeeperClient);
+		final List<String> allTables = tupleStoreAdapter.getAllTables(distributionGroup);
+
+		if(allTables.contains(tablename)) {
+			return;
+		}
+
+		logger.info("Key index table {} not found, creating", tablename);
+		final TupleStoreConfiguration tableconfig = TupleStoreConfigurationBuilder
+				.create()
+				.allowDuplicates(false)
+				.build();
+
+		final EmptyResultFuture createResult = cluster.createTable(tablename, tableconfig);
+		createResult.waitForCompletion();
+
+		if(createResult.isFailed()) {
+			throw new BBoxDBException("Got an exception while creating table " + createResult.getAllMessages());
+		}
+	}
+
+	/**
+	 * Create the distribution group if missing. The index uses the replication factor
+	 * of the distribution group of the table.
+	 *
+	 * @param zookeeperClient
+	 * @param tupleStoreName
+	 * @param indexTupleStoreName
+	 * @throws ZookeeperException
+	 * @throws ZookeeperNotFoundException
+	 * @throws BBoxDBException
+	 * @throws InterruptedException
+	 */
+	private void createDistributionGroupIfMissing(final ZookeeperClient zookeeperClient,
+			final TupleStoreName tupleStoreName, final TupleStoreName indexTupleStoreName)
+			throws ZookeeperException, ZookeeperNotFoundException, BBoxDBException, InterruptedException {
+
+		final String distributionGroup = indexTupleStoreName.getDistributionGroup();
+
+		final DistributionGroupAdapter distributionGroupAdapter = new DistributionGroupAdapter(zookeeperClient);
+
+		final List<String> allGroups = distributionGroupAdapter.getDistributionGroups();
+
+		if(allGroups.contains(distributionGroup)) {
+			return;
+		}
+
+		final DistributionGroupConfiguration tableGroupConfig = DistributionGroupConfigurationCache
+				.getInstance().getDistributionGroupConfiguration(tupleStoreName.getDistributionGroup());
+
+		logger.info("Key index distribution group {} not found, creating", distributionGroup);
+		final DistributionGroupConfiguration dgroupConfig = DistributionGroupConfigurationBuilder
+				.create(1)
+				.withReplicationFactor(tableGroupConfig.getReplicationFactor())
+				.build();
+
+		final EmptyResultFuture dgroupFuture = cluster.createDistributionGroup(distributionGroup, dgroupConfig);
+		dgroupFuture.waitForCompletion();
+
+		if(dgroupFuture.isFailed()) {
+			throw new BBoxDBException("Unable to create distribution group: " + dgroupFuture.getAllMessages());
+		}
+	}
+
+	/**
+	 * Get the name of the key index table
+	 *
+	 * @param table
+	 * @return
+	 */
+	public static String convertTablenameToKeyIndexTablename(final String table) {
+		return KEY_IDX_DGROUP_PREFIX + table;
+	}
+
+	/**
+	 * Get the bounding box of the index entries for the given key
+	 * @param key
+	 * @return
+	 */
+	public static Hyperrectangle getBoundingBoxForKey(final String key) {
+		final int hashCode = key.hashCode();
+		return new Hyperrectangle((double) hashCode, (double) hashCode);
+	}
+
+	/**
+	 * Get the key of the index entry for the key and the region
+	 * @param key
+	 * @param regionId
+	 * @return
+	 */
+	public static String getIndexEntryKey(final String key, final long regionId) {
+		return key + REGION_SEPARATOR + regionId;
+	}
+
+	/**
+	 * Get the region of the index entry, if the entry belongs to the key
+	 * @param key
+	 * @param indexEntryKey
+	 * @return
+	 */
+	public static OptionalLong getRegionForIndexEntry(final String key, final String indexEntryKey) {
+		final int separatorPosition = indexEntryKey.lastIndexOf(REGION_SEPARATOR);
+
+		if(separatorPosition != key.length() || ! indexEntryKey.startsWith(key)) {
+			return OptionalLong.empty();
+		}
+
+		try {
+			return OptionalLong.of(Long.parseLong(indexEntryKey.substring(separatorPosition + 1)));
+		} catch(NumberFormatException e) {
+			return OptionalLong.empty();
+		}
+	}
+}
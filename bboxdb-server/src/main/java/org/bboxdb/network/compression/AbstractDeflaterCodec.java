@@ -0,0 +1,84 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+
+import org.bboxdb.commons.io.ByteBufferPool;
+
+/**
+ * Base class for the deflate based codecs. Creating a deflater is expensive
+ * (it allocates the native zlib state), so the deflaters are reused per thread
+ * and the compressed data is written through pooled buffers.
+ */
+public abstract class AbstractDeflaterCodec implements CompressionCodec {
+
+	/**
+	 * The size of the output buffers
+	 */
+	private final static int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The output buffers, shared by all codecs
+	 */
+	private final static ByteBufferPool outputBufferPool
+		= new ByteBufferPool(OUTPUT_BUFFER_SIZE, 64, false);
+
+	/**
+	 * The deflaters of the threads
+	 */
+	private final ThreadLocal<Deflater> deflaters;
+
+	public AbstractDeflaterCodec(final int level) {
+		this.deflaters = ThreadLocal.withInitial(() -> new Deflater(level, true));
+	}
+
+	/**
+	 * Deflate the bytes and write the raw deflate data to the output stream
+	 *
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @param outputStream
+	 * @throws IOException
+	 */
+	protected void deflate(final byte[] bytes, final int offset, final int length,
+			final OutputStream outputStream) throws IOException {
+
+		final Deflater deflater = deflaters.get();
+		final ByteBuffer outputBuffer = outputBufferPool.acquire();
+
+		try {
+			deflater.reset();
+			deflater.setInput(bytes, offset, length);
+			deflater.finish();
+
+			final byte[] output = outputBuffer.array();
+
+			while(! deflater.finished()) {
+				final int compressedBytes = deflater.deflate(output, 0, output.length);
+				outputStream.write(output, 0, compressedBytes);
+			}
+		} finally {
+			outputBufferPool.release(outputBuffer);
+		}
+	}
+}
@@ -0,0 +1,230 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.compression;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.prometheus.client.Counter;
+
+/**
+ * Decides per connection whether a batch of packages is compressed. Small
+ * batches are send uncompressed, because the envelope and the CPU time are
+ * not worth it. When a batch is not compressible, the following batches are
+ * send uncompressed; the amount of skipped batches is doubled every time
+ * the compression is useless again.
+ *
+ * The policy also collects the compression statistics of the connection.
+ */
+public class AdaptiveCompressionPolicy {
+
+	/**
+	 * Batches with less bytes are send uncompressed
+	 */
+	public final static int MIN_COMPRESSION_BYTES = 512;
+
+	/**
+	 * Batches with a higher ratio (compressed / uncompressed) are not compressible
+	 */
+	public final static double MAX_USEFUL_COMPRESSION_RATIO = 0.9;
+
+	/**
+	 * The max amount of uncompressed batches after a not compressible batch
+	 */
+	public final static int MAX_SKIPPED_BATCHES = 64;
+
+	/**
+	 * The amount of batches that are send uncompressed
+	 */
+	private int batchesToSkip = 0;
+
+	/**
+	 * The amount of batches that are skipped after the next not compressible batch
+	 */
+	private int skipBackoff = 0;
+
+	/**
+	 * The uncompressed bytes of the compressed batches
+	 */
+	private final AtomicLong uncompressedBytes = new AtomicLong(0);
+
+	/**
+	 * The compressed bytes of the compressed batches
+	 */
+	private final AtomicLong compressedBytes = new AtomicLong(0);
+
+	/**
+	 * The time spent for compression in nanoseconds
+	 */
+	private final AtomicLong compressionTime = new AtomicLong(0);
+
+	/**
+	 * The amount of compressed batches
+	 */
+	private final AtomicLong compressedBatches = new AtomicLong(0);
+
+	/**
+	 * The amount of batches that are send uncompressed
+	 */
+	private final AtomicLong skippedBatches = new AtomicLong(0);
+
+	/**
+	 * The uncompressed bytes counter
+	 */
+	private final static Counter uncompressedBytesTotal = Counter.build()
+			.name("bboxdb_network_compression_input_bytes_total")
+			.help("Total uncompressed bytes of the compressed package batches").register();
+
+	/**
+	 * The compressed bytes counter
+	 */
+	private final static Counter compressedBytesTotal = Counter.build()
+			.name("bboxdb_network_compression_output_bytes_total")
+			.help("Total compressed bytes of the compressed package batches").register();
+
+	/**
+	 * The compression time counter
+	 */
+	private final static Counter compressionSecondsTotal = Counter.build()
+			.name("bboxdb_network_compression_seconds_total")
+			.help("Total time spent for the compression of package batches in seconds").register();
+
+	/**
+	 * The skipped batches counter
+	 */
+	private final static Counter skippedBatchesTotal = Counter.build()
+			.name("bboxdb_network_compression_skipped_total")
+			.help("Total package batches that are send uncompressed").register();
+
+	/**
+	 * Should the batch be compressed
+	 * @param batchBytes
+	 * @return
+	 */
+	public synchronized boolean shouldCompress(final int batchBytes) {
+
+		if(batchBytes < MIN_COMPRESSION_BYTES) {
+			return false;
+		}
+
+		if(batchesToSkip > 0) {
+			batchesToSkip--;
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Record a compressed batch
+	 * @param batchBytes
+	 * @param batchCompressedBytes
+	 * @param nanos
+	 */
+	public void recordCompression(final int batchBytes, final int batchCompressedBytes,
+			final long nanos) {
+
+		uncompressedBytes.addAndGet(batchBytes);
+		compressedBytes.addAndGet(batchCompressedBytes);
+		compressionTime.addAndGet(nanos);
+		compressedBatches.incrementAndGet();
+
+		uncompressedBytesTotal.inc(batchBytes);
+		compressedBytesTotal.inc(batchCompressedBytes);
+		compressionSecondsTotal.inc(nanos / 1_000_000_000.0);
+
+		final double ratio = (double) batchCompressedBytes / (double) batchBytes;
+
+		synchronized (this) {
+			if(ratio > MAX_USEFUL_COMPRESSION_RATIO) {
+				skipBackoff = Math.min(MAX_SKIPPED_BATCHES, Math.max(1, skipBackoff * 2));
+				batchesToSkip = skipBackoff;
+			} else {
+				skipBackoff = 0;
+			}
+		}
+	}
+
+	/**
+	 * Record a batch that is send uncompressed
+	 */
+	public void recordSkip() {
+		skippedBatches.incrementAndGet();
+		skippedBatchesTotal.inc();
+	}
+
+	/**
+	 * Get the uncompressed bytes of the compressed batches
+	 * @return
+	 */
+	public long getUncompressedBytes() {
+		return uncompressedBytes.get();
+	}
+
+	/**
+	 * Get the compressed bytes of the compressed batches
+	 * @return
+	 */
+	public long getCompressedBytes() {
+		return compressedBytes.get();
+	}
+
+	/**
+	 * Get the compression ratio (compressed / uncompressed) of the connection
+	 * @return
+	 */
+	public double getCompressionRatio() {
+		final long uncompressed = uncompressedBytes.get();
+
+		if(uncompressed == 0) {
+			return 1.0;
+		}
+
+		return (double) compressedBytes.get() / (double) uncompressed;
+	}
+
+	/**
+	 * Get the time spent for compression in nanoseconds
+	 * @return
+	 */
+	public long getCompressionTimeNanos() {
+		return compressionTime.get();
+	}
+
+	/**
+	 * Get the amount of compressed batches
+	 * @return
+	 */
+	public long getCompressedBatches() {
+		return compressedBatches.get();
+	}
+
+	/**
+	 * Get the amount of batches that are send uncompressed
+	 * @return
+	 */
+	public long getSkippedBatches() {
+		return skippedBatches.get();
+	}
+
+	@Override
+	public String toString() {
+		return "AdaptiveCompressionPolicy [compressedBatches=" + compressedBatches.get()
+				+ ", skippedBatches=" + skippedBatches.get() + ", compressionRatio="
+				+ getCompressionRatio() + ", compressionTimeNanos=" + compressionTime.get() + "]";
+	}
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A codec for the content of the compression envelopes
+ */
+public interface CompressionCodec {
+
+	/**
+	 * Get the compression type of the codec (written into the envelope header)
+	 * @return
+	 */
+	public byte getCompressionType();
+
+	/**
+	 * Compress the bytes and write them to the output stream. The output
+	 * stream is not closed.
+	 *
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @param outputStream
+	 * @throws IOException
+	 */
+	public void compress(final byte[] bytes, final int offset, final int length,
+			final OutputStream outputStream) throws IOException;
+
+	/**
+	 * Uncompress the bytes
+	 *
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @return
+	 * @throws IOException
+	 */
+	public byte[] uncompress(final byte[] bytes, final int offset, final int length)
+			throws IOException;
+
+}
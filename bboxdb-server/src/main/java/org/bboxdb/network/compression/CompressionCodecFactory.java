@@ -0,0 +1,115 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.compression;
+
+import org.bboxdb.network.NetworkConst;
+import org.bboxdb.network.capabilities.PeerCapabilities;
+import org.bboxdb.network.packages.PackageEncodeException;
+
+public class CompressionCodecFactory {
+
+	/**
+	 * The gzip codec
+	 */
+	private final static CompressionCodec GZIP_CODEC = new GZipCompressionCodec();
+
+	/**
+	 * The fast deflate codec
+	 */
+	private final static CompressionCodec DEFLATE_FAST_CODEC = new DeflateCompressionCodec();
+
+	/**
+	 * Get the codec for the compression type
+	 *
+	 * @param compressionType
+	 * @return
+	 * @throws PackageEncodeException
+	 */
+	public static CompressionCodec getCodec(final byte compressionType) throws PackageEncodeException {
+
+		switch(compressionType) {
+		case NetworkConst.COMPRESSION_TYPE_GZIP:
+			return GZIP_CODEC;
+		case NetworkConst.COMPRESSION_TYPE_DEFLATE_FAST:
+			return DEFLATE_FAST_CODEC;
+		default:
+			throw new PackageEncodeException("Unknown compression type: " + compressionType);
+		}
+	}
+
+	/**
+	 * Get the codec for the negotiated capabilities of a connection. The fast
+	 * codec is preferred, null is returned if the packages are not compressed.
+	 *
+	 * @param capabilities
+	 * @param peerProtocolVersion
+	 * @return
+	 */
+	public static CompressionCodec getCodecForCapabilities(final PeerCapabilities capabilities,
+			final int peerProtocolVersion) {
+
+		if(isFastCompressionSupported(capabilities, peerProtocolVersion)) {
+			return DEFLATE_FAST_CODEC;
+		}
+
+		if(capabilities.hasGZipCompression()) {
+			return GZIP_CODEC;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Get the compression capabilities that are supported by the peer and by
+	 * this instance. These capabilities are returned in the handshake.
+	 *
+	 * @param peerCapabilities
+	 * @param peerProtocolVersion
+	 * @return
+	 */
+	public static PeerCapabilities getSupportedCapabilities(final PeerCapabilities peerCapabilities,
+			final int peerProtocolVersion) {
+
+		final PeerCapabilities supportedCapabilities = new PeerCapabilities();
+
+		if(peerCapabilities.hasGZipCompression()) {
+			supportedCapabilities.setGZipCompression();
+		}
+
+		if(isFastCompressionSupported(peerCapabilities, peerProtocolVersion)) {
+			supportedCapabilities.setFastCompression();
+		}
+
+		return supportedCapabilities;
+	}
+
+	/**
+	 * Is the fast compression supported by the peer? Peers with an older protocol
+	 * version echo unknown capability bits, so the bit alone is not sufficient.
+	 *
+	 * @param capabilities
+	 * @param peerProtocolVersion
+	 * @return
+	 */
+	private static boolean isFastCompressionSupported(final PeerCapabilities capabilities,
+			final int peerProtocolVersion) {
+
+		return capabilities.hasFastCompression()
+				&& peerProtocolVersion >= NetworkConst.PROTOCOL_VERSION_FAST_COMPRESSION;
+	}
+}
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.bboxdb.misc.Const;
+import org.bboxdb.network.packages.NetworkPackage;
+import org.bboxdb.network.packages.PackageEncodeException;
+
+/**
+ * Encodes and decodes the body of the compression envelopes (request and response).
+ *
+ * The body consists of the compression type, the number of packages, one
+ * unused byte and the compressed packages.
+ */
+public class CompressionEnvelopeEncoder {
+
+	/**
+	 * The length of the body header
+	 */
+	public final static int BODY_HEADER_LENGTH = 4;
+
+	/**
+	 * The initial size of the encoding buffers
+	 */
+	private final static int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Larger buffers are not reused
+	 */
+	private final static int MAX_REUSED_BUFFER_SIZE = 4 * 1024 * 1024;
+
+	/**
+	 * The buffers for the uncompressed packages
+	 */
+	private final static ThreadLocal<EncodingBuffer> packageBuffers
+		= ThreadLocal.withInitial(() -> new EncodingBuffer());
+
+	/**
+	 * The buffers for the compressed packages
+	 */
+	private final static ThreadLocal<EncodingBuffer> compressionBuffers
+		= ThreadLocal.withInitial(() -> new EncodingBuffer());
+
+	/**
+	 * Writes the header of the envelope package
+	 */
+	public interface PackageHeaderWriter {
+
+		/**
+		 * Write the package header for the given body length
+		 * @param bodyLength
+		 * @param outputStream
+		 * @return the length of the header
+		 * @throws PackageEncodeException
+		 */
+		public long writeHeader(final long bodyLength, final OutputStream outputStream)
+				throws PackageEncodeException;
+	}
+
+	/**
+	 * Write the packages as compression envelope. When the policy decides against
+	 * the compression, the packages are written uncompressed (without envelope).
+	 *
+	 * @param packages
+	 * @param codec
+	 * @param policy - the compression policy or null to compress all packages
+	 * @param headerWriter
+	 * @param outputStream
+	 * @return the written bytes
+	 * @throws PackageEncodeException
+	 */
+	public static long writeEnvelope(final List<? extends NetworkPackage> packages,
+			final CompressionCodec codec, final AdaptiveCompressionPolicy policy,
+			final PackageHeaderWriter headerWriter, final OutputStream outputStream)
+					throws PackageEncodeException {
+
+		final EncodingBuffer packageBuffer = packageBuffers.get();
+		final EncodingBuffer compressionBuffer = compressionBuffers.get();
+
+		try {
+			for(final NetworkPackage networkPackage : packages) {
+				networkPackage.writeToOutputStream(packageBuffer);
+			}
+
+			final int uncompressedBytes = packageBuffer.size();
+
+			if(policy != null && ! policy.shouldCompress(uncompressedBytes)) {
+				policy.recordSkip();
+				packageBuffer.writeTo(outputStream);
+				return uncompressedBytes;
+			}
+
+			final long compressionStart = System.nanoTime();
+			codec.compress(packageBuffer.getBuffer(), 0, uncompressedBytes, compressionBuffer);
+			final long compressionTime = System.nanoTime() - compressionStart;
+
+			final int compressedBytes = compressionBuffer.size();
+
+			if(policy != null) {
+				policy.recordCompression(uncompressedBytes, compressedBytes, compressionTime);
+
+				// The data is not compressible, the envelope would be larger
+				if(compressedBytes + BODY_HEADER_LENGTH >= uncompressedBytes) {
+					policy.recordSkip();
+					packageBuffer.writeTo(outputStream);
+					return uncompressedBytes;
+				}
+			}
+
+			// Header
+			final ByteBuffer bb = ByteBuffer.allocate(BODY_HEADER_LENGTH);
+			bb.order(Const.APPLICATION_BYTE_ORDER);
+			bb.put(codec.getCompressionType());
+			bb.putShort((short) packages.size());
+
+			// Body length
+			final long bodyLength = bb.capacity() + compressedBytes;
+			final long headerLength = headerWriter.writeHeader(bodyLength, outputStream);
+
+			// Write body
+			outputStream.write(bb.array());
+			compressionBuffer.writeTo(outputStream);
+
+			return headerLength + bodyLength;
+		} catch (IOException e) {
+			throw new PackageEncodeException("Got an IO Exception while writing compressed data", e);
+		} finally {
+			packageBuffer.recycle();
+			compressionBuffer.recycle();
+		}
+	}
+
+	/**
+	 * Decode the body of the envelope into an uncompressed byte stream. The position
+	 * of the buffer has to be at the beginning of the body.
+	 *
+	 * @param encodedPackage
+	 * @return
+	 * @throws PackageEncodeException
+	 */
+	public static InputStream decodeEnvelope(final ByteBuffer encodedPackage)
+			throws PackageEncodeException {
+
+		final byte compressionType = encodedPackage.get();
+		final CompressionCodec codec = CompressionCodecFactory.getCodec(compressionType);
+
+		// Skip 3 bytes - Header
+		encodedPackage.getShort();
+		encodedPackage.get();
+
+		try {
+			final byte[] uncompressedBytes;
+
+			if(encodedPackage.hasArray()) {
+				// Read the compressed bytes without copying them
+				uncompressedBytes = codec.uncompress(encodedPackage.array(),
+						encodedPackage.arrayOffset() + encodedPackage.position(),
+						encodedPackage.remaining());
+				encodedPackage.position(encodedPackage.limit());
+			} else {
+				final byte[] compressedBytes = new byte[encodedPackage.remaining()];
+				encodedPackage.get(compressedBytes);
+				uncompressedBytes = codec.uncompress(compressedBytes, 0, compressedBytes.length);
+			}
+
+			return new ByteArrayInputStream(uncompressedBytes);
+		} catch (IOException e) {
+			throw new PackageEncodeException(e);
+		}
+	}
+
+	/**
+	 * A reusable output buffer with access to the written bytes
+	 */
+	private static class EncodingBuffer extends ByteArrayOutputStream {
+
+		public EncodingBuffer() {
+			super(INITIAL_BUFFER_SIZE);
+		}
+
+		/**
+		 * Get the buffer, the first size() bytes are valid
+		 * @return
+		 */
+		public byte[] getBuffer() {
+			return buf;
+		}
+
+		/**
+		 * Reset the buffer for the next usage, large buffers are released
+		 */
+		public void recycle() {
+			reset();
+
+			if(buf.length > MAX_REUSED_BUFFER_SIZE) {
+				buf = new byte[INITIAL_BUFFER_SIZE];
+			}
+		}
+	}
+}
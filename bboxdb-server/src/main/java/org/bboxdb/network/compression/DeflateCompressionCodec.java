@@ -0,0 +1,106 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.bboxdb.misc.Const;
+import org.bboxdb.network.NetworkConst;
+
+/**
+ * A fast codec for links where the CPU time of gzip is the bottleneck. The
+ * data is compressed with the fastest deflate level and without the gzip
+ * header and checksum (the packages are protected by TCP). The length of the
+ * uncompressed data is written in front of the compressed data, so the
+ * receiver can allocate the result array at once.
+ */
+public class DeflateCompressionCodec extends AbstractDeflaterCodec {
+
+	/**
+	 * The inflaters of the threads
+	 */
+	private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+
+	public DeflateCompressionCodec() {
+		super(Deflater.BEST_SPEED);
+	}
+
+	@Override
+	public byte getCompressionType() {
+		return NetworkConst.COMPRESSION_TYPE_DEFLATE_FAST;
+	}
+
+	@Override
+	public void compress(final byte[] bytes, final int offset, final int length,
+			final OutputStream outputStream) throws IOException {
+
+		final ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+		lengthBuffer.order(Const.APPLICATION_BYTE_ORDER);
+		lengthBuffer.putInt(length);
+		outputStream.write(lengthBuffer.array());
+
+		deflate(bytes, offset, length, outputStream);
+	}
+
+	@Override
+	public byte[] uncompress(final byte[] bytes, final int offset, final int length)
+			throws IOException {
+
+		if(length < 4) {
+			throw new IOException("Compressed data is too short: " + length);
+		}
+
+		final ByteBuffer lengthBuffer = ByteBuffer.wrap(bytes, offset, 4);
+		lengthBuffer.order(Const.APPLICATION_BYTE_ORDER);
+		final int uncompressedLength = lengthBuffer.getInt();
+
+		if(uncompressedLength < 0 || uncompressedLength > NetworkConst.MAX_PACKAGE_BYTES) {
+			throw new IOException("Invalid uncompressed length: " + uncompressedLength);
+		}
+
+		final byte[] result = new byte[uncompressedLength];
+		final Inflater inflater = inflaters.get();
+
+		try {
+			inflater.reset();
+			inflater.setInput(bytes, offset + 4, length - 4);
+
+			int position = 0;
+			while(position < uncompressedLength) {
+				final int inflatedBytes = inflater.inflate(result, position, uncompressedLength - position);
+
+				if(inflatedBytes == 0 && (inflater.finished() || inflater.needsInput()
+						|| inflater.needsDictionary())) {
+					throw new IOException("Compressed data is truncated, got " + position
+							+ " of " + uncompressedLength + " bytes");
+				}
+
+				position += inflatedBytes;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException(e);
+		}
+
+		return result;
+	}
+}
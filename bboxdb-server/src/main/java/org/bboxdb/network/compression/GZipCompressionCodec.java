@@ -0,0 +1,95 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.compression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.bboxdb.network.NetworkConst;
+
+/**
+ * The gzip codec. The data is written in the format of the GZIPOutputStream,
+ * so the envelopes can be read by peers using the stream classes.
+ */
+public class GZipCompressionCodec extends AbstractDeflaterCodec {
+
+	/**
+	 * The gzip header (magic bytes, deflate method, no flags, no mtime)
+	 */
+	private final static byte[] GZIP_HEADER = new byte[] {
+			(byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+	public GZipCompressionCodec() {
+		super(Deflater.DEFAULT_COMPRESSION);
+	}
+
+	@Override
+	public byte getCompressionType() {
+		return NetworkConst.COMPRESSION_TYPE_GZIP;
+	}
+
+	@Override
+	public void compress(final byte[] bytes, final int offset, final int length,
+			final OutputStream outputStream) throws IOException {
+
+		outputStream.write(GZIP_HEADER);
+		deflate(bytes, offset, length, outputStream);
+
+		final CRC32 crc = new CRC32();
+		crc.update(bytes, offset, length);
+
+		// The trailer is written in little endian order
+		writeIntLE((int) crc.getValue(), outputStream);
+		writeIntLE(length, outputStream);
+	}
+
+	/**
+	 * Write the integer in little endian order
+	 * @param value
+	 * @param outputStream
+	 * @throws IOException
+	 */
+	private void writeIntLE(final int value, final OutputStream outputStream) throws IOException {
+		outputStream.write(value & 0xff);
+		outputStream.write((value >>> 8) & 0xff);
+		outputStream.write((value >>> 16) & 0xff);
+		outputStream.write((value >>> 24) & 0xff);
+	}
+
+	@Override
+	public byte[] uncompress(final byte[] bytes, final int offset, final int length)
+			throws IOException {
+
+		final ByteArrayInputStream bais = new ByteArrayInputStream(bytes, offset, length);
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream(length * 4);
+
+		try (final GZIPInputStream inputStream = new GZIPInputStream(bais)) {
+			final byte[] buffer = new byte[10240];
+			for (int read = 0; (read = inputStream.read(buffer)) > 0; ) {
+				baos.write(buffer, 0, read);
+			}
+		}
+
+		return baos.toByteArray();
+	}
+}
@@ -17,19 +17,17 @@
  *******************************************************************************/
 package org.bboxdb.network.packages.request;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.util.List;
-import java.util.zip.GZIPOutputStream;
 
-import org.bboxdb.misc.Const;
 import org.bboxdb.network.NetworkConst;
-import org.bboxdb.network.NetworkHelper;
 import org.bboxdb.network.NetworkPackageDecoder;
+import org.bboxdb.network.compression.AdaptiveCompressionPolicy;
+import org.bboxdb.network.compression.CompressionCodec;
+import org.bboxdb.network.compression.CompressionCodecFactory;
+import org.bboxdb.network.compression.CompressionEnvelopeEncoder;
 import org.bboxdb.network.packages.NetworkRequestPackage;
 import org.bboxdb.network.packages.PackageEncodeException;
 
@@ -38,7 +36,12 @@ public class CompressionEnvelopeRequest extends NetworkRequestPackage {
 	/**
 	 * The compression type
 	 */
-	private byte compressionType;
+	private final byte compressionType;
+	
+	/**
+	 * The compression policy, null if all packages are compressed
+	 */
+	private final AdaptiveCompressionPolicy compressionPolicy;
 
 	/**
 	 * The packages to encode
@@ -48,49 +51,30 @@ public class CompressionEnvelopeRequest extends NetworkRequestPackage {
 	public CompressionEnvelopeRequest(final byte compressionType, 
 			final List<NetworkRequestPackage> networkRequestPackages) {
 		
+		this(compressionType, null, networkRequestPackages);
+	}
+	
+	public CompressionEnvelopeRequest(final byte compressionType, 
+			final AdaptiveCompressionPolicy compressionPolicy,
+			final List<NetworkRequestPackage> networkRequestPackages) {
+		
 		// Don't use a real sequence number
 		super((short) 0);
 		
 		this.compressionType = compressionType;
+		this.compressionPolicy = compressionPolicy;
 		this.networkRequestPackages = networkRequestPackages;
 	}
 
+	/**
+	 * Write the envelope, the packages are written uncompressed (without envelope)
+	 * when the compression policy decides against the compression 
+	 */
 	public long writeToOutputStream(final OutputStream outputStream) throws PackageEncodeException {
-		try {
-			if(compressionType != NetworkConst.COMPRESSION_TYPE_GZIP) {
-				throw new PackageEncodeException("Unknown compression method: " + compressionType);
-			}
-			
-			final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			final OutputStream os = new GZIPOutputStream(baos);
-			
-			// Write packages
-			for(final NetworkRequestPackage networkRequestPackage : networkRequestPackages) {
-				networkRequestPackage.writeToOutputStream(os);
-			}
-			
-			os.close();
-			final byte[] compressedBytes = baos.toByteArray();
-			
-			// Header
-			final ByteBuffer bb = ByteBuffer.allocate(4);
-			bb.order(Const.APPLICATION_BYTE_ORDER);
-			bb.put(compressionType);
-			bb.putShort((short) networkRequestPackages.size());
-			
-			// Body length
-			final long bodyLength = bb.capacity() + compressedBytes.length;
-
-			final long headerLength = appendRequestPackageHeader(bodyLength, outputStream);
-			
-			// Write body
-			outputStream.write(bb.array());
-			outputStream.write(compressedBytes);
-			
-			return headerLength + bodyLength;
-		} catch (IOException e) {
-			throw new PackageEncodeException("Got an IO Exception while writing compressed data");
-		}
+		final CompressionCodec compressionCodec = CompressionCodecFactory.getCodec(compressionType);
+		
+		return CompressionEnvelopeEncoder.writeEnvelope(networkRequestPackages, compressionCodec, 
+				compressionPolicy, (l, o) -> appendRequestPackageHeader(l, o), outputStream);
 	}
 
 	/**
@@ -98,7 +82,6 @@ public class CompressionEnvelopeRequest extends NetworkRequestPackage {
 	 * 
 	 * @param encodedPackage
 	 * @return
-	 * @throws IOException 
 	 * @throws PackageEncodeException 
 	 */
 	public static InputStream decodePackage(final ByteBuffer encodedPackage) throws PackageEncodeException {
@@ -108,24 +91,7 @@ public class CompressionEnvelopeRequest extends NetworkRequestPackage {
 			throw new PackageEncodeException("Unable to decode package");
 		}
 		
-		final byte compressionType = encodedPackage.get();
-		
-		if(compressionType != NetworkConst.COMPRESSION_TYPE_GZIP) {
-			throw new PackageEncodeException("Unknown compression type: " + compressionType);
-		}
-		
-		// Skip 3 bytes - Header
-		encodedPackage.getShort();
-		encodedPackage.get();
-		
-		final byte[] compressedBytes = new byte[encodedPackage.remaining()];
-		encodedPackage.get(compressedBytes, 0, encodedPackage.remaining());
-		
-		final byte[] uncompressedBytes = NetworkHelper.uncompressBytes(compressionType, compressedBytes);
-		
-		final ByteArrayInputStream bis = new ByteArrayInputStream(uncompressedBytes);
-		
-		return bis;
+		return CompressionEnvelopeEncoder.decodeEnvelope(encodedPackage);
 	}
 	
 	@Override
@@ -141,4 +107,4 @@ public class CompressionEnvelopeRequest extends NetworkRequestPackage {
 		return networkRequestPackages;
 	}
 	
-}
\ No newline at end of file
+}
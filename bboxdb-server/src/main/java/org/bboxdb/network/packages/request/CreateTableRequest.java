@@ -39,6 +39,18 @@ public class CreateTableRequest extends NetworkRequestPackage {
 	 * The configuration of the SSTable
 	 */
 	private final TupleStoreConfiguration ssTableConfiguration;
+	
+	/**
+	 * The flag for the key index
+	 */
+	private final static byte FLAG_KEY_INDEX = 0x01;
+	
+	/**
+	 * The flag for a merge strategy in the package. Only a non default
+	 * merge strategy is transferred, so the package stays readable for 
+	 * peers that don't know the field.
+	 */
+	private final static byte FLAG_MERGE_STRATEGY = 0x02;
 
 	public CreateTableRequest(final short sequenceNumber, final String table, 
 			final TupleStoreConfiguration ssTableConfiguration) {
@@ -53,7 +65,11 @@ public class CreateTableRequest extends NetworkRequestPackage {
 
 		try {
 			final byte[] tableBytes = table.getFullnameBytes();
-			final ByteBuffer bb = ByteBuffer.allocate(20);
+			
+			final boolean sendMergeStrategy = ! TupleStoreConfiguration.DEFAULT_MERGE_STRATEGY
+					.equals(ssTableConfiguration.getMergeStrategy());
+			
+			final ByteBuffer bb = ByteBuffer.allocate(sendMergeStrategy ? 22 : 20);
 			bb.putShort((short) tableBytes.length);
 			
 			if(ssTableConfiguration.isAllowDuplicates()) {
@@ -62,8 +78,18 @@ public class CreateTableRequest extends NetworkRequestPackage {
 				bb.put((byte) 0x00);
 			}
 			
-			// Unused
-			bb.put((byte) 0x00);
+			// Key index and merge strategy
+			byte flags = 0x00;
+			
+			if(ssTableConfiguration.isKeyIndex()) {
+				flags |= FLAG_KEY_INDEX;
+			}
+			
+			if(sendMergeStrategy) {
+				flags |= FLAG_MERGE_STRATEGY;
+			}
+			
+			bb.put(flags);
 			
 			// TTL
 			bb.putLong(ssTableConfiguration.getTTL());
@@ -79,9 +105,18 @@ public class CreateTableRequest extends NetworkRequestPackage {
 			final byte[] spatialIndexWriterBytes = ssTableConfiguration.getSpatialIndexWriter().getBytes();
 			bb.putShort((short) spatialIndexWriterBytes.length);
 			
+			// Merge strategy
+			final byte[] mergeStrategyBytes = sendMergeStrategy 
+					? ssTableConfiguration.getMergeStrategy().getBytes() : new byte[0];
+			
+			if(sendMergeStrategy) {
+				bb.putShort((short) mergeStrategyBytes.length);
+			}
+			
 			// Body length
 			final long bodyLength = bb.capacity() + tableBytes.length 
-					+ spatialIndexReaderBytes.length + spatialIndexWriterBytes.length;
+					+ spatialIndexReaderBytes.length + spatialIndexWriterBytes.length
+					+ mergeStrategyBytes.length;
 			
 			final long headerLength = appendRequestPackageHeader(bodyLength, outputStream);
 
@@ -90,6 +125,7 @@ public class CreateTableRequest extends NetworkRequestPackage {
 			outputStream.write(tableBytes);
 			outputStream.write(spatialIndexReaderBytes);
 			outputStream.write(spatialIndexWriterBytes);
+			outputStream.write(mergeStrategyBytes);
 			
 			return headerLength + bodyLength;
 		} catch (IOException e) {
@@ -122,8 +158,10 @@ public class CreateTableRequest extends NetworkRequestPackage {
 			allowDuplicates = true;
 		}
 		
-		//Unused
-		encodedPackage.get();
+		// Key index and merge strategy
+		final byte flags = encodedPackage.get();
+		final boolean keyIndex = (flags & FLAG_KEY_INDEX) != 0;
+		final boolean hasMergeStrategy = (flags & FLAG_MERGE_STRATEGY) != 0;
 		
 		// TTL
 		final long ttl = encodedPackage.getLong();
@@ -137,6 +175,9 @@ public class CreateTableRequest extends NetworkRequestPackage {
 		// Spatial writer length
 		final short spatialWriterLength = encodedPackage.getShort();
 		
+		// Merge strategy length
+		final short mergeStrategyLength = hasMergeStrategy ? encodedPackage.getShort() : 0;
+		
 		// Table name
 		final byte[] tableBytes = new byte[tableLength];
 		encodedPackage.get(tableBytes, 0, tableBytes.length);
@@ -151,6 +192,12 @@ public class CreateTableRequest extends NetworkRequestPackage {
 		final byte[] spatialWriterBytes = new byte[spatialWriterLength];
 		encodedPackage.get(spatialWriterBytes, 0, spatialWriterBytes.length);
 		final String spatialIndexWriter = new String(spatialWriterBytes);
+		
+		// Merge strategy
+		final byte[] mergeStrategyBytes = new byte[mergeStrategyLength];
+		encodedPackage.get(mergeStrategyBytes, 0, mergeStrategyBytes.length);
+		final String mergeStrategy = hasMergeStrategy ? new String(mergeStrategyBytes) 
+				: TupleStoreConfiguration.DEFAULT_MERGE_STRATEGY;
 				
 		final TupleStoreConfiguration tupleStoreConfiguration = new TupleStoreConfiguration();
 		tupleStoreConfiguration.setAllowDuplicates(allowDuplicates);
@@ -158,6 +205,8 @@ public class CreateTableRequest extends NetworkRequestPackage {
 		tupleStoreConfiguration.setVersions(versions);
 		tupleStoreConfiguration.setSpatialIndexReader(spatialIndexReader);
 		tupleStoreConfiguration.setSpatialIndexWriter(spatialIndexWriter);
+		tupleStoreConfiguration.setMergeStrategy(mergeStrategy);
+		tupleStoreConfiguration.setKeyIndex(keyIndex);
 		
 		if(encodedPackage.remaining() != 0) {
 			throw new PackageEncodeException("Some bytes are left after decoding: " + encodedPackage.remaining());
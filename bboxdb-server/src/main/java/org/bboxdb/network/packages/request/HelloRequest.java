@@ -98,6 +98,14 @@ public class HelloRequest extends NetworkRequestPackage {
 		return new HelloRequest(sequenceNumber, protocolVersion, peerCapabilities);
 	}
 	
+	/**
+	 * Get the protocol version
+	 * @return
+	 */
+	public int getProtocolVersion() {
+		return protocolVersion;
+	}
+
 	/**
 	 * Get the capabilities
 	 * @return
@@ -17,19 +17,17 @@
  *******************************************************************************/
 package org.bboxdb.network.packages.response;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.util.List;
-import java.util.zip.GZIPOutputStream;
 
-import org.bboxdb.misc.Const;
 import org.bboxdb.network.NetworkConst;
-import org.bboxdb.network.NetworkHelper;
 import org.bboxdb.network.NetworkPackageDecoder;
+import org.bboxdb.network.compression.AdaptiveCompressionPolicy;
+import org.bboxdb.network.compression.CompressionCodec;
+import org.bboxdb.network.compression.CompressionCodecFactory;
+import org.bboxdb.network.compression.CompressionEnvelopeEncoder;
 import org.bboxdb.network.packages.NetworkResponsePackage;
 import org.bboxdb.network.packages.PackageEncodeException;
 
@@ -38,7 +36,12 @@ public class CompressionEnvelopeResponse extends NetworkResponsePackage {
 	/**
 	 * The compression type
 	 */
-	protected byte compressionType;
+	protected final byte compressionType;
+	
+	/**
+	 * The compression policy, null if all packages are compressed
+	 */
+	protected final AdaptiveCompressionPolicy compressionPolicy;
 	
 	/**
 	 * The package to encode
@@ -48,9 +51,17 @@ public class CompressionEnvelopeResponse extends NetworkResponsePackage {
 	public CompressionEnvelopeResponse(final byte compressionType, 
 			final List<NetworkResponsePackage> networkResponsePackages) {
 		
+		this(compressionType, null, networkResponsePackages);
+	}
+	
+	public CompressionEnvelopeResponse(final byte compressionType, 
+			final AdaptiveCompressionPolicy compressionPolicy,
+			final List<NetworkResponsePackage> networkResponsePackages) {
+		
 		super((short) 0);
 
 		this.compressionType = compressionType;
+		this.compressionPolicy = compressionPolicy;
 		this.networkResponsePackages = networkResponsePackages;
 	}
 
@@ -59,53 +70,23 @@ public class CompressionEnvelopeResponse extends NetworkResponsePackage {
 		return NetworkConst.RESPONSE_TYPE_COMPRESSION;
 	}
 
+	/**
+	 * Write the envelope, the packages are written uncompressed (without envelope)
+	 * when the compression policy decides against the compression 
+	 */
 	@Override
 	public long writeToOutputStream(final OutputStream outputStream) throws PackageEncodeException {
-
-		try {
-			if(compressionType != NetworkConst.COMPRESSION_TYPE_GZIP) {
-				throw new PackageEncodeException("Unknown compression method: " + compressionType);
-			}
-			
-			final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			final OutputStream os = new GZIPOutputStream(baos);
-			
-			// Write packages
-			for(final NetworkResponsePackage networkResponsePackage : networkResponsePackages) {
-				networkResponsePackage.writeToOutputStream(os);
-			}
-			
-			os.close();
-			final byte[] compressedBytes = baos.toByteArray();
-			
-			// Header
-			final ByteBuffer bb = ByteBuffer.allocate(4);
-			bb.order(Const.APPLICATION_BYTE_ORDER);
-			bb.put(compressionType);
-			bb.putShort((short) networkResponsePackages.size());
-			
-			// Body length
-			final long bodyLength = bb.capacity() + compressedBytes.length;
-
-			// Write body length
-			final long headerLength = appendResponsePackageHeader(bodyLength, outputStream);
-			
-			// Write body
-			outputStream.write(bb.array());
-			outputStream.write(compressedBytes);
-			
-			return headerLength + bodyLength;
-		} catch (IOException e) {
-			throw new PackageEncodeException("Got exception while converting package into bytes", e);
-		}
+		final CompressionCodec compressionCodec = CompressionCodecFactory.getCodec(compressionType);
+		
+		return CompressionEnvelopeEncoder.writeEnvelope(networkResponsePackages, compressionCodec, 
+				compressionPolicy, (l, o) -> appendResponsePackageHeader(l, o), outputStream);
 	}
 	
 	/**
-	 * Decode the encoded package into a object
+	 * Decode the encoded package into a uncompressed byte stream
 	 * 
 	 * @param encodedPackage
 	 * @return
-	 * @throws IOException 
 	 * @throws PackageEncodeException 
 	 */
 	public static InputStream decodePackage(final ByteBuffer encodedPackage) throws PackageEncodeException {
@@ -116,24 +97,7 @@ public class CompressionEnvelopeResponse extends NetworkResponsePackage {
 			throw new PackageEncodeException("Unable to decode package");
 		}
 		
-		final byte compressionType = encodedPackage.get();
-		
-		if(compressionType != NetworkConst.COMPRESSION_TYPE_GZIP) {
-			throw new PackageEncodeException("Unknown compression type: " + compressionType);
-		}
-
-		// Skip 3 bytes - Header
-		encodedPackage.getShort();
-		encodedPackage.get();
-		
-		final byte[] compressedBytes = new byte[encodedPackage.remaining()];
-		encodedPackage.get(compressedBytes, 0, encodedPackage.remaining());
-		
-		final byte[] uncompressedBytes = NetworkHelper.uncompressBytes(compressionType, compressedBytes);
-		
-		final ByteArrayInputStream bis = new ByteArrayInputStream(uncompressedBytes);
-		
-		return bis;
+		return CompressionEnvelopeEncoder.decodeEnvelope(encodedPackage);
 	}
 	
 }
@@ -17,28 +17,42 @@
  *******************************************************************************/
 package org.bboxdb.network.routing;
 
-import java.util.concurrent.ExecutionException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.bboxdb.commons.concurrent.ExceptionSafeRunnable;
 import org.bboxdb.distribution.membership.BBoxDBInstance;
 import org.bboxdb.distribution.membership.MembershipConnectionService;
 import org.bboxdb.distribution.zookeeper.ZookeeperClientFactory;
+import org.bboxdb.misc.BBoxDBConfigurationManager;
 import org.bboxdb.misc.BBoxDBException;
 import org.bboxdb.network.client.BBoxDBClient;
 import org.bboxdb.network.client.BBoxDBConnection;
 import org.bboxdb.network.client.future.EmptyResultFuture;
+import org.bboxdb.network.packages.NetworkRequestPackage;
 import org.bboxdb.network.packages.PackageEncodeException;
 import org.bboxdb.network.packages.request.InsertTupleRequest;
+import org.bboxdb.network.packages.request.InsertTuplesRequest;
 import org.bboxdb.network.packages.response.ErrorResponse;
 import org.bboxdb.network.packages.response.SuccessResponse;
 import org.bboxdb.network.server.ErrorMessages;
 import org.bboxdb.network.server.connection.ClientConnectionHandler;
+import org.bboxdb.storage.entity.Tuple;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.prometheus.client.Counter;
+import io.prometheus.client.Summary;
+
 public class PackageRouter {
 	
 	/**
@@ -46,95 +60,218 @@ public class PackageRouter {
 	 */
 	protected final ExecutorService threadPool;
 	
+	/**
+	 * The pool that sends the results of the forwarded inserts
+	 */
+	private final ExecutorService callbackPool;
+	
+	/**
+	 * The routing deadline scheduler
+	 */
+	private final ScheduledExecutorService deadlineScheduler;
+	
 	/**
 	 * The client connection handler
 	 */
 	protected final ClientConnectionHandler clientConnectionHandler;
 	
 	/**
-	 * Routing timeout
+	 * Routing timeout in milliseconds
+	 */
+	protected final long routingTimeout;
+	
+	/**
+	 * The inserts that are waiting to be forwarded, grouped by the next hop
+	 */
+	private final Map<RoutingTarget, List<PendingInsert>> pendingInserts;
+	
+	/**
+	 * The max amount of tuples that are forwarded in one package
+	 */
+	private final static int MAX_TUPLES_PER_FORWARD = 100;
+	
+	/**
+	 * The routing latency
+	 */
+	private final static Summary routingLatency = Summary.build()
+			.name("bboxdb_routing_latency_seconds")
+			.help("Latency of the forwarded inserts in seconds.").register();
+	
+	/**
+	 * The amount of tuples per forwarded package
+	 */
+	private final static Summary routingBatchSize = Summary.build()
+			.name("bboxdb_routing_batch_tuples")
+			.help("Tuples per forwarded insert package.").register();
+	
+	/**
+	 * The amount of routing timeouts
 	 */
-	protected final int ROUTING_TIMEOUT_IN_SEC = 2;
+	private final static Counter routingTimeouts = Counter.build()
+			.name("bboxdb_routing_timeout_total")
+			.help("Total forwarded inserts that exceeded the routing timeout.").register();
 	
 	/**
 	 * The Logger
 	 */
 	private final static Logger logger = LoggerFactory.getLogger(PackageRouter.class);
-
-	public PackageRouter(final ExecutorService threadPool, 
+	
+	public PackageRouter(final ExecutorService threadPool, final ExecutorService callbackPool,
+			final ScheduledExecutorService deadlineScheduler,
 			final ClientConnectionHandler clientConnectionHandler) {
 		
 		this.threadPool = threadPool;
+		this.callbackPool = callbackPool;
+		this.deadlineScheduler = deadlineScheduler;
 		this.clientConnectionHandler = clientConnectionHandler;
+		this.routingTimeout = BBoxDBConfigurationManager.getConfiguration().getNetworkRoutingTimeout();
+		this.pendingInserts = new HashMap<>();
 	}
 
 	/**
 	 * Perform the routing task async
 	 * @param packageSequence
 	 * @param insertTupleRequest
-	 * @param boundingBox
 	 */
 	public void performInsertPackageRoutingAsync(final short packageSequence, 
 			final InsertTupleRequest insertTupleRequest) {
+		
+		performRoutingAsync(packageSequence, insertTupleRequest, 
+				insertTupleRequest.getTable().getFullname(), 
+				Collections.singletonList(insertTupleRequest.getTuple()));
+	}
 	
-		final Runnable routeRunable = new ExceptionSafeRunnable()  {
-
+	/**
+	 * Perform the routing task for a batch of tuples async
+	 * @param packageSequence
+	 * @param insertTuplesRequest
+	 */
+	public void performInsertPackageRoutingAsync(final short packageSequence, 
+			final InsertTuplesRequest insertTuplesRequest) {
+		
+		performRoutingAsync(packageSequence, insertTuplesRequest, 
+				insertTuplesRequest.getTable().getFullname(), 
+				insertTuplesRequest.getTuples());
+	}
+	
+	/**
+	 * Queue the tuples for the next hop. All tuples for the same next hop are
+	 * forwarded in one package, the result is send to the client when the next
+	 * hop has acknowledged the package.
+	 * 
+	 * @param packageSequence
+	 * @param requestPackage
+	 * @param table
+	 * @param tuples
+	 */
+	private void performRoutingAsync(final short packageSequence, final NetworkRequestPackage requestPackage,
+			final String table, final List<Tuple> tuples) {
+	
+		if(threadPool.isShutdown()) {
+			logger.warn("Thread pool is shutting down, don't route package: {}", packageSequence);
+			final ErrorResponse responsePackage = new ErrorResponse(packageSequence, ErrorMessages.ERROR_QUERY_SHUTDOWN);
+			clientConnectionHandler.writeResultPackageNE(responsePackage);
+			return;
+		}
+		
+		final RoutingHeader routingHeader;
+		
+		try {
+			routingHeader = requestPackage.getRoutingHeader();
+		} catch (PackageEncodeException e) {
+			logger.error("Exception while routing package", e);
+			sendResult(packageSequence, false);
+			return;
+		}
+		
+		assert (routingHeader.isRoutedPackage()) : "Tuple is not a routed package";
+		
+		if(routingHeader.reachedFinalInstance()) {
+			sendResult(packageSequence, true);
+			return;
+		}
+		
+		routingHeader.dispatchToNextHop();
+		
+		final RoutingTarget routingTarget = new RoutingTarget(table, routingHeader);
+		final PendingInsert pendingInsert = new PendingInsert(packageSequence, tuples);
+		
+		synchronized (pendingInserts) {
+			final List<PendingInsert> inserts = pendingInserts.get(routingTarget);
+			
+			// A forward task for the next hop is already scheduled
+			if(inserts != null) {
+				inserts.add(pendingInsert);
+				return;
+			}
+			
+			final List<PendingInsert> newInserts = new ArrayList<>();
+			newInserts.add(pendingInsert);
+			pendingInserts.put(routingTarget, newInserts);
+		}
+		
+		final Runnable forwardRunnable = new ExceptionSafeRunnable() {
+			
 			@Override
 			protected void runThread() {
+				final List<PendingInsert> inserts;
 				
-				boolean operationSuccess = true;
-
-				try {
-					final RoutingHeader routingHeader = insertTupleRequest.getRoutingHeader();
-					
-					assert (routingHeader.isRoutedPackage()) : "Tuple is not a routed package";
-					
-					if(! routingHeader.reachedFinalInstance()) {
-						routingHeader.dispatchToNextHop();				
-						operationSuccess = sendInsertPackage(insertTupleRequest);
-					}
-					
-				}  catch(InterruptedException e) {
-					logger.error("Exception while routing package", e);
-					Thread.currentThread().interrupt();
-					operationSuccess = false;
-				} catch (PackageEncodeException e) {
-					logger.error("Exception while routing package", e);
-					operationSuccess = false;
-				} 
+				synchronized (pendingInserts) {
+					inserts = pendingInserts.remove(routingTarget);
+				}
 				
-				if(operationSuccess) {
-					final SuccessResponse responsePackage = new SuccessResponse(packageSequence);
-					clientConnectionHandler.writeResultPackageNE(responsePackage);
-				} else {
-					final ErrorResponse responsePackage = new ErrorResponse(packageSequence, ErrorMessages.ERROR_ROUTING_FAILED);
-					clientConnectionHandler.writeResultPackageNE(responsePackage);
+				if(inserts != null) {
+					forwardInserts(routingTarget, inserts);
 				}
 			}
 		};
 		
-		// Submit the runnable to our pool
-		if(threadPool.isShutdown()) {
-			logger.warn("Thread pool is shutting down, don't route package: {}", packageSequence);
-			final ErrorResponse responsePackage = new ErrorResponse(packageSequence, ErrorMessages.ERROR_QUERY_SHUTDOWN);
-			clientConnectionHandler.writeResultPackageNE(responsePackage);
-		} else {
-			threadPool.submit(routeRunable);
+		try {
+			threadPool.submit(forwardRunnable);
+		} catch(RejectedExecutionException e) {
+			logger.warn("Unable to route package {}, thread pool is shutting down", packageSequence);
+			forwardRunnable.run();
+		}
+	}
+	
+	/**
+	 * Forward the inserts to the next hop, the inserts are split into packages 
+	 * of at most MAX_TUPLES_PER_FORWARD tuples
+	 * 
+	 * @param routingTarget
+	 * @param inserts
+	 */
+	private void forwardInserts(final RoutingTarget routingTarget, final List<PendingInsert> inserts) {
+
+		final List<PendingInsert> batch = new ArrayList<>();
+		int batchTuples = 0;
+		
+		for(final PendingInsert insert : inserts) {
+			if(! batch.isEmpty() && batchTuples + insert.getTuples().size() > MAX_TUPLES_PER_FORWARD) {
+				sendInsertPackage(routingTarget, new ArrayList<>(batch), batchTuples);
+				batch.clear();
+				batchTuples = 0;
+			}
+			
+			batch.add(insert);
+			batchTuples = batchTuples + insert.getTuples().size();
+		}
+		
+		if(! batch.isEmpty()) {
+			sendInsertPackage(routingTarget, batch, batchTuples);
 		}
 	}
 
 	/**
-	 * @param insertTupleRequest
-	 * @return
-	 * @throws InterruptedException
-	 * @throws PackageEncodeException 
-	 * @throws TimeoutException 
-	 * @throws ExecutionException
+	 * Send the inserts to the next hop and register the completion callback
+	 * @param routingTarget
+	 * @param inserts
+	 * @param totalTuples
 	 */
-	protected boolean sendInsertPackage(final InsertTupleRequest insertTupleRequest) 
-			throws InterruptedException, PackageEncodeException {
+	protected void sendInsertPackage(final RoutingTarget routingTarget, 
+			final List<PendingInsert> inserts, final int totalTuples) {
 		
-		final RoutingHeader routingHeader = insertTupleRequest.getRoutingHeader();
+		final RoutingHeader routingHeader = routingTarget.getRoutingHeader();
 		final RoutingHop routingHop = routingHeader.getRoutingHop();
 		final BBoxDBInstance receiverInstance = routingHop.getDistributedInstance();
 				
@@ -144,26 +281,99 @@ public class PackageRouter {
 		
 		if(connection == null) {
 			logger.error("Unable to get a connection to system: {}", receiverInstance);
-			return false;
+			inserts.forEach(i -> sendResult(i.getPackageSequence(), false));
+			return;
 		} 
-				
+		
+		routingBatchSize.observe(totalTuples);
+		
+		final Summary.Timer routingTimer = routingLatency.startTimer();
 		final BBoxDBClient bboxDBClient = connection.getBboxDBClient();
-		final EmptyResultFuture insertFuture = bboxDBClient.insertTuple(
-				insertTupleRequest.getTable().getFullname(), 
-				insertTupleRequest.getTuple(), 
-				routingHeader);
+		final String table = routingTarget.getTable();
+		
+		final EmptyResultFuture insertFuture;
+		
+		if(inserts.size() == 1 && totalTuples == 1) {
+			final Tuple tuple = inserts.get(0).getTuples().get(0);
+			insertFuture = bboxDBClient.insertTuple(table, tuple, routingHeader);
+		} else {
+			final List<Tuple> tuples = new ArrayList<>(totalTuples);
+			inserts.forEach(i -> tuples.addAll(i.getTuples()));
+			insertFuture = bboxDBClient.insertTuples(table, tuples, routingHeader);
+		}
+		
+		// The result is send only once, either after completion or after the timeout
+		final AtomicBoolean resultSend = new AtomicBoolean(false);
 		
+		final ScheduledFuture<?> timeoutFuture = scheduleDeadline(() -> {
+			if(resultSend.compareAndSet(false, true)) {
+				logger.warn("Routing timeout, retry routing: {}", connection);
+				routingTimeouts.inc();
+				sendResultAsync(inserts, false);
+			}
+		});
+		
+		insertFuture.addCompletionCallback((f) -> {
+			if(resultSend.compareAndSet(false, true)) {
+				if(timeoutFuture != null) {
+					timeoutFuture.cancel(false);
+				}
+				
+				routingTimer.observeDuration();
+				sendResultAsync(inserts, ! f.isFailed());
+			}
+		});
+	}
+	
+	/**
+	 * Schedule the routing deadline
+	 * @param timeoutRunnable
+	 * @return the future or null, if the scheduler is shut down
+	 */
+	private ScheduledFuture<?> scheduleDeadline(final Runnable timeoutRunnable) {
 		try {
-			insertFuture.waitForCompletion(ROUTING_TIMEOUT_IN_SEC, TimeUnit.SECONDS);
-		} catch (TimeoutException e) {
-			logger.warn("Routing timeout, retry routing: {}", connection);
-			return false;
+			return deadlineScheduler.schedule(timeoutRunnable, routingTimeout, TimeUnit.MILLISECONDS);
+		} catch(RejectedExecutionException e) {
+			logger.debug("Deadline scheduler is shut down, routing without deadline");
+			return null;
 		}
+	}
+	
+	/**
+	 * Send the result of the inserts to the client. The callbacks are executed by 
+	 * the threads of the connections to the other nodes and the deadline scheduler. 
+	 * The result is send by the callback pool, which never runs the task in the
+	 * calling thread, so these threads are not blocked by a slow client.
+	 * 
+	 * @param inserts
+	 * @param operationSuccess
+	 */
+	private void sendResultAsync(final List<PendingInsert> inserts, final boolean operationSuccess) {
+		final Runnable resultRunnable = () -> inserts.forEach(
+				i -> sendResult(i.getPackageSequence(), operationSuccess));
 		
-		final boolean operationSuccess = (! insertFuture.isFailed());
-		return operationSuccess;
+		try {
+			callbackPool.execute(resultRunnable);
+		} catch(RejectedExecutionException e) {
+			logger.debug("Callback pool is shut down, sending result directly");
+			resultRunnable.run();
+		}
 	}
 	
+	/**
+	 * Send the result of the routing to the client
+	 * @param packageSequence
+	 * @param operationSuccess
+	 */
+	private void sendResult(final short packageSequence, final boolean operationSuccess) {
+		if(operationSuccess) {
+			final SuccessResponse responsePackage = new SuccessResponse(packageSequence);
+			clientConnectionHandler.writeResultPackageNE(responsePackage);
+		} else {
+			final ErrorResponse responsePackage = new ErrorResponse(packageSequence, ErrorMessages.ERROR_ROUTING_FAILED);
+			clientConnectionHandler.writeResultPackageNE(responsePackage);
+		}
+	}
 	
 	/**
 	 * Ensure that the package is routed to the correct system
@@ -196,4 +406,93 @@ public class PackageRouter {
 					+ " does not match local host " + localInstanceName);
 		}
 	}
+
+	/**
+	 * The table and the routing header of the next hop
+	 */
+	protected static class RoutingTarget {
+		
+		/**
+		 * The table
+		 */
+		private final String table;
+		
+		/**
+		 * The routing header
+		 */
+		private final RoutingHeader routingHeader;
+
+		public RoutingTarget(final String table, final RoutingHeader routingHeader) {
+			this.table = table;
+			this.routingHeader = routingHeader;
+		}
+		
+		public String getTable() {
+			return table;
+		}
+		
+		public RoutingHeader getRoutingHeader() {
+			return routingHeader;
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + ((routingHeader == null) ? 0 : routingHeader.hashCode());
+			result = prime * result + ((table == null) ? 0 : table.hashCode());
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			RoutingTarget other = (RoutingTarget) obj;
+			if (routingHeader == null) {
+				if (other.routingHeader != null)
+					return false;
+			} else if (!routingHeader.equals(other.routingHeader))
+				return false;
+			if (table == null) {
+				if (other.table != null)
+					return false;
+			} else if (!table.equals(other.table))
+				return false;
+			return true;
+		}
+	}
+	
+	/**
+	 * An insert that is waiting for the forward to the next hop
+	 */
+	protected static class PendingInsert {
+		
+		/**
+		 * The sequence number of the client package
+		 */
+		private final short packageSequence;
+		
+		/**
+		 * The tuples of the client package
+		 */
+		private final List<Tuple> tuples;
+
+		public PendingInsert(final short packageSequence, final List<Tuple> tuples) {
+			this.packageSequence = packageSequence;
+			this.tuples = tuples;
+		}
+		
+		public short getPackageSequence() {
+			return packageSequence;
+		}
+		
+		public List<Tuple> getTuples() {
+			return tuples;
+		}
+	}
 }
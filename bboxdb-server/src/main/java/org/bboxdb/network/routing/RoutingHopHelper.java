@@ -70,6 +70,24 @@ public class RoutingHopHelper {
 				DistributionRegionHelper.PREDICATE_REGIONS_FOR_WRITE);
 	}
 
+	/**
+	 * Get the a list of systems for the readable regions with the given ids
+	 * @return
+	 */
+	public static List<RoutingHop> getRoutingHopsForReadRegions(final DistributionRegion rootRegion,
+			final Collection<Long> regionIds) {
+
+		final List<BBoxDBInstance> instances = MembershipConnectionService.getInstance().getAllInstances();
+
+		final List<DistributionRegion> regions = rootRegion.getThisAndChildRegions(
+				d -> DistributionRegionHelper.PREDICATE_REGIONS_FOR_READ.test(d.getState())
+				&& regionIds.contains(d.getRegionId()));
+
+		final Map<InetSocketAddress, RoutingHop> hops = mergeHops(regions);
+
+		return removeUnavailableHops(instances, hops);
+	}
+
 	/**
 	 * Get a routing list for the given predicate
 	 *
@@ -18,11 +18,14 @@
 package org.bboxdb.network.server;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import org.bboxdb.commons.math.Hyperrectangle;
@@ -42,6 +45,8 @@ import org.bboxdb.network.query.ContinuousConstQueryPlan;
 import org.bboxdb.network.query.ContinuousQueryPlan;
 import org.bboxdb.network.query.ContinuousTableQueryPlan;
 import org.bboxdb.network.query.entity.TupleAndBoundingBox;
+import org.bboxdb.network.query.transformation.BoundingBoxFilterTransformation;
+import org.bboxdb.network.query.transformation.KeyFilterTransformation;
 import org.bboxdb.network.query.transformation.TupleTransformation;
 import org.bboxdb.network.server.connection.ClientConnectionHandler;
 import org.bboxdb.storage.StorageManagerException;
@@ -53,6 +58,8 @@ import org.bboxdb.storage.tuplestore.manager.TupleStoreManagerRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.prometheus.client.Counter;
+
 public class ContinuousClientQuery implements ClientQuery {
 
 	/**
@@ -83,7 +90,7 @@ public class ContinuousClientQuery implements ClientQuery {
 	/**
 	 * Is the continuous query active
 	 */
-	private boolean queryActive = true;
+	private volatile boolean queryActive = true;
 
 	/**
 	 * The tuples for the given key
@@ -94,11 +101,35 @@ public class ContinuousClientQuery implements ClientQuery {
 	 * The maximal queue capacity
 	 */
 	private final static int MAX_QUEUE_CAPACITY = 1024;
+
+	/**
+	 * The max time the dispatcher waits for the client, before the query is closed
+	 */
+	private final static long MAX_QUEUE_FULL_MS = TimeUnit.SECONDS.toMillis(5);
+
+	/**
+	 * The query was closed, because the client has not fetched the tuples
+	 */
+	private volatile boolean clientTooSlow = false;
+
+	/**
+	 * The amount of tuples that waited for the client, because the queue was full
+	 */
+	private final static Counter blockedTuplesTotal = Counter.build()
+			.name("bboxdb_continuous_query_blocked_tuples_total")
+			.help("Total tuples of continuous queries that waited for the client.").register();
+
+	/**
+	 * The package sequences of the pages that are requested by the client but
+	 * not answered, because no tuples were available. The client can request
+	 * several pages in advance, the pages are answered in request order.
+	 */
+	private final Deque<Short> pendingPageSequences = new ArrayDeque<>();
 	
 	/**
 	 * The number of tuples per page
 	 */
-	private final static long TUPLES_PER_PAGE = 1;
+	private final static int TUPLES_PER_PAGE = 1;
 
 	/**
 	 * The tuple insert callback
@@ -115,11 +146,6 @@ public class ContinuousClientQuery implements ClientQuery {
 	 */
 	private final ContinuousQueryPlan queryPlan;
 
-	/**
-	 * The dead pill for the queue
-	 */
-	private final static JoinedTuple RED_PILL = new JoinedTuple(new ArrayList<>(), new ArrayList<>());
-	
 	/**
 	 * The Logger
 	 */
@@ -277,17 +303,122 @@ public class ContinuousClientQuery implements ClientQuery {
 	}
 
 	/**
-	 * Queue the tuple for client processing
+	 * Queue the tuple for client processing. When the client waits for a page,
+	 * the tuple is send directly. When the queue is full, the dispatcher waits 
+	 * until the client fetches the next page, so the inserts are slowed down to
+	 * the speed of the client. When the client has not fetched a page for 
+	 * MAX_QUEUE_FULL_MS, the query is closed and the error is reported to the client.
 	 * @param t
 	 */
 	private void queueTupleForClientProcessing(final JoinedTuple t) {
-		final boolean insertResult = tupleQueue.offer(t);
 
-		if(! insertResult) {
-			logger.error("Unable to add tuple to continuous query, queue is full");
+		boolean closeQuery = false;
+
+		synchronized (this) {
+			final long waitUntil = System.currentTimeMillis() + MAX_QUEUE_FULL_MS;
+			boolean blocked = false;
+
+			while(queryActive) {
+				if(! pendingPageSequences.isEmpty()) {
+					closeQuery = ! sendPage(pendingPageSequences.poll(), Arrays.asList(t));
+					break;
+				}
+
+				if(tupleQueue.offer(t)) {
+					break;
+				}
+
+				if(! blocked) {
+					blockedTuplesTotal.inc();
+					blocked = true;
+				}
+
+				final long waitTime = waitUntil - System.currentTimeMillis();
+
+				if(waitTime <= 0) {
+					logger.error("Client does not fetch the tuples of continuous query {}, "
+							+ "closing query", querySequence);
+					clientTooSlow = true;
+					closeQuery = true;
+					break;
+				}
+
+				try {
+					wait(waitTime);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+
+		if(closeQuery) {
+			close();
 		}
 	}
 
+	/**
+	 * Send the tuples as page to the client
+	 * @param packageSequence
+	 * @param tuples
+	 * @return
+	 */
+	private boolean sendPage(final short packageSequence, final List<JoinedTuple> tuples) {
+		try {
+			for(final JoinedTuple tuple : tuples) {
+				clientConnectionHandler.writeResultTuple(packageSequence, tuple, true);
+				totalSendTuples++;
+			}
+
+			clientConnectionHandler.writeResultPackage(new PageEndResponse(packageSequence));
+			clientConnectionHandler.flushPendingCompressionPackages();
+			return true;
+		} catch (IOException | PackageEncodeException e) {
+			logger.warn("Unable to send tuples of continuous query " + querySequence, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Get the region of the stream tuples that can produce a result. The
+	 * full space is returned, when each tuple needs to be evaluated
+	 * (e.g., negative results, joins or transformations that change the
+	 * bounding box of the tuple).
+	 *
+	 * @return
+	 */
+	public Hyperrectangle getIndexRegion() {
+
+		if(! (queryPlan instanceof ContinuousConstQueryPlan)) {
+			return Hyperrectangle.FULL_SPACE;
+		}
+
+		if(! queryPlan.isReportPositive()) {
+			return Hyperrectangle.FULL_SPACE;
+		}
+
+		for(final TupleTransformation transformation : queryPlan.getStreamTransformation()) {
+			if(! (transformation instanceof BoundingBoxFilterTransformation)
+					&& ! (transformation instanceof KeyFilterTransformation)) {
+				return Hyperrectangle.FULL_SPACE;
+			}
+		}
+
+		return ((ContinuousConstQueryPlan) queryPlan).getCompareRectangle();
+	}
+
+	/**
+	 * Evaluate the query for the inserted tuple
+	 * @param tuple
+	 */
+	public void processTuple(final Tuple tuple) {
+		if(! queryActive) {
+			return;
+		}
+
+		tupleInsertCallback.accept(tuple);
+	}
+
 	/**
 	 * Init the query
 	 * @param tupleStoreManagerRegistry
@@ -319,7 +450,7 @@ public class ContinuousClientQuery implements ClientQuery {
 
 			storageManager = QueryHelper.getTupleStoreManager(storageRegistry, tupleStoreName);
 
-			storageManager.registerInsertCallback(tupleInsertCallback);
+			ContinuousQueryEngine.registerQuery(storageManager, this);
 
 			// Remove tuple store insert listener on connection close
 			clientConnectionHandler.addConnectionClosedHandler((c) -> close());
@@ -332,43 +463,40 @@ public class ContinuousClientQuery implements ClientQuery {
 	@Override
 	public void fetchAndSendNextTuples(final short packageSequence) throws IOException, PackageEncodeException {
 
-		long sendTuplesInThisPage = 0;
-		clientConnectionHandler.writeResultPackage(new MultipleTupleStartResponse(packageSequence));
-
-		while(queryActive) {
-			if(sendTuplesInThisPage >= TUPLES_PER_PAGE) {
-				clientConnectionHandler.writeResultPackage(new PageEndResponse(packageSequence));
+		synchronized (this) {
+			if(clientTooSlow) {
+				clientConnectionHandler.writeResultPackage(new ErrorResponse(packageSequence, 
+						ErrorMessages.ERROR_QUERY_CLIENT_TOO_SLOW));
 				clientConnectionHandler.flushPendingCompressionPackages();
 				return;
 			}
 
-			try {
-				// Send next tuple or wait
-				final JoinedTuple tuple = tupleQueue.take();
-				
-				if(tuple == RED_PILL) {
-					logger.info("Got the red pill from the queue, cancel query");
-					clientConnectionHandler.writeResultPackage(new MultipleTupleEndResponse(packageSequence));
-					clientConnectionHandler.flushPendingCompressionPackages();
-					this.queryActive = false;
-					return;
-				}
-				
-				clientConnectionHandler.writeResultTuple(packageSequence, tuple, true);
-				totalSendTuples++;
-				sendTuplesInThisPage++;
-			} catch (InterruptedException e) {
-				logger.info("Thread was interrupted while waiting for new tuples");
-				this.queryActive = false;
-				clientConnectionHandler.writeResultPackage(new ErrorResponse(packageSequence));
+			clientConnectionHandler.writeResultPackage(new MultipleTupleStartResponse(packageSequence));
+
+			if(! queryActive) {
+				clientConnectionHandler.writeResultPackage(new MultipleTupleEndResponse(packageSequence));
 				clientConnectionHandler.flushPendingCompressionPackages();
 				return;
 			}
-		}
 
-		// All tuples are send
-		clientConnectionHandler.writeResultPackage(new MultipleTupleEndResponse(packageSequence));
-		clientConnectionHandler.flushPendingCompressionPackages();	
+			final List<JoinedTuple> tuples = new ArrayList<>();
+			tupleQueue.drainTo(tuples, TUPLES_PER_PAGE);
+
+			// Wake up the waiting dispatcher
+			notifyAll();
+
+			// No tuples available, the page is send by the next matching tuple
+			if(tuples.isEmpty()) {
+				pendingPageSequences.add(packageSequence);
+				return;
+			}
+
+			final boolean sendResult = sendPage(packageSequence, tuples);
+
+			if(! sendResult) {
+				throw new IOException("Unable to send tuples of continuous query " + querySequence);
+			}
+		}
 	}
 
 	@Override
@@ -380,14 +508,29 @@ public class ContinuousClientQuery implements ClientQuery {
 	public void close() {
 		logger.debug("Closing query {} (send {} result tuples)", querySequence, totalSendTuples);
 
+		queryActive = false;
+
 		if(storageManager != null) {
-			storageManager.removeInsertCallback(tupleInsertCallback);
+			ContinuousQueryEngine.removeQuery(storageManager, this);
 		}
 
-		queryActive = false;
-		
-		// Cancel next page request
-		tupleQueue.offer(RED_PILL);
+		synchronized (this) {
+			// Release the waiting dispatcher
+			notifyAll();
+
+			// Answer the pending page requests
+			while(! pendingPageSequences.isEmpty()) {
+				final short pendingPageSequence = pendingPageSequences.poll();
+
+				try {
+					clientConnectionHandler.writeResultPackage(
+							new MultipleTupleEndResponse(pendingPageSequence));
+					clientConnectionHandler.flushPendingCompressionPackages();
+				} catch (IOException | PackageEncodeException e) {
+					logger.debug("Unable to send end of continuous query " + querySequence, e);
+				}
+			}
+		}
 	}
 
 	@Override
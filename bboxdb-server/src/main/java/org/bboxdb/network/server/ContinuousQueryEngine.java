@@ -0,0 +1,413 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *******************************************************************************/
+package org.bboxdb.network.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.bboxdb.commons.concurrent.ExceptionSafeRunnable;
+import org.bboxdb.commons.math.Hyperrectangle;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.sstable.spatialindex.SpatialIndexEntry;
+import org.bboxdb.storage.sstable.spatialindex.rtree.RTreeSTRBuilder;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.prometheus.client.Counter;
+
+/**
+ * The continuous queries of one tuple store. The engine registers one insert
+ * callback on the tuple store and evaluates the inserted tuples in a dispatcher
+ * thread. The regions of the queries are indexed, so only the queries that
+ * can match the tuple are evaluated.
+ *
+ */
+public class ContinuousQueryEngine {
+
+	/**
+	 * The tuple store manager
+	 */
+	private final TupleStoreManager tupleStoreManager;
+
+	/**
+	 * The registered queries
+	 */
+	private final List<ContinuousClientQuery> queries;
+
+	/**
+	 * The index of the queries
+	 */
+	private volatile QueryIndex queryIndex;
+
+	/**
+	 * The inserted tuples that are waiting for the evaluation
+	 */
+	private final BlockingQueue<Tuple> pendingTuples;
+
+	/**
+	 * The insert callback
+	 */
+	private final Consumer<Tuple> insertCallback;
+
+	/**
+	 * The dispatcher thread
+	 */
+	private volatile Thread dispatcherThread;
+
+	/**
+	 * The stopped dispatcher thread, which might still evaluate a tuple
+	 */
+	private Thread stoppedDispatcherThread;
+
+	/**
+	 * The max amount of pending tuples. When the queue is full, the insert
+	 * waits until the dispatcher has evaluated the pending tuples.
+	 */
+	private final static int MAX_PENDING_TUPLES = 1024;
+
+	/**
+	 * The interval to check that the dispatcher is active while an insert waits
+	 */
+	private final static long INSERT_WAIT_MS = 100;
+
+	/**
+	 * The engines of the tuple stores
+	 */
+	private final static Map<TupleStoreManager, ContinuousQueryEngine> engines = new IdentityHashMap<>();
+
+	/**
+	 * The amount of query evaluations
+	 */
+	private final static Counter evaluationsTotal = Counter.build()
+			.name("bboxdb_continuous_query_evaluations_total")
+			.help("Total evaluations of continuous queries.").register();
+
+	/**
+	 * The amount of inserts that waited for the dispatcher, because the queue was full
+	 */
+	private final static Counter blockedInsertsTotal = Counter.build()
+			.name("bboxdb_continuous_query_engine_blocked_inserts_total")
+			.help("Total inserts that waited for the evaluation of the continuous queries.").register();
+
+	/**
+	 * The Logger
+	 */
+	private final static Logger logger = LoggerFactory.getLogger(ContinuousQueryEngine.class);
+
+	public ContinuousQueryEngine(final TupleStoreManager tupleStoreManager) {
+		this.tupleStoreManager = tupleStoreManager;
+		this.queries = new ArrayList<>();
+		this.queryIndex = new QueryIndex(queries);
+		this.pendingTuples = new ArrayBlockingQueue<>(MAX_PENDING_TUPLES);
+		this.insertCallback = (t) -> handleInsertedTuple(t);
+	}
+
+	/**
+	 * Register the query on the engine of the tuple store
+	 * @param tupleStoreManager
+	 * @param query
+	 * @return
+	 */
+	public static ContinuousQueryEngine registerQuery(final TupleStoreManager tupleStoreManager,
+			final ContinuousClientQuery query) {
+
+		synchronized (engines) {
+			final ContinuousQueryEngine engine = engines.computeIfAbsent(tupleStoreManager,
+					(m) -> new ContinuousQueryEngine(m));
+
+			engine.addQuery(query);
+			return engine;
+		}
+	}
+
+	/**
+	 * Remove the query from the engine of the tuple store
+	 * @param tupleStoreManager
+	 * @param query
+	 */
+	public static void removeQuery(final TupleStoreManager tupleStoreManager,
+			final ContinuousClientQuery query) {
+
+		synchronized (engines) {
+			final ContinuousQueryEngine engine = engines.get(tupleStoreManager);
+
+			if(engine == null) {
+				return;
+			}
+
+			// The engine is removed by the dispatcher when it has terminated
+			engine.deleteQuery(query);
+		}
+	}
+
+	/**
+	 * The dispatcher of the engine has terminated, remove the engine if no
+	 * new query was registered in the meantime
+	 */
+	private void dispatcherTerminated() {
+		synchronized (engines) {
+			synchronized (this) {
+				if(queries.isEmpty() && dispatcherThread == null
+						&& engines.get(tupleStoreManager) == this) {
+					engines.remove(tupleStoreManager);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add a new query
+	 * @param query
+	 */
+	public synchronized void addQuery(final ContinuousClientQuery query) {
+		queries.add(query);
+		queryIndex = new QueryIndex(queries);
+
+		if(dispatcherThread == null) {
+			// The new dispatcher waits for the termination of the old one
+			dispatcherThread = new Thread(new DispatcherRunnable(stoppedDispatcherThread));
+			stoppedDispatcherThread = null;
+			dispatcherThread.setName("Continuous query dispatcher for "
+					+ tupleStoreManager.getTupleStoreName().getFullname());
+			dispatcherThread.start();
+			tupleStoreManager.registerInsertCallback(insertCallback);
+		}
+	}
+
+	/**
+	 * Delete the query
+	 * @param query
+	 */
+	public synchronized void deleteQuery(final ContinuousClientQuery query) {
+		if(! queries.remove(query)) {
+			return;
+		}
+
+		queryIndex = new QueryIndex(queries);
+
+		if(queries.isEmpty() && dispatcherThread != null) {
+			tupleStoreManager.removeInsertCallback(insertCallback);
+			dispatcherThread.interrupt();
+			stoppedDispatcherThread = dispatcherThread;
+			dispatcherThread = null;
+
+			// Release blocked inserts
+			pendingTuples.clear();
+		}
+	}
+
+	/**
+	 * Get the number of registered queries
+	 * @return
+	 */
+	public synchronized int getNumberOfQueries() {
+		return queries.size();
+	}
+
+	/**
+	 * Handle a new tuple, called by the insert thread. When the queue is full,
+	 * the insert is blocked until the dispatcher has capacity again or all
+	 * queries are removed.
+	 * @param tuple
+	 */
+	private void handleInsertedTuple(final Tuple tuple) {
+		if(pendingTuples.offer(tuple)) {
+			return;
+		}
+
+		blockedInsertsTotal.inc();
+
+		try {
+			while(! pendingTuples.offer(tuple, INSERT_WAIT_MS, TimeUnit.MILLISECONDS)) {
+				// No query is left, the tuple needs no evaluation
+				if(dispatcherThread == null) {
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			logger.debug("Interrupted while waiting for the continuous query dispatcher");
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Evaluate the queries that can match the tuple
+	 * @param tuple
+	 */
+	protected void dispatchTuple(final Tuple tuple) {
+		final List<ContinuousClientQuery> matchingQueries = queryIndex.getQueriesForRegion(
+				tuple.getBoundingBox());
+
+		for(final ContinuousClientQuery query : matchingQueries) {
+			try {
+				query.processTuple(tuple);
+				evaluationsTotal.inc();
+			} catch(RuntimeException e) {
+				logger.error("Got exception while evaluating continuous query", e);
+			}
+		}
+	}
+
+	class DispatcherRunnable extends ExceptionSafeRunnable {
+
+		/**
+		 * The previous dispatcher of the engine (or null)
+		 */
+		private final Thread previousDispatcher;
+
+		public DispatcherRunnable(final Thread previousDispatcher) {
+			this.previousDispatcher = previousDispatcher;
+		}
+
+		@Override
+		protected void runThread() throws Exception {
+
+			// Never evaluate the tuples in two dispatchers at the same time
+			if(previousDispatcher != null) {
+				try {
+					previousDispatcher.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+
+			while(! Thread.currentThread().isInterrupted()) {
+				try {
+					final Tuple tuple = pendingTuples.take();
+					dispatchTuple(tuple);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		@Override
+		protected void endHook() {
+			logger.debug("Continuous query dispatcher for {} has terminated",
+					tupleStoreManager.getTupleStoreName().getFullname());
+
+			dispatcherTerminated();
+		}
+
+		@Override
+		protected void afterExceptionHook() {
+			dispatcherTerminated();
+		}
+	}
+
+	/**
+	 * The immutable index of the query regions
+	 */
+	protected static class QueryIndex {
+
+		/**
+		 * The dimension of the indexed regions
+		 */
+		private final int dimension;
+
+		/**
+		 * The index, the value of an entry is the position in the query list
+		 */
+		private final RTreeSTRBuilder rtree;
+
+		/**
+		 * The indexed queries
+		 */
+		private final List<ContinuousClientQuery> indexedQueries;
+
+		/**
+		 * The queries that are evaluated for all tuples
+		 */
+		private final List<ContinuousClientQuery> unindexedQueries;
+
+		public QueryIndex(final List<ContinuousClientQuery> queries) {
+			this.rtree = new RTreeSTRBuilder();
+			this.indexedQueries = new ArrayList<>();
+			this.unindexedQueries = new ArrayList<>();
+
+			this.dimension = queries.stream()
+					.mapToInt(q -> q.getIndexRegion().getDimension())
+					.filter(d -> d > 0)
+					.findFirst()
+					.orElse(0);
+
+			final List<SpatialIndexEntry> indexEntries = new ArrayList<>();
+
+			for(final ContinuousClientQuery query : queries) {
+				final Hyperrectangle region = query.getIndexRegion();
+
+				if(dimension == 0 || region.getDimension() != dimension) {
+					unindexedQueries.add(query);
+					continue;
+				}
+
+				indexEntries.add(new SpatialIndexEntry(region, indexedQueries.size()));
+				indexedQueries.add(query);
+			}
+
+			rtree.bulkInsert(indexEntries);
+		}
+
+		/**
+		 * Get the queries that can match a tuple with the given bounding box
+		 * @param boundingBox
+		 * @return
+		 */
+		public List<ContinuousClientQuery> getQueriesForRegion(final Hyperrectangle boundingBox) {
+
+			if(indexedQueries.isEmpty()) {
+				return unindexedQueries;
+			}
+
+			// Tuples without or with an other dimension are evaluated by all queries
+			if(boundingBox.getDimension() != dimension) {
+				final List<ContinuousClientQuery> result = new ArrayList<>(indexedQueries);
+				result.addAll(unindexedQueries);
+				return result;
+			}
+
+			final List<? extends SpatialIndexEntry> entries = rtree.getEntriesForRegion(boundingBox);
+
+			if(entries.isEmpty()) {
+				return unindexedQueries;
+			}
+
+			// Keep the registration order of the queries
+			final List<Integer> positions = new ArrayList<>(entries.size());
+			entries.forEach(e -> positions.add(e.getValue()));
+			Collections.sort(positions);
+
+			final List<ContinuousClientQuery> result = new ArrayList<>(positions.size()
+					+ unindexedQueries.size());
+
+			positions.forEach(p -> result.add(indexedQueries.get(p)));
+			result.addAll(unindexedQueries);
+
+			return result;
+		}
+	}
+}
@@ -93,4 +93,14 @@ public class ErrorMessages {
 	 * The tuple has the wrong dimension for the group
 	 */
 	public final static String ERROR_TUPLE_HAS_WRONG_DIMENSION = "The tuple has the wrong dimension for the group";
+	
+	/**
+	 * The key index could not be updated
+	 */
+	public final static String ERROR_KEY_INDEX_UPDATE_FAILED = "Unable to update the key index, please retry";
+	
+	/**
+	 * The client has not fetched the results of the continuous query
+	 */
+	public final static String ERROR_QUERY_CLIENT_TOO_SLOW = "The client does not fetch the query results, query closed";
 }
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.bboxdb.commons.math.Hyperrectangle;
+import org.bboxdb.misc.BBoxDBException;
+import org.bboxdb.network.client.BBoxDBConnection;
+import org.bboxdb.network.client.future.EmptyResultFuture;
+import org.bboxdb.network.client.future.NetworkOperationFuture;
+import org.bboxdb.network.client.tools.AbtractClusterFutureBuilder;
+import org.bboxdb.network.client.tools.ClusterOperationType;
+import org.bboxdb.network.client.tools.KeyIndexHelper;
+import org.bboxdb.network.routing.RoutingHeader;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.entity.DeletedTuple;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
+import org.bboxdb.storage.util.TupleHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.prometheus.client.Counter;
+
+/**
+ * Keeps the global key index of a table up to date. For every tuple that is stored
+ * in a local region, the entry 'key#regionid' is written to the key index. Deletions
+ * are written to the index, when the key was stored in the region.
+ * 
+ * The key queries are routed by the index, so an insert is acknowledged only 
+ * after the index entries are written.
+ */
+public class KeyIndexUpdater {
+
+	/**
+	 * The amount of written index entries
+	 */
+	private final static Counter keyIndexUpdates = Counter.build()
+			.name("bboxdb_key_index_updates_total")
+			.help("Total written key index entries.").register();
+
+	/**
+	 * The amount of failed index updates
+	 */
+	private final static Counter keyIndexFailedUpdates = Counter.build()
+			.name("bboxdb_key_index_failed_updates_total")
+			.help("Total key index entries that could not be written.").register();
+
+	/**
+	 * The Logger
+	 */
+	private final static Logger logger = LoggerFactory.getLogger(KeyIndexUpdater.class);
+
+	/**
+	 * Get the tuples that needs to be written to the key index, when they are
+	 * stored in the tuple store. Needs to be called before the tuples are stored.
+	 *
+	 * @param storageManager
+	 * @param tuples
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	public static List<Tuple> getTuplesToIndex(final TupleStoreManager storageManager,
+			final Collection<Tuple> tuples) throws StorageManagerException {
+
+		final List<Tuple> tuplesToIndex = new ArrayList<>();
+
+		if(! storageManager.getTupleStoreConfiguration().isKeyIndex()) {
+			return tuplesToIndex;
+		}
+
+		for(final Tuple tuple : tuples) {
+
+			// Deletions are send to all regions, only regions with the key are updated
+			if(TupleHelper.isDeletedTuple(tuple)) {
+				final boolean keyStored = storageManager.get(tuple.getKey())
+						.stream()
+						.anyMatch(t -> ! TupleHelper.isDeletedTuple(t));
+
+				if(! keyStored) {
+					continue;
+				}
+			}
+
+			tuplesToIndex.add(tuple);
+		}
+
+		return tuplesToIndex;
+	}
+
+	/**
+	 * Write the index entries for the tuples stored in the region
+	 * @param regionTable
+	 * @param tuples
+	 * @return the futures of the written entries
+	 * @throws BBoxDBException
+	 */
+	public static List<EmptyResultFuture> updateKeyIndex(final TupleStoreName regionTable,
+			final List<Tuple> tuples) throws BBoxDBException {
+
+		final List<EmptyResultFuture> futures = new ArrayList<>();
+
+		if(tuples.isEmpty()) {
+			return futures;
+		}
+
+		final long regionId = regionTable.getRegionId().getAsLong();
+		final String indexTable = KeyIndexHelper.convertTablenameToKeyIndexTablename(
+				regionTable.getFullnameWithoutPrefix());
+
+		for(final Tuple tuple : tuples) {
+			final String indexKey = KeyIndexHelper.getIndexEntryKey(tuple.getKey(), regionId);
+			final Hyperrectangle indexBox = KeyIndexHelper.getBoundingBoxForKey(tuple.getKey());
+
+			final Tuple indexTuple;
+
+			if(TupleHelper.isDeletedTuple(tuple)) {
+				indexTuple = new DeletedTuple(indexKey, tuple.getVersionTimestamp());
+			} else {
+				indexTuple = new Tuple(indexKey, indexBox, "".getBytes(), tuple.getVersionTimestamp());
+			}
+
+			futures.add(writeIndexEntry(indexTable, indexBox, indexTuple));
+		}
+
+		return futures;
+	}
+
+	/**
+	 * Call the callback when all index entries are written. The callback gets
+	 * true, if all entries are successfully written.
+	 *
+	 * @param futures
+	 * @param callback
+	 */
+	public static void runAfterIndexUpdate(final List<EmptyResultFuture> futures,
+			final Consumer<Boolean> callback) {
+
+		if(futures.isEmpty()) {
+			callback.accept(true);
+			return;
+		}
+
+		final AtomicInteger pendingFutures = new AtomicInteger(futures.size());
+		final AtomicBoolean failed = new AtomicBoolean(false);
+
+		for(final EmptyResultFuture future : futures) {
+			future.addCompletionCallback(f -> {
+				if(f.isFailed()) {
+					failed.set(true);
+				}
+
+				if(pendingFutures.decrementAndGet() == 0) {
+					callback.accept(! failed.get());
+				}
+			});
+		}
+	}
+
+	/**
+	 * Write the entry to the nodes of the key index
+	 * @param indexTable
+	 * @param indexBox
+	 * @param indexTuple
+	 * @return
+	 * @throws BBoxDBException
+	 */
+	private static EmptyResultFuture writeIndexEntry(final String indexTable, final Hyperrectangle indexBox,
+			final Tuple indexTuple) throws BBoxDBException {
+
+		try {
+			final AbtractClusterFutureBuilder builder = new AbtractClusterFutureBuilder(
+					ClusterOperationType.WRITE_TO_NODES, indexTable, indexBox) {
+
+				@Override
+				protected Supplier<List<NetworkOperationFuture>> buildFuture(final BBoxDBConnection connection,
+						final RoutingHeader routingHeader) {
+
+					return connection.getBboxDBClient().getInsertTupleFuture(indexTable, indexTuple, routingHeader);
+				}
+			};
+
+			final EmptyResultFuture future = new EmptyResultFuture(builder.getSupplier());
+
+			future.addCompletionCallback(f -> {
+				if(f.isFailed()) {
+					logger.error("Unable to write key index entry {} {}", indexTuple.getKey(), f.getAllMessages());
+					keyIndexFailedUpdates.inc();
+				} else {
+					keyIndexUpdates.inc();
+				}
+			});
+
+			return future;
+		} catch (BBoxDBException e) {
+			keyIndexFailedUpdates.inc();
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,348 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.network.server;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.bboxdb.commons.CloseableHelper;
+import org.bboxdb.commons.concurrent.ByteBoundedBlockingQueue;
+import org.bboxdb.distribution.zookeeper.ZookeeperException;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.entity.JoinedTuple;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.queryprocessor.OperatorTreeBuilder;
+import org.bboxdb.storage.queryprocessor.operator.Operator;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManagerRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scans the local regions of a query with the tasks of the shared query pool
+ * and merges the results into one iterator.
+ *
+ * The results are buffered in a byte bounded queue. A task that finds the
+ * queue full does not block the pool thread; the task is paused and
+ * resubmitted by the consumer after the queue is drained. So a client that
+ * requests the next page later only holds the buffered tuples and the
+ * open operators, but no threads.
+ */
+public class ParallelRegionScan implements Iterator<JoinedTuple>, Closeable {
+
+	/**
+	 * The operator tree builder
+	 */
+	private final OperatorTreeBuilder operatorTreeBuilder;
+
+	/**
+	 * The storage registry
+	 */
+	private final TupleStoreManagerRegistry storageRegistry;
+
+	/**
+	 * The query pool
+	 */
+	private final ExecutorService queryPool;
+
+	/**
+	 * The regions that are not assigned to a task
+	 */
+	private final Queue<List<TupleStoreName>> pendingRegions;
+
+	/**
+	 * The scanned tuples
+	 */
+	private final ByteBoundedBlockingQueue<JoinedTuple> resultQueue;
+
+	/**
+	 * The tasks that are paused because the result queue was full
+	 * (guarded by the result queue)
+	 */
+	private final List<RegionScanTask> pausedTasks;
+
+	/**
+	 * The amount of tasks that are not finished
+	 */
+	private int runningTasks;
+
+	/**
+	 * The next tuple of the iterator
+	 */
+	private JoinedTuple nextTuple;
+
+	/**
+	 * Is the scan closed
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * The max amount of buffered bytes
+	 */
+	private final static long MAX_BUFFERED_BYTES = 4 * 1024 * 1024;
+
+	/**
+	 * The marker for a finished task
+	 */
+	private final static JoinedTuple TASK_DONE = new JoinedTuple(new ArrayList<>(), new ArrayList<>());
+
+	/**
+	 * The Logger
+	 */
+	private final static Logger logger = LoggerFactory.getLogger(ParallelRegionScan.class);
+
+	public ParallelRegionScan(final OperatorTreeBuilder operatorTreeBuilder,
+			final TupleStoreManagerRegistry storageRegistry, final ExecutorService queryPool,
+			final List<List<TupleStoreName>> regions) {
+
+		this.operatorTreeBuilder = operatorTreeBuilder;
+		this.storageRegistry = storageRegistry;
+		this.queryPool = queryPool;
+		this.pendingRegions = new ConcurrentLinkedQueue<>(regions);
+		this.resultQueue = new ByteBoundedBlockingQueue<>(MAX_BUFFERED_BYTES, JoinedTuple::getSize);
+		this.pausedTasks = new ArrayList<>();
+		this.runningTasks = 0;
+		this.nextTuple = null;
+		this.closed = false;
+	}
+
+	/**
+	 * Start the given amount of tasks
+	 * @param parallelism
+	 * @throws RejectedExecutionException - if no task could be started
+	 */
+	public void start(final int parallelism) {
+		final int tasks = Math.min(parallelism, pendingRegions.size());
+
+		for(int i = 0; i < tasks; i++) {
+			try {
+				queryPool.execute(new RegionScanTask());
+				runningTasks++;
+			} catch(RejectedExecutionException e) {
+				// The started tasks process all regions
+				if(runningTasks == 0) {
+					throw e;
+				}
+
+				logger.debug("Unable to start all region scan tasks ({} of {} started)",
+						runningTasks, tasks);
+				return;
+			}
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+
+		if(nextTuple != null) {
+			return true;
+		}
+
+		while(! closed && runningTasks > 0) {
+			resumePausedTasks();
+
+			final JoinedTuple tuple;
+
+			try {
+				tuple = resultQueue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				close();
+				return false;
+			}
+
+			if(tuple == TASK_DONE) {
+				runningTasks--;
+				continue;
+			}
+
+			nextTuple = tuple;
+			return true;
+		}
+
+		return false;
+	}
+
+	@Override
+	public JoinedTuple next() {
+
+		if(! hasNext()) {
+			throw new NoSuchElementException("The scan is exhausted");
+		}
+
+		final JoinedTuple tuple = nextTuple;
+		nextTuple = null;
+		return tuple;
+	}
+
+	/**
+	 * Resubmit the paused tasks when the queue is half empty. The tasks are only
+	 * paused when the queue is not empty, so the consumer never waits for a paused task.
+	 */
+	private void resumePausedTasks() {
+		final List<RegionScanTask> tasksToResume = new ArrayList<>();
+
+		synchronized (resultQueue) {
+			if(pausedTasks.isEmpty() || resultQueue.getQueuedBytes() > MAX_BUFFERED_BYTES / 2) {
+				return;
+			}
+
+			tasksToResume.addAll(pausedTasks);
+			pausedTasks.clear();
+		}
+
+		for(final RegionScanTask task : tasksToResume) {
+			try {
+				queryPool.execute(task);
+			} catch(RejectedExecutionException e) {
+				logger.debug("Query pool is shut down, stopping region scan task");
+				task.finish();
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		final List<RegionScanTask> tasksToClose = new ArrayList<>();
+
+		synchronized (resultQueue) {
+			closed = true;
+			tasksToClose.addAll(pausedTasks);
+			pausedTasks.clear();
+			resultQueue.clear();
+		}
+
+		tasksToClose.forEach(t -> t.finish());
+		nextTuple = null;
+	}
+
+	private class RegionScanTask implements Runnable {
+
+		/**
+		 * The operator of the active region
+		 */
+		private Operator operator;
+
+		/**
+		 * The iterator of the active region
+		 */
+		private Iterator<JoinedTuple> iterator;
+
+		/**
+		 * The tuple that was rejected by the full queue
+		 */
+		private JoinedTuple pendingTuple;
+
+		@Override
+		public void run() {
+			try {
+				scanRegions();
+			} catch(RuntimeException e) {
+				logger.warn("Got exception while scanning regions", e);
+				finish();
+			}
+		}
+
+		/**
+		 * Scan the regions until all regions are processed or the queue is full
+		 */
+		private void scanRegions() {
+			while(! closed) {
+
+				if(iterator == null && ! openNextRegion()) {
+					break;
+				}
+
+				while(pendingTuple != null || iterator.hasNext()) {
+					final JoinedTuple tuple = pendingTuple != null ? pendingTuple : iterator.next();
+					pendingTuple = null;
+
+					synchronized (resultQueue) {
+						if(closed) {
+							break;
+						}
+
+						if(! resultQueue.offer(tuple)) {
+							pendingTuple = tuple;
+							pausedTasks.add(this);
+							return;
+						}
+					}
+				}
+
+				closeOperator();
+			}
+
+			finish();
+		}
+
+		/**
+		 * Open the operator for the next unassigned region
+		 * @return false if all regions are assigned
+		 */
+		private boolean openNextRegion() {
+			List<TupleStoreName> region;
+
+			while((region = pendingRegions.poll()) != null) {
+				try {
+					final List<TupleStoreManager> storageManagers = new ArrayList<>();
+
+					for(final TupleStoreName tupleStoreName : region) {
+						storageManagers.add(QueryHelper.getTupleStoreManager(storageRegistry, tupleStoreName));
+					}
+
+					operator = operatorTreeBuilder.buildOperatorTree(storageManagers);
+					iterator = operator.iterator();
+					return true;
+				} catch (StorageManagerException | ZookeeperException e) {
+					logger.warn("Got exception while scanning region " + region, e);
+					closeOperator();
+				}
+			}
+
+			return false;
+		}
+
+		/**
+		 * Close the operator of the active region
+		 */
+		private void closeOperator() {
+			CloseableHelper.closeWithoutException(operator,
+					(e) -> logger.warn("Got an exception while closing operator", e));
+
+			operator = null;
+			iterator = null;
+			pendingTuple = null;
+		}
+
+		/**
+		 * The task is finished
+		 */
+		private void finish() {
+			closeOperator();
+			resultQueue.putUnbounded(TASK_DONE);
+		}
+	}
+}
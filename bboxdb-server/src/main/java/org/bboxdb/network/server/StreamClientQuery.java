@@ -24,12 +24,15 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.bboxdb.commons.CloseableHelper;
 import org.bboxdb.distribution.partitioner.SpacePartitioner;
 import org.bboxdb.distribution.partitioner.SpacePartitionerCache;
 import org.bboxdb.distribution.region.DistributionRegionIdMapper;
 import org.bboxdb.distribution.zookeeper.ZookeeperException;
+import org.bboxdb.misc.BBoxDBConfigurationManager;
 import org.bboxdb.misc.BBoxDBException;
 import org.bboxdb.network.packages.PackageEncodeException;
 import org.bboxdb.network.packages.response.MultipleTupleEndResponse;
@@ -63,6 +66,11 @@ public class StreamClientQuery implements Closeable, ClientQuery {
 	 */
 	protected Iterator<JoinedTuple> activeOperatorIterator;
 
+	/**
+	 * The parallel scan of the local regions (if active)
+	 */
+	protected ParallelRegionScan parallelRegionScan;
+
 	/**
 	 * Page the result
 	 */
@@ -170,8 +178,11 @@ public class StreamClientQuery implements Closeable, ClientQuery {
 		CloseableHelper.closeWithoutException(activeOperator,
 				(e) -> logger.warn("Got an exception while closing operator", e));
 
+		CloseableHelper.closeWithoutException(parallelRegionScan);
+
 		activeOperator = null;
 		activeOperatorIterator = null;
+		parallelRegionScan = null;
 	}
 
 	/* (non-Javadoc)
@@ -248,6 +259,12 @@ public class StreamClientQuery implements Closeable, ClientQuery {
 			return false;
 		}
 
+		final ExecutorService queryPool = clientConnectionHandler.getQueryPool();
+
+		if(queryPool != null && getNumberOfTablesToProcess() > 1 && setupParallelScan(queryPool)) {
+			return true;
+		}
+
 		try {
 			final List<TupleStoreManager> storageManagers = new ArrayList<>();
 
@@ -273,6 +290,41 @@ public class StreamClientQuery implements Closeable, ClientQuery {
 		return false;
 	}
 
+	/**
+	 * Scan all remaining local tables in parallel with the query pool
+	 * @param queryPool
+	 * @return
+	 */
+	private boolean setupParallelScan(final ExecutorService queryPool) {
+		final List<List<TupleStoreName>> regions = new ArrayList<>();
+
+		for(int i = 0; i < getNumberOfTablesToProcess(); i++) {
+			final List<TupleStoreName> region = new ArrayList<>();
+
+			for(final TupleStoreName tupleStoreName : requestTables) {
+				region.add(localTables.get(tupleStoreName).get(i));
+			}
+
+			regions.add(region);
+		}
+
+		final ParallelRegionScan regionScan = new ParallelRegionScan(operatorTreeBuilder,
+				clientConnectionHandler.getStorageRegistry(), queryPool, regions);
+
+		try {
+			regionScan.start(BBoxDBConfigurationManager.getConfiguration().getQueryThreads());
+		} catch(RejectedExecutionException e) {
+			logger.debug("Query pool is shut down, scanning the regions sequentially");
+			return false;
+		}
+
+		localTables.values().forEach(t -> t.clear());
+
+		parallelRegionScan = regionScan;
+		activeOperatorIterator = regionScan;
+		return true;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.bboxdb.network.server.ClientQuery#isQueryDone()
 	 */
@@ -17,27 +17,42 @@
  *******************************************************************************/
 package org.bboxdb.network.server.connection;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.Socket;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 import org.bboxdb.commons.CloseableHelper;
+import org.bboxdb.commons.concurrent.BoundedDelegatingExecutor;
 import org.bboxdb.commons.concurrent.ExceptionSafeRunnable;
-import org.bboxdb.commons.concurrent.ExecutorUtil;
 import org.bboxdb.commons.service.ServiceState;
 import org.bboxdb.misc.Const;
 import org.bboxdb.network.NetworkConst;
 import org.bboxdb.network.NetworkPackageDecoder;
 import org.bboxdb.network.capabilities.PeerCapabilities;
+import org.bboxdb.network.compression.AdaptiveCompressionPolicy;
+import org.bboxdb.network.compression.CompressionCodec;
+import org.bboxdb.network.compression.CompressionCodecFactory;
 import org.bboxdb.network.packages.NetworkResponsePackage;
 import org.bboxdb.network.packages.PackageEncodeException;
 import org.bboxdb.network.packages.response.CompressionEnvelopeResponse;
@@ -66,6 +81,7 @@ import org.bboxdb.network.server.connection.handler.request.DeleteTableHandler;
 import org.bboxdb.network.server.connection.handler.request.DisconnectHandler;
 import org.bboxdb.network.server.connection.handler.request.HandshakeHandler;
 import org.bboxdb.network.server.connection.handler.request.InsertTupleHandler;
+import org.bboxdb.network.server.connection.handler.request.InsertTuplesHandler;
 import org.bboxdb.network.server.connection.handler.request.KeepAliveHandler;
 import org.bboxdb.network.server.connection.handler.request.LockTupleHandler;
 import org.bboxdb.network.server.connection.handler.request.NextPageHandler;
@@ -81,7 +97,7 @@ import com.google.common.io.ByteStreams;
 
 import io.prometheus.client.Gauge;
 
-public class ClientConnectionHandler extends ExceptionSafeRunnable {
+public class ClientConnectionHandler {
 
 	/**
 	 * The client socket
@@ -89,14 +105,80 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 	public final Socket clientSocket;
 
 	/**
-	 * The output stream of the socket
+	 * The channel of the client socket
 	 */
-	private BufferedOutputStream outputStream;
+	private final SocketChannel clientChannel;
 
 	/**
-	 * The input stream of the socket
+	 * The connection dispatcher
 	 */
-	private InputStream inputStream;
+	private final ConnectionDispatcherRunable connectionDispatcher;
+
+	/**
+	 * The selection key of the channel
+	 */
+	private volatile SelectionKey selectionKey;
+
+	/**
+	 * The framer for the read bytes
+	 */
+	private final RequestPackageFramer packageFramer;
+
+	/**
+	 * The received but not handled packages
+	 */
+	private final Deque<ByteBuffer> pendingPackages;
+
+	/**
+	 * Is the processing of the pending packages scheduled
+	 */
+	private boolean processingScheduled;
+
+	/**
+	 * Is reading paused because too many packages are pending
+	 */
+	private boolean readPaused;
+
+	/**
+	 * Marker for the end of the stream in the pending packages
+	 */
+	private final static ByteBuffer END_OF_STREAM = ByteBuffer.allocate(0);
+
+	/**
+	 * Is the end of the stream reached
+	 */
+	private final AtomicBoolean endOfStream;
+
+	/**
+	 * The monitor for writing to the channel
+	 */
+	private final Object writeMonitor;
+
+	/**
+	 * The buffers that could not be written because the socket buffer was full,
+	 * they are written when the channel becomes writable
+	 */
+	private final Deque<ByteBuffer> pendingWrites;
+
+	/**
+	 * The amount of bytes in the pending writes
+	 */
+	private final AtomicLong pendingWriteBytes;
+
+	/**
+	 * Close the channel when all pending writes are done
+	 */
+	private boolean closeAfterPendingWrites;
+
+	/**
+	 * Is the flush of the compression packages scheduled
+	 */
+	private final AtomicBoolean compressionFlushScheduled;
+
+	/**
+	 * Is the connection closed
+	 */
+	private final AtomicBoolean connectionClosed;
 
 	/**
 	 * The connection state
@@ -108,12 +190,33 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 	 */
 	private PeerCapabilities connectionCapabilities = new PeerCapabilities();
 
+	/**
+	 * The compression codec of the connection, null if the packages are not compressed
+	 */
+	private volatile CompressionCodec compressionCodec = null;
+
+	/**
+	 * The compression policy and statistics of the connection
+	 */
+	private final AdaptiveCompressionPolicy compressionPolicy = new AdaptiveCompressionPolicy();
+
 	/**
 	 * The open query iterators, i.e., the queries that are not finished and waiting
 	 * to send the next page
 	 */
 	private final Map<Short, ClientQuery> activeQueries;
 
+	/**
+	 * The requested but not answered pages of the active queries. The client
+	 * can request several pages in advance, the requests are answered in order.
+	 */
+	private final Map<Short, Queue<Short>> pendingPageRequests;
+
+	/**
+	 * The queries with a running task that answers the pending page requests
+	 */
+	private final Set<Short> pageRequestTasks;
+
 	/**
 	 * The thread pool
 	 */
@@ -130,15 +233,25 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 	private final List<NetworkResponsePackage> pendingCompressionPackages;
 
 	/**
-	 * Number of pending requests
+	 * Number of pending packages before reading is paused
+	 */
+	private final static int MAX_PENDING_PACKAGES = 25;
+
+	/**
+	 * Number of not written bytes before reading is paused
 	 */
-	private final static int MAX_PENDING_REQUESTS = 25;
+	private final static long MAX_PENDING_WRITE_BYTES = 4 * 1024 * 1024;
 
 	/**
 	 * Number of maximal running queries
 	 */
 	private final static int MAX_RUNNING_QUERIES = 25;
 
+	/**
+	 * Number of packages that are handled before the worker is released
+	 */
+	private final static int PACKAGES_PER_RUN = 8;
+
 	/**
 	 * The request handlers
 	 */
@@ -149,11 +262,6 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 	 */
 	private Map<Byte, QueryHandler> queryHandlerList;
 
-	/**
-	 * The connection maintenance thread
-	 */
-	private ConnectionMaintenanceRunnable maintenanceThread;
-
 	/**
 	 * The storage reference
 	 */
@@ -191,10 +299,13 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 	private final static Logger logger = LoggerFactory.getLogger(ClientConnectionHandler.class);
 
 	public ClientConnectionHandler(final TupleStoreManagerRegistry storageRegistry,
-			final Socket clientSocket, final LockManager lockManager) {
+			final SocketChannel clientChannel, final LockManager lockManager,
+			final ConnectionDispatcherRunable connectionDispatcher) {
 
 		// Client socket
-		this.clientSocket = clientSocket;
+		this.clientChannel = clientChannel;
+		this.clientSocket = clientChannel.socket();
+		this.connectionDispatcher = connectionDispatcher;
 
 		// The storage reference
 		this.storageRegistry = storageRegistry;
@@ -210,31 +321,35 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 
 		serviceState.dipatchToStarting();
 
-		try {
-			this.outputStream = new BufferedOutputStream(clientSocket.getOutputStream());
-			this.inputStream = new BufferedInputStream(clientSocket.getInputStream());
-		} catch (IOException e) {
-			this.inputStream = null;
-			this.outputStream = null;
-			serviceState.dispatchToFailed(e);
-			logger.error("Exception while creating IO stream", e);
-		}
+		// The read and write state
+		this.packageFramer = new RequestPackageFramer();
+		this.pendingPackages = new ArrayDeque<>();
+		this.processingScheduled = false;
+		this.readPaused = false;
+		this.endOfStream = new AtomicBoolean(false);
+		this.writeMonitor = new Object();
+		this.pendingWrites = new ArrayDeque<>();
+		this.pendingWriteBytes = new AtomicLong(0);
+		this.closeAfterPendingWrites = false;
+		this.compressionFlushScheduled = new AtomicBoolean(false);
+		this.connectionClosed = new AtomicBoolean(false);
 
 		// The active queries
 		this.activeQueries = new HashMap<>();
+		this.pendingPageRequests = new ConcurrentHashMap<>();
+		this.pageRequestTasks = ConcurrentHashMap.newKeySet();
 
-		// Create a thread pool that blocks after submitting more than MAX_PENDING_REQUESTS
-		this.threadPool = ExecutorUtil.getBoundThreadPoolExecutor(25, MAX_PENDING_REQUESTS);
+		// Use the shared worker pool, tasks are executed by the caller after
+		// the connection has used its share of the pool
+		this.threadPool = new BoundedDelegatingExecutor(connectionDispatcher.getWorkerPool(),
+				connectionDispatcher.getMaxTasksPerConnection());
 
 		// The package router
-		this.packageRouter = new PackageRouter(threadPool, this);
+		this.packageRouter = new PackageRouter(threadPool, connectionDispatcher.getWorkerPool(),
+				connectionDispatcher.getTimerService(), this);
 
 		// The pending packages for compression
 		this.pendingCompressionPackages = new ArrayList<>();
-		this.maintenanceThread = new ConnectionMaintenanceRunnable();
-
-		final Thread thread = new Thread(maintenanceThread);
-		thread.start();
 
 		// Init the request handler map
 		initRequestHandlerMap();
@@ -264,7 +379,7 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 	}
 
 	/**
-	 * Write all pending compression packages to server, called by the maintainance thread
+	 * Write all pending compression packages to the client
 	 *
 	 */
 	public void flushPendingCompressionPackages() {
@@ -287,7 +402,8 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 			}
 
 			final NetworkResponsePackage compressionEnvelopeRequest
-				= new CompressionEnvelopeResponse(NetworkConst.COMPRESSION_TYPE_GZIP, packagesToWrite);
+				= new CompressionEnvelopeResponse(compressionCodec.getCompressionType(),
+						compressionPolicy, packagesToWrite);
 
 			try {
 				writePackageToSocket(compressionEnvelopeRequest);
@@ -306,7 +422,7 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 	public synchronized void writeResultPackage(final NetworkResponsePackage responsePackage)
 			throws IOException, PackageEncodeException {
 
-		if(connectionCapabilities.hasGZipCompression()) {
+		if(compressionCodec != null) {
 			boolean uncompressedQueueFull = false;
 
 			synchronized (pendingCompressionPackages) {
@@ -317,6 +433,8 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 
 			if(uncompressedQueueFull) {
 				flushPendingCompressionPackages();
+			} else {
+				scheduleCompressionFlush();
 			}
 
 		} else {
@@ -336,6 +454,29 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 		}
 	}
 
+	/**
+	 * Schedule the flush of the pending compression packages
+	 */
+	private void scheduleCompressionFlush() {
+
+		if(! compressionFlushScheduled.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			connectionDispatcher.getTimerService().schedule(() -> {
+				connectionDispatcher.getWorkerPool().execute(() -> {
+					compressionFlushScheduled.set(false);
+					flushPendingCompressionPackages();
+				});
+			}, NetworkConst.MAX_COMPRESSION_DELAY_MS, TimeUnit.MILLISECONDS);
+		} catch(RejectedExecutionException e) {
+			logger.debug("Unable to schedule flush, flushing directly", e);
+			compressionFlushScheduled.set(false);
+			flushPendingCompressionPackages();
+		}
+	}
+
 	/**
 	 * Write a network package uncompressed
 	 * @param responsePackage
@@ -345,51 +486,251 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 	private void writePackageToSocket(final NetworkResponsePackage responsePackage)
 			throws IOException, PackageEncodeException {
 
-		synchronized (outputStream) {
-			final long writtenBytes = responsePackage.writeToOutputStream(outputStream);
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		final long writtenBytes = responsePackage.writeToOutputStream(bos);
+
+		synchronized (writeMonitor) {
+			writeToChannel(ByteBuffer.wrap(bos.toByteArray()));
 			writtenBytesCounter.inc(writtenBytes);
-			outputStream.flush();
 		}
 	}
 
-	@Override
-	public void runThread() {
-		try {
-			logger.debug("Handling new connection from: {}", clientSocket.getInetAddress());
+	/**
+	 * Write the buffer to the channel. When the socket buffer is full, the rest of the
+	 * buffer is queued and written by the connection dispatcher as soon as the channel
+	 * becomes writable. Needs to be called with the write monitor.
+	 *
+	 * @param buffer
+	 * @throws IOException
+	 */
+	private void writeToChannel(final ByteBuffer buffer) throws IOException {
+
+		if(! clientChannel.isOpen()) {
+			throw new ClosedChannelException();
+		}
+
+		// Keep the order of the packages, write directly only if nothing is queued
+		if(pendingWrites.isEmpty()) {
+			clientChannel.write(buffer);
 
-			while(serviceState.isInRunningState() || serviceState.isInStartingState()) {
-				handleNextPackage(inputStream);
+			if(! buffer.hasRemaining()) {
+				return;
 			}
+		}
 
-			// Flush all pending results to client
-			flushPendingCompressionPackages();
+		pendingWrites.add(buffer);
+		pendingWriteBytes.addAndGet(buffer.remaining());
+		connectionDispatcher.addInterest(selectionKey, SelectionKey.OP_WRITE);
+	}
 
-			// Connection is down
-			if(! serviceState.isInStoppingState()) {
-				serviceState.dispatchToStopping();
+	/**
+	 * The channel is writable, write the pending buffers. Called by the connection dispatcher.
+	 *
+	 * @return true if there are still pending writes
+	 */
+	public boolean handleWritable() {
+
+		boolean writeFailed = false;
+		boolean writesPending = false;
+
+		synchronized (writeMonitor) {
+			try {
+				while(! pendingWrites.isEmpty()) {
+					final ByteBuffer buffer = pendingWrites.peek();
+					final int writtenBytes = clientChannel.write(buffer);
+					pendingWriteBytes.addAndGet(-writtenBytes);
+
+					if(buffer.hasRemaining()) {
+						break;
+					}
+
+					pendingWrites.poll();
+				}
+			} catch(IOException e) {
+				logger.debug("Unable to write pending data to {}", getConnectionName(), e);
+				pendingWrites.clear();
+				pendingWriteBytes.set(0);
+				writeFailed = true;
 			}
 
-			serviceState.dispatchToTerminated();
+			writesPending = ! pendingWrites.isEmpty();
+
+			if(! writesPending && closeAfterPendingWrites) {
+				CloseableHelper.closeWithoutException(clientChannel);
+			}
+		}
+
+		if(writeFailed) {
+			handleEndOfStream();
+			return false;
+		}
+
+		resumeReadIfPossible();
+
+		return writesPending;
+	}
+
+	/**
+	 * Can further packages be read or are too many packages or bytes pending.
+	 * Needs to be called with the pending packages monitor.
+	 *
+	 * @return
+	 */
+	private boolean isReadAllowed() {
+		return pendingPackages.size() < MAX_PENDING_PACKAGES
+				&& pendingWriteBytes.get() < MAX_PENDING_WRITE_BYTES;
+	}
+
+	/**
+	 * Resume the paused reading, if further packages can be read
+	 */
+	private void resumeReadIfPossible() {
+		synchronized (pendingPackages) {
+			if(readPaused && isReadAllowed() && ! endOfStream.get()) {
+				readPaused = false;
+				connectionDispatcher.addInterest(selectionKey, SelectionKey.OP_READ);
+			}
+		}
+	}
+
+	/**
+	 * Handle the bytes read by the connection dispatcher
+	 *
+	 * @param buffer
+	 * @return true if further bytes can be read, false if too many packages are pending
+	 * @throws PackageEncodeException
+	 */
+	public boolean handleReadData(final ByteBuffer buffer) throws PackageEncodeException {
+
+		packageFramer.decode(buffer, (p) -> {
+			readBytesCounter.inc(p.limit());
+			synchronized (pendingPackages) {
+				pendingPackages.add(p);
+			}
+		});
+
+		synchronized (pendingPackages) {
+			schedulePackageProcessing();
+
+			if(! isReadAllowed()) {
+				readPaused = true;
+				return false;
+			}
+
+			return true;
+		}
+	}
+
+	/**
+	 * The end of the stream is reached, called by the connection dispatcher
+	 */
+	public void handleEndOfStream() {
+
+		if(! endOfStream.compareAndSet(false, true)) {
+			return;
+		}
+
+		synchronized (pendingPackages) {
+			pendingPackages.add(END_OF_STREAM);
+			schedulePackageProcessing();
+		}
+	}
 
-			logger.info("Closing connection to: {}", clientSocket.getInetAddress());
-		} catch (IOException | PackageEncodeException e) {
-			// Ignore exception on closing sockets
-			if(serviceState.isInRunningState()) {
+	/**
+	 * Schedule the processing of the pending packages, needs to be
+	 * called with the pending packages monitor
+	 */
+	private void schedulePackageProcessing() {
+		if(processingScheduled || pendingPackages.isEmpty()) {
+			return;
+		}
+
+		try {
+			connectionDispatcher.getWorkerPool().execute(new PackageProcessingRunnable());
+			processingScheduled = true;
+		} catch(RejectedExecutionException e) {
+			logger.debug("Worker pool is shut down, closing connection {}", getConnectionName());
+			pendingPackages.clear();
+			closeConnection(false);
+		}
+	}
 
-				logger.error("Socket to {} closed unexpectly (state: {}), closing connection",
-						clientSocket.getInetAddress(), getConnectionState());
+	/**
+	 * Get the next package for processing
+	 * @return The next package or null
+	 */
+	private ByteBuffer pollPendingPackage() {
+		synchronized (pendingPackages) {
+			final ByteBuffer encodedPackage = pendingPackages.poll();
 
-				logger.debug("Socket exception", e);
+			if(encodedPackage == null) {
+				processingScheduled = false;
+				return null;
 			}
+
+			resumeReadIfPossible();
+
+			return encodedPackage;
+		}
+	}
+
+	/**
+	 * Close the connection
+	 * @param flushPendingPackages
+	 */
+	private void closeConnection(final boolean flushPendingPackages) {
+
+		if(! connectionClosed.compareAndSet(false, true)) {
+			return;
+		}
+
+		// Flush all pending results to client
+		if(flushPendingPackages) {
+			flushPendingCompressionPackages();
+		}
+
+		// Connection is down
+		if(serviceState.isInRunningState()) {
+			serviceState.dispatchToStopping();
+		}
+
+		if(serviceState.isInStoppingState()) {
+			serviceState.dispatchToTerminated();
+		} else if(! serviceState.isInFinishedState()) {
+			serviceState.forceDispatchToTerminated();
 		}
 
+		logger.info("Closing connection to: {}", clientSocket.getInetAddress());
+		logger.debug("Compression statistics of the connection: {}", compressionPolicy);
+
 		getThreadPool().shutdown();
 
 		// Close active query iterators
 		getActiveQueries().values().forEach(i -> i.close());
 		getActiveQueries().clear();
+		pendingPageRequests.clear();
 
-		CloseableHelper.closeWithoutException(clientSocket);
+		endOfStream.set(true);
+		closeChannel(flushPendingPackages);
+	}
+
+	/**
+	 * Close the channel. The channel is closed after the pending writes are done,
+	 * if the pending packages should be flushed.
+	 *
+	 * @param flushPendingPackages
+	 */
+	private void closeChannel(final boolean flushPendingPackages) {
+		synchronized (writeMonitor) {
+			if(flushPendingPackages && ! pendingWrites.isEmpty() && clientChannel.isOpen()) {
+				closeAfterPendingWrites = true;
+				return;
+			}
+
+			pendingWrites.clear();
+			pendingWriteBytes.set(0);
+			CloseableHelper.closeWithoutException(clientChannel);
+		}
 	}
 
 	/**
@@ -408,7 +749,6 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 		final ByteBuffer encodedPackage = ByteBuffer.allocate(packageLength);
 
 		try {
-			//System.out.println("Trying to read: " + bodyLength + " avail " + in.available());
 			encodedPackage.put(packageHeader.array());
 			ByteStreams.readFully(inputStream, encodedPackage.array(), encodedPackage.position(), bodyLength);
 			readBytesCounter.inc(packageLength);
@@ -427,28 +767,59 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 	 */
 	public void handleNextPackage(final InputStream inputStream) throws IOException, PackageEncodeException {
 		final ByteBuffer packageHeader = readNextPackageHeader(inputStream);
-
-		final short packageSequence = NetworkPackageDecoder.getRequestIDFromRequestPackage(packageHeader);
 		final short packageType = NetworkPackageDecoder.getPackageTypeFromRequest(packageHeader);
 
+		if(! isPackageAllowed(packageType)) {
+			return;
+		}
+
+		final ByteBuffer encodedPackage = readFullPackage(packageHeader, inputStream);
+		handlePackage(encodedPackage);
+	}
+
+	/**
+	 * Is the package allowed in the current connection state
+	 * @param packageType
+	 * @return
+	 */
+	private boolean isPackageAllowed(final short packageType) {
 		if(serviceState.isInStartingState()) {
 			if(packageType != NetworkConst.REQUEST_TYPE_HELLO) {
 				final String errorMessage = "Connection is in handshake state but got package: " + packageType;
 				logger.error(errorMessage);
 				serviceState.dispatchToFailed(new IllegalStateException(errorMessage));
-				return;
+				return false;
 			}
 		}
 
-		final ByteBuffer encodedPackage = readFullPackage(packageHeader, inputStream);
+		return true;
+	}
+
+	/**
+	 * Handle a completely read request package
+	 * @param encodedPackage
+	 * @throws IOException
+	 * @throws PackageEncodeException
+	 */
+	private void handlePackage(final ByteBuffer encodedPackage) throws IOException, PackageEncodeException {
+		final short packageSequence = NetworkPackageDecoder.getRequestIDFromRequestPackage(encodedPackage);
+		final short packageType = NetworkPackageDecoder.getPackageTypeFromRequest(encodedPackage);
 
 		final boolean readFurtherPackages = handleBufferedPackage(encodedPackage, packageSequence, packageType);
 
-		if(readFurtherPackages == false) {
+		if(readFurtherPackages == false && serviceState.isInRunningState()) {
 			serviceState.dispatchToStopping();
 		}
 	}
 
+	/**
+	 * Is the connection able to handle packages
+	 * @return
+	 */
+	private boolean isConnectionActive() {
+		return serviceState.isInRunningState() || serviceState.isInStartingState();
+	}
+
 	/**
 	 * Send a new result tuple to the client
 	 * @param packageSequence
@@ -565,6 +936,7 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 		requestHandlers.put(NetworkConst.REQUEST_TYPE_CREATE_TABLE, new CreateTableHandler());
 		requestHandlers.put(NetworkConst.REQUEST_TYPE_DELETE_TABLE, new DeleteTableHandler());
 		requestHandlers.put(NetworkConst.REQUEST_TYPE_INSERT_TUPLE, new InsertTupleHandler());
+		requestHandlers.put(NetworkConst.REQUEST_TYPE_INSERT_TUPLES, new InsertTuplesHandler());
 		requestHandlers.put(NetworkConst.REQUEST_TYPE_CREATE_DISTRIBUTION_GROUP, new CreateDistributionGroupHandler());
 		requestHandlers.put(NetworkConst.REQUEST_TYPE_DELETE_DISTRIBUTION_GROUP, new DeleteDistributionGroupHandler());
 		requestHandlers.put(NetworkConst.REQUEST_TYPE_KEEP_ALIVE, new KeepAliveHandler());
@@ -598,49 +970,94 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 			throws IOException, PackageEncodeException {
 
 		if(! getActiveQueries().containsKey(querySequence)) {
-			logger.error("Unable to resume query {} - package {} - not found", querySequence, packageSequence);
+			// Pages requested in advance after the last page are expected to fail
+			logger.debug("Unable to resume query {} - package {} - not found", querySequence, packageSequence);
 			writeResultPackage(new ErrorResponse(packageSequence, ErrorMessages.ERROR_QUERY_NOT_FOUND));
 			return;
 		}
 
-		final Runnable queryRunable = new ExceptionSafeRunnable() {
+		// Submit the runnable to our pool
+		if(threadPool.isShutdown()) {
+			logger.warn("Thread pool is shutting down, don't execute query: {}", querySequence);
+			writeResultPackage(new ErrorResponse(packageSequence, ErrorMessages.ERROR_EXCEPTION));
+			return;
+		}
 
-			@Override
-			protected void runThread() throws IOException, PackageEncodeException {
-				final ClientQuery clientQuery = getActiveQueries().get(querySequence);
+		// The requests are queued in the order of arrival. One task per query answers
+		// the queued requests, so the pages are send in the requested order.
+		final Queue<Short> pageRequests = pendingPageRequests.computeIfAbsent(querySequence,
+				(q) -> new ConcurrentLinkedQueue<>());
 
-				if(clientQuery == null) {
-					logger.error("Unable to resume query {}, not found", querySequence);
-					return;
-				}
+		pageRequests.add(packageSequence);
 
-				clientQuery.fetchAndSendNextTuples(packageSequence);
+		// The running task answers the new request
+		if(! pageRequestTasks.add(querySequence)) {
+			return;
+		}
 
-				if(clientQuery.isQueryDone()) {
-					logger.info("Query {} is done with {} tuples, removing iterator ",
-							querySequence,
-							clientQuery.getTotalSendTuples());
-					clientQuery.close();
-					getActiveQueries().remove(querySequence);
-				}
-			}
+		final Runnable queryRunable = new ExceptionSafeRunnable() {
 
 			@Override
-			protected void afterExceptionHook() {
-				try {
-					writeResultPackage(new ErrorResponse(packageSequence, ErrorMessages.ERROR_EXCEPTION));
-				} catch (IOException | PackageEncodeException e) {
-					logger.error("Unable to send result package", e);
-				}
+			protected void runThread() {
+				do {
+					try {
+						Short pageSequence;
+						while((pageSequence = pageRequests.poll()) != null) {
+							answerPageRequest(pageSequence, querySequence);
+						}
+					} finally {
+						pageRequestTasks.remove(querySequence);
+					}
+
+					// A request might be added after the queue was drained
+				} while(! pageRequests.isEmpty() && pageRequestTasks.add(querySequence));
 			}
 		};
 
-		// Submit the runnable to our pool
-		if(threadPool.isShutdown()) {
-			logger.warn("Thread pool is shutting down, don't execute query: {}", querySequence);
-			writeResultPackage(new ErrorResponse(packageSequence, ErrorMessages.ERROR_EXCEPTION));
-		} else {
+		try {
 			getThreadPool().submit(queryRunable);
+		} catch(RejectedExecutionException e) {
+			logger.warn("Unable to execute query: {}", querySequence);
+			pageRequestTasks.remove(querySequence);
+			pageRequests.remove(packageSequence);
+			writeResultPackage(new ErrorResponse(packageSequence, ErrorMessages.ERROR_EXCEPTION));
+		}
+	}
+
+	/**
+	 * Answer the page request for the given query
+	 * @param pageSequence
+	 * @param querySequence
+	 */
+	private void answerPageRequest(final short pageSequence, final short querySequence) {
+		try {
+			final ClientQuery clientQuery = getActiveQueries().get(querySequence);
+
+			if(clientQuery == null) {
+				logger.debug("Unable to resume query {}, not found", querySequence);
+				pendingPageRequests.remove(querySequence);
+				writeResultPackage(new ErrorResponse(pageSequence, ErrorMessages.ERROR_QUERY_NOT_FOUND));
+				return;
+			}
+
+			clientQuery.fetchAndSendNextTuples(pageSequence);
+
+			if(clientQuery.isQueryDone()) {
+				logger.info("Query {} is done with {} tuples, removing iterator ",
+						querySequence,
+						clientQuery.getTotalSendTuples());
+				clientQuery.close();
+				getActiveQueries().remove(querySequence);
+				pendingPageRequests.remove(querySequence);
+			}
+		} catch(Throwable e) {
+			logger.error("Got exception while answering page request " + pageSequence, e);
+
+			try {
+				writeResultPackage(new ErrorResponse(pageSequence, ErrorMessages.ERROR_EXCEPTION));
+			} catch (IOException | PackageEncodeException e1) {
+				logger.error("Unable to send result package", e1);
+			}
 		}
 	}
 
@@ -654,10 +1071,23 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 
 	/**
 	 * Set the connection Capabilities
-	 * @return
+	 * @param connectionCapabilities
+	 * @param peerProtocolVersion
 	 */
-	public void setConnectionCapabilities(PeerCapabilities connectionCapabilities) {
+	public void setConnectionCapabilities(final PeerCapabilities connectionCapabilities,
+			final int peerProtocolVersion) {
+
 		this.connectionCapabilities = connectionCapabilities;
+		this.compressionCodec = CompressionCodecFactory.getCodecForCapabilities(connectionCapabilities,
+				peerProtocolVersion);
+	}
+
+	/**
+	 * Get the compression policy and statistics of the connection
+	 * @return
+	 */
+	public AdaptiveCompressionPolicy getCompressionPolicy() {
+		return compressionPolicy;
 	}
 
 	public ServiceState getConnectionState() {
@@ -707,32 +1137,71 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 		return sb.toString();
 	}
 
-	class ConnectionMaintenanceRunnable extends ExceptionSafeRunnable {
+	/**
+	 * Set the selection key of the channel
+	 * @param selectionKey
+	 */
+	public void setSelectionKey(final SelectionKey selectionKey) {
+		this.selectionKey = selectionKey;
+	}
 
-		@Override
-		protected void beginHook() {
-			logger.debug("Starting connection mainteinance thread for: {}", getConnectionName());
-		}
+	class PackageProcessingRunnable extends ExceptionSafeRunnable {
 
 		@Override
-		protected void endHook() {
-			logger.debug("Mainteinance thread for {} has terminated", getConnectionName());
+		protected void runThread() throws Exception {
+			for(int i = 0; i < PACKAGES_PER_RUN; i++) {
+				final ByteBuffer encodedPackage = pollPendingPackage();
+
+				if(encodedPackage == null) {
+					return;
+				}
+
+				if(encodedPackage == END_OF_STREAM) {
+					closeConnection(false);
+					continue;
+				}
+
+				if(connectionClosed.get()) {
+					continue;
+				}
+
+				handleRequestPackage(encodedPackage);
+			}
+
+			// Give the other connections a chance to use the worker
+			connectionDispatcher.getWorkerPool().execute(this);
 		}
 
-		@Override
-		protected void runThread() throws Exception {
-			while(serviceState.isInStartingState() || serviceState.isInRunningState()) {
+		/**
+		 * Handle the request package and close the connection if needed
+		 * @param encodedPackage
+		 */
+		private void handleRequestPackage(final ByteBuffer encodedPackage) {
+			try {
+				final short packageType = NetworkPackageDecoder.getPackageTypeFromRequest(encodedPackage);
 
-				// Write all waiting for compression packages
-				flushPendingCompressionPackages();
+				if(isPackageAllowed(packageType)) {
+					handlePackage(encodedPackage);
+				}
+			} catch (IOException | PackageEncodeException e) {
+				// Ignore exception on closing sockets
+				if(serviceState.isInRunningState()) {
 
-				try {
-					Thread.sleep(NetworkConst.MAX_COMPRESSION_DELAY_MS);
-				} catch (InterruptedException e) {
-					// Handle InterruptedException directly
-					return;
+					logger.error("Socket to {} closed unexpectly (state: {}), closing connection",
+							clientSocket.getInetAddress(), getConnectionState());
+
+					logger.debug("Socket exception", e);
 				}
 			}
+
+			if(! isConnectionActive()) {
+				closeConnection(true);
+			}
+		}
+
+		@Override
+		protected void afterExceptionHook() {
+			closeConnection(false);
 		}
 	};
 
@@ -744,6 +1213,14 @@ public class ClientConnectionHandler extends ExceptionSafeRunnable {
 		return storageRegistry;
 	}
 
+	/**
+	 * Get the pool to scan the local regions of the queries in parallel
+	 * @return the pool or null, if the regions are scanned sequentially
+	 */
+	public ExecutorService getQueryPool() {
+		return connectionDispatcher.getQueryPool();
+	}
+
 	/**
 	 * Get the lock manager
 	 * @return
@@ -18,19 +18,33 @@
 package org.bboxdb.network.server.connection;
 
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import org.bboxdb.commons.CloseableHelper;
 import org.bboxdb.commons.concurrent.ExceptionSafeRunnable;
+import org.bboxdb.commons.io.ByteBufferPool;
+import org.bboxdb.network.packages.PackageEncodeException;
 import org.bboxdb.network.server.connection.lock.LockManager;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManagerRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * The connection dispatcher
+ * The connection dispatcher. One selector thread accepts the connections and
+ * reads the requests of all connections. The decoded packages are handled by
+ * the shared worker pool.
  *
  */
 public class ConnectionDispatcherRunable extends ExceptionSafeRunnable {
@@ -38,7 +52,12 @@ public class ConnectionDispatcherRunable extends ExceptionSafeRunnable {
 	/**
 	 * The server socket
 	 */
-	private ServerSocket serverSocket;
+	private ServerSocketChannel serverSocket;
+
+	/**
+	 * The selector
+	 */
+	private Selector selector;
 
 	/**
 	 * The listen port
@@ -46,9 +65,34 @@ public class ConnectionDispatcherRunable extends ExceptionSafeRunnable {
 	private final int port;
 
 	/**
-	 * The thread pool for handling connections
+	 * The worker pool that handles the packages of all connections
+	 */
+	private final ExecutorService workerPool;
+
+	/**
+	 * The pool that scans the local regions of the queries (null = sequential scan)
+	 */
+	private final ExecutorService queryPool;
+
+	/**
+	 * The timer service (e.g., for flushing the compression buffers)
+	 */
+	private final ScheduledExecutorService timerService;
+
+	/**
+	 * The max amount of tasks a single connection can place in the worker pool
+	 */
+	private final int maxTasksPerConnection;
+
+	/**
+	 * The pool for the read buffers
 	 */
-	private final ExecutorService threadPool;
+	private final ByteBufferPool bufferPool;
+
+	/**
+	 * The tasks that need to be executed by the selector thread
+	 */
+	private final Queue<Runnable> pendingSelectorTasks;
 
 	/**
 	 * The storage registry
@@ -65,22 +109,66 @@ public class ConnectionDispatcherRunable extends ExceptionSafeRunnable {
 	 */
 	private volatile boolean shutdownPending;
 
+	/**
+	 * The size of the read buffers
+	 */
+	private final static int READ_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The amount of pooled read buffers
+	 */
+	private final static int MAX_POOLED_READ_BUFFERS = 4;
+
+	/**
+	 * A single connection can use 1/WORKER_POOL_SHARE of the worker pool
+	 */
+	private final static int WORKER_POOL_SHARE = 4;
+
+	/**
+	 * The tasks per connection, if the size of the worker pool is unknown
+	 */
+	private final static int DEFAULT_TASKS_PER_CONNECTION = 4;
+
 	/**
 	 * The Logger
 	 */
 	final static Logger logger = LoggerFactory.getLogger(ConnectionDispatcherRunable.class);
 
 
-	public ConnectionDispatcherRunable(final int port, final ExecutorService threadPool,
+	public ConnectionDispatcherRunable(final int port, final ExecutorService workerPool,
+			final ExecutorService queryPool, final ScheduledExecutorService timerService,
 			final TupleStoreManagerRegistry storageRegistry, final LockManager lockManager) {
 
 		this.port = port;
-		this.threadPool = threadPool;
+		this.workerPool = workerPool;
+		this.queryPool = queryPool;
+		this.timerService = timerService;
 		this.storageRegistry = storageRegistry;
 		this.lockManager = lockManager;
+		this.maxTasksPerConnection = calculateMaxTasksPerConnection(workerPool);
+		this.bufferPool = new ByteBufferPool(READ_BUFFER_SIZE, MAX_POOLED_READ_BUFFERS, true);
+		this.pendingSelectorTasks = new ConcurrentLinkedQueue<>();
 		this.shutdownPending = false;
 	}
 
+	/**
+	 * Calculate the amount of tasks a single connection can place in the worker pool.
+	 * The value is kept below the pool size, so one connection can't occupy all workers.
+	 *
+	 * @param workerPool
+	 * @return
+	 */
+	private static int calculateMaxTasksPerConnection(final ExecutorService workerPool) {
+
+		if(! (workerPool instanceof ThreadPoolExecutor)) {
+			return DEFAULT_TASKS_PER_CONNECTION;
+		}
+
+		final int poolSize = ((ThreadPoolExecutor) workerPool).getMaximumPoolSize();
+
+		return Math.max(1, poolSize / WORKER_POOL_SHARE);
+	}
+
 	@Override
 	protected void beginHook() {
 		logger.info("Starting new connection dispatcher");
@@ -94,12 +182,17 @@ public class ConnectionDispatcherRunable extends ExceptionSafeRunnable {
 	@Override
 	public void runThread() {
 		try {
-			serverSocket = new ServerSocket(port);
-			serverSocket.setReuseAddress(true);
+			selector = Selector.open();
+			serverSocket = ServerSocketChannel.open();
+			serverSocket.socket().setReuseAddress(true);
+			serverSocket.bind(new InetSocketAddress(port));
+			serverSocket.configureBlocking(false);
+			serverSocket.register(selector, SelectionKey.OP_ACCEPT);
 
 			while(isThreadActive()) {
-				final Socket clientSocket = serverSocket.accept();
-				handleConnection(clientSocket);
+				selector.select();
+				executePendingSelectorTasks();
+				handleSelectedKeys();
 			}
 
 		} catch(IOException e) {
@@ -111,6 +204,118 @@ public class ConnectionDispatcherRunable extends ExceptionSafeRunnable {
 
 		} finally {
 			closeSocketNE();
+			closeClientConnections();
+			CloseableHelper.closeWithoutException(selector);
+		}
+	}
+
+	/**
+	 * Handle the selected keys
+	 * @throws IOException
+	 */
+	private void handleSelectedKeys() throws IOException {
+		final Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+
+		while(iterator.hasNext()) {
+			final SelectionKey key = iterator.next();
+			iterator.remove();
+
+			if(! key.isValid()) {
+				continue;
+			}
+
+			if(key.isAcceptable()) {
+				handleConnection(serverSocket.accept());
+				continue;
+			}
+
+			final ClientConnectionHandler connection = (ClientConnectionHandler) key.attachment();
+
+			try {
+				if(key.isWritable()) {
+					final boolean pendingWrites = connection.handleWritable();
+
+					if(! pendingWrites && key.isValid()) {
+						key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+					}
+				}
+
+				if(key.isValid() && key.isReadable()) {
+					handleRead(key, connection);
+				}
+			} catch(CancelledKeyException e) {
+				logger.debug("Key of connection {} was cancelled", connection.getConnectionName());
+			}
+		}
+	}
+
+	/**
+	 * Read the available data from the connection
+	 * @param key
+	 * @param connection
+	 */
+	private void handleRead(final SelectionKey key, final ClientConnectionHandler connection) {
+		final ByteBuffer buffer = bufferPool.acquire();
+
+		try {
+			final SocketChannel channel = (SocketChannel) key.channel();
+			final int readBytes = channel.read(buffer);
+
+			if(readBytes < 0) {
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+				connection.handleEndOfStream();
+				return;
+			}
+
+			buffer.flip();
+
+			final boolean readMoreData = connection.handleReadData(buffer);
+
+			if(! readMoreData) {
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+			}
+		} catch (IOException | PackageEncodeException e) {
+			logger.debug("Got exception while reading from {}", connection.getConnectionName(), e);
+			key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+			connection.handleEndOfStream();
+		} finally {
+			bufferPool.release(buffer);
+		}
+	}
+
+	/**
+	 * Execute the tasks for the selector thread
+	 */
+	private void executePendingSelectorTasks() {
+		Runnable task;
+
+		while((task = pendingSelectorTasks.poll()) != null) {
+			try {
+				task.run();
+			} catch(CancelledKeyException e) {
+				logger.debug("Unable to execute task, key is cancelled");
+			}
+		}
+	}
+
+	/**
+	 * Add the interest operation to the selection key. The selection key
+	 * is changed by the selector thread.
+	 *
+	 * @param key
+	 * @param operation
+	 */
+	public void addInterest(final SelectionKey key, final int operation) {
+		pendingSelectorTasks.add(() -> {
+			if(key.isValid()) {
+				key.interestOps(key.interestOps() | operation);
+			}
+		});
+
+		final Selector selectorToWakeup = selector;
+
+		if(selectorToWakeup != null) {
+			selectorToWakeup.wakeup();
 		}
 	}
 
@@ -142,18 +347,82 @@ public class ConnectionDispatcherRunable extends ExceptionSafeRunnable {
 		logger.info("Close server socket on port: {}", port);
 		shutdownPending = true;
 		CloseableHelper.closeWithoutException(serverSocket);
+
+		final Selector selectorToWakeup = selector;
+
+		if(selectorToWakeup != null) {
+			selectorToWakeup.wakeup();
+		}
 	}
 
 	/**
-	 * Dispatch the connection to the thread pool
+	 * Close all open client connections
+	 */
+	private void closeClientConnections() {
+
+		if(selector == null || ! selector.isOpen()) {
+			return;
+		}
+
+		for(final SelectionKey key : selector.keys()) {
+			if(key.attachment() instanceof ClientConnectionHandler) {
+				final ClientConnectionHandler connection = (ClientConnectionHandler) key.attachment();
+				connection.handleEndOfStream();
+			}
+		}
+	}
+
+	/**
+	 * Register the connection at the selector
 	 * @param clientSocket
+	 * @throws IOException
 	 */
-	private void handleConnection(final Socket clientSocket) {
-		logger.debug("Got new connection from: {}", clientSocket.getInetAddress());
+	private void handleConnection(final SocketChannel clientSocket) throws IOException {
+
+		if(clientSocket == null) {
+			return;
+		}
+
+		logger.debug("Got new connection from: {}", clientSocket.socket().getInetAddress());
 
-		final ClientConnectionHandler task = new ClientConnectionHandler(storageRegistry,
-				clientSocket, lockManager);
+		clientSocket.configureBlocking(false);
 
-		threadPool.submit(task);
+		final ClientConnectionHandler connection = new ClientConnectionHandler(storageRegistry,
+				clientSocket, lockManager, this);
+
+		final SelectionKey key = clientSocket.register(selector, SelectionKey.OP_READ, connection);
+		connection.setSelectionKey(key);
+	}
+
+	/**
+	 * Get the worker pool
+	 * @return
+	 */
+	public ExecutorService getWorkerPool() {
+		return workerPool;
+	}
+
+	/**
+	 * Get the max amount of tasks a single connection can place in the worker pool
+	 * @return
+	 */
+	public int getMaxTasksPerConnection() {
+		return maxTasksPerConnection;
+	}
+
+	/**
+	 * Get the query pool (null = the regions are scanned sequentially)
+	 * @return
+	 */
+	public ExecutorService getQueryPool() {
+		return queryPool;
+	}
+
+	/**
+	 * Get the timer service
+	 * @return
+	 */
+	public ScheduledExecutorService getTimerService() {
+		return timerService;
 	}
-}
\ No newline at end of file
+}
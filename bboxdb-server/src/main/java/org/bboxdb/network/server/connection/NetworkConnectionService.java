@@ -19,6 +19,8 @@ package org.bboxdb.network.server.connection;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 import org.bboxdb.commons.service.ServiceState;
 import org.bboxdb.misc.BBoxDBConfiguration;
@@ -37,10 +39,20 @@ public class NetworkConnectionService implements BBoxDBService {
 	private final BBoxDBConfiguration configuration = BBoxDBConfigurationManager.getConfiguration();
 
 	/**
-	 * Our thread pool to handle connections
+	 * Our thread pool to handle the requests of the connections
 	 */
 	private ExecutorService threadPool;
 	
+	/**
+	 * The thread pool to scan the local regions of the queries in parallel
+	 */
+	private ExecutorService queryPool;
+	
+	/**
+	 * The timer service of the connections
+	 */
+	private ScheduledExecutorService timerService;
+	
 	/**
 	 * The connection handler state
 	 */
@@ -52,7 +64,7 @@ public class NetworkConnectionService implements BBoxDBService {
 	private ConnectionDispatcherRunable serverSocketDispatcher;
 	
 	/**
-	 * The thread that listens on the server socket and dispatches
+	 * The thread that reads from the sockets and dispatches
 	 * incoming requests to the thread pool
 	 */
 	private Thread serverSocketDispatchThread;
@@ -67,6 +79,11 @@ public class NetworkConnectionService implements BBoxDBService {
 	 */
 	private final LockManager lockManager;
 	
+	/**
+	 * The time to wait for the termination of the dispatcher thread
+	 */
+	private final static long DISPATCHER_SHUTDOWN_WAIT_MS = 5000;
+	
 	/**
 	 * The Logger
 	 */
@@ -97,9 +114,25 @@ public class NetworkConnectionService implements BBoxDBService {
 			if(threadPool == null) {
 				threadPool = Executors.newFixedThreadPool(configuration.getNetworkConnectionThreads());
 			}
+			
+			if(queryPool == null && configuration.getQueryThreads() > 0) {
+				queryPool = Executors.newFixedThreadPool(configuration.getQueryThreads());
+			}
+			
+			if(timerService == null) {
+				final ScheduledThreadPoolExecutor timerExecutor = new ScheduledThreadPoolExecutor(1, r -> {
+					final Thread thread = new Thread(r, "Network timer thread");
+					thread.setDaemon(true);
+					return thread;
+				});
+				
+				// Most routing deadlines are canceled, don't keep them in the queue
+				timerExecutor.setRemoveOnCancelPolicy(true);
+				timerService = timerExecutor;
+			}
 						
 			serverSocketDispatcher = new ConnectionDispatcherRunable(port, threadPool, 
-					storageRegistry, lockManager);
+					queryPool, timerService, storageRegistry, lockManager);
 			
 			serverSocketDispatchThread = new Thread(serverSocketDispatcher);
 			serverSocketDispatchThread.start();
@@ -129,6 +162,14 @@ public class NetworkConnectionService implements BBoxDBService {
 		if(serverSocketDispatchThread != null) {
 			serverSocketDispatcher.closeSocketNE();
 			serverSocketDispatchThread.interrupt();	
+			
+			// Wait until all connections are closed before the pools are terminated
+			try {
+				serverSocketDispatchThread.join(DISPATCHER_SHUTDOWN_WAIT_MS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			
 			serverSocketDispatchThread = null;
 			serverSocketDispatcher = null;
 		}
@@ -138,6 +179,16 @@ public class NetworkConnectionService implements BBoxDBService {
 			threadPool = null;
 		}
 		
+		if(queryPool != null) {
+			queryPool.shutdown();
+			queryPool = null;
+		}
+		
+		if(timerService != null) {
+			timerService.shutdown();
+			timerService = null;
+		}
+		
 		state.dispatchToTerminated();
 	}
 	
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *******************************************************************************/
+package org.bboxdb.network.server.connection;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+import org.bboxdb.misc.Const;
+import org.bboxdb.network.NetworkConst;
+import org.bboxdb.network.packages.PackageEncodeException;
+import org.bboxdb.network.routing.RoutingHeader;
+
+/**
+ * Splits the bytes read from a non blocking channel into request packages.
+ *
+ * A request package consists of a 12 byte header (sequence number, type and
+ * body length), the routing header (6 bytes + the length of the routing list)
+ * and the body.
+ */
+public class RequestPackageFramer {
+
+	/**
+	 * The length of the request header
+	 */
+	private final static int REQUEST_HEADER_LENGTH = 12;
+
+	/**
+	 * The length of the fixed part of the routing header
+	 */
+	private final static int ROUTING_HEADER_LENGTH = 6;
+
+	/**
+	 * The fixed part of the header
+	 */
+	private final ByteBuffer headerBuffer;
+
+	/**
+	 * The package that is currently assembled
+	 */
+	private ByteBuffer currentPackage;
+
+	public RequestPackageFramer() {
+		this.headerBuffer = ByteBuffer.allocate(REQUEST_HEADER_LENGTH + ROUTING_HEADER_LENGTH);
+		this.headerBuffer.order(Const.APPLICATION_BYTE_ORDER);
+		this.currentPackage = null;
+	}
+
+	/**
+	 * Consume the readable bytes of the buffer. Each completed package
+	 * is passed to the consumer.
+	 *
+	 * @param input
+	 * @param packageConsumer
+	 * @throws PackageEncodeException
+	 */
+	public void decode(final ByteBuffer input, final Consumer<ByteBuffer> packageConsumer)
+			throws PackageEncodeException {
+
+		while(input.hasRemaining()) {
+
+			if(currentPackage == null) {
+				transfer(input, headerBuffer);
+
+				if(headerBuffer.hasRemaining()) {
+					return;
+				}
+
+				currentPackage = allocatePackage();
+			}
+
+			transfer(input, currentPackage);
+
+			if(! currentPackage.hasRemaining()) {
+				currentPackage.flip();
+				packageConsumer.accept(currentPackage);
+				currentPackage = null;
+			}
+		}
+	}
+
+	/**
+	 * Allocate the buffer for the package, the size is read from the header
+	 * @return
+	 * @throws PackageEncodeException
+	 */
+	private ByteBuffer allocatePackage() throws PackageEncodeException {
+		final long bodyLength = headerBuffer.getLong(4);
+		final byte routingType = headerBuffer.get(REQUEST_HEADER_LENGTH);
+		final short routingListLength = headerBuffer.getShort(REQUEST_HEADER_LENGTH + 4);
+
+		if(routingType != RoutingHeader.DIRECT_PACKAGE && routingType != RoutingHeader.ROUTED_PACKAGE) {
+			throw new PackageEncodeException("Invalid package routing type, unable to decode package "
+					+ "header: " + routingType);
+		}
+
+		if(bodyLength < 0 || routingListLength < 0) {
+			throw new PackageEncodeException("Invalid package length: " + bodyLength
+					+ " / " + routingListLength);
+		}
+
+		final long packageLength = headerBuffer.capacity() + routingListLength + bodyLength;
+
+		if(packageLength > NetworkConst.MAX_PACKAGE_BYTES) {
+			throw new PackageEncodeException("Package is too large: " + packageLength);
+		}
+
+		final ByteBuffer encodedPackage = ByteBuffer.allocate((int) packageLength);
+		encodedPackage.order(Const.APPLICATION_BYTE_ORDER);
+
+		headerBuffer.flip();
+		encodedPackage.put(headerBuffer);
+		headerBuffer.clear();
+
+		return encodedPackage;
+	}
+
+	/**
+	 * Copy as many bytes as possible from the source to the destination
+	 * @param source
+	 * @param destination
+	 */
+	private static void transfer(final ByteBuffer source, final ByteBuffer destination) {
+		final int bytes = Math.min(source.remaining(), destination.remaining());
+
+		final ByteBuffer slice = source.duplicate();
+		slice.limit(slice.position() + bytes);
+		destination.put(slice);
+
+		source.position(source.position() + bytes);
+	}
+
+	/**
+	 * Is a package partially read
+	 * @return
+	 */
+	public boolean isPackagePending() {
+		return currentPackage != null || headerBuffer.position() > 0;
+	}
+}
@@ -34,7 +34,7 @@ import org.bboxdb.storage.entity.TupleStoreName;
 import org.bboxdb.storage.queryprocessor.OperatorTreeBuilder;
 import org.bboxdb.storage.queryprocessor.operator.NewerAsInsertTimeSeclectionOperator;
 import org.bboxdb.storage.queryprocessor.operator.Operator;
-import org.bboxdb.storage.queryprocessor.operator.SpatialIndexReadOperator;
+import org.bboxdb.storage.queryprocessor.operator.TimeIndexReadOperator;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -77,7 +77,7 @@ public class HandleBoundingBoxTimeQuery implements QueryHandler {
 					}
 					
 					final Hyperrectangle boundingBox = queryRequest.getBoundingBox();
-					final SpatialIndexReadOperator operator = new SpatialIndexReadOperator(storageManager.get(0), boundingBox);
+					final TimeIndexReadOperator operator = new TimeIndexReadOperator(storageManager.get(0), boundingBox);
 					
 					final Operator operator1 = new NewerAsInsertTimeSeclectionOperator(queryRequest.getTimestamp(), 
 							operator);
@@ -31,9 +31,9 @@ import org.bboxdb.network.server.StreamClientQuery;
 import org.bboxdb.network.server.connection.ClientConnectionHandler;
 import org.bboxdb.storage.entity.TupleStoreName;
 import org.bboxdb.storage.queryprocessor.OperatorTreeBuilder;
-import org.bboxdb.storage.queryprocessor.operator.FullTablescanOperator;
 import org.bboxdb.storage.queryprocessor.operator.NewerAsInsertTimeSeclectionOperator;
 import org.bboxdb.storage.queryprocessor.operator.Operator;
+import org.bboxdb.storage.queryprocessor.operator.TimeIndexReadOperator;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -76,7 +76,7 @@ public class HandleInsertTimeQuery implements QueryHandler {
 						throw new IllegalArgumentException("This operator tree needs 1 storage manager");
 					}
 					
-					final FullTablescanOperator tablescanOperator = new FullTablescanOperator(storageManager.get(0));
+					final TimeIndexReadOperator tablescanOperator = new TimeIndexReadOperator(storageManager.get(0));
 					final long timestamp = queryRequest.getTimestamp();
 					final Operator opeator = new NewerAsInsertTimeSeclectionOperator(timestamp, tablescanOperator);
 
@@ -30,10 +30,9 @@ import org.bboxdb.network.server.QueryHelper;
 import org.bboxdb.network.server.StreamClientQuery;
 import org.bboxdb.network.server.connection.ClientConnectionHandler;
 import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.queryprocessor.JoinOperatorPlanner;
 import org.bboxdb.storage.queryprocessor.OperatorTreeBuilder;
-import org.bboxdb.storage.queryprocessor.operator.IndexedSpatialJoinOperator;
 import org.bboxdb.storage.queryprocessor.operator.Operator;
-import org.bboxdb.storage.queryprocessor.operator.SpatialIndexReadOperator;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -74,21 +73,7 @@ public class HandleJoinQuery implements QueryHandler {
 				
 				@Override
 				public Operator buildOperatorTree(final List<TupleStoreManager> storageManager) {
-					
-					if(storageManager.size() <= 1) {
-						throw new IllegalArgumentException("This operator tree needs more than one storage manager");
-					}
-					
-					Operator operator1 = new SpatialIndexReadOperator(storageManager.get(0), boundingBox);
-					SpatialIndexReadOperator indexReader = new SpatialIndexReadOperator(storageManager.get(1));
-					operator1 = new IndexedSpatialJoinOperator(operator1, indexReader);
-					
-					for(int i = 3; i < storageManager.size(); i++) {
-						indexReader = new SpatialIndexReadOperator(storageManager.get(i));
-						operator1 = new IndexedSpatialJoinOperator(operator1, indexReader);
-					}
-					
-					return operator1;
+					return JoinOperatorPlanner.buildJoinOperatorTree(storageManager, boundingBox);
 				}
 			};
 					
@@ -21,6 +21,8 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 
 import org.bboxdb.network.NetworkConst;
+import org.bboxdb.network.capabilities.PeerCapabilities;
+import org.bboxdb.network.compression.CompressionCodecFactory;
 import org.bboxdb.network.packages.PackageEncodeException;
 import org.bboxdb.network.packages.request.HelloRequest;
 import org.bboxdb.network.packages.response.ErrorResponse;
@@ -48,7 +50,13 @@ public class HandshakeHandler implements RequestHandler {
 		
 		try {	
 			final HelloRequest heloRequest = HelloRequest.decodeRequest(encodedPackage);
-			clientConnectionHandler.setConnectionCapabilities(heloRequest.getPeerCapabilities());
+			
+			// Use only the capabilities that are supported by both sides
+			final PeerCapabilities connectionCapabilities = CompressionCodecFactory
+					.getSupportedCapabilities(heloRequest.getPeerCapabilities(), heloRequest.getProtocolVersion());
+			
+			clientConnectionHandler.setConnectionCapabilities(connectionCapabilities, 
+					heloRequest.getProtocolVersion());
 
 			final HelloResponse responsePackage = new HelloResponse(packageSequence, 
 					NetworkConst.PROTOCOL_VERSION, clientConnectionHandler.getConnectionCapabilities());
@@ -19,7 +19,9 @@ package org.bboxdb.network.server.connection.handler.request;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.bboxdb.commons.RejectedException;
@@ -28,7 +30,9 @@ import org.bboxdb.distribution.DistributionGroupConfigurationCache;
 import org.bboxdb.distribution.partitioner.SpacePartitioner;
 import org.bboxdb.distribution.partitioner.SpacePartitionerCache;
 import org.bboxdb.distribution.region.DistributionRegionIdMapper;
+import org.bboxdb.distribution.zookeeper.ZookeeperNotFoundException;
 import org.bboxdb.misc.BBoxDBException;
+import org.bboxdb.network.client.future.EmptyResultFuture;
 import org.bboxdb.network.packages.PackageEncodeException;
 import org.bboxdb.network.packages.request.InsertTupleRequest;
 import org.bboxdb.network.packages.response.ErrorResponse;
@@ -36,9 +40,9 @@ import org.bboxdb.network.routing.PackageRouter;
 import org.bboxdb.network.routing.RoutingHeader;
 import org.bboxdb.network.routing.RoutingHop;
 import org.bboxdb.network.server.ErrorMessages;
+import org.bboxdb.network.server.KeyIndexUpdater;
 import org.bboxdb.network.server.connection.ClientConnectionHandler;
 import org.bboxdb.network.server.connection.lock.LockManager;
-import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.DistributionGroupConfiguration;
 import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.entity.TupleStoreName;
@@ -76,51 +80,42 @@ public class InsertTupleHandler implements RequestHandler {
 
 		try {
 			final InsertTupleRequest insertTupleRequest = InsertTupleRequest.decodeTuple(encodedPackage);
+			final PackageRouter packageRouter = clientConnectionHandler.getPackageRouter();
 
-			// Does the tuple have the right dimension?
-			final String distributionGroup = insertTupleRequest.getTable().getDistributionGroup();
-			final DistributionGroupConfiguration groupConfiguration = DistributionGroupConfigurationCache
-					.getInstance().getDistributionGroupConfiguration(distributionGroup);
-
-			final Hyperrectangle boundingBox = insertTupleRequest.getTuple().getBoundingBox();
-
-			if(! boundingBox.equals(Hyperrectangle.FULL_SPACE)) {
-				final int groupDimensions = groupConfiguration.getDimensions();
-				final int tupleDimensions = boundingBox.getDimension();
-
-				if(groupDimensions != tupleDimensions) {
-					final String errorMessage = ErrorMessages.ERROR_TUPLE_HAS_WRONG_DIMENSION
-							+ " Group " + groupDimensions + " tuple " + tupleDimensions;
-					final ErrorResponse responsePackage = new ErrorResponse(packageSequence, errorMessage);
-					clientConnectionHandler.writeResultPackage(responsePackage);
-					return true;
-				}
-			}
+			processPackageLocally(packageSequence, clientConnectionHandler,
+					insertTupleRequest.getTable(), insertTupleRequest.getRoutingHeader(),
+					Collections.singletonList(insertTupleRequest.getTuple()),
+					() -> packageRouter.performInsertPackageRoutingAsync(packageSequence, insertTupleRequest));
+		} catch (Throwable e) {
+			handleInsertException(packageSequence, clientConnectionHandler, e);
+		}
 
-			final RoutingHeader routingHeader = insertTupleRequest.getRoutingHeader();
+		return true;
+	}
 
-			if(! routingHeader.isRoutedPackage()) {
-				final String errorMessage = ErrorMessages.ERROR_PACKAGE_NOT_ROUTED;
-				logger.error(errorMessage);
-				final ErrorResponse responsePackage = new ErrorResponse(packageSequence, errorMessage);
-				clientConnectionHandler.writeResultPackage(responsePackage);
-				return true;
-			}
+	/**
+	 * Send the error response for a failed insert
+	 * @param packageSequence
+	 * @param clientConnectionHandler
+	 * @param e
+	 * @throws IOException
+	 * @throws PackageEncodeException
+	 */
+	protected void handleInsertException(final short packageSequence,
+			final ClientConnectionHandler clientConnectionHandler, final Throwable e)
+					throws IOException, PackageEncodeException {
 
-			processPackageLocally(packageSequence, clientConnectionHandler, insertTupleRequest);
+		final String errorMessage;
 
-		} catch(RejectedException e) {
-			final String errorMessage = buildErrorMessage(ErrorMessages.ERROR_LOCAL_OPERATION_REJECTED_RETRY, e);
-			final ErrorResponse responsePackage = new ErrorResponse(packageSequence, errorMessage);
-			clientConnectionHandler.writeResultPackage(responsePackage);
-		} catch (Throwable e) {
+		if(e instanceof RejectedException) {
+			errorMessage = buildErrorMessage(ErrorMessages.ERROR_LOCAL_OPERATION_REJECTED_RETRY, e);
+		} else {
 			logger.error("Error while inserting tuple", e);
-			final String errorMessage = buildErrorMessage(ErrorMessages.ERROR_EXCEPTION, e);
-			final ErrorResponse responsePackage = new ErrorResponse(packageSequence, errorMessage);
-			clientConnectionHandler.writeResultPackage(responsePackage);
+			errorMessage = buildErrorMessage(ErrorMessages.ERROR_EXCEPTION, e);
 		}
 
-		return true;
+		final ErrorResponse responsePackage = new ErrorResponse(packageSequence, errorMessage);
+		clientConnectionHandler.writeResultPackage(responsePackage);
 	}
 
 	/**
@@ -144,75 +139,114 @@ public class InsertTupleHandler implements RequestHandler {
 	}
 
 	/**
+	 * Check and insert the tuples into the local storage. The package is routed 
+	 * when the tuples are inserted and the key index is updated.
+	 *
 	 * @param packageSequence
 	 * @param clientConnectionHandler
-	 * @param insertTupleRequest
+	 * @param requestTable
 	 * @param routingHeader
+	 * @param tuples
+	 * @param routePackage
 	 * @throws BBoxDBException
 	 * @throws RejectedException
+	 * @throws ZookeeperNotFoundException
+	 * @throws IOException
 	 * @throws PackageEncodeException
 	 */
-	private void processPackageLocally(final short packageSequence,
-			final ClientConnectionHandler clientConnectionHandler,
-			final InsertTupleRequest insertTupleRequest)
-			throws BBoxDBException, RejectedException, PackageEncodeException {
+	protected void processPackageLocally(final short packageSequence,
+			final ClientConnectionHandler clientConnectionHandler, final TupleStoreName requestTable,
+			final RoutingHeader routingHeader, final List<Tuple> tuples, final Runnable routePackage)
+			throws BBoxDBException, RejectedException, ZookeeperNotFoundException,
+			IOException, PackageEncodeException {
 
-		final Tuple tuple = insertTupleRequest.getTuple();
-		final TupleStoreName requestTable = insertTupleRequest.getTable();
-		final TupleStoreManagerRegistry storageRegistry = clientConnectionHandler.getStorageRegistry();
+		// Do the tuples have the right dimension?
+		final String distributionGroup = requestTable.getDistributionGroup();
+		final DistributionGroupConfiguration groupConfiguration = DistributionGroupConfigurationCache
+				.getInstance().getDistributionGroupConfiguration(distributionGroup);
+
+		final int groupDimensions = groupConfiguration.getDimensions();
+
+		for(final Tuple tuple : tuples) {
+			final Hyperrectangle boundingBox = tuple.getBoundingBox();
+
+			if(boundingBox.equals(Hyperrectangle.FULL_SPACE)) {
+				continue;
+			}
+
+			final int tupleDimensions = boundingBox.getDimension();
+
+			if(groupDimensions != tupleDimensions) {
+				final String errorMessage = ErrorMessages.ERROR_TUPLE_HAS_WRONG_DIMENSION
+						+ " Group " + groupDimensions + " tuple " + tupleDimensions;
+				final ErrorResponse responsePackage = new ErrorResponse(packageSequence, errorMessage);
+				clientConnectionHandler.writeResultPackage(responsePackage);
+				return;
+			}
+		}
+
+		if(! routingHeader.isRoutedPackage()) {
+			final String errorMessage = ErrorMessages.ERROR_PACKAGE_NOT_ROUTED;
+			logger.error(errorMessage);
+			final ErrorResponse responsePackage = new ErrorResponse(packageSequence, errorMessage);
+			clientConnectionHandler.writeResultPackage(responsePackage);
+			return;
+		}
 
-		final RoutingHeader routingHeader = insertTupleRequest.getRoutingHeader();
 		final RoutingHop localHop = routingHeader.getRoutingHop();
 
 		PackageRouter.checkLocalSystemNameMatchesAndThrowException(localHop);
 
 		// Remove old locks
 		final LockManager lockManager = clientConnectionHandler.getLockManager();
-		final String table = insertTupleRequest.getTable().getFullnameWithoutPrefix();
-		final String key = insertTupleRequest.getTuple().getKey();
-		lockManager.removeLockForConnectionAndKey(clientConnectionHandler, table, key);
+		final String table = requestTable.getFullnameWithoutPrefix();
+
+		for(final Tuple tuple : tuples) {
+			lockManager.removeLockForConnectionAndKey(clientConnectionHandler, table, tuple.getKey());
+		}
 
+		final TupleStoreManagerRegistry storageRegistry = clientConnectionHandler.getStorageRegistry();
 		final List<Long> distributionRegions = localHop.getDistributionRegions();
-		processInsertPackage(tuple, requestTable, storageRegistry, distributionRegions);
-		forwardRoutedPackage(packageSequence, clientConnectionHandler, insertTupleRequest);
+		final List<EmptyResultFuture> indexFutures = processInsertPackage(tuples, requestTable,
+				storageRegistry, distributionRegions);
+
+		// Acknowledge the insert only when the key index is up to date
+		KeyIndexUpdater.runAfterIndexUpdate(indexFutures, (success) -> {
+			if(success) {
+				routePackage.run();
+			} else {
+				final ErrorResponse responsePackage = new ErrorResponse(packageSequence,
+						ErrorMessages.ERROR_KEY_INDEX_UPDATE_FAILED);
+				clientConnectionHandler.writeResultPackageNE(responsePackage);
+			}
+		});
 	}
 
 	/**
-	 * Forward the routed package
+	 * Insert the tuples into the local storage. All tuples of a region are
+	 * inserted in one step.
 	 *
-	 * @param packageSequence
-	 * @param clientConnectionHandler
-	 * @param insertTupleRequest
-	 */
-	private void forwardRoutedPackage(final short packageSequence,
-			final ClientConnectionHandler clientConnectionHandler,
-			final InsertTupleRequest insertTupleRequest) {
-
-		final PackageRouter packageRouter = clientConnectionHandler.getPackageRouter();
-		packageRouter.performInsertPackageRoutingAsync(packageSequence, insertTupleRequest);
-	}
-
-	/**
-	 * Insert the table into the local storage
-	 * @param tuple
+	 * @param tuples
 	 * @param requestTable
 	 * @param storageRegistry
-	 * @param routingHeader
-	 * @throws StorageManagerException
+	 * @param distributionRegions
+	 * @return the futures of the written key index entries
 	 * @throws RejectedException
-	 * @throws BBoxDBException
 	 */
-	protected void processInsertPackage(final Tuple tuple, final TupleStoreName requestTable,
-			final TupleStoreManagerRegistry storageRegistry, final List<Long> distributionRegions) throws RejectedException {
+	protected List<EmptyResultFuture> processInsertPackage(final List<Tuple> tuples, 
+			final TupleStoreName requestTable, final TupleStoreManagerRegistry storageRegistry, 
+			final List<Long> distributionRegions) throws RejectedException {
 
 		try {
+			final List<EmptyResultFuture> indexFutures = new ArrayList<>();
+
 			final String fullname = requestTable.getDistributionGroup();
 			final SpacePartitioner spacePartitioner = SpacePartitionerCache
 					.getInstance().getSpacePartitionerForGroupName(fullname);
 
 			final DistributionRegionIdMapper regionIdMapper = spacePartitioner
 					.getDistributionRegionIdMapper();
-			
+
 			final Collection<TupleStoreName> localTables = regionIdMapper.convertRegionIdToTableNames(
 						requestTable, distributionRegions);
 
@@ -226,27 +260,54 @@ public class InsertTupleHandler implements RequestHandler {
 
 			// Insert tuples
 			for(final TupleStoreName tupleStoreName : localTables) {
-				
+
 				final long regionid = tupleStoreName.getRegionId().getAsLong();
-				
-				final Hyperrectangle space 
+
+				final Hyperrectangle space
 					= regionIdMapper.getSpaceForRegionId(regionid);
-				
-				final Hyperrectangle tupleBBox = tuple.getBoundingBox();
-				
-				if(space.intersects(tupleBBox)) {
-					final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(tupleStoreName);
-					storageManager.put(tuple);
-				} else { 
-					logger.debug("Not inserting into region {} because {} not insertect {}", regionid, 
-							tupleBBox, space);
+
+				final List<Tuple> regionTuples = getTuplesForRegion(tuples, space);
+
+				if(regionTuples.isEmpty()) {
+					logger.debug("Not inserting into region {} because no tuple intersects {}",
+							regionid, space);
+					continue;
 				}
-				
+
+				final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(tupleStoreName);
+				final List<Tuple> tuplesToIndex = KeyIndexUpdater.getTuplesToIndex(storageManager, regionTuples);
+				storageManager.put(regionTuples);
+				indexFutures.addAll(KeyIndexUpdater.updateKeyIndex(tupleStoreName, tuplesToIndex));
 			}
+
+			return indexFutures;
 		} catch (RejectedException e) {
 			throw e;
 		} catch (Throwable e) {
 			throw new RejectedException(e);
 		}
 	}
+
+	/**
+	 * Get the tuples that intersect the space of the region
+	 * @param tuples
+	 * @param space
+	 * @return
+	 */
+	private List<Tuple> getTuplesForRegion(final List<Tuple> tuples, final Hyperrectangle space) {
+
+		if(tuples.size() == 1) {
+			return space.intersects(tuples.get(0).getBoundingBox()) ? tuples : Collections.emptyList();
+		}
+
+		final List<Tuple> regionTuples = new ArrayList<>(tuples.size());
+
+		for(final Tuple tuple : tuples) {
+			if(space.intersects(tuple.getBoundingBox())) {
+				regionTuples.add(tuple);
+			}
+		}
+
+		return regionTuples;
+	}
 }
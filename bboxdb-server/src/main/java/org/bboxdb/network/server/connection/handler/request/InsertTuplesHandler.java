@@ -0,0 +1,63 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *******************************************************************************/
+package org.bboxdb.network.server.connection.handler.request;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.bboxdb.network.packages.PackageEncodeException;
+import org.bboxdb.network.packages.request.InsertTuplesRequest;
+import org.bboxdb.network.routing.PackageRouter;
+import org.bboxdb.network.server.connection.ClientConnectionHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class InsertTuplesHandler extends InsertTupleHandler {
+
+	/**
+	 * The Logger
+	 */
+	private final static Logger logger = LoggerFactory.getLogger(InsertTuplesHandler.class);
+
+	@Override
+	/**
+	 * Handle the insert tuples request
+	 */
+	public boolean handleRequest(final ByteBuffer encodedPackage,
+			final short packageSequence, final ClientConnectionHandler clientConnectionHandler)
+					throws IOException, PackageEncodeException {
+
+		if(logger.isDebugEnabled()) {
+			logger.debug("Got insert tuples request");
+		}
+
+		try {
+			final InsertTuplesRequest insertTuplesRequest = InsertTuplesRequest.decodeTuple(encodedPackage);
+			final PackageRouter packageRouter = clientConnectionHandler.getPackageRouter();
+
+			processPackageLocally(packageSequence, clientConnectionHandler,
+					insertTuplesRequest.getTable(), insertTuplesRequest.getRoutingHeader(),
+					insertTuplesRequest.getTuples(),
+					() -> packageRouter.performInsertPackageRoutingAsync(packageSequence, insertTuplesRequest));
+		} catch (Throwable e) {
+			handleInsertException(packageSequence, clientConnectionHandler, e);
+		}
+
+		return true;
+	}
+}
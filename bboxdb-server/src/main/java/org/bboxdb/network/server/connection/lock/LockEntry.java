@@ -49,6 +49,11 @@ public class LockEntry {
 	 */
 	private boolean deleteOnTimeout;
 	
+	/**
+	 * The time the lock was created (in nanoseconds)
+	 */
+	private final long lockTime;
+	
 	public LockEntry(final Object lockObject, final short sequenceNumber, final String table, 
 			final String key, final long version, final boolean deleteOnTimeout) {
 		
@@ -58,6 +63,7 @@ public class LockEntry {
 		this.key = key;
 		this.version = version;
 		this.deleteOnTimeout = deleteOnTimeout;
+		this.lockTime = System.nanoTime();
 	}
 	
 	/**
@@ -108,6 +114,14 @@ public class LockEntry {
 		return version;
 	}
 	
+	/**
+	 * Get the time since the lock was created in seconds
+	 * @return
+	 */
+	public double getLockDurationSeconds() {
+		return (System.nanoTime() - lockTime) / 1_000_000_000.0;
+	}
+	
 	/**
 	 * Compare on table and key
 	 * @param table
@@ -17,15 +17,23 @@
  *******************************************************************************/
 package org.bboxdb.network.server.connection.lock;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
-
-import com.google.common.collect.Sets;
 
+import io.prometheus.client.Counter;
 import io.prometheus.client.Gauge;
+import io.prometheus.client.Summary;
 
+/**
+ * The locks are stored in a hash table with the table and the key as key. A 
+ * second hash table contains the locks of each lock object (e.g., the client 
+ * connection). Lock and unlock operations only synchronize on the locks of 
+ * the lock object, so operations of different connections don't block each other.
+ */
 public class LockManager {
 	
 	/**
@@ -36,12 +44,73 @@ public class LockManager {
 			.help("Total amount of active tuple locks").register();
 	
 	/**
-	 * The hold locks
+	 * The lock conflicts counter
+	 */
+	private final static Counter lockConflictsTotal = Counter.build()
+			.name("bboxdb_network_tuple_lock_conflicts_total")
+			.help("Total amount of lock requests for already locked tuples").register();
+	
+	/**
+	 * The time the locks are held
+	 */
+	private final static Summary lockHoldTime = Summary.build()
+			.name("bboxdb_network_tuple_lock_hold_seconds")
+			.help("The time a tuple lock is held (and conflicting requests need to wait) in seconds")
+			.register();
+	
+	/**
+	 * The hold locks, indexed by table and key
+	 */
+	private final Map<LockKey, LockEntry> locks;
+	
+	/**
+	 * The hold locks, indexed by the lock object
+	 */
+	private final Map<Object, Set<LockEntry>> locksForObject;
+	
+	/**
+	 * The key of a lock
 	 */
-	private final Set<LockEntry> locks;
+	private final static class LockKey {
+		
+		/**
+		 * The table
+		 */
+		private final String table;
+		
+		/**
+		 * The key
+		 */
+		private final String key;
+		
+		public LockKey(final String table, final String key) {
+			this.table = table;
+			this.key = key;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * table.hashCode() + key.hashCode();
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			
+			if (! (obj instanceof LockKey)) {
+				return false;
+			}
+			
+			final LockKey other = (LockKey) obj;
+			return table.equals(other.table) && key.equals(other.key);
+		}
+	}
 	
 	public LockManager() {
-		this.locks = Sets.newConcurrentHashSet(); 
+		this.locks = new ConcurrentHashMap<>(); 
+		this.locksForObject = new ConcurrentHashMap<>();
 	}
 	
 	/**
@@ -59,16 +128,35 @@ public class LockManager {
 		final LockEntry lockEntry = new LockEntry(lockObject, sequenceNumber, table, key, 
 				version, deleteOnTimeout);
 		
-		synchronized (this) {
-			if(locks.stream().anyMatch(e -> e.tableAndKeyMatches(table, key))) {
-				return false;
-			}
-						
-			locks.add(lockEntry);
-			activeLocksTotal.set(locks.size());
+		final LockKey lockKey = new LockKey(table, key);
+		
+		// Fast path, the tuple is already locked
+		if(locks.containsKey(lockKey)) {
+			lockConflictsTotal.inc();
+			return false;
 		}
 		
-		return true;
+		while(true) {
+			final Set<LockEntry> objectLocks = locksForObject.computeIfAbsent(lockObject, 
+					o -> ConcurrentHashMap.newKeySet());
+			
+			synchronized (objectLocks) {
+				// The set was removed in the meantime
+				if(locksForObject.get(lockObject) != objectLocks) {
+					continue;
+				}
+				
+				if(locks.putIfAbsent(lockKey, lockEntry) != null) {
+					lockConflictsTotal.inc();
+					removeIfEmpty(lockObject, objectLocks);
+					return false;
+				}
+				
+				objectLocks.add(lockEntry);
+				activeLocksTotal.inc();
+				return true;
+			}
+		}
 	}
 	
 	/**
@@ -77,9 +165,7 @@ public class LockManager {
 	 * @return 
 	 */
 	public List<LockEntry> removeAllLocksForObject(final Object lockObject) {
-		final Predicate<? super LockEntry> removePredicate = e -> e.getLockObject().equals(lockObject);
-		
-		return removeForPredicate(removePredicate);
+		return removeForPredicate(lockObject, e -> true);
 	}
 	
 	/**
@@ -88,11 +174,13 @@ public class LockManager {
 	 * @return
 	 */
 	public List<LockEntry> getAllLocksForObject(final Object lockObject) {
-		final Predicate<? super LockEntry> predicate = e -> e.getLockObject().equals(lockObject);
+		final Set<LockEntry> objectLocks = locksForObject.get(lockObject);
+		
+		if(objectLocks == null) {
+			return new ArrayList<>();
+		}
 		
-		return locks.stream()
-				.filter(e -> predicate.test(e))
-				.collect(Collectors.toList());
+		return new ArrayList<>(objectLocks);
 	}
 	
 	/**
@@ -102,28 +190,40 @@ public class LockManager {
 	 * @return
 	 */
 	public List<LockEntry> removeAllForLocksForObjectAndSequence(final Object lockObject, final short sequence) {
-		final Predicate<? super LockEntry> removePredicate = e -> e.lockObjectAndSequenceMatches(lockObject, 
-				sequence);
-		
-		return removeForPredicate(removePredicate);
+		return removeForPredicate(lockObject, e -> e.getSequenceNumber() == sequence);
 	}
 
 	/**
-	 * Remove and return all elements for the given prediate from the
-	 * locks data structure
+	 * Remove and return all locks of the lock object that match the predicate
+	 * @param lockObject
 	 * @param removePredicate
 	 * @return
 	 */
-	private List<LockEntry> removeForPredicate(final Predicate<? super LockEntry> removePredicate) {
+	private List<LockEntry> removeForPredicate(final Object lockObject, 
+			final Predicate<? super LockEntry> removePredicate) {
 		
-		final List<LockEntry> elementsToRemove = locks.stream()
-				.filter(removePredicate)
-				.collect(Collectors.toList());
-				
-		locks.removeAll(elementsToRemove);
-		activeLocksTotal.set(locks.size());
+		final List<LockEntry> removedElements = new ArrayList<>();
+		final Set<LockEntry> objectLocks = locksForObject.get(lockObject);
+		
+		if(objectLocks == null) {
+			return removedElements;
+		}
+		
+		synchronized (objectLocks) {
+			for(final LockEntry lockEntry : objectLocks) {
+				if(removePredicate.test(lockEntry)) {
+					removedElements.add(lockEntry);
+				}
+			}
+			
+			for(final LockEntry lockEntry : removedElements) {
+				removeLockEntry(lockEntry, objectLocks);
+			}
+			
+			removeIfEmpty(lockObject, objectLocks);
+		}
 
-		return elementsToRemove;
+		return removedElements;
 	}
 	
 	/**
@@ -135,13 +235,59 @@ public class LockManager {
 	public List<LockEntry> removeLockForConnectionAndKey(final Object lockObject, 
 			final String table, final String key) {
 		
-		final List<LockEntry> locksToRemove = locks.stream()
-				.filter(e -> e.getLockObject().equals(lockObject) && e.tableAndKeyMatches(table, key))
-				.collect(Collectors.toList());
+		final List<LockEntry> removedElements = new ArrayList<>();
+		final LockEntry lockEntry = locks.get(new LockKey(table, key));
+		
+		if(lockEntry == null || ! lockEntry.getLockObject().equals(lockObject)) {
+			return removedElements;
+		}
+		
+		final Set<LockEntry> objectLocks = locksForObject.get(lockObject);
+		
+		if(objectLocks == null) {
+			return removedElements;
+		}
+		
+		synchronized (objectLocks) {
+			if(objectLocks.contains(lockEntry)) {
+				removeLockEntry(lockEntry, objectLocks);
+				removedElements.add(lockEntry);
+			}
+			
+			removeIfEmpty(lockObject, objectLocks);
+		}
+		
+		return removedElements;
+	}
+	
+	/**
+	 * Remove the lock entry from both indices, the caller needs to hold 
+	 * the monitor of the object locks
+	 * 
+	 * @param lockEntry
+	 * @param objectLocks
+	 */
+	private void removeLockEntry(final LockEntry lockEntry, final Set<LockEntry> objectLocks) {
+		final LockKey lockKey = new LockKey(lockEntry.getTable(), lockEntry.getKey());
 		
-		locks.removeAll(locksToRemove);
-		activeLocksTotal.set(locks.size());
+		if(locks.remove(lockKey, lockEntry)) {
+			activeLocksTotal.dec();
+			lockHoldTime.observe(lockEntry.getLockDurationSeconds());
+		}
 		
-		return locksToRemove;
+		objectLocks.remove(lockEntry);
+	}
+	
+	/**
+	 * Remove the object locks from the index if they are empty, the caller 
+	 * needs to hold the monitor of the object locks
+	 * 
+	 * @param lockObject
+	 * @param objectLocks
+	 */
+	private void removeIfEmpty(final Object lockObject, final Set<LockEntry> objectLocks) {
+		if(objectLocks.isEmpty()) {
+			locksForObject.remove(lockObject, objectLocks);
+		}
 	}
 }
@@ -29,7 +29,7 @@ import java.util.stream.Collectors;
 import org.bboxdb.commons.math.Hyperrectangle;
 import org.bboxdb.commons.math.DoubleInterval;
 import org.bboxdb.storage.sstable.spatialindex.SpatialIndexEntry;
-import org.bboxdb.storage.sstable.spatialindex.rtree.RTreeBuilder;
+import org.bboxdb.storage.sstable.spatialindex.rtree.RTreeSTRBuilder;
 
 import com.google.common.collect.Lists;
 
@@ -48,7 +48,7 @@ public class CellGrid {
 	/**
 	 * The spatial index
 	 */
-	protected final RTreeBuilder spatialIndexBuilder = new RTreeBuilder();
+	protected final RTreeSTRBuilder spatialIndexBuilder = new RTreeSTRBuilder();
 
 	/**
 	 * Build the grid with fixed cell size
@@ -168,6 +168,11 @@ public class JoinedTuple implements Comparable<JoinedTuple>, PagedTransferableEn
 		return new JoinedTupleIdentifier(tuples, tupleStoreNames);
 	}
 
+	@Override
+	public int getSize() {
+		return tuples.stream().mapToInt(t -> t.getSize()).sum();
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
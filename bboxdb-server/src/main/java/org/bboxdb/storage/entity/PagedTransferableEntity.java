@@ -24,4 +24,10 @@ public interface PagedTransferableEntity {
 	 * @return
 	 */
 	public EntityIdentifier getEntityIdentifier();
+	
+	/**
+	 * Get the size of the entity in bytes
+	 * @return
+	 */
+	public int getSize();
 }
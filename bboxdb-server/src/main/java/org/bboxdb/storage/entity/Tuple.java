@@ -85,6 +85,7 @@ public class Tuple implements Comparable<Tuple>, PagedTransferableEntity {
 	 * 
 	 * @return
 	 */
+	@Override
 	public int getSize() {
 		int totalSize = 0;
 		
@@ -32,6 +32,11 @@ import org.yaml.snakeyaml.Yaml;
 
 public class TupleStoreConfiguration {
 	
+	/**
+	 * The default merge strategy
+	 */
+	public final static String DEFAULT_MERGE_STRATEGY = "org.bboxdb.storage.sstable.compact.SimpleMergeStrategy";
+	
 	/**
 	 * Allow duplicates
 	 */
@@ -56,6 +61,16 @@ public class TupleStoreConfiguration {
 	 * The spatial index reader
 	 */
 	protected String spatialIndexReader = "org.bboxdb.storage.sstable.spatialindex.rtree.mmf.RTreeMMFReader";
+	
+	/**
+	 * The merge strategy for the compaction of the SSTables
+	 */
+	protected String mergeStrategy = DEFAULT_MERGE_STRATEGY;
+	
+	/**
+	 * Maintain a global key index for the key queries
+	 */
+	protected boolean keyIndex = false;
 
 	/**
 	 * The logger
@@ -109,11 +124,29 @@ public class TupleStoreConfiguration {
 		this.spatialIndexReader = spatialIndexReader;
 	}
 
+	public String getMergeStrategy() {
+		return mergeStrategy;
+	}
+
+	public void setMergeStrategy(final String mergeStrategy) {
+		this.mergeStrategy = mergeStrategy;
+	}
+
+	public boolean isKeyIndex() {
+		return keyIndex;
+	}
+
+	public void setKeyIndex(final boolean keyIndex) {
+		this.keyIndex = keyIndex;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + (allowDuplicates ? 1231 : 1237);
+		result = prime * result + (keyIndex ? 1231 : 1237);
+		result = prime * result + ((mergeStrategy == null) ? 0 : mergeStrategy.hashCode());
 		result = prime * result + ((spatialIndexReader == null) ? 0 : spatialIndexReader.hashCode());
 		result = prime * result + ((spatialIndexWriter == null) ? 0 : spatialIndexWriter.hashCode());
 		result = prime * result + (int) (ttl ^ (ttl >>> 32));
@@ -132,6 +165,13 @@ public class TupleStoreConfiguration {
 		TupleStoreConfiguration other = (TupleStoreConfiguration) obj;
 		if (allowDuplicates != other.allowDuplicates)
 			return false;
+		if (keyIndex != other.keyIndex)
+			return false;
+		if (mergeStrategy == null) {
+			if (other.mergeStrategy != null)
+				return false;
+		} else if (!mergeStrategy.equals(other.mergeStrategy))
+			return false;
 		if (spatialIndexReader == null) {
 			if (other.spatialIndexReader != null)
 				return false;
@@ -153,7 +193,7 @@ public class TupleStoreConfiguration {
 	public String toString() {
 		return "TupleStoreConfiguration [allowDuplicates=" + allowDuplicates + ", ttl=" + ttl + ", versions=" + versions
 				+ ", spatialIndexWriter=" + spatialIndexWriter + ", spatialIndexReader=" + spatialIndexReader
-				+ "]";
+				+ ", mergeStrategy=" + mergeStrategy + ", keyIndex=" + keyIndex + "]";
 	}
 
 	/**
@@ -192,6 +232,8 @@ public class TupleStoreConfiguration {
 		data.put("allowDuplicates", allowDuplicates);
 	    data.put("spatialIndexReader", spatialIndexReader);
 	    data.put("spatialIndexWriter", spatialIndexWriter);
+	    data.put("mergeStrategy", mergeStrategy);
+	    data.put("keyIndex", keyIndex);
 	    data.put("ttl", ttl);
 		data.put("versions", versions);
 		return data;
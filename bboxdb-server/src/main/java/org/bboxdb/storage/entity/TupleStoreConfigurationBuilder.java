@@ -85,6 +85,26 @@ public class TupleStoreConfigurationBuilder {
 		return this;
 	}
 	
+	/**
+	 * Use the merge strategy
+	 * @param mergeStrategy
+	 * @return
+	 */
+	public TupleStoreConfigurationBuilder withMergeStrategy(final String mergeStrategy) {
+		ssTableConfiguration.setMergeStrategy(mergeStrategy);
+		return this;
+	}
+	
+	/**
+	 * Maintain a global key index for the table
+	 * @param keyIndex
+	 * @return
+	 */
+	public TupleStoreConfigurationBuilder withKeyIndex(final boolean keyIndex) {
+		ssTableConfiguration.setKeyIndex(keyIndex);
+		return this;
+	}
+	
 	/**
 	 * Return the resulting configuration object
 	 * @return
@@ -28,7 +28,6 @@ import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.bboxdb.commons.math.Hyperrectangle;
-import org.bboxdb.misc.BBoxDBService;
 import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.DeletedTuple;
 import org.bboxdb.storage.entity.Tuple;
@@ -36,13 +35,12 @@ import org.bboxdb.storage.entity.TupleStoreName;
 import org.bboxdb.storage.sstable.spatialindex.SpatialIndexBuilder;
 import org.bboxdb.storage.sstable.spatialindex.SpatialIndexBuilderFactory;
 import org.bboxdb.storage.sstable.spatialindex.SpatialIndexEntry;
-import org.bboxdb.storage.tuplestore.ReadWriteTupleStore;
 import org.bboxdb.storage.util.TupleHelper;
 import org.bboxdb.storage.wal.WriteAheadLogWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class Memtable implements BBoxDBService, ReadWriteTupleStore {
+public class Memtable implements MemtableTupleStore {
 	
 	/**
 	 * The name of the corresponding table
@@ -158,6 +156,17 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 		
 	}
 
+	@Override
+	public boolean tryPut(final Tuple tuple) throws StorageManagerException {
+		
+		if(freePos >= maxEntries) {
+			return false;
+		}
+		
+		put(tuple);
+		return true;
+	}
+	
 	@Override
 	public void put(final Tuple tuple) throws StorageManagerException {
 		
@@ -233,6 +242,7 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 	 * @return 
 	 * 
 	 */
+	@Override
 	public List<Tuple> getSortedTupleList() {
 		assert (usage.get() > 0);
 
@@ -268,6 +278,7 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 	 * 
 	 * @return
 	 */
+	@Override
 	public boolean isFull() {
 		
 		// Check size of the table
@@ -286,6 +297,7 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 	/**
 	 * Is this memtable empty?
 	 */
+	@Override
 	public boolean isEmpty() {
 		if(freePos <= 0) {
 			return true;
@@ -298,6 +310,7 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 	 * Get the maximal number of entries in the memtable
 	 * @return
 	 */
+	@Override
 	public int getMaxEntries() {
 		return maxEntries;
 	}
@@ -315,10 +328,16 @@ public class Memtable implements BBoxDBService, ReadWriteTupleStore {
 	 * Get the created timestamp
 	 * @return
 	 */
+	@Override
 	public long getCreatedTimestamp() {
 		return createdTimestamp;
 	}
 	
+	@Override
+	public boolean isConcurrentWriteSupported() {
+		return false;
+	}
+	
 	@Override
 	public String getServicename() {
 		return "Memtable";
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *******************************************************************************/
+package org.bboxdb.storage.memtable;
+
+import org.bboxdb.misc.BBoxDBConfiguration;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.wal.WriteAheadLogWriter;
+
+public class MemtableFactory {
+
+	/**
+	 * The on heap memtable
+	 */
+	public final static String TYPE_HEAP = "heap";
+
+	/**
+	 * The off heap memtable
+	 */
+	public final static String TYPE_OFFHEAP = "offheap";
+
+	/**
+	 * Get an instance of the configured memtable
+	 * @param configuration
+	 * @param table
+	 * @param walWriter
+	 * @return
+	 */
+	public static MemtableTupleStore getInstance(final BBoxDBConfiguration configuration,
+			final TupleStoreName table, final WriteAheadLogWriter walWriter) {
+
+		final String memtableType = configuration.getMemtableType();
+		final int entries = configuration.getMemtableEntriesMax();
+		final long maxSize = configuration.getMemtableSizeMax();
+
+		if(TYPE_HEAP.equals(memtableType)) {
+			return new Memtable(table, entries, maxSize, walWriter);
+		}
+
+		if(TYPE_OFFHEAP.equals(memtableType)) {
+			return new OffHeapMemtable(table, entries, maxSize, walWriter);
+		}
+
+		throw new IllegalArgumentException("Unknown memtable type: " + memtableType);
+	}
+}
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *******************************************************************************/
+package org.bboxdb.storage.memtable;
+
+import java.util.List;
+
+import org.bboxdb.misc.BBoxDBService;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.tuplestore.ReadWriteTupleStore;
+
+public interface MemtableTupleStore extends BBoxDBService, ReadWriteTupleStore {
+
+	/**
+	 * Init the memtable
+	 */
+	@Override
+	public void init();
+
+	/**
+	 * Shutdown the memtable
+	 */
+	@Override
+	public void shutdown();
+
+	/**
+	 * Get a list with all tuples, sorted by key and version
+	 * @return
+	 */
+	public List<Tuple> getSortedTupleList();
+
+	/**
+	 * Store the tuple, if a free slot is available. Unlike put(), a memtable
+	 * without free slots is reported with false, so the caller can replace
+	 * the memtable and store the tuple in the new one.
+	 * @param tuple
+	 * @return the tuple is stored or not
+	 * @throws StorageManagerException
+	 */
+	public boolean tryPut(final Tuple tuple) throws StorageManagerException;
+
+	/**
+	 * Is this memtable full and needs to be flushed to disk
+	 * @return
+	 */
+	public boolean isFull();
+
+	/**
+	 * Is this memtable empty?
+	 * @return
+	 */
+	public boolean isEmpty();
+
+	/**
+	 * Get the maximal number of entries in the memtable
+	 * @return
+	 */
+	public int getMaxEntries();
+
+	/**
+	 * Get the created timestamp
+	 * @return
+	 */
+	public long getCreatedTimestamp();
+
+	/**
+	 * Can put() and delete() be called by multiple threads at the same time
+	 * @return
+	 */
+	public boolean isConcurrentWriteSupported();
+
+}
@@ -76,7 +76,7 @@ public class MemtableWriterRunnable extends ExceptionSafeRunnable {
 		while (! Thread.currentThread().isInterrupted()) {
 			try {
 				final MemtableAndTupleStoreManagerPair memtableAndSSTableManager = storage.takeNextUnflushedMemtable();
-				final Memtable memtable = memtableAndSSTableManager.getMemtable();
+				final MemtableTupleStore memtable = memtableAndSSTableManager.getMemtable();
 				final TupleStoreManager sstableManager = memtableAndSSTableManager.getTupleStoreManager();
 				flushMemtableToDisk(memtable, sstableManager);
 			} catch (InterruptedException e) {
@@ -92,7 +92,7 @@ public class MemtableWriterRunnable extends ExceptionSafeRunnable {
 	 * @param sstableManager 
 	 * 
 	 */
-	protected void flushMemtableToDisk(final Memtable memtable, final TupleStoreManager sstableManager) {
+	protected void flushMemtableToDisk(final MemtableTupleStore memtable, final TupleStoreManager sstableManager) {
 		
 		final boolean aquired = memtable.acquire();
 		
@@ -165,7 +165,7 @@ public class MemtableWriterRunnable extends ExceptionSafeRunnable {
 	 * @param memtable
 	 * @param sstableManager 
 	 */
-	protected void sendCallbacks(final Memtable memtable, TupleStoreManager sstableManager) {
+	protected void sendCallbacks(final MemtableTupleStore memtable, TupleStoreManager sstableManager) {
 		final long timestamp = memtable.getCreatedTimestamp();
 		final List<BiConsumer<TupleStoreName, Long>> callbacks 
 			= storage.getTupleStoreManagerRegistry().getSSTableFlushCallbacks();
@@ -188,7 +188,7 @@ public class MemtableWriterRunnable extends ExceptionSafeRunnable {
 	 * @return
 	 * @throws Exception
 	 */
-	protected int writeMemtable(final String dataDirectory, final Memtable memtable, 
+	protected int writeMemtable(final String dataDirectory, final MemtableTupleStore memtable, 
 			final TupleStoreManager sstableManager) throws Exception {
 		
 		final int tableNumber = sstableManager.increaseTableNumber();
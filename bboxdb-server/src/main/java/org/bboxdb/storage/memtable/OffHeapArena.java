@@ -0,0 +1,242 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *******************************************************************************/
+package org.bboxdb.storage.memtable;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.bboxdb.commons.io.UnsafeMemoryHelper;
+import org.bboxdb.storage.StorageManagerException;
+
+/**
+ * A lock-free bump allocator for direct memory. The memory is organized in
+ * chunks, which are allocated on demand. An address encodes the chunk
+ * number (upper 32 bits) and the offset in the chunk (lower 32 bits).
+ * Allocations larger than a chunk get a dedicated chunk.
+ */
+public class OffHeapArena {
+
+	/**
+	 * The default size of a chunk
+	 */
+	public final static int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+	/**
+	 * The max number of chunks
+	 */
+	public final static int MAX_CHUNKS = 4096;
+
+	/**
+	 * The size of a chunk
+	 */
+	private final int chunkSize;
+
+	/**
+	 * The allocated chunks
+	 */
+	private final AtomicReferenceArray<ByteBuffer> chunks;
+
+	/**
+	 * The next free address
+	 */
+	private final AtomicLong nextAddress;
+
+	/**
+	 * The amount of allocated bytes
+	 */
+	private final AtomicLong allocatedBytes;
+
+	public OffHeapArena() {
+		this(DEFAULT_CHUNK_SIZE);
+	}
+
+	public OffHeapArena(final int chunkSize) {
+		this.chunkSize = chunkSize;
+		this.chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+		this.nextAddress = new AtomicLong(0);
+		this.allocatedBytes = new AtomicLong(0);
+	}
+
+	/**
+	 * Allocate the given amount of bytes
+	 * @param size
+	 * @return the address of the memory
+	 * @throws StorageManagerException
+	 */
+	public long allocate(final int size) throws StorageManagerException {
+
+		while(true) {
+			final long address = nextAddress.get();
+			final int chunk = getChunk(address);
+			final int offset = getOffset(address);
+
+			// Allocate a dedicated chunk
+			if(size > chunkSize) {
+				final int dedicatedChunk = (offset == 0) ? chunk : chunk + 1;
+				checkChunkNumber(dedicatedChunk);
+
+				if(nextAddress.compareAndSet(address, toAddress(dedicatedChunk + 1, 0))) {
+					createChunk(dedicatedChunk, size);
+					return toAddress(dedicatedChunk, 0);
+				}
+
+				continue;
+			}
+
+			// Skip the rest of the chunk
+			if(offset + size > chunkSize) {
+				checkChunkNumber(chunk + 1);
+				nextAddress.compareAndSet(address, toAddress(chunk + 1, 0));
+				continue;
+			}
+
+			if(nextAddress.compareAndSet(address, address + size)) {
+				createChunk(chunk, chunkSize);
+				return address;
+			}
+		}
+	}
+
+	/**
+	 * Write the data to the given address
+	 * @param address
+	 * @param data
+	 */
+	public void write(final long address, final byte[] data) {
+		final ByteBuffer view = getView(address);
+		view.put(data);
+	}
+
+	/**
+	 * Get a view on the memory, positioned at the given address
+	 * @param address
+	 * @return
+	 */
+	public ByteBuffer getView(final long address) {
+		final ByteBuffer chunk = chunks.get(getChunk(address));
+
+		if(chunk == null) {
+			throw new IllegalStateException("The memory of the address " + address + " is released");
+		}
+
+		final ByteBuffer view = chunk.duplicate();
+		view.position(getOffset(address));
+		return view;
+	}
+
+	/**
+	 * Release all chunks. The direct memory is not freed explicitly, views
+	 * that are still in use keep their chunk alive until the garbage
+	 * collector reclaims the buffer.
+	 */
+	public void clear() {
+		nextAddress.set(0);
+		allocatedBytes.set(0);
+
+		for(int i = 0; i < chunks.length(); i++) {
+			chunks.set(i, null);
+		}
+	}
+
+	/**
+	 * Release all chunks and free the direct memory immediately. The caller
+	 * has to ensure that no view of the arena is in use.
+	 */
+	public void release() {
+		nextAddress.set(0);
+		allocatedBytes.set(0);
+
+		for(int i = 0; i < chunks.length(); i++) {
+			UnsafeMemoryHelper.releaseDirectMemory(chunks.getAndSet(i, null));
+		}
+	}
+
+	/**
+	 * Get the amount of allocated direct memory
+	 * @return
+	 */
+	public long getAllocatedBytes() {
+		return allocatedBytes.get();
+	}
+
+	/**
+	 * Create the given chunk if needed
+	 * @param chunk
+	 * @param size
+	 */
+	private void createChunk(final int chunk, final int size) {
+		if(chunks.get(chunk) != null) {
+			return;
+		}
+
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+
+		// The buffer of the losing thread was never published
+		if(chunks.compareAndSet(chunk, null, buffer)) {
+			allocatedBytes.addAndGet(size);
+		} else {
+			UnsafeMemoryHelper.releaseDirectMemory(buffer);
+		}
+	}
+
+	/**
+	 * Ensure the chunk number is valid
+	 * @param chunk
+	 * @throws StorageManagerException
+	 */
+	private void checkChunkNumber(final int chunk) throws StorageManagerException {
+		if(chunk >= MAX_CHUNKS) {
+			throw new StorageManagerException("Unable to allocate memory, all "
+					+ MAX_CHUNKS + " chunks are used");
+		}
+	}
+
+	/**
+	 * Get the chunk of the address
+	 * @param address
+	 * @return
+	 */
+	private static int getChunk(final long address) {
+		return (int) (address >>> 32);
+	}
+
+	/**
+	 * Get the offset of the address
+	 * @param address
+	 * @return
+	 */
+	private static int getOffset(final long address) {
+		return (int) address;
+	}
+
+	/**
+	 * Convert the chunk and the offset into an address
+	 * @param chunk
+	 * @param offset
+	 * @return
+	 */
+	private static long toAddress(final int chunk, final int offset) {
+		return ((long) chunk << 32) | offset;
+	}
+
+	@Override
+	public String toString() {
+		return "OffHeapArena [chunkSize=" + chunkSize + ", allocatedBytes=" + allocatedBytes.get() + "]";
+	}
+}
@@ -0,0 +1,716 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *******************************************************************************/
+package org.bboxdb.storage.memtable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.bboxdb.commons.math.Hyperrectangle;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.entity.DeletedTuple;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.sstable.spatialindex.SpatialIndexBuilder;
+import org.bboxdb.storage.sstable.spatialindex.SpatialIndexBuilderFactory;
+import org.bboxdb.storage.sstable.spatialindex.SpatialIndexEntry;
+import org.bboxdb.storage.util.TupleHelper;
+import org.bboxdb.storage.wal.WriteAheadLogWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A memtable that stores the serialized tuples in direct memory and
+ * indexes them with a concurrent skiplist, ordered by key and version.
+ * Tuples can be inserted by multiple threads without locking.
+ *
+ * The spatial index is not thread safe. The writers only queue their
+ * index entries, the entries are added to the index by the next spatial
+ * query, which holds the lock of the index.
+ */
+public class OffHeapMemtable implements MemtableTupleStore {
+
+	/**
+	 * The name of the corresponding table
+	 */
+	private final TupleStoreName table;
+
+	/**
+	 * The memory for the serialized tuples
+	 */
+	private final OffHeapArena arena;
+
+	/**
+	 * The address of the tuple at position n
+	 */
+	private final AtomicLongArray addresses;
+
+	/**
+	 * The key and version ordered index
+	 */
+	private final ConcurrentSkipListSet<MemtableKey> keyIndex;
+
+	/**
+	 * The spatial index
+	 */
+	private final SpatialIndexBuilder spatialIndexBuilder;
+
+	/**
+	 * The entries that are not added to the spatial index
+	 */
+	private final Queue<SpatialIndexEntry> pendingSpatialIndexEntries;
+
+	/**
+	 * The next free position
+	 */
+	private final AtomicInteger nextPosition;
+
+	/**
+	 * The number of stored tuples
+	 */
+	private final AtomicInteger storedTuples;
+
+	/**
+	 * Maximal number of entries keep in memory
+	 */
+	private final int maxEntries;
+
+	/**
+	 * Maximal size of memtable in bytes
+	 */
+	private final long maxSizeInMemory;
+
+	/**
+	 * Current memory size in bytes
+	 */
+	private final AtomicLong sizeInMemory;
+
+	/**
+	 * The timestamp when the memtable is created
+	 */
+	private final long createdTimestamp;
+
+	/**
+	 * The oldest tuple
+	 */
+	private final AtomicLong oldestTupleTimestamp;
+
+	/**
+	 * The newest tuple
+	 */
+	private final AtomicLong newestTupleTimestamp;
+
+	/**
+	 * The newest inserted tuple
+	 */
+	private final AtomicLong newestInsertedTimestamp;
+
+	/**
+	 * The reference counter, the value DELETED marks a released memtable
+	 */
+	private final AtomicInteger usage;
+
+	/**
+	 * Is a deletion performed after (usage == 0)
+	 */
+	private volatile boolean pendingDelete;
+
+	/**
+	 * The write ahead log writer
+	 */
+	private final WriteAheadLogWriter walWriter;
+
+	/**
+	 * The amount of positions that are available for concurrent writers,
+	 * which have seen a non full memtable
+	 */
+	public final static int CONCURRENT_WRITE_RESERVE = 1024;
+
+	/**
+	 * The value of a not published position
+	 */
+	private final static long UNPUBLISHED = -1;
+
+	/**
+	 * The value of a position, which was reserved by a failed write
+	 */
+	private final static long FAILED = -2;
+
+	/**
+	 * The usage value of a released memtable
+	 */
+	private final static int DELETED = -1;
+
+	/**
+	 * The Logger
+	 */
+	private final static Logger logger = LoggerFactory.getLogger(OffHeapMemtable.class);
+
+	public OffHeapMemtable(final TupleStoreName table, final int entries, final long maxSizeInMemory,
+			final WriteAheadLogWriter walWriter) {
+
+		this.table = table;
+		this.maxEntries = entries;
+		this.maxSizeInMemory = maxSizeInMemory;
+		this.walWriter = walWriter;
+
+		this.arena = new OffHeapArena();
+		this.addresses = new AtomicLongArray(entries + CONCURRENT_WRITE_RESERVE);
+		this.keyIndex = new ConcurrentSkipListSet<>();
+		this.nextPosition = new AtomicInteger(0);
+		this.storedTuples = new AtomicInteger(0);
+		this.sizeInMemory = new AtomicLong(0);
+
+		this.spatialIndexBuilder = SpatialIndexBuilderFactory.getInstance();
+		this.pendingSpatialIndexEntries = new ConcurrentLinkedQueue<>();
+
+		this.createdTimestamp = System.currentTimeMillis();
+		this.oldestTupleTimestamp = new AtomicLong(-1);
+		this.newestTupleTimestamp = new AtomicLong(-1);
+		this.newestInsertedTimestamp = new AtomicLong(-1);
+
+		this.usage = new AtomicInteger(0);
+		this.pendingDelete = false;
+
+		resetAddresses();
+	}
+
+	@Override
+	public void init() {
+		logger.debug("Initializing a new off heap memtable for table: {}", table.getFullname());
+	}
+
+	@Override
+	public void shutdown() {
+
+	}
+
+	@Override
+	public void put(final Tuple tuple) throws StorageManagerException {
+		if(! tryPut(tuple)) {
+			throw new StorageManagerException("Unable to store a new tuple, all memtable slots are full");
+		}
+	}
+
+	@Override
+	public boolean tryPut(final Tuple tuple) throws StorageManagerException {
+
+		assert (usage.get() > 0);
+
+		final byte[] tupleBytes = serializeTuple(tuple);
+
+		// Reserve the slot before the tuple is written to the WAL
+		final int position = reservePosition();
+
+		if(position == -1) {
+			return false;
+		}
+
+		try {
+			if(walWriter != null) {
+				walWriter.addTuple(tuple);
+			}
+
+			final long address = arena.allocate(tupleBytes.length);
+			arena.write(address, tupleBytes);
+			addresses.set(position, address);
+		} catch(StorageManagerException | RuntimeException e) {
+			addresses.set(position, FAILED);
+			throw e;
+		}
+
+		keyIndex.add(new MemtableKey(tuple.getKey(), tuple.getVersionTimestamp(), position));
+		pendingSpatialIndexEntries.add(new SpatialIndexEntry(tuple.getBoundingBox(), position));
+
+		sizeInMemory.addAndGet(tuple.getSize());
+		updateTimestamps(tuple);
+		storedTuples.incrementAndGet();
+
+		return true;
+	}
+
+	/**
+	 * Reserve the next free position
+	 * @return the position or -1 if all positions are used
+	 */
+	private int reservePosition() {
+		while(true) {
+			final int position = nextPosition.get();
+
+			if(position >= addresses.length()) {
+				return -1;
+			}
+
+			if(nextPosition.compareAndSet(position, position + 1)) {
+				return position;
+			}
+		}
+	}
+
+	/**
+	 * Serialize the tuple
+	 * @param tuple
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	private byte[] serializeTuple(final Tuple tuple) throws StorageManagerException {
+		try {
+			return TupleHelper.tupleToBytes(tuple);
+		} catch (IOException e) {
+			throw new StorageManagerException(e);
+		}
+	}
+
+	/**
+	 * Update the oldest and newest timestamps
+	 * @param tuple
+	 */
+	private void updateTimestamps(final Tuple tuple) {
+		final long versionTimestamp = tuple.getVersionTimestamp();
+
+		oldestTupleTimestamp.accumulateAndGet(versionTimestamp,
+				(old, ts) -> (old == -1) ? ts : Math.min(old, ts));
+
+		newestTupleTimestamp.accumulateAndGet(versionTimestamp,
+				(old, ts) -> (old == -1) ? ts : Math.max(old, ts));
+
+		newestInsertedTimestamp.accumulateAndGet(tuple.getReceivedTimestamp(), Math::max);
+	}
+
+	/**
+	 * Decode the tuple at the given position. A position that is reserved
+	 * but not published is currently written by another thread.
+	 * @param position
+	 * @return the tuple or null, if the write of the position has failed
+	 */
+	private Tuple decodeTuple(final int position) {
+		long address = addresses.get(position);
+
+		while(address == UNPUBLISHED) {
+			if(position >= nextPosition.get()) {
+				throw new IllegalStateException("Position " + position + " is not reserved, "
+						+ "the memtable was cleared");
+			}
+
+			Thread.yield();
+			address = addresses.get(position);
+		}
+
+		if(address == FAILED) {
+			return null;
+		}
+
+		try {
+			return TupleHelper.decodeTuple(arena.getView(address));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Get the number of reserved positions
+	 * @return
+	 */
+	private int getReservedPositions() {
+		return Math.min(nextPosition.get(), addresses.length());
+	}
+
+	/**
+	 * Get all versions of the tuple for key
+	 */
+	@Override
+	public List<Tuple> get(final String key) {
+
+		assert (usage.get() > 0) : "Usage is 0";
+
+		final List<Tuple> resultList = new ArrayList<>();
+
+		final MemtableKey fromKey = new MemtableKey(key, Long.MIN_VALUE, Integer.MIN_VALUE);
+		final MemtableKey toKey = new MemtableKey(key, Long.MAX_VALUE, Integer.MAX_VALUE);
+
+		for(final MemtableKey memtableKey : keyIndex.subSet(fromKey, true, toKey, true)) {
+			resultList.add(decodeTuple(memtableKey.getPosition()));
+		}
+
+		return resultList;
+	}
+
+	/**
+	 * Delete a tuple, this is implemented by inserting a DeletedTuple object
+	 */
+	@Override
+	public void delete(final String key, final long timestamp) throws StorageManagerException {
+		assert (usage.get() > 0);
+
+		final Tuple deleteTuple = new DeletedTuple(key, timestamp);
+		put(deleteTuple);
+	}
+
+	/**
+	 * Get a sorted list with all tuples. The skiplist is already
+	 * ordered by key and version, so no sort is needed.
+	 */
+	@Override
+	public List<Tuple> getSortedTupleList() {
+		assert (usage.get() > 0);
+
+		final List<Tuple> resultList = new ArrayList<>(storedTuples.get());
+
+		for(final MemtableKey memtableKey : keyIndex) {
+			resultList.add(decodeTuple(memtableKey.getPosition()));
+		}
+
+		return resultList;
+	}
+
+	/**
+	 * Clean the whole memtable
+	 */
+	@Override
+	public void clear() {
+		logger.debug("Clear on off heap memtable {} called", table);
+
+		keyIndex.clear();
+		pendingSpatialIndexEntries.clear();
+		resetAddresses();
+		nextPosition.set(0);
+		storedTuples.set(0);
+		sizeInMemory.set(0);
+		arena.clear();
+	}
+
+	/**
+	 * Mark all positions as unpublished
+	 */
+	private void resetAddresses() {
+		for(int i = 0; i < addresses.length(); i++) {
+			addresses.set(i, UNPUBLISHED);
+		}
+	}
+
+	@Override
+	public boolean isFull() {
+
+		// Check size of the table
+		if(sizeInMemory.get() >= maxSizeInMemory) {
+			return true;
+		}
+
+		// Check number of entries
+		if(nextPosition.get() >= maxEntries) {
+			return true;
+		}
+
+		return false;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return storedTuples.get() == 0;
+	}
+
+	@Override
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	@Override
+	public long getSize() {
+		return sizeInMemory.get();
+	}
+
+	/**
+	 * Get the amount of allocated direct memory
+	 * @return
+	 */
+	public long getAllocatedOffHeapBytes() {
+		return arena.getAllocatedBytes();
+	}
+
+	@Override
+	public long getCreatedTimestamp() {
+		return createdTimestamp;
+	}
+
+	@Override
+	public boolean isConcurrentWriteSupported() {
+		return true;
+	}
+
+	@Override
+	public String getServicename() {
+		return "Off heap memtable";
+	}
+
+	@Override
+	public Iterator<Tuple> iterator() {
+
+		assert (usage.get() > 0);
+
+		return new Iterator<Tuple>() {
+
+			private int entry = 0;
+			private final int lastEntry = getReservedPositions();
+			private Tuple nextTuple = null;
+
+			@Override
+			public boolean hasNext() {
+
+				// Skip the positions of failed writes
+				while(nextTuple == null && entry < lastEntry) {
+					nextTuple = decodeTuple(entry);
+					entry++;
+				}
+
+				return nextTuple != null;
+			}
+
+			@Override
+			public Tuple next() {
+
+				if(! hasNext()) {
+					throw new NoSuchElementException("Requesting wrong position: " + entry + " of " + lastEntry);
+				}
+
+				final Tuple tuple = nextTuple;
+				nextTuple = null;
+				return tuple;
+			}
+
+			@Override
+			public void remove() {
+				throw new IllegalStateException("Remove is not supported");
+			}
+		};
+	}
+
+	@Override
+	public long getNewestTupleInsertedTimestamp() {
+		if(isEmpty()) {
+			return System.currentTimeMillis();
+		}
+
+		return newestInsertedTimestamp.get();
+	}
+
+	@Override
+	public long getOldestTupleVersionTimestamp() {
+		return oldestTupleTimestamp.get();
+	}
+
+	@Override
+	public long getNewestTupleVersionTimestamp() {
+		return newestTupleTimestamp.get();
+	}
+
+	@Override
+	public void deleteOnClose() {
+		logger.debug("deleteOnClose called and we have {} references", usage.get());
+
+		pendingDelete = true;
+
+		if(usage.compareAndSet(0, DELETED)) {
+			releaseMemtable();
+		}
+	}
+
+	@Override
+	public boolean acquire() {
+		while(true) {
+			if(pendingDelete == true) {
+				return false;
+			}
+
+			final int references = usage.get();
+
+			if(references == DELETED) {
+				return false;
+			}
+
+			if(usage.compareAndSet(references, references + 1)) {
+				return true;
+			}
+		}
+	}
+
+	@Override
+	public void release() {
+		assert (usage.get() > 0);
+
+		final int references = usage.decrementAndGet();
+
+		logger.debug("Release called and we have {} references", references);
+
+		// Only the thread that takes the usage from 0 to DELETED releases the memtable
+		if(references == 0 && pendingDelete && usage.compareAndSet(0, DELETED)) {
+			releaseMemtable();
+		}
+	}
+
+	/**
+	 * Release the memtable, no further references can be acquired. The direct
+	 * memory is freed immediately, no reader can access the arena anymore.
+	 */
+	private void releaseMemtable() {
+		keyIndex.clear();
+		pendingSpatialIndexEntries.clear();
+		storedTuples.set(0);
+		sizeInMemory.set(0);
+		arena.release();
+
+		try {
+			if(walWriter != null) {
+				walWriter.close();
+				walWriter.deleteFile();
+			}
+		} catch (IOException e) {
+			logger.error("Got exception while closing WAL", e);
+		}
+	}
+
+	@Override
+	public String getInternalName() {
+		return table.getFullname() + " / " + createdTimestamp;
+	}
+
+	@Override
+	public TupleStoreName getTupleStoreName() {
+		return table;
+	}
+
+	@Override
+	public long getNumberOfTuples() {
+		return storedTuples.get();
+	}
+
+	@Override
+	public Tuple getTupleAtPosition(final long position) {
+		assert (usage.get() > 0);
+
+		return decodeTuple((int) position);
+	}
+
+	@Override
+	public Iterator<Tuple> getAllTuplesInBoundingBox(final Hyperrectangle boundingBox) {
+		assert (usage.get() > 0);
+
+		final List<? extends SpatialIndexEntry> matchingKeys;
+
+		synchronized (spatialIndexBuilder) {
+			SpatialIndexEntry pendingEntry;
+
+			while((pendingEntry = pendingSpatialIndexEntries.poll()) != null) {
+				spatialIndexBuilder.insert(pendingEntry);
+			}
+
+			matchingKeys = spatialIndexBuilder.getEntriesForRegion(boundingBox);
+		}
+
+		final Iterator<? extends SpatialIndexEntry> keyIterator = matchingKeys.iterator();
+
+		return new Iterator<Tuple>() {
+
+			@Override
+			public boolean hasNext() {
+				return keyIterator.hasNext();
+			}
+
+			@Override
+			public Tuple next() {
+				final SpatialIndexEntry entry = keyIterator.next();
+				return decodeTuple(entry.getValue());
+			}
+		};
+	}
+
+	@Override
+	public boolean isPersistent() {
+		return false;
+	}
+
+	@Override
+	public boolean isDeletePending() {
+		return pendingDelete;
+	}
+
+	@Override
+	public String toString() {
+		return "OffHeapMemtable [table=" + table.getFullname() + ", storedTuples=" + storedTuples.get()
+				+ ", sizeInMemory=" + sizeInMemory.get() + ", createdTimestamp="
+				+ createdTimestamp + ", oldestTupleTimestamp="
+				+ oldestTupleTimestamp.get() + ", newestTupleTimestamp="
+				+ newestTupleTimestamp.get() + ", pendingDelete=" + pendingDelete
+				+ ", arena=" + arena + "]";
+	}
+
+	/**
+	 * The skiplist entry, ordered by key, version and position
+	 */
+	private static class MemtableKey implements Comparable<MemtableKey> {
+
+		/**
+		 * The key of the tuple
+		 */
+		private final String key;
+
+		/**
+		 * The version of the tuple
+		 */
+		private final long version;
+
+		/**
+		 * The position of the tuple
+		 */
+		private final int position;
+
+		public MemtableKey(final String key, final long version, final int position) {
+			this.key = key;
+			this.version = version;
+			this.position = position;
+		}
+
+		public int getPosition() {
+			return position;
+		}
+
+		@Override
+		public int compareTo(final MemtableKey other) {
+			final int keyCompare = key.compareTo(other.key);
+
+			if(keyCompare != 0) {
+				return keyCompare;
+			}
+
+			final int versionCompare = Long.compare(version, other.version);
+
+			if(versionCompare != 0) {
+				return versionCompare;
+			}
+
+			return Integer.compare(position, other.position);
+		}
+	}
+}
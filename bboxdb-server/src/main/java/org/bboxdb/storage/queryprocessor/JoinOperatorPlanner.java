@@ -0,0 +1,123 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.queryprocessor;
+
+import java.util.List;
+
+import org.bboxdb.commons.math.Hyperrectangle;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.queryprocessor.operator.IndexedSpatialJoinOperator;
+import org.bboxdb.storage.queryprocessor.operator.Operator;
+import org.bboxdb.storage.queryprocessor.operator.SpatialIndexReadOperator;
+import org.bboxdb.storage.queryprocessor.operator.SpatialSweepJoinOperator;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Builds the operator tree for a spatial join. For each join, the indexed 
+ * nested loop join or the plane sweep join is chosen by the cardinality of 
+ * the inputs. The indexed nested loop join performs one index lookup on the 
+ * inner table per outer tuple, the sweep join reads both inputs only once.
+ */
+public class JoinOperatorPlanner {
+	
+	/**
+	 * The costs of an index lookup compared to reading a tuple in a table scan
+	 */
+	public final static long INDEX_LOOKUP_COSTS = 100;
+	
+	/**
+	 * The Logger
+	 */
+	private final static Logger logger = LoggerFactory.getLogger(JoinOperatorPlanner.class);
+
+	/**
+	 * Build the join operator tree for the tuple stores
+	 * 
+	 * @param storageManager
+	 * @param boundingBox - the bounding box for the first tuple store
+	 * @return
+	 */
+	public static Operator buildJoinOperatorTree(final List<TupleStoreManager> storageManager,
+			final Hyperrectangle boundingBox) {
+		
+		if(storageManager.size() <= 1) {
+			throw new IllegalArgumentException("This operator tree needs more than one storage manager");
+		}
+		
+		Operator operator = new SpatialIndexReadOperator(storageManager.get(0), boundingBox);
+		long outerCardinality = getCardinality(storageManager.get(0));
+		
+		for(int i = 1; i < storageManager.size(); i++) {
+			final TupleStoreManager innerStorageManager = storageManager.get(i);
+			final SpatialIndexReadOperator indexReader = new SpatialIndexReadOperator(innerStorageManager);
+			final long innerCardinality = getCardinality(innerStorageManager);
+			
+			if(isSweepJoinPreferred(outerCardinality, innerCardinality)) {
+				logger.debug("Using sweep join for {} (outer {} / inner {} tuples)", 
+						innerStorageManager.getTupleStoreName(), outerCardinality, innerCardinality);
+				operator = new SpatialSweepJoinOperator(operator, indexReader);
+			} else {
+				logger.debug("Using indexed join for {} (outer {} / inner {} tuples)", 
+						innerStorageManager.getTupleStoreName(), outerCardinality, innerCardinality);
+				operator = new IndexedSpatialJoinOperator(operator, indexReader);
+			}
+			
+			// The result of a spatial join is estimated with the size of the bigger input 
+			outerCardinality = Math.max(outerCardinality, innerCardinality);
+		}
+		
+		return operator;
+	}
+	
+	/**
+	 * Is the sweep join cheaper than the indexed nested loop join? 
+	 * 
+	 * @param outerCardinality
+	 * @param innerCardinality
+	 * @return
+	 */
+	public static boolean isSweepJoinPreferred(final long outerCardinality, final long innerCardinality) {
+		
+		// Unknown cardinality, the indexed join don't need to read the whole inner table
+		if(outerCardinality < 0 || innerCardinality < 0) {
+			return false;
+		}
+		
+		final long indexedJoinCosts = outerCardinality * INDEX_LOOKUP_COSTS;
+		final long sweepJoinCosts = outerCardinality + innerCardinality;
+		
+		return sweepJoinCosts < indexedJoinCosts;
+	}
+
+	/**
+	 * Get the amount of tuples in the tuple store
+	 * @param tupleStoreManager
+	 * @return the amount of tuples or -1 if the amount is unknown
+	 */
+	private static long getCardinality(final TupleStoreManager tupleStoreManager) {
+		try {
+			return tupleStoreManager.getNumberOfTuples();
+		} catch (StorageManagerException e) {
+			logger.warn("Unable to get the number of tuples for {}", 
+					tupleStoreManager.getTupleStoreName(), e);
+			return -1;
+		}
+	}
+}
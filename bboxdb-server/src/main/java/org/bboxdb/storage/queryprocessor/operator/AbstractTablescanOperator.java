@@ -24,16 +24,23 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
+import org.bboxdb.commons.DuplicateResolver;
+import org.bboxdb.commons.SortedIteratorMerger;
 import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.JoinedTuple;
 import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreConfiguration;
 import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.sstable.duplicateresolver.TupleDuplicateResolverFactory;
 import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreAquirer;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
+import org.bboxdb.storage.util.TupleHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.prometheus.client.Summary;
+
 public abstract class AbstractTablescanOperator implements Operator {
 	
 	private final class TablescanIterator implements Iterator<JoinedTuple> {
@@ -153,12 +160,182 @@ public abstract class AbstractTablescanOperator implements Operator {
 			return nextTuples.remove(0);
 		}
 	}
+	
+	/**
+	 * Merges the key sorted iterators of all tuple stores and resolves the 
+	 * versions of a key while the tuples stream through. Only usable for 
+	 * tables that keep one version per key.
+	 */
+	private final class StreamingTablescanIterator implements Iterator<JoinedTuple> {
+		
+		/**
+		 * The tuple stores of the scan
+		 */
+		protected final List<ReadOnlyTupleStore> tupleStores;
+		
+		/**
+		 * The merged tuples of all tuple stores, one tuple per key
+		 */
+		protected final Iterator<Tuple> mergedIterator;
+		
+		/**
+		 * The name of the tuple store
+		 */
+		protected final String tupleStorename;
+		
+		/**
+		 * The versions of the current key
+		 */
+		protected final List<Tuple> tupleVersions = new ArrayList<>(1);
+
+		/**
+		 * The next precomputed tuple
+		 */
+		protected JoinedTuple nextTuple = null;
+		
+		/**
+		 * Contains the merged scan all versions of a key
+		 */
+		protected final boolean scanComplete;
+		
+		public StreamingTablescanIterator() {
+			this.tupleStores = new ArrayList<>(unprocessedStorages);
+			this.tupleStores.addAll(prunedStorages);
+			this.tupleStorename = tupleStoreManager.getTupleStoreName().getFullnameWithoutPrefix();
+			this.scanComplete = isScanComplete() && prunedStorages.isEmpty();
+			
+			final List<Iterator<Tuple>> iterators = new ArrayList<>(unprocessedStorages.size());
+			
+			for(final ReadOnlyTupleStore tupleStore : unprocessedStorages) {
+				final Iterator<Tuple> iterator = setupNewTuplestore(tupleStore);
+				
+				if(iterator == null) {
+					continue;
+				}
+				
+				// SSTables are written in key order, the memtables need to be sorted
+				if(tupleStore.isPersistent()) {
+					iterators.add(iterator);
+				} else {
+					iterators.add(getSortedIterator(iterator));
+				}
+			}
+			
+			unprocessedStorages.clear();
+			
+			final DuplicateResolver<Tuple> resolver = TupleDuplicateResolverFactory.build(
+					tupleStoreManager.getTupleStoreConfiguration());
+			
+			this.mergedIterator = new SortedIteratorMerger<>(iterators, 
+					TupleHelper.TUPLE_KEY_COMPARATOR, resolver).iterator();
+		}
+		
+		/**
+		 * Sort the tuples of the iterator by key
+		 * @param iterator
+		 * @return
+		 */
+		private Iterator<Tuple> getSortedIterator(final Iterator<Tuple> iterator) {
+			final List<Tuple> tuples = new ArrayList<>();
+			iterator.forEachRemaining(tuples::add);
+			tuples.sort(TupleHelper.TUPLE_KEY_COMPARATOR);
+			return tuples.iterator();
+		}
+		
+		/**
+		 * Fetch the next tuple from the merged iterator
+		 * @throws StorageManagerException
+		 */
+		protected void setupNextTuple() throws StorageManagerException {
+			if(ready == false) {
+				throw new IllegalStateException("Iterator is not ready");
+			}
+			
+			while(nextTuple == null && mergedIterator.hasNext()) {
+				Tuple tuple = mergedIterator.next();
+				
+				if(! scanComplete) {
+					tuple = getMostRecentVersion(tuple);
+				}
+				
+				tupleVersions.clear();
+				tupleVersions.add(tuple);
+				filterTupleVersions(tupleVersions);
+				
+				if(! tupleVersions.isEmpty()) {
+					nextTuple = new JoinedTuple(tupleVersions.get(0), tupleStorename);
+				}
+			}
+		}
+
+		/**
+		 * The scan returns only a part of the tuples of a tuple store or skips 
+		 * pruned tuple stores, a newer version of the tuple (e.g., a moved or 
+		 * deleted tuple) can be stored in a tuple store that has not returned 
+		 * the key. Only the tuple stores that contain newer tuples than the 
+		 * found version need to be checked.
+		 * 
+		 * @param tuple
+		 * @return
+		 * @throws StorageManagerException
+		 */
+		private Tuple getMostRecentVersion(final Tuple tuple) throws StorageManagerException {
+			
+			Tuple mostRecentTuple = tuple;
+			
+			for(final ReadOnlyTupleStore tupleStore : tupleStores) {
+				if(tupleStore.getNewestTupleVersionTimestamp() <= mostRecentTuple.getVersionTimestamp()) {
+					continue;
+				}
+				
+				for(final Tuple storedTuple : tupleStore.get(tuple.getKey())) {
+					mostRecentTuple = TupleHelper.returnMostRecentTuple(mostRecentTuple, storedTuple);
+				}
+			}
+			
+			return mostRecentTuple;
+		}
+
+		@Override
+		public boolean hasNext() {
+			try {
+				if(nextTuple == null) {
+					setupNextTuple();
+				}
+			} catch (StorageManagerException e) {
+				logger.error("Got an exception while locating next tuple", e);
+			}
+			
+			return nextTuple != null;
+		}
+
+		@Override
+		public JoinedTuple next() {
+
+			if(ready == false) {
+				throw new IllegalStateException("Iterator is not ready");
+			}
+			
+			if(nextTuple == null) {
+				throw new IllegalStateException("Next tuple is empty, did you really call hasNext() before?");
+			}
+			
+			final JoinedTuple resultTuple = nextTuple;
+			nextTuple = null;
+			return resultTuple;
+		}
+	}
 
 	/**
 	 * The unprocessed storages
 	 */
 	protected final List<ReadOnlyTupleStore> unprocessedStorages;
 
+	/**
+	 * The storages that are skipped because of their metadata
+	 */
+	protected final List<ReadOnlyTupleStore> prunedStorages;
+
 	/**
 	 * The aquired storages
 	 */
@@ -178,6 +355,23 @@ public abstract class AbstractTablescanOperator implements Operator {
 	 * Is the iterator ready?
 	 */
 	protected boolean ready;
+	
+	/**
+	 * Only tuple stores with a newer version timestamp are scanned
+	 */
+	protected long newerAsVersionTimestamp = Long.MIN_VALUE;
+	
+	/**
+	 * Only tuple stores with a newer inserted timestamp are scanned
+	 */
+	protected long newerAsInsertedTimestamp = Long.MIN_VALUE;
+	
+	/**
+	 * The amount of pruned tuple stores per scan
+	 */
+	private final static Summary prunedTupleStores = Summary.build()
+			.name("bboxdb_query_pruned_tuplestores")
+			.help("Tuple stores per table scan that are skipped because of their metadata").register();
 
 	/**
 	 * The Logger
@@ -188,6 +382,7 @@ public abstract class AbstractTablescanOperator implements Operator {
 		this.tupleStoreManager = tupleStoreManager;
 		this.ready = false;
 		this.unprocessedStorages = new LinkedList<ReadOnlyTupleStore>();
+		this.prunedStorages = new ArrayList<>();
 		this.seenTuples = new HashSet<>();
 	}
 	
@@ -200,9 +395,11 @@ public abstract class AbstractTablescanOperator implements Operator {
 		
 		if(tupleStoreAquirer != null) {
 			tupleStoreAquirer.close();
+			tupleStoreAquirer = null;
 		}
 		
 		unprocessedStorages.clear();
+		prunedStorages.clear();
 		seenTuples.clear();
 	}
 
@@ -214,7 +411,16 @@ public abstract class AbstractTablescanOperator implements Operator {
 		try {
 			close();
 			tupleStoreAquirer = new TupleStoreAquirer(tupleStoreManager);
-			unprocessedStorages.addAll(tupleStoreAquirer.getTupleStores());
+			
+			for(final ReadOnlyTupleStore tupleStore : tupleStoreAquirer.getTupleStores()) {
+				if(isTupleStoreRelevant(tupleStore)) {
+					unprocessedStorages.add(tupleStore);
+				} else {
+					prunedStorages.add(tupleStore);
+				}
+			}
+			
+			prunedTupleStores.observe(prunedStorages.size());
 			ready = true;		
 		} catch (StorageManagerException e) {
 			logger.error("Unable to aquire tables", e);
@@ -222,6 +428,42 @@ public abstract class AbstractTablescanOperator implements Operator {
 		}
 	}
 
+	/**
+	 * Can the tuple store contain tuples for the scan. The decision is 
+	 * based on the metadata of the tuple store.
+	 * 
+	 * @param tupleStore
+	 * @return
+	 */
+	protected boolean isTupleStoreRelevant(final ReadOnlyTupleStore tupleStore) {
+		
+		if(tupleStore.getNewestTupleVersionTimestamp() <= newerAsVersionTimestamp) {
+			return false;
+		}
+		
+		if(tupleStore.getNewestTupleInsertedTimestamp() <= newerAsInsertedTimestamp) {
+			return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Only tuple stores with tuples newer as the version timestamp are scanned
+	 * @param newerAsVersionTimestamp
+	 */
+	public void setNewerAsVersionTimestamp(final long newerAsVersionTimestamp) {
+		this.newerAsVersionTimestamp = newerAsVersionTimestamp;
+	}
+	
+	/**
+	 * Only tuple stores with tuples newer as the inserted timestamp are scanned
+	 * @param newerAsInsertedTimestamp
+	 */
+	public void setNewerAsInsertedTimestamp(final long newerAsInsertedTimestamp) {
+		this.newerAsInsertedTimestamp = newerAsInsertedTimestamp;
+	}
+	
 	/**
 	 * Get the tuple store name
 	 * @return
@@ -243,10 +485,38 @@ public abstract class AbstractTablescanOperator implements Operator {
 	 */
 	protected abstract void filterTupleVersions(final List<Tuple> tupleVersions);
 	
+	/**
+	 * Does the iterator of a tuple store return all tuples of the store. In 
+	 * this case, all versions of a key are part of the merged scan.
+	 * @return
+	 */
+	protected boolean isScanComplete() {
+		return false;
+	}
+	
+	/**
+	 * Can the tuple stores be scanned as a merged stream. Tables that keep
+	 * duplicates or multiple versions use a key lookup for each found tuple.
+	 * @return
+	 */
+	protected boolean isStreamingScanSupported() {
+		final TupleStoreConfiguration configuration = tupleStoreManager.getTupleStoreConfiguration();
+		
+		if(configuration == null) {
+			return false;
+		}
+		
+		return ! configuration.isAllowDuplicates() && configuration.getVersions() == 0;
+	}
+	
 	public Iterator<JoinedTuple> iterator() {
 
 		aquireStorage();
 		
+		if(ready && isStreamingScanSupported()) {
+			return new StreamingTablescanIterator();
+		}
+		
 		return new TablescanIterator();
 	}
 }
@@ -39,4 +39,9 @@ public class FullTablescanOperator extends AbstractTablescanOperator {
 	protected void filterTupleVersions(List<Tuple> tupleVersions) {
 		// Do nothing
 	}
+	
+	@Override
+	protected boolean isScanComplete() {
+		return true;
+	}
 }
@@ -40,6 +40,11 @@ public class NewerAsInsertTimeSeclectionOperator implements Operator {
 	public NewerAsInsertTimeSeclectionOperator(final long timestamp, final Operator operator) {
 		this.timestamp = timestamp;
 		this.operator = operator;
+		
+		// Skip the tuple stores that contain only older tuples
+		if(operator instanceof AbstractTablescanOperator) {
+			((AbstractTablescanOperator) operator).setNewerAsInsertedTimestamp(timestamp);
+		}
 	}
 
 	@Override
@@ -22,6 +22,8 @@ import java.util.List;
 
 import org.bboxdb.commons.math.Hyperrectangle;
 import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreMetaData;
+import org.bboxdb.storage.sstable.reader.SSTableFacade;
 import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
 
@@ -51,6 +53,34 @@ public class SpatialIndexReadOperator extends AbstractTablescanOperator {
 		this.boundingBox = boundingBox;
 	}
 
+	@Override
+	protected boolean isTupleStoreRelevant(final ReadOnlyTupleStore tupleStore) {
+		
+		if(! super.isTupleStoreRelevant(tupleStore)) {
+			return false;
+		}
+		
+		// Memtables are searched with their in memory spatial index
+		if(! (tupleStore instanceof SSTableFacade)) {
+			return true;
+		}
+		
+		final TupleStoreMetaData metaData = ((SSTableFacade) tupleStore).getSsTableMetadata();
+		final double[] boundingBoxData = metaData.getBoundingBoxData();
+		
+		// Metadata without a bounding box
+		if(boundingBoxData == null) {
+			return true;
+		}
+		
+		// Tuples without a bounding box are not part of the spatial index
+		if(boundingBoxData.length == 0) {
+			return false;
+		}
+		
+		return new Hyperrectangle(boundingBoxData).intersects(boundingBox);
+	}
+
 	@Override
 	protected Iterator<Tuple> setupNewTuplestore(final ReadOnlyTupleStore nextStorage) {
 		return nextStorage.getAllTuplesInBoundingBox(boundingBox);
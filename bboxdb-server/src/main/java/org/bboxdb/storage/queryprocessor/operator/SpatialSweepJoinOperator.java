@@ -0,0 +1,500 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.queryprocessor.operator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import org.bboxdb.commons.CloseableHelper;
+import org.bboxdb.commons.math.Hyperrectangle;
+import org.bboxdb.storage.entity.JoinedTuple;
+import org.bboxdb.storage.entity.Tuple;
+
+/**
+ * Joins the tuples of the stream source with the tuples of a table. Both
+ * inputs are read only once and joined with a forward plane sweep over the
+ * first dimension. Big inputs are partitioned into grid cells, a pair of
+ * tuples is only reported in the cell that contains the lower corner of
+ * the intersection (reference point), so no duplicates are produced.
+ */
+public class SpatialSweepJoinOperator implements Operator {
+	
+	/**
+	 * The desired amount of tuples per grid cell
+	 */
+	public final static int TUPLES_PER_CELL = 10_000;
+	
+	/**
+	 * The max number of dimensions that are partitioned
+	 */
+	private final static int MAX_GRID_DIMENSIONS = 2;
+
+	/**
+	 * A tuple and its bounding box
+	 */
+	private final static class SweepEntry<T> {
+		
+		/**
+		 * The tuple
+		 */
+		private final T tuple;
+		
+		/**
+		 * The bounding box
+		 */
+		private final Hyperrectangle boundingBox;
+		
+		public SweepEntry(final T tuple, final Hyperrectangle boundingBox) {
+			this.tuple = tuple;
+			this.boundingBox = boundingBox;
+		}
+		
+		public Hyperrectangle getBoundingBox() {
+			return boundingBox;
+		}
+		
+		public double getLow() {
+			return boundingBox.getCoordinateLow(0);
+		}
+		
+		public double getHigh() {
+			return boundingBox.getCoordinateHigh(0);
+		}
+	}
+	
+	private final class SweepIterator implements Iterator<JoinedTuple> {
+		
+		/**
+		 * The results of the current grid cell
+		 */
+		private final List<JoinedTuple> cellResults = new ArrayList<>();
+		
+		/**
+		 * The position in the results
+		 */
+		private int cellResultPosition = 0;
+		
+		/**
+		 * The grid cells
+		 */
+		private List<List<SweepEntry<JoinedTuple>>> outerCells;
+		
+		/**
+		 * The grid cells
+		 */
+		private List<List<SweepEntry<Tuple>>> innerCells;
+		
+		/**
+		 * The next grid cell
+		 */
+		private int nextCell = 0;
+		
+		/**
+		 * Are the inputs read
+		 */
+		private boolean inputsRead = false;
+
+		@Override
+		public boolean hasNext() {
+			
+			if(! inputsRead) {
+				readInputs();
+				inputsRead = true;
+			}
+			
+			while(cellResultPosition >= cellResults.size()) {
+				
+				if(outerCells == null || nextCell >= outerCells.size()) {
+					return false;
+				}
+				
+				cellResults.clear();
+				cellResultPosition = 0;
+				
+				final int cell = nextCell;
+				nextCell++;
+				
+				final List<SweepEntry<JoinedTuple>> outerEntries = outerCells.get(cell);
+				final List<SweepEntry<Tuple>> innerEntries = innerCells.get(cell);
+				outerCells.set(cell, null);
+				innerCells.set(cell, null);
+				
+				sweep(outerEntries, innerEntries, (o, i) -> {
+					if(grid == null || grid.isReferenceCell(cell, o.boundingBox, i.boundingBox)) {
+						cellResults.add(buildJoinedTuple(o.tuple, i.tuple));
+					}
+				});
+			}
+			
+			return true;
+		}
+
+		@Override
+		public JoinedTuple next() {
+			
+			if(cellResultPosition >= cellResults.size()) {
+				throw new IllegalArgumentException("Next tuple is null, do you forget to call hasNext()?");
+			}
+			
+			final JoinedTuple result = cellResults.get(cellResultPosition);
+			cellResults.set(cellResultPosition, null);
+			cellResultPosition++;
+			return result;
+		}
+		
+		/**
+		 * Read both inputs and assign the tuples to the grid cells
+		 */
+		private void readInputs() {
+			final List<SweepEntry<JoinedTuple>> outerEntries = new ArrayList<>();
+			final List<SweepEntry<JoinedTuple>> unboundedOuterEntries = new ArrayList<>();
+			
+			tupleStreamSource.forEachRemaining(t -> {
+				final Hyperrectangle boundingBox = t.getBoundingBox();
+				
+				if(boundingBox == null) {
+					return;
+				}
+				
+				if(boundingBox.getDimension() == 0) {
+					unboundedOuterEntries.add(new SweepEntry<>(t, boundingBox));
+				} else {
+					outerEntries.add(new SweepEntry<>(t, boundingBox));
+				}
+			});
+			
+			if(outerEntries.isEmpty() && unboundedOuterEntries.isEmpty()) {
+				return;
+			}
+			
+			// Only the inner tuples that can intersect an outer tuple are read
+			if(unboundedOuterEntries.isEmpty()) {
+				final List<Hyperrectangle> outerBoxes = outerEntries
+						.stream()
+						.map(e -> e.boundingBox)
+						.collect(Collectors.toList());
+				
+				indexReader.setBoundingBox(Hyperrectangle.getCoveringBox(outerBoxes));
+			} else {
+				indexReader.setBoundingBox(Hyperrectangle.FULL_SPACE);
+			}
+			
+			final List<SweepEntry<Tuple>> innerEntries = new ArrayList<>();
+			final List<SweepEntry<Tuple>> unboundedInnerEntries = new ArrayList<>();
+			
+			final Iterator<JoinedTuple> innerIterator = indexReader.iterator();
+			
+			while(innerIterator.hasNext()) {
+				final Tuple tuple = innerIterator.next().convertToSingleTupleIfPossible();
+				final Hyperrectangle boundingBox = tuple.getBoundingBox();
+				
+				if(boundingBox == null) {
+					continue;
+				}
+				
+				if(boundingBox.getDimension() == 0) {
+					unboundedInnerEntries.add(new SweepEntry<>(tuple, boundingBox));
+				} else {
+					innerEntries.add(new SweepEntry<>(tuple, boundingBox));
+				}
+			}
+			
+			// All inner tuples are read, release the tuple stores
+			CloseableHelper.closeWithoutException(indexReader);
+			
+			// Tuples without a bounding box intersect with all tuples
+			for(final SweepEntry<JoinedTuple> outerEntry : unboundedOuterEntries) {
+				innerEntries.forEach(i -> cellResults.add(buildJoinedTuple(outerEntry.tuple, i.tuple)));
+				unboundedInnerEntries.forEach(i -> cellResults.add(buildJoinedTuple(outerEntry.tuple, i.tuple)));
+			}
+			
+			for(final SweepEntry<Tuple> innerEntry : unboundedInnerEntries) {
+				outerEntries.forEach(o -> cellResults.add(buildJoinedTuple(o.tuple, innerEntry.tuple)));
+			}
+			
+			grid = SweepGrid.create(outerEntries, innerEntries);
+			
+			if(grid == null) {
+				outerCells = new ArrayList<>();
+				outerCells.add(outerEntries);
+				innerCells = new ArrayList<>();
+				innerCells.add(innerEntries);
+			} else {
+				outerCells = grid.partition(outerEntries);
+				innerCells = grid.partition(innerEntries);
+			}
+		}
+	}
+	
+	/**
+	 * The grid for the partitioning of big inputs
+	 */
+	private final static class SweepGrid {
+		
+		/**
+		 * The partitioned dimensions
+		 */
+		private final int dimensions;
+		
+		/**
+		 * The cells per dimension
+		 */
+		private final int cellsPerDimension;
+		
+		/**
+		 * The covering box of all tuples
+		 */
+		private final Hyperrectangle coveringBox;
+		
+		private SweepGrid(final int dimensions, final int cellsPerDimension, 
+				final Hyperrectangle coveringBox) {
+			
+			this.dimensions = dimensions;
+			this.cellsPerDimension = cellsPerDimension;
+			this.coveringBox = coveringBox;
+		}
+		
+		/**
+		 * Create the grid for the entries
+		 * @param outerEntries
+		 * @param innerEntries
+		 * @return the grid or null if the entries don't need to be partitioned
+		 */
+		public static SweepGrid create(final List<? extends SweepEntry<?>> outerEntries, 
+				final List<? extends SweepEntry<?>> innerEntries) {
+			
+			final int entries = outerEntries.size() + innerEntries.size();
+			
+			if(entries <= TUPLES_PER_CELL * 2) {
+				return null;
+			}
+			
+			final List<Hyperrectangle> boxes = new ArrayList<>(entries);
+			outerEntries.forEach(e -> boxes.add(e.getBoundingBox()));
+			innerEntries.forEach(e -> boxes.add(e.getBoundingBox()));
+			
+			final int dimension = boxes.get(0).getDimension();
+			
+			// The grid needs the same dimension for all tuples
+			if(boxes.stream().anyMatch(b -> b.getDimension() != dimension)) {
+				return null;
+			}
+			
+			final int gridDimensions = Math.min(dimension, MAX_GRID_DIMENSIONS);
+			final double cells = (double) entries / (double) TUPLES_PER_CELL;
+			final int cellsPerDimension = (int) Math.ceil(Math.pow(cells, 1.0 / gridDimensions));
+			
+			return new SweepGrid(gridDimensions, cellsPerDimension, Hyperrectangle.getCoveringBox(boxes));
+		}
+		
+		/**
+		 * Assign the entries to all cells they intersect
+		 * @param entries
+		 * @return
+		 */
+		public <T> List<List<SweepEntry<T>>> partition(final List<SweepEntry<T>> entries) {
+			
+			final int numberOfCells = (int) Math.pow(cellsPerDimension, dimensions);
+			final List<List<SweepEntry<T>>> cells = new ArrayList<>(numberOfCells);
+			
+			for(int i = 0; i < numberOfCells; i++) {
+				cells.add(new ArrayList<>());
+			}
+			
+			for(final SweepEntry<T> entry : entries) {
+				final Hyperrectangle boundingBox = entry.boundingBox;
+				final int low0 = getCell(boundingBox.getCoordinateLow(0), 0);
+				final int high0 = getCell(boundingBox.getCoordinateHigh(0), 0);
+				
+				final int low1 = (dimensions > 1) ? getCell(boundingBox.getCoordinateLow(1), 1) : 0;
+				final int high1 = (dimensions > 1) ? getCell(boundingBox.getCoordinateHigh(1), 1) : 0;
+				
+				for(int cell0 = low0; cell0 <= high0; cell0++) {
+					for(int cell1 = low1; cell1 <= high1; cell1++) {
+						cells.get(cell0 * ((dimensions > 1) ? cellsPerDimension : 1) + cell1).add(entry);
+					}
+				}
+			}
+			
+			return cells;
+		}
+		
+		/**
+		 * Is the cell responsible for the result of the two boxes? The cell
+		 * has to contain the lower corner of the intersection of the boxes.
+		 * 
+		 * @param cell
+		 * @param box1
+		 * @param box2
+		 * @return
+		 */
+		public boolean isReferenceCell(final int cell, final Hyperrectangle box1, 
+				final Hyperrectangle box2) {
+			
+			final double point0 = Math.max(box1.getCoordinateLow(0), box2.getCoordinateLow(0));
+			int referenceCell = getCell(point0, 0);
+			
+			if(dimensions > 1) {
+				final double point1 = Math.max(box1.getCoordinateLow(1), box2.getCoordinateLow(1));
+				referenceCell = referenceCell * cellsPerDimension + getCell(point1, 1);
+			}
+			
+			return referenceCell == cell;
+		}
+		
+		/**
+		 * Get the cell of the coordinate in the given dimension
+		 * @param coordinate
+		 * @param dimension
+		 * @return
+		 */
+		private int getCell(final double coordinate, final int dimension) {
+			final double low = coveringBox.getCoordinateLow(dimension);
+			final double extent = coveringBox.getExtent(dimension);
+			
+			if(extent <= 0) {
+				return 0;
+			}
+			
+			final int cell = (int) Math.floor(((coordinate - low) / extent) * cellsPerDimension);
+			
+			return Math.max(0, Math.min(cellsPerDimension - 1, cell));
+		}
+	}
+
+	/**
+	 * The stream source
+	 */
+	private final Iterator<JoinedTuple> tupleStreamSource;
+	
+	/**
+	 * The tuple stream operator
+	 */
+	private final Operator tupleStreamOperator;
+	
+	/**
+	 * The index reader
+	 */
+	private final SpatialIndexReadOperator indexReader;
+	
+	/**
+	 * The grid (null = inputs are not partitioned)
+	 */
+	private SweepGrid grid;
+
+	public SpatialSweepJoinOperator(final Operator tupleStreamOperator, 
+			final SpatialIndexReadOperator indexReader) {
+
+		this.tupleStreamOperator = tupleStreamOperator;
+		this.tupleStreamSource = tupleStreamOperator.iterator();
+		this.indexReader = indexReader;
+	}
+	
+	/**
+	 * Join the entries with a forward plane sweep over the first dimension
+	 * 
+	 * @param outerEntries
+	 * @param innerEntries
+	 * @param consumer
+	 */
+	private static void sweep(final List<SweepEntry<JoinedTuple>> outerEntries, 
+			final List<SweepEntry<Tuple>> innerEntries, 
+			final BiConsumer<SweepEntry<JoinedTuple>, SweepEntry<Tuple>> consumer) {
+		
+		outerEntries.sort(Comparator.comparingDouble(SweepEntry::getLow));
+		innerEntries.sort(Comparator.comparingDouble(SweepEntry::getLow));
+		
+		int outerPos = 0;
+		int innerPos = 0;
+		
+		while(outerPos < outerEntries.size() && innerPos < innerEntries.size()) {
+			final SweepEntry<JoinedTuple> outerEntry = outerEntries.get(outerPos);
+			final SweepEntry<Tuple> innerEntry = innerEntries.get(innerPos);
+			
+			if(outerEntry.getLow() <= innerEntry.getLow()) {
+				// Scan the inner entries that start before the outer entry ends
+				for(int i = innerPos; i < innerEntries.size(); i++) {
+					final SweepEntry<Tuple> candidate = innerEntries.get(i);
+					
+					if(candidate.getLow() > outerEntry.getHigh()) {
+						break;
+					}
+					
+					if(outerEntry.boundingBox.intersects(candidate.boundingBox)) {
+						consumer.accept(outerEntry, candidate);
+					}
+				}
+				
+				outerPos++;
+			} else {
+				// Scan the outer entries that start before the inner entry ends
+				for(int i = outerPos; i < outerEntries.size(); i++) {
+					final SweepEntry<JoinedTuple> candidate = outerEntries.get(i);
+					
+					if(candidate.getLow() > innerEntry.getHigh()) {
+						break;
+					}
+					
+					if(candidate.boundingBox.intersects(innerEntry.boundingBox)) {
+						consumer.accept(candidate, innerEntry);
+					}
+				}
+				
+				innerPos++;
+			}
+		}
+	}
+	
+	/**
+	 * Build the joined tuple
+	 * @param outerTuple
+	 * @param innerTuple
+	 * @return
+	 */
+	private JoinedTuple buildJoinedTuple(final JoinedTuple outerTuple, final Tuple innerTuple) {
+		final List<String> tupleStoreNames = outerTuple.getTupleStoreNames();
+		final List<Tuple> tuples = outerTuple.getTuples();
+		
+		tupleStoreNames.add(indexReader.getTupleStoreName().getFullnameWithoutPrefix());
+		tuples.add(innerTuple);
+
+		return new JoinedTuple(tuples, tupleStoreNames);
+	}
+
+	/**
+	 * Close all iterators
+	 */
+	@Override
+	public void close() {
+		CloseableHelper.closeWithoutException(tupleStreamOperator);
+		CloseableHelper.closeWithoutException(indexReader);
+	}
+	
+	/**
+	 * Get the query processing result
+	 * @return
+	 */
+	@Override
+	public Iterator<JoinedTuple> iterator() {
+		return new SweepIterator();	
+	}
+}
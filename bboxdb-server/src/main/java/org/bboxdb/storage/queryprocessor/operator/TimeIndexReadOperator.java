@@ -0,0 +1,87 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *******************************************************************************/
+package org.bboxdb.storage.queryprocessor.operator;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.bboxdb.commons.math.Hyperrectangle;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.sstable.reader.SSTableFacade;
+import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
+
+import com.google.common.collect.Iterators;
+
+/**
+ * Reads the tuples that are newer as the version or inserted timestamp. The
+ * timestamps are set by the time selection operators. The SSTables are read
+ * with their time index, an optional bounding box is evaluated together
+ * with the spatial index.
+ */
+public class TimeIndexReadOperator extends SpatialIndexReadOperator {
+
+	public TimeIndexReadOperator(final TupleStoreManager tupleStoreManager,
+			final Hyperrectangle boundingBox) {
+
+		super(tupleStoreManager, boundingBox);
+	}
+
+	public TimeIndexReadOperator(final TupleStoreManager tupleStoreManager) {
+		this(tupleStoreManager, Hyperrectangle.FULL_SPACE);
+	}
+
+	@Override
+	protected Iterator<Tuple> setupNewTuplestore(final ReadOnlyTupleStore nextStorage) {
+
+		if(nextStorage instanceof SSTableFacade) {
+			final SSTableFacade facade = (SSTableFacade) nextStorage;
+			final Iterator<Tuple> iterator = facade.getAllTuplesNewerAs(boundingBox,
+					newerAsVersionTimestamp, newerAsInsertedTimestamp);
+
+			// The result of the time index don't need to be filtered
+			if(facade.hasTimeIndex()) {
+				return iterator;
+			}
+
+			return Iterators.filter(iterator, t -> isNewer(t));
+		}
+
+		if(Hyperrectangle.FULL_SPACE.equals(boundingBox)) {
+			return Iterators.filter(nextStorage.iterator(), t -> isNewer(t));
+		}
+
+		return Iterators.filter(nextStorage.getAllTuplesInBoundingBox(boundingBox), t -> isNewer(t));
+	}
+
+	@Override
+	protected void filterTupleVersions(final List<Tuple> tupleVersions) {
+		super.filterTupleVersions(tupleVersions);
+		tupleVersions.removeIf(t -> ! isNewer(t));
+	}
+
+	/**
+	 * Is the tuple newer as the version and inserted timestamp
+	 * @param tuple
+	 * @return
+	 */
+	private boolean isNewer(final Tuple tuple) {
+		return tuple.getVersionTimestamp() > newerAsVersionTimestamp
+				&& tuple.getReceivedTimestamp() > newerAsInsertedTimestamp;
+	}
+}
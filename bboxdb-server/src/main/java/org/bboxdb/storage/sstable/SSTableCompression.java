@@ -0,0 +1,176 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *******************************************************************************/
+package org.bboxdb.storage.sstable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public enum SSTableCompression {
+
+	NONE("none", (byte) 0),
+	DEFLATE("deflate", (byte) 1);
+
+	/**
+	 * The string representation
+	 */
+	private final String stringValue;
+
+	/**
+	 * The byte representation in the block header
+	 */
+	private final byte byteValue;
+
+	private SSTableCompression(final String stringValue, final byte byteValue) {
+		this.stringValue = stringValue;
+		this.byteValue = byteValue;
+	}
+
+	/**
+	 * Get the string representation
+	 * @return
+	 */
+	public String getStringValue() {
+		return stringValue;
+	}
+
+	/**
+	 * Get the byte representation
+	 * @return
+	 */
+	public byte getByteValue() {
+		return byteValue;
+	}
+
+	/**
+	 * Compress the given data
+	 * @param data
+	 * @param length
+	 * @return
+	 */
+	public byte[] compress(final byte[] data, final int length) {
+
+		if(this == NONE) {
+			if(data.length == length) {
+				return data;
+			}
+			
+			final byte[] result = new byte[length];
+			System.arraycopy(data, 0, result, 0, length);
+			return result;
+		}
+
+		final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+		try {
+			deflater.setInput(data, 0, length);
+			deflater.finish();
+
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream(length);
+			final byte[] buffer = new byte[8192];
+
+			while(! deflater.finished()) {
+				final int compressed = deflater.deflate(buffer);
+				bos.write(buffer, 0, compressed);
+			}
+
+			return bos.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Decompress the given data
+	 * @param data
+	 * @param uncompressedLength
+	 * @return
+	 * @throws IOException
+	 */
+	public byte[] decompress(final byte[] data, final int uncompressedLength) throws IOException {
+
+		if(this == NONE) {
+			return data;
+		}
+
+		final Inflater inflater = new Inflater();
+
+		try {
+			inflater.setInput(data);
+
+			final byte[] result = new byte[uncompressedLength];
+			int position = 0;
+
+			while(position < uncompressedLength && ! inflater.finished()) {
+				position += inflater.inflate(result, position, uncompressedLength - position);
+
+				if(inflater.needsInput()) {
+					break;
+				}
+			}
+
+			if(position != uncompressedLength) {
+				throw new IOException("Decompressed " + position + " bytes, expected "
+						+ uncompressedLength);
+			}
+
+			return result;
+		} catch (DataFormatException e) {
+			throw new IOException(e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Convert the byte value into an enum
+	 * @param byteValue
+	 * @return
+	 * @throws IOException
+	 */
+	public static SSTableCompression fromByte(final byte byteValue) throws IOException {
+		for(final SSTableCompression compression : SSTableCompression.values()) {
+			if(compression.getByteValue() == byteValue) {
+				return compression;
+			}
+		}
+
+		throw new IOException("Unknown block compression: " + byteValue);
+	}
+
+	/**
+	 * Convert the string value into an enum
+	 * @param stringValue
+	 * @return
+	 */
+	public static SSTableCompression fromString(final String stringValue) {
+		if (stringValue == null) {
+			throw new RuntimeException("stringValue is null");
+		}
+
+		for(final SSTableCompression compression : SSTableCompression.values()) {
+			if(stringValue.equals(compression.getStringValue())) {
+				return compression;
+			}
+		}
+
+		throw new RuntimeException("Unable to convert " + stringValue + " into enum");
+	}
+}
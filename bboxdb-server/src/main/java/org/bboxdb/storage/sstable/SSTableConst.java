@@ -31,6 +31,11 @@ public class SSTableConst {
 	 */
 	public final static byte[] MAGIC_BYTES_WAL = "bboxdb-wal".getBytes();
 	
+	/**
+	 * The magic bytes at the beginning of every write ahead log file with CRC checked records
+	 */
+	public final static byte[] MAGIC_BYTES_WAL_V2 = "bboxdb-wa2".getBytes();
+	
 	/**
 	 * The magic bytes at the beginning of every SSTable index file
 	 */
@@ -41,10 +46,36 @@ public class SSTableConst {
 	 */
 	public final static byte[] MAGIC_BYTES_SPATIAL_RTREE_INDEX = "bboxdb-sidx".getBytes();
 	
+	/**
+	 * The magic bytes at the beginning of every time index file
+	 */
+	public final static byte[] MAGIC_BYTES_TIME_INDEX = "bboxdb-tidx".getBytes();
+	
+	/**
+	 * The first SSTable layout format (one tuple position per index entry)
+	 */
+	public final static short SST_VERSION_1 = 1;
+	
+	/**
+	 * The block based SSTable layout format (sparse index, one entry per block)
+	 */
+	public final static short SST_VERSION_2 = 2;
+	
 	/**
 	 * The current version of the SSTable layout format
 	 */
-	public final static short SST_VERSION = 1;
+	public final static short SST_VERSION = SST_VERSION_2;
+	
+	/**
+	 * The size of a time index entry (timestamp and tuple number)
+	 */
+	public final static int TIME_INDEX_ENTRY_SIZE = 12;
+	
+	/**
+	 * The amount of time index entries between two entries of the 
+	 * in memory directory
+	 */
+	public final static int TIME_INDEX_DIRECTORY_INTERVAL = 64;
 	
 	/**
 	 * The prefix for every SSTable file
@@ -65,6 +96,11 @@ public class SSTableConst {
 	 * The suffix for every spatial index file
 	 */
 	public final static String SST_SPATIAL_INDEX_SUFFIX = ".sidx";
+	
+	/**
+	 * The suffix for every time index file
+	 */
+	public final static String SST_TIME_INDEX_SUFFIX = ".tidx";
 
 	/**
 	 * The suffix for persistent bloom filters
@@ -101,6 +137,26 @@ public class SSTableConst {
 	 */
 	public final static int INDEX_ENTRY_BYTES = 4;
 	
+	/**
+	 * Format of the block header (version 2):
+	 * 
+	 * ---------------------------------------------------
+	 * | Compression | Uncompressed length | Stored length |
+	 * |   1 Byte    |       4 Byte        |    4 Byte     |
+	 * ---------------------------------------------------
+	 */
+	public final static int BLOCK_HEADER_BYTES = 9;
+	
+	/**
+	 * The default size of an uncompressed block (version 2)
+	 */
+	public final static int DEFAULT_BLOCK_SIZE = 4 * 1024;
+	
+	/**
+	 * The amount of decoded blocks that are cached per SSTable (version 2)
+	 */
+	public final static int BLOCK_CACHE_ENTRIES = 16;
+	
 	/**
 	 * Marker for deleted tuples
 	 */
@@ -113,6 +169,11 @@ public class SSTableConst {
 	//public final static long COMPACT_THREAD_DELAY = TimeUnit.SECONDS.toMillis(30);
 	public final static long COMPACT_THREAD_DELAY = TimeUnit.SECONDS.toMillis(10);
 	
+	/**
+	 * Max execution interval for the compact thread after failed compactions
+	 */
+	public final static long COMPACT_THREAD_MAX_DELAY = TimeUnit.MINUTES.toMillis(5);
+	
 	/**
 	 * Execution interval for the checkpoint thread
 	 */
@@ -134,13 +195,12 @@ public class SSTableConst {
 	//public final static long COMPACT_BIG_TABLE_UNTOUCHED_TIME = TimeUnit.HOURS.toMillis(1);
 	public final static long COMPACT_BIG_TABLE_UNTOUCHED_TIME = TimeUnit.MINUTES.toMillis(1);
 	
-	
-	
 	/**
-	 * The maximal size for one SSTable. SStables are mapped into memory, the JVM can only
-	 * map files up to 2 GB. Therefore the limit is set to 1.9 GB.
+	 * The min number of tuples per key range subcompaction
 	 */
-	public final static int MAX_SSTABLE_SIZE = 2040109465;
+	public final static long COMPACT_SUBCOMPACTION_MIN_TUPLES = 500_000;
+	
+	
 	
 	/**
 	 * The maximal amount of unflushed memtables per SSTable
@@ -18,7 +18,11 @@
 package org.bboxdb.storage.sstable;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 
+import org.bboxdb.commons.io.DataEncoderHelper;
 import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.TupleStoreName;
 
@@ -182,6 +186,19 @@ public class SSTableHelper {
 				+ SSTableConst.SST_SPATIAL_INDEX_SUFFIX;
 	}
 	
+	/**
+	 * The full name of the time index file for a given relation
+	 * 
+	 * @param directory
+	 * @param name
+	 * 
+	 * @return e.g. /tmp/bboxdb/data/relation1/sstable_relation1_2.tidx
+	 */
+	public static String getSSTableTimeIndexFilename(final String directory, final TupleStoreName name, final int tablenumber) {
+		return getSSTableBase(directory, name, tablenumber)
+				+ SSTableConst.SST_TIME_INDEX_SUFFIX;
+	}
+	
 	/**
 	 * The full name of the SSTable metadata file for a given relation
 	 * 
@@ -236,6 +253,16 @@ public class SSTableHelper {
 		return filename.startsWith(SSTableConst.SST_FILE_PREFIX) 
 				&& filename.endsWith(SSTableConst.SST_SPATIAL_INDEX_SUFFIX);
 	}
+	
+	/**
+	 * Belongs the given filename to a time index file?
+	 * @param filename
+	 * @return
+	 */
+	public static boolean isFileNameTimeIndex(final String filename) {
+		return filename.startsWith(SSTableConst.SST_FILE_PREFIX) 
+				&& filename.endsWith(SSTableConst.SST_TIME_INDEX_SUFFIX);
+	}
 
 	/**
 	 * Belongs the given filename to a SSTable meta file?
@@ -264,4 +291,42 @@ public class SSTableHelper {
 	public static boolean isFileNameWAL(final String filename) {
 		return filename.endsWith(SSTableConst.MEMTABLE_WAL_SUFFIX);
 	}
+	
+	/**
+	 * Read the format version of a SSTable from the key index file
+	 * 
+	 * Version 1 index files contain the positions of the tuples directly after the 
+	 * magic bytes. The first position is always the length of the SSTable magic bytes, 
+	 * so the first two bytes are zero. Newer index files contain the format version 
+	 * directly after the magic bytes.
+	 * 
+	 * @param indexFile
+	 * @return
+	 * @throws IOException 
+	 */
+	public static short getSSTableFormatVersion(final File indexFile) throws IOException {
+		
+		try (final RandomAccessFile randomAccessFile = new RandomAccessFile(indexFile, "r")) {
+			final int magicBytes = SSTableConst.MAGIC_BYTES_INDEX.length;
+			
+			// Empty version 1 index
+			if(randomAccessFile.length() < magicBytes + DataEncoderHelper.SHORT_BYTES) {
+				return SSTableConst.SST_VERSION_1;
+			}
+			
+			final byte[] versionBytes = new byte[DataEncoderHelper.SHORT_BYTES];
+			randomAccessFile.seek(magicBytes);
+			randomAccessFile.readFully(versionBytes);
+			
+			final short version = ByteBuffer.wrap(versionBytes)
+					.order(DataEncoderHelper.APPLICATION_BYTE_ORDER)
+					.getShort();
+			
+			if(version == 0) {
+				return SSTableConst.SST_VERSION_1;
+			}
+			
+			return version;
+		}
+	}
 }
@@ -18,6 +18,7 @@
 package org.bboxdb.storage.sstable;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -25,9 +26,13 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.stream.IntStream;
 
 import org.bboxdb.commons.io.DataEncoderHelper;
+import org.bboxdb.misc.BBoxDBConfiguration;
+import org.bboxdb.misc.BBoxDBConfigurationManager;
 import org.bboxdb.storage.BloomFilterBuilder;
 import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.Tuple;
@@ -93,6 +98,11 @@ public class SSTableWriter implements AutoCloseable {
 	 */
 	private File spatialIndexFile;
 	
+	/**
+	 * The time index file
+	 */
+	private File timeIndexFile;
+	
 	/**
 	 * The meta data file
 	 */
@@ -117,6 +127,51 @@ public class SSTableWriter implements AutoCloseable {
 	 * The error flag
 	 */
 	private boolean exceptionDuringWrite;
+	
+	/**
+	 * The size of an uncompressed block
+	 */
+	private final int blockSize;
+	
+	/**
+	 * The compression of the blocks
+	 */
+	private final SSTableCompression compression;
+	
+	/**
+	 * The tuples of the current block
+	 */
+	private final ByteArrayOutputStream blockTuples;
+	
+	/**
+	 * The in-block offsets of the tuples in the current block
+	 */
+	private int[] blockTupleOffsets;
+	
+	/**
+	 * The number of tuples in the current block
+	 */
+	private int blockTupleCount;
+	
+	/**
+	 * The first key of the current block
+	 */
+	private String blockFirstKey;
+	
+	/**
+	 * The number of the next tuple
+	 */
+	private int tupleNumber;
+	
+	/**
+	 * The version timestamps of the written tuples (indexed by the tuple number)
+	 */
+	private long[] versionTimestamps;
+	
+	/**
+	 * The inserted timestamps of the written tuples (indexed by the tuple number)
+	 */
+	private long[] insertedTimestamps;
 
 	/**
 	 * The amount of written tuple bytes
@@ -148,6 +203,15 @@ public class SSTableWriter implements AutoCloseable {
 		this.metadataBuilder = new SSTableMetadataBuilder();
 		this.exceptionDuringWrite = false;
 		
+		// Blocks
+		final BBoxDBConfiguration configuration = BBoxDBConfigurationManager.getConfiguration();
+		this.blockSize = configuration.getStorageSSTableBlockSize();
+		this.compression = SSTableCompression.fromString(configuration.getStorageSSTableCompression());
+		this.blockTuples = new ByteArrayOutputStream(blockSize);
+		this.blockTupleOffsets = new int[64];
+		this.blockTupleCount = 0;
+		this.tupleNumber = 0;
+		
 		// Bloom Filter
 		final String sstableBloomFilterFilename = SSTableHelper.getSSTableBloomFilterFilename(directory, name, tablenumber);
 		this.sstableBloomFilterFile = new File(sstableBloomFilterFilename);
@@ -156,7 +220,13 @@ public class SSTableWriter implements AutoCloseable {
 		// Spatial index
 		final String spatialIndexFilename =  SSTableHelper.getSSTableSpatialIndexFilename(directory, name, tablenumber);
 		this.spatialIndexFile = new File(spatialIndexFilename);
-		this.spatialIndex = SpatialIndexBuilderFactory.getInstance();
+		this.spatialIndex = SpatialIndexBuilderFactory.getBulkLoadingInstance();
+		
+		// Time index
+		final String timeIndexFilename = SSTableHelper.getSSTableTimeIndexFilename(directory, name, tablenumber);
+		this.timeIndexFile = new File(timeIndexFilename);
+		this.versionTimestamps = new long[64];
+		this.insertedTimestamps = new long[64];
 		
 		// Metadata
 		final String ssTableMetadataFilename = SSTableHelper.getSSTableMetadataFilename(directory, name, tablenumber);
@@ -201,9 +271,11 @@ public class SSTableWriter implements AutoCloseable {
 			final BufferedOutputStream sstableFileOutputStream = new BufferedOutputStream(new FileOutputStream(sstableFile));
 			sstableOutputStream = new CountingOutputStream(sstableFileOutputStream);
 			sstableOutputStream.write(SSTableConst.MAGIC_BYTES_SSTABLE);
+			sstableOutputStream.write(DataEncoderHelper.shortToByteBuffer(SSTableConst.SST_VERSION).array());
 			
 			sstableIndexOutputStream = new BufferedOutputStream(new FileOutputStream(sstableIndexFile));
 			sstableIndexOutputStream.write(SSTableConst.MAGIC_BYTES_INDEX);
+			sstableIndexOutputStream.write(DataEncoderHelper.shortToByteBuffer(SSTableConst.SST_VERSION).array());
 		} catch (FileNotFoundException e) {
 			exceptionDuringWrite = true;
 			throw new StorageManagerException("Unable to open output file", e);
@@ -222,6 +294,7 @@ public class SSTableWriter implements AutoCloseable {
 					name.getFullname(), tablenumber, sstableFile.getName());
 
 			if(sstableOutputStream != null) {
+				writeBlock();
 				sstableOutputStream.close();
 				sstableOutputStream = null;
 			}
@@ -232,6 +305,7 @@ public class SSTableWriter implements AutoCloseable {
 			}
 			
 			writeSpatialIndex();
+			writeTimeIndex();
 			writeBloomFilter();
 			writeMetadata();
 			
@@ -273,6 +347,10 @@ public class SSTableWriter implements AutoCloseable {
 			spatialIndexFile.delete();
 		}
 		
+		if(timeIndexFile != null && timeIndexFile.exists()) {
+			timeIndexFile.delete();
+		}
+		
 		if(metadataFile != null && metadataFile.exists()) {
 			metadataFile.delete();
 		}
@@ -292,6 +370,61 @@ public class SSTableWriter implements AutoCloseable {
 		}
 	}
 	
+	/**
+	 * Write the time index to file. The index contains two sections, the 
+	 * entries of the first section are sorted by the version timestamp and 
+	 * the entries of the second section are sorted by the inserted timestamp.
+	 * 
+	 * Format of the time index file:
+	 * 
+	 * +-------------------------------------------------------------------+
+	 * | Entries | Version timestamp | Tuple number | ... | Inserted | ... |
+	 * |         |                   |              |     | section  |     |
+	 * | 4 Byte  |      8 Byte       |    4 Byte    | ... |          | ... |
+	 * +-------------------------------------------------------------------+
+	 * 
+	 * @throws IOException
+	 */
+	private void writeTimeIndex() throws IOException {
+		
+		try (   final FileOutputStream fos = new FileOutputStream(timeIndexFile);
+				final OutputStream outputStream = new BufferedOutputStream(fos);
+			) {
+			
+			outputStream.write(SSTableConst.MAGIC_BYTES_TIME_INDEX);
+			outputStream.write(DataEncoderHelper.intToByteBuffer(tupleNumber).array());
+			writeTimeIndexSection(versionTimestamps, outputStream);
+			writeTimeIndexSection(insertedTimestamps, outputStream);
+			outputStream.close();
+		}
+	}
+
+	/**
+	 * Write the tuple numbers sorted by the given timestamps
+	 * @param timestamps
+	 * @param outputStream
+	 * @throws IOException
+	 */
+	private void writeTimeIndexSection(final long[] timestamps, final OutputStream outputStream) 
+			throws IOException {
+		
+		final int[] sortedTupleNumbers = IntStream.range(0, tupleNumber)
+				.boxed()
+				.sorted((t1, t2) -> Long.compare(timestamps[t1], timestamps[t2]))
+				.mapToInt(i -> i)
+				.toArray();
+		
+		final ByteBuffer entry = ByteBuffer.allocate(SSTableConst.TIME_INDEX_ENTRY_SIZE);
+		entry.order(DataEncoderHelper.APPLICATION_BYTE_ORDER);
+		
+		for(final int sortedTupleNumber : sortedTupleNumbers) {
+			entry.clear();
+			entry.putLong(timestamps[sortedTupleNumber]);
+			entry.putInt(sortedTupleNumber);
+			outputStream.write(entry.array());
+		}
+	}
+	
 	/**
 	 * Write the bloom filter into the filter file
 	 * @throws IOException
@@ -363,28 +496,52 @@ public class SSTableWriter implements AutoCloseable {
 	/**
 	 * Write the tuple without building the spatial index 
 	 * (e.g., for writing pre indexed data) 
+	 * 
+	 * The returned position is the number of the tuple in the SSTable.
+	 * 
 	 * @param tuple
 	 * @return
 	 * @throws StorageManagerException
 	 */
 	public int addTupleWithoutSpatialIndex(final Tuple tuple) throws StorageManagerException {
 		try {
-			// Add Tuple to the index
-			final int tuplePosition = (int) sstableOutputStream.getCount();
-			writeIndexEntry(tuplePosition);
+			if(blockTuples.size() >= blockSize) {
+				writeBlock();
+			}
 			
-			final int newPosition = (int) sstableOutputStream.getCount();
-			final int writtenBytes = newPosition - tuplePosition;
+			if(blockTupleCount == 0) {
+				blockFirstKey = tuple.getKey();
+			}
 			
-			// Add Tuple to the SSTable file
-			TupleHelper.writeTupleToStream(tuple, sstableOutputStream);
+			if(blockTupleCount == blockTupleOffsets.length) {
+				blockTupleOffsets = Arrays.copyOf(blockTupleOffsets, blockTupleOffsets.length * 2);
+			}
+			
+			final int oldSize = blockTuples.size();
+			blockTupleOffsets[blockTupleCount] = oldSize;
+			blockTupleCount++;
+			
+			// Add Tuple to the current block
+			TupleHelper.writeTupleToStream(tuple, blockTuples);
 			metadataBuilder.addTuple(tuple);
 			
 			// Add tuple to the bloom filter
 			bloomFilter.put(tuple.getKey());
 			
+			// Add tuple to the time index
+			if(tupleNumber == versionTimestamps.length) {
+				versionTimestamps = Arrays.copyOf(versionTimestamps, versionTimestamps.length * 2);
+				insertedTimestamps = Arrays.copyOf(insertedTimestamps, insertedTimestamps.length * 2);
+			}
+			
+			versionTimestamps[tupleNumber] = tuple.getVersionTimestamp();
+			insertedTimestamps[tupleNumber] = tuple.getReceivedTimestamp();
+			
 			writtenTuplesTotal.inc();
-			writtenTuplesBytes.inc(writtenBytes);
+			writtenTuplesBytes.inc(blockTuples.size() - oldSize);
+			
+			final int tuplePosition = tupleNumber;
+			tupleNumber++;
 			
 			return tuplePosition;
 		} catch (IOException e) {
@@ -392,24 +549,90 @@ public class SSTableWriter implements AutoCloseable {
 			throw new StorageManagerException("Unable to write tuple to SSTable", e);
 		}
 	}
+	
+	/**
+	 * Write the current block to the SSTable file and the 
+	 * corresponding entry to the sparse index.
+	 * 
+	 * Format of a block:
+	 * 
+	 * +---------------------------------------------------------------+
+	 * | Compression | Uncompressed length | Stored length |  Payload  |
+	 * |   1 Byte    |       4 Byte        |    4 Byte     |   n Byte  |
+	 * +---------------------------------------------------------------+
+	 * 
+	 * Format of the (uncompressed) payload:
+	 * 
+	 * +---------------------------------------------------------------+
+	 * | Tuples | Offset tuple 1 | ... | Offset tuple n | Tuple 1 | ... |
+	 * | 4 Byte |     4 Byte     | ... |     4 Byte     |  n Byte | ... |
+	 * +---------------------------------------------------------------+
+	 * 
+	 * The offsets are the in-block key directory, they point to the
+	 * beginning of the tuples in the payload.
+	 * 
+	 * @throws IOException
+	 */
+	private void writeBlock() throws IOException {
+		
+		if(blockTupleCount == 0) {
+			return;
+		}
+		
+		final long blockPosition = sstableOutputStream.getCount();
+		final int firstTupleNumber = tupleNumber - blockTupleCount;
+		
+		final int directoryBytes = DataEncoderHelper.INT_BYTES * (blockTupleCount + 1);
+		final int uncompressedLength = directoryBytes + blockTuples.size();
+		
+		final ByteBuffer payload = ByteBuffer.allocate(uncompressedLength);
+		payload.order(DataEncoderHelper.APPLICATION_BYTE_ORDER);
+		payload.putInt(blockTupleCount);
+		
+		for(int i = 0; i < blockTupleCount; i++) {
+			payload.putInt(directoryBytes + blockTupleOffsets[i]);
+		}
+		
+		payload.put(blockTuples.toByteArray());
+		
+		final byte[] storedPayload = compression.compress(payload.array(), uncompressedLength);
+		
+		sstableOutputStream.write(compression.getByteValue());
+		sstableOutputStream.write(DataEncoderHelper.intToByteBuffer(uncompressedLength).array());
+		sstableOutputStream.write(DataEncoderHelper.intToByteBuffer(storedPayload.length).array());
+		sstableOutputStream.write(storedPayload);
+		
+		writeIndexEntry(blockPosition, firstTupleNumber, blockTupleCount, blockFirstKey);
+		
+		blockTuples.reset();
+		blockTupleCount = 0;
+		blockFirstKey = null;
+	}
 
 	/** 
-	 * Append an entry to the index file.
+	 * Append an entry to the sparse index file. Only the first 
+	 * key of each block is stored in the index.
 	 * 
 	 * Format of the index file:
 	 * 
-	 * -------------------------------------------------
-	 * | Tuple-Position | Tuple-Position |  .........  |
- 	 * |     4 Byte     |     4 Byte     |  .........  |
-	 * -------------------------------------------------
+	 * +----------------------------------------------------------------------+
+	 * | Block-Position | First tuple | Tuples | Key-Length |   Key   |  ...  |
+	 * |                |   number    |        |            |         |       |
+	 * |     8 Byte     |   4 Byte    | 4 Byte |   2 Byte   |  n Byte |  ...  |
+	 * +----------------------------------------------------------------------+
 	 * 
-	 * @param keyLengthBytes
-	 * @param keyPosition
 	 * @throws IOException
 	 */
-	private void writeIndexEntry(final int tuplePosition) throws IOException {
-		final ByteBuffer tuplePositionBytes = DataEncoderHelper.intToByteBuffer(tuplePosition);
-		sstableIndexOutputStream.write(tuplePositionBytes.array());
+	private void writeIndexEntry(final long blockPosition, final int firstTupleNumber, 
+			final int tuples, final String firstKey) throws IOException {
+		
+		final byte[] keyBytes = firstKey.getBytes();
+		
+		sstableIndexOutputStream.write(DataEncoderHelper.longToByteBuffer(blockPosition).array());
+		sstableIndexOutputStream.write(DataEncoderHelper.intToByteBuffer(firstTupleNumber).array());
+		sstableIndexOutputStream.write(DataEncoderHelper.intToByteBuffer(tuples).array());
+		sstableIndexOutputStream.write(DataEncoderHelper.shortToByteBuffer((short) keyBytes.length).array());
+		sstableIndexOutputStream.write(keyBytes);
 	}
 
 	/**
@@ -428,6 +651,14 @@ public class SSTableWriter implements AutoCloseable {
 		return sstableIndexFile;
 	}
 	
+	/**
+	 * Get the time index file
+	 * @return
+	 */
+	public File getTimeIndexFile() {
+		return timeIndexFile;
+	}
+	
 	/**
 	 * Get the metadata file
 	 * @return
@@ -449,7 +680,7 @@ public class SSTableWriter implements AutoCloseable {
 	 * @return
 	 */
 	public long getWrittenBytes() {
-		return sstableOutputStream.getCount();
+		return sstableOutputStream.getCount() + blockTuples.size();
 	}
 	
 	/**
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.sstable.compact;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.bboxdb.storage.sstable.SSTableWriter;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
+
+/**
+ * A merge task of one tuple store. A major compaction of a big tuple 
+ * store is split into multiple compactors that work on disjoint key 
+ * ranges and can be executed in parallel.
+ */
+public class CompactionJob {
+
+	/**
+	 * The tuple store manager
+	 */
+	private final TupleStoreManager tupleStoreManager;
+	
+	/**
+	 * The merge task
+	 */
+	private final MergeTask mergeTask;
+	
+	/**
+	 * The compactors (one per key range)
+	 */
+	private final List<SSTableCompactor> compactors;
+	
+	/**
+	 * The number of tuple stores that are read for a key lookup
+	 */
+	private final int readAmplification;
+	
+	/**
+	 * The exception of a failed compactor
+	 */
+	private volatile Exception failure;
+	
+	/**
+	 * The number of compactors that are not finished
+	 */
+	private final AtomicInteger unfinishedCompactors;
+
+	public CompactionJob(final TupleStoreManager tupleStoreManager, final MergeTask mergeTask,
+			final List<SSTableCompactor> compactors, final int readAmplification) {
+		
+		this.tupleStoreManager = tupleStoreManager;
+		this.mergeTask = mergeTask;
+		this.compactors = compactors;
+		this.readAmplification = readAmplification;
+		this.unfinishedCompactors = new AtomicInteger(compactors.size());
+	}
+	
+	/**
+	 * Mark a compactor of the job as finished
+	 * @return true if this was the last running compactor of the job
+	 */
+	public boolean compactorFinished() {
+		return unfinishedCompactors.decrementAndGet() == 0;
+	}
+	
+	/**
+	 * Is the job failed
+	 * @return
+	 */
+	public boolean isFailed() {
+		if(failure != null) {
+			return true;
+		}
+		
+		return compactors.stream().anyMatch(c -> ! c.isSuccessfullyFinished());
+	}
+	
+	/**
+	 * Delete the written tables of all compactors
+	 */
+	public void deleteResults() {
+		compactors.forEach(c -> c.getResultList().forEach(w -> w.deleteFromDisk()));
+	}
+	
+	/**
+	 * Get the written tables of all compactors
+	 * @return
+	 */
+	public List<SSTableWriter> getResults() {
+		return compactors
+				.stream()
+				.flatMap(c -> c.getResultList().stream())
+				.collect(Collectors.toList());
+	}
+	
+	/**
+	 * Get the amount of read tuples
+	 * @return
+	 */
+	public long getReadTuples() {
+		return compactors.stream().mapToLong(SSTableCompactor::getReadTuples).sum();
+	}
+	
+	/**
+	 * Get the amount of written tuples
+	 * @return
+	 */
+	public long getWrittenTuples() {
+		return compactors.stream().mapToLong(SSTableCompactor::getWrittenTuples).sum();
+	}
+
+	public TupleStoreManager getTupleStoreManager() {
+		return tupleStoreManager;
+	}
+
+	public MergeTask getMergeTask() {
+		return mergeTask;
+	}
+
+	public List<SSTableCompactor> getCompactors() {
+		return compactors;
+	}
+
+	public int getReadAmplification() {
+		return readAmplification;
+	}
+	
+	public Exception getFailure() {
+		return failure;
+	}
+	
+	public void setFailure(final Exception failure) {
+		this.failure = failure;
+	}
+
+	@Override
+	public String toString() {
+		return "CompactionJob [tupleStore=" + tupleStoreManager.getTupleStoreName() 
+			+ ", mergeTask=" + mergeTask + ", compactors=" + compactors.size() 
+			+ ", readAmplification=" + readAmplification + "]";
+	}
+}
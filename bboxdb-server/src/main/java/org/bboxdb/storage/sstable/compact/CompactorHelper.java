@@ -17,6 +17,11 @@
  *******************************************************************************/
 package org.bboxdb.storage.sstable.compact;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
 import org.bboxdb.distribution.partitioner.DistributionRegionState;
 import org.bboxdb.distribution.partitioner.SpacePartitioner;
 import org.bboxdb.distribution.partitioner.SpacePartitionerCache;
@@ -25,6 +30,7 @@ import org.bboxdb.distribution.region.DistributionRegionHelper;
 import org.bboxdb.misc.BBoxDBException;
 import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.sstable.reader.SSTableKeyIndexReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -82,4 +88,46 @@ public class CompactorHelper {
 			throw e;
 		}
 	}
+	
+	/**
+	 * Split the key space of the tables into the given number of parts. The keys 
+	 * of the biggest table are used as split points. All versions of a key belong 
+	 * to the same part, so the parts can be compacted independently.
+	 * 
+	 * @param sstableIndexReader
+	 * @param parts
+	 * @return the sorted and distinct split points (the first keys of the parts 2..n)
+	 * @throws StorageManagerException
+	 */
+	public static List<String> getKeyRangeSplitPoints(final List<SSTableKeyIndexReader> sstableIndexReader, 
+			final int parts) throws StorageManagerException {
+		
+		final List<String> splitPoints = new ArrayList<>();
+		
+		final SSTableKeyIndexReader biggestTable = sstableIndexReader
+				.stream()
+				.max(Comparator.comparingInt(SSTableKeyIndexReader::getNumberOfEntries))
+				.orElse(null);
+		
+		if(biggestTable == null || parts < 2) {
+			return splitPoints;
+		}
+		
+		final long entries = biggestTable.getNumberOfEntries();
+		
+		try {
+			for(int part = 1; part < parts; part++) {
+				final long entry = (entries * part) / parts;
+				final String key = biggestTable.getKeyForIndexEntry(entry);
+				
+				if(splitPoints.isEmpty() || splitPoints.get(splitPoints.size() - 1).compareTo(key) < 0) {
+					splitPoints.add(key);
+				}
+			}
+		} catch (IOException e) {
+			throw new StorageManagerException("Error while reading index file", e);
+		}
+		
+		return splitPoints;
+	}
 }
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.sstable.compact;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.bboxdb.misc.BBoxDBConfiguration;
+import org.bboxdb.misc.BBoxDBConfigurationManager;
+import org.bboxdb.storage.sstable.reader.SSTableFacade;
+
+/**
+ * Leveled compaction. The SSTables are assigned to levels by their size, 
+ * level 0 contains the flushed memtables and the max size of the level n 
+ * is the size of level 0 * LEVEL_FANOUT^n. All levels above level 0 contain 
+ * one table. When level 0 contains too many tables, the tables are merged
+ * with the table of level 1. A level that contains more than one table
+ * (e.g., the table of the lower level has grown) is merged into one table.
+ * 
+ * The SSTables are not partitioned by key ranges, so a level is always 
+ * merged as a whole. Compared to the size tiered strategy, this keeps the
+ * number of tables per read small but rewrites the tuples more often.
+ */
+public class LeveledMergeStrategy implements MergeStrategy {
+	
+	/**
+	 * The number of tables in level 0 that triggers a merge
+	 */
+	protected final static int LEVEL0_MERGE_TABLES = 4;
+	
+	/**
+	 * The max number of level 0 tables per merge task
+	 */
+	protected final static int MAX_LEVEL0_MERGE_TABLES = 32;
+	
+	/**
+	 * The size ratio between two levels
+	 */
+	protected final static int LEVEL_FANOUT = 10;
+
+	@Override
+	public MergeTask getMergeTask(final List<SSTableFacade> sstables) {
+		
+		final MergeTask mergeTask = new MergeTask();
+		final List<SSTableFacade> compactTables = getCompactTables(getLevels(sstables));
+		
+		if(compactTables.size() < 2) {
+			return mergeTask;
+		}
+		
+		if(compactTables.size() == sstables.size()) {
+			// All tables are included, handle as major compact
+			mergeTask.setTaskType(MergeTaskType.MAJOR);
+		} else {
+			mergeTask.setTaskType(MergeTaskType.MINOR);
+		}
+		
+		mergeTask.setCompactTables(compactTables);
+		
+		return mergeTask;
+	}
+	
+	/**
+	 * Get the tables for the next merge
+	 * @param levels
+	 * @return
+	 */
+	private List<SSTableFacade> getCompactTables(final TreeMap<Integer, List<SSTableFacade>> levels) {
+		
+		final List<SSTableFacade> level0Tables = levels.getOrDefault(0, new ArrayList<>());
+		
+		// Merge level 0 into level 1
+		if(level0Tables.size() >= LEVEL0_MERGE_TABLES) {
+			final List<SSTableFacade> compactTables = level0Tables
+					.stream()
+					.limit(MAX_LEVEL0_MERGE_TABLES)
+					.collect(Collectors.toList());
+			
+			compactTables.addAll(levels.getOrDefault(1, new ArrayList<>()));
+			return compactTables;
+		}
+		
+		// Merge the first level with multiple tables into one table
+		for(final Map.Entry<Integer, List<SSTableFacade>> level : levels.entrySet()) {
+			if(level.getKey() > 0 && level.getValue().size() > 1) {
+				return level.getValue();
+			}
+		}
+		
+		return new ArrayList<>();
+	}
+	
+	@Override
+	public long getPendingCompactionBytes(final List<SSTableFacade> sstables) {
+		
+		final TreeMap<Integer, List<SSTableFacade>> levels = getLevels(sstables);
+		long pendingBytes = 0;
+		
+		for(final Map.Entry<Integer, List<SSTableFacade>> level : levels.entrySet()) {
+			final List<SSTableFacade> tables = level.getValue();
+			
+			final boolean level0Pending = level.getKey() == 0 && tables.size() >= LEVEL0_MERGE_TABLES;
+			final boolean levelPending = level.getKey() > 0 && tables.size() > 1;
+			
+			if(level0Pending || levelPending) {
+				pendingBytes = pendingBytes + tables.stream().mapToLong(SSTableFacade::getSize).sum();
+			}
+		}
+		
+		return pendingBytes;
+	}
+
+	/**
+	 * Assign the tables to the levels
+	 * @param sstables
+	 * @return
+	 */
+	protected TreeMap<Integer, List<SSTableFacade>> getLevels(final List<SSTableFacade> sstables) {
+		
+		final TreeMap<Integer, List<SSTableFacade>> levels = new TreeMap<>();
+		final long level0Size = getLevel0TableSize();
+		
+		for(final SSTableFacade facade : sstables) {
+			final int level = getLevel(facade.getSize(), level0Size);
+			levels.computeIfAbsent(level, l -> new ArrayList<>()).add(facade);
+		}
+		
+		return levels;
+	}
+	
+	/**
+	 * Get the level for a table of the given size
+	 * @param tableSize
+	 * @param level0Size
+	 * @return
+	 */
+	protected int getLevel(final long tableSize, final long level0Size) {
+		int level = 0;
+		double levelSize = level0Size;
+		
+		while(tableSize > levelSize) {
+			level++;
+			levelSize = levelSize * LEVEL_FANOUT;
+		}
+		
+		return level;
+	}
+	
+	/**
+	 * The max size of a level 0 table. The flushed memtables are a bit 
+	 * bigger than the memtable because of the indices.
+	 * @return
+	 */
+	protected long getLevel0TableSize() {
+		final BBoxDBConfiguration configuration = BBoxDBConfigurationManager.getConfiguration();
+		return Math.max(1, configuration.getMemtableSizeMax() * 2);
+	}
+}
@@ -30,9 +30,11 @@ public interface MergeStrategy {
 	public abstract MergeTask getMergeTask(final List<SSTableFacade> sstables);
 
 	/**
-	 * Get the delay for the compact thread
+	 * Get the amount of bytes that needs to be compacted until the 
+	 * SSTables match the layout of the strategy
+	 * @param sstables
 	 * @return
 	 */
-	public abstract long getCompactorDelay();
+	public abstract long getPendingCompactionBytes(final List<SSTableFacade> sstables);
 
 }
\ No newline at end of file
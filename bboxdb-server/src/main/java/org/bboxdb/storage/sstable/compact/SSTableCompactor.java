@@ -27,7 +27,6 @@ import org.bboxdb.commons.SortedIteratorMerger;
 import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.DeletedTuple;
 import org.bboxdb.storage.entity.Tuple;
-import org.bboxdb.storage.sstable.SSTableConst;
 import org.bboxdb.storage.sstable.SSTableWriter;
 import org.bboxdb.storage.sstable.duplicateresolver.TupleDuplicateResolverFactory;
 import org.bboxdb.storage.sstable.reader.SSTableKeyIndexReader;
@@ -36,6 +35,8 @@ import org.bboxdb.storage.util.TupleHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.RateLimiter;
+
 public class SSTableCompactor {
 
 	/**
@@ -78,6 +79,21 @@ public class SSTableCompactor {
 	 * Was the compactification successfully
 	 */
 	private boolean successfully = true;
+	
+	/**
+	 * The rate limiter for the read and written bytes (null = unlimited)
+	 */
+	private RateLimiter rateLimiter;
+	
+	/**
+	 * The first key of the compacted key range (null = no lower bound)
+	 */
+	private String fromKey;
+	
+	/**
+	 * The first key after the compacted key range (null = no upper bound)
+	 */
+	private String toKey;
 
 	/**
 	 * The logger
@@ -97,12 +113,45 @@ public class SSTableCompactor {
 	 * Calculate max the number of entries in the output
 	 * @param tables
 	 * @return
+	 * @throws StorageManagerException 
 	 */
-	private long calculateNumberOfEntries(final List<SSTableKeyIndexReader> indexReader) {
-		return indexReader
-			.stream()
-			.mapToInt(r -> r.getNumberOfEntries())
-			.sum();
+	private long calculateNumberOfEntries(final List<SSTableKeyIndexReader> indexReader) 
+			throws StorageManagerException {
+		
+		long entries = 0;
+		
+		for(final SSTableKeyIndexReader reader : indexReader) {
+			final int firstEntry = (fromKey == null) ? 0 : reader.getFirstIndexEntryForKey(fromKey);
+			final int lastEntry = (toKey == null) ? reader.getNumberOfEntries() 
+					: reader.getFirstIndexEntryForKey(toKey);
+			
+			entries = entries + (lastEntry - firstEntry);
+		}
+		
+		return entries;
+	}
+	
+	/**
+	 * Get the iterators for the input sstables
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	private List<Iterator<Tuple>> getIterators() throws StorageManagerException {
+		
+		if(fromKey == null && toKey == null) {
+			return sstableIndexReader
+					.stream()
+					.map(r -> r.iterator())
+					.collect(Collectors.toList());
+		}
+		
+		final List<Iterator<Tuple>> iterators = new ArrayList<>();
+		
+		for(final SSTableKeyIndexReader reader : sstableIndexReader) {
+			iterators.add(reader.iterator(fromKey, toKey));
+		}
+		
+		return iterators;
 	}
 
 	/**
@@ -114,10 +163,7 @@ public class SSTableCompactor {
 
 		try {
 			// The iterators
-			final List<Iterator<Tuple>> iterators = sstableIndexReader
-					.stream()
-					.map(r -> r.iterator())
-					.collect(Collectors.toList());
+			final List<Iterator<Tuple>> iterators = getIterators();
 
 			final DuplicateResolver<Tuple> newestKeyResolver = TupleDuplicateResolverFactory.build(
 					tupleStoreManager.getTupleStoreConfiguration());
@@ -129,6 +175,7 @@ public class SSTableCompactor {
 
 			for(final Tuple tuple : sortedIteratorMerger) {
 				checkForTermination(tuple);
+				limitRate(tuple);
 				addTupleToWriter(tuple);
 			}
 
@@ -157,6 +204,19 @@ public class SSTableCompactor {
 		}
 	}
 
+	/**
+	 * Wait until the IO for the tuple is allowed by the rate limiter
+	 * @param tuple
+	 */
+	private void limitRate(final Tuple tuple) {
+		if(rateLimiter == null) {
+			return;
+		}
+		
+		// The tuple is read and written
+		rateLimiter.acquire(Math.max(1, tuple.getSize() * 2));
+	}
+
 	/**
 	 *  Deleted tuples can be removed in a major compactification
 	 *  only when no duplicate keys are allowed. Otherwise this is needed to
@@ -237,7 +297,7 @@ public class SSTableCompactor {
 	}
 
 	/**
-	 * Create a new table if the size of the open table hits the threshold
+	 * Create a new table if no table is open
 	 * @param resultList
 	 * @param tuple
 	 * @throws StorageManagerException
@@ -247,13 +307,6 @@ public class SSTableCompactor {
 
 		if(sstableWriter == null) {
 			sstableWriter = openNewSSTableWriter();
-			return;
-		}
-
-		// Check max table size limit
-		if(sstableWriter.getWrittenBytes() + tuple.getSize() > SSTableConst.MAX_SSTABLE_SIZE) {
-			sstableWriter.close();
-			sstableWriter = openNewSSTableWriter();
 		}
 	}
 
@@ -297,6 +350,24 @@ public class SSTableCompactor {
 		this.majorCompaction = majorCompaction;
 	}
 
+	/**
+	 * Set the rate limiter for the compaction IO
+	 * @param rateLimiter
+	 */
+	public void setRateLimiter(final RateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
+	}
+
+	/**
+	 * Compact only the tuples with a key in the range [fromKey, toKey)
+	 * @param fromKey - the first key or null for no lower bound
+	 * @param toKey - the first key after the range or null for no upper bound
+	 */
+	public void setKeyRange(final String fromKey, final String toKey) {
+		this.fromKey = fromKey;
+		this.toKey = toKey;
+	}
+
 	/**
 	 * Get the amount of read tuples
 	 * @return
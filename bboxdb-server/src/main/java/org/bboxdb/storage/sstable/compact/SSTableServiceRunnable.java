@@ -18,8 +18,23 @@
 package org.bboxdb.storage.sstable.compact;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.bboxdb.commons.RejectedException;
@@ -38,7 +53,9 @@ import org.bboxdb.distribution.zookeeper.ZookeeperException;
 import org.bboxdb.misc.BBoxDBConfiguration;
 import org.bboxdb.misc.BBoxDBException;
 import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.entity.TupleStoreConfiguration;
 import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.sstable.SSTableConst;
 import org.bboxdb.storage.sstable.SSTableWriter;
 import org.bboxdb.storage.sstable.reader.SSTableFacade;
 import org.bboxdb.storage.sstable.reader.SSTableKeyIndexReader;
@@ -50,19 +67,85 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.RateLimiter;
+
+import io.prometheus.client.Gauge;
 
 public class SSTableServiceRunnable extends ExceptionSafeRunnable {
 	
 	/**
-	 * The merge strategy
+	 * The merge strategies, cached by the name of the strategy
 	 */
-	protected final MergeStrategy mergeStrategy;
+	protected final Map<String, MergeStrategy> mergeStrategies;
 
 	/**
 	 * The storage
 	 */
 	protected final DiskStorage storage;
 	
+	/**
+	 * The rate limiter for the compaction IO (null = unlimited)
+	 */
+	protected final RateLimiter rateLimiter;
+	
+	/**
+	 * The executor for the compactions
+	 */
+	protected final ThreadPoolExecutor compactionExecutor;
+	
+	/**
+	 * The number of compaction threads
+	 */
+	protected final int compactionThreads;
+	
+	/**
+	 * The min number of tuples per key range subcompaction
+	 */
+	protected long subcompactionMinTuples = SSTableConst.COMPACT_SUBCOMPACTION_MIN_TUPLES;
+	
+	/**
+	 * The threads that are executing a compactor and the job of the compactor
+	 */
+	private final Map<Thread, CompactionJob> compactorThreads = new ConcurrentHashMap<>();
+	
+	/**
+	 * The submitted and not finished compaction jobs
+	 */
+	private final Set<CompactionJob> runningJobs = ConcurrentHashMap.newKeySet();
+	
+	/**
+	 * The tuple stores with a running compaction job
+	 */
+	private final Set<TupleStoreName> compactingTupleStores = new HashSet<>();
+	
+	/**
+	 * The number of finished jobs since the last run
+	 */
+	private final AtomicInteger finishedJobs = new AtomicInteger(0);
+	
+	/**
+	 * The number of successful jobs since the last run
+	 */
+	private final AtomicInteger successfulJobs = new AtomicInteger(0);
+	
+	/**
+	 * The number of consecutive runs with failed and without successful compactions
+	 */
+	private volatile int failedRuns = 0;
+	
+	/**
+	 * The max time to wait for the running compactors on shutdown
+	 */
+	private final static long COMPACTOR_SHUTDOWN_WAIT_MS = TimeUnit.SECONDS.toMillis(10);
+	
+	/**
+	 * The pending compaction bytes
+	 */
+	private final static Gauge pendingCompactionBytes = Gauge.build()
+			.name("bboxdb_compaction_pending_bytes")
+			.help("Bytes of the SSTables that need to be compacted")
+			.labelNames("storage").register();
+	
 	/**
 	 * The logger
 	 */
@@ -70,7 +153,28 @@ public class SSTableServiceRunnable extends ExceptionSafeRunnable {
 
 	public SSTableServiceRunnable(final DiskStorage storage) {
 		this.storage = storage;
-		this.mergeStrategy = new SimpleMergeStrategy();
+		this.mergeStrategies = new HashMap<>();
+		
+		final BBoxDBConfiguration configuration = storage.getTupleStoreManagerRegistry().getConfiguration();
+		final long compactionRateLimit = configuration.getStorageCompactionRateLimit();
+		
+		if(compactionRateLimit > 0) {
+			this.rateLimiter = RateLimiter.create(compactionRateLimit);
+		} else {
+			this.rateLimiter = null;
+		}
+		
+		this.compactionThreads = Math.max(1, configuration.getStorageCompactionThreads());
+		
+		this.compactionExecutor = new ThreadPoolExecutor(compactionThreads, compactionThreads, 
+				30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+					final Thread thread = new Thread(r);
+					thread.setName("Compact worker for: " + storage.getBasedir());
+					thread.setDaemon(true);
+					return thread;
+				});
+		
+		this.compactionExecutor.allowCoreThreadTimeOut(true);
 	}
 
 	@Override
@@ -80,18 +184,44 @@ public class SSTableServiceRunnable extends ExceptionSafeRunnable {
 	
 	@Override
 	protected void endHook() {
+		final boolean interrupted = Thread.interrupted();
+		
+		stopCompactors(runningJobs);
+		
+		// Not started compactors finish their jobs without work, so the results are deleted
+		compactionExecutor.shutdownNow().forEach(Runnable::run);
+		
+		try {
+			if(! compactionExecutor.awaitTermination(COMPACTOR_SHUTDOWN_WAIT_MS, TimeUnit.MILLISECONDS)) {
+				logger.warn("Compactors for {} are still running", storage.getBasedir());
+			}
+		} catch (InterruptedException e) {
+			logger.warn("Interrupted while waiting for the compactors of {}", storage.getBasedir());
+		} finally {
+			if(interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		
 		logger.info("SSTable service thread for {} is DONE", storage.getBasedir());
 	}
 	
 	/**
-	 * Execute the compactor thread
+	 * Execute the compactor thread. As long as compactions are successfully finished
+	 * between two runs, the next run starts without a delay. After failed 
+	 * compactions, the delay is increased.
 	 */
 	protected void runThread() {			
+		boolean compactionExecuted = false;
+		
 		while(! Thread.currentThread().isInterrupted()) {
 			try {	
-				Thread.sleep(mergeStrategy.getCompactorDelay());
+				if(! compactionExecuted) {
+					Thread.sleep(getCompactionDelay());
+				}
+				
 				logger.debug("Executing compact thread");
-				execute(); 
+				compactionExecuted = execute(); 
 			} catch (InterruptedException e) {
 				Thread.currentThread().interrupt();
 				break;
@@ -100,29 +230,53 @@ public class SSTableServiceRunnable extends ExceptionSafeRunnable {
 	}
 
 	/**
-	 * Execute a new compaction
+	 * Get the delay until the next compaction run. The delay is doubled for
+	 * each run with failed compactions.
+	 * @return
+	 */
+	private long getCompactionDelay() {
+		final int shift = Math.min(failedRuns, 16);
+		
+		return Math.min(SSTableConst.COMPACT_THREAD_DELAY << shift, 
+				SSTableConst.COMPACT_THREAD_MAX_DELAY);
+	}
+
+	/**
+	 * Schedule the compactions. The jobs are executed in the background and
+	 * registered when they are done.
+	 * 
+	 * @return was a compaction successfully finished since the last run
 	 * @throws InterruptedException 
 	 */
-	public synchronized void execute() throws InterruptedException {
+	public boolean execute() throws InterruptedException {
 		
 		final TupleStoreManagerRegistry storageRegistry = storage.getTupleStoreManagerRegistry();
 		final String location = storage.getBasedir().getAbsolutePath();
 		final List<TupleStoreName> tupleStores = storageRegistry.getTupleStoresForLocation(location);
 				
-		processTupleStores(storageRegistry, tupleStores);
+		final boolean compactionExecuted = processTupleStores(storageRegistry, tupleStores);
 		processRegionMerges();
+		
+		return compactionExecuted;
 	}
 
 	/**
-	 * Process the tuple stores
+	 * Process the tuple stores. The merge tasks of all tuple stores are executed 
+	 * in parallel. The tuple stores with the highest read amplification are 
+	 * compacted first. A tuple store with a running compaction job is skipped, 
+	 * the jobs don't wait for each other.
 	 * 
 	 * @param storageRegistry
 	 * @param tupleStores
+	 * @return was a compaction successfully finished since the last run
 	 * @throws InterruptedException
 	 */
-	private void processTupleStores(final TupleStoreManagerRegistry storageRegistry,
+	private boolean processTupleStores(final TupleStoreManagerRegistry storageRegistry,
 			final List<TupleStoreName> tupleStores) throws InterruptedException {
 		
+		final List<TupleStoreManager> tupleStoreManagers = new ArrayList<>();
+		final List<CompactionJob> compactionJobs = new ArrayList<>();
+		
 		for(final TupleStoreName tupleStoreName: tupleStores) {
 			try {
 				logger.debug("Running compact for: {}", tupleStoreName);
@@ -138,15 +292,162 @@ public class SSTableServiceRunnable extends ExceptionSafeRunnable {
 					continue;
 				}
 			
-				final List<SSTableFacade> facades = getAllTupleStores(tupleStoreManager);
-				final MergeTask mergeTask = mergeStrategy.getMergeTask(facades);
-				executeCompactTask(mergeTask, tupleStoreManager);
-				testForRegionOverflow(tupleStoreManager);
+				tupleStoreManagers.add(tupleStoreManager);
 				
-			} catch (StorageManagerException | BBoxDBException e) {
+				final CompactionJob compactionJob = createCompactionJobIfIdle(tupleStoreManager);
+				
+				if(compactionJob != null) {
+					compactionJobs.add(compactionJob);
+				}
+			} catch (StorageManagerException e) {
 				logger.error("Error while merging tables", e);	
 			} 
-		}		
+		}
+		
+		compactionJobs.sort(Comparator.comparingInt(CompactionJob::getReadAmplification)
+				.thenComparingInt(j -> j.getMergeTask().getCompactTables().size())
+				.reversed());
+		
+		compactionJobs.forEach(j -> submitCompactionJob(j, this::completeCompactionJob));
+		
+		final int finished = finishedJobs.getAndSet(0);
+		final int successful = successfulJobs.getAndSet(0);
+		
+		if(successful > 0) {
+			failedRuns = 0;
+		} else if(finished > 0) {
+			failedRuns++;
+			logger.warn("All compactions failed, next run in {} ms", getCompactionDelay());
+		}
+		
+		long pendingBytes = 0;
+		
+		for(final TupleStoreManager tupleStoreManager : tupleStoreManagers) {
+			try {
+				final MergeStrategy mergeStrategy = getMergeStrategy(tupleStoreManager);
+				pendingBytes = pendingBytes + mergeStrategy.getPendingCompactionBytes(
+						getAllTupleStores(tupleStoreManager));
+				
+				// The region is tested by the next run, when the compaction is done
+				if(! isCompacting(tupleStoreManager.getTupleStoreName())) {
+					testForRegionOverflow(tupleStoreManager);
+				}
+			} catch (BBoxDBException e) {
+				logger.error("Error while merging tables", e);	
+			} 
+		}
+		
+		pendingCompactionBytes.labels(storage.getBasedir().toString()).set(pendingBytes);
+		
+		return successful > 0;
+	}
+	
+	/**
+	 * Create the compaction job for the tuple store, if no other job is running
+	 * for the tuple store. The tuple store stays marked as compacting until 
+	 * the job is finished.
+	 * 
+	 * @param tupleStoreManager
+	 * @return the job or null
+	 * @throws StorageManagerException
+	 */
+	private CompactionJob createCompactionJobIfIdle(final TupleStoreManager tupleStoreManager) 
+			throws StorageManagerException {
+		
+		final TupleStoreName tupleStoreName = tupleStoreManager.getTupleStoreName();
+		
+		synchronized (compactingTupleStores) {
+			if(! compactingTupleStores.add(tupleStoreName)) {
+				logger.debug("Compaction for {} is still running", tupleStoreName);
+				return null;
+			}
+		}
+		
+		CompactionJob compactionJob = null;
+		
+		try {
+			final MergeStrategy mergeStrategy = getMergeStrategy(tupleStoreManager);
+			final List<SSTableFacade> facades = getAllTupleStores(tupleStoreManager);
+			final MergeTask mergeTask = mergeStrategy.getMergeTask(facades);
+			compactionJob = createCompactionJob(mergeTask, tupleStoreManager);
+			return compactionJob;
+		} finally {
+			if(compactionJob == null) {
+				releaseTupleStore(tupleStoreName);
+			}
+		}
+	}
+	
+	/**
+	 * Is a compaction job running for the tuple store
+	 * @param tupleStoreName
+	 * @return
+	 */
+	private boolean isCompacting(final TupleStoreName tupleStoreName) {
+		synchronized (compactingTupleStores) {
+			return compactingTupleStores.contains(tupleStoreName);
+		}
+	}
+	
+	/**
+	 * Mark the tuple store as compacting, wait until the running job is done
+	 * @param tupleStoreName
+	 * @throws InterruptedException
+	 */
+	private void waitAndClaimTupleStore(final TupleStoreName tupleStoreName) 
+			throws InterruptedException {
+		
+		synchronized (compactingTupleStores) {
+			while(! compactingTupleStores.add(tupleStoreName)) {
+				compactingTupleStores.wait();
+			}
+		}
+	}
+	
+	/**
+	 * The compaction of the tuple store is done
+	 * @param tupleStoreName
+	 */
+	private void releaseTupleStore(final TupleStoreName tupleStoreName) {
+		synchronized (compactingTupleStores) {
+			compactingTupleStores.remove(tupleStoreName);
+			compactingTupleStores.notifyAll();
+		}
+	}
+	
+	/**
+	 * Register the result of a scheduled job, called by the last compactor of the job
+	 * @param compactionJob
+	 */
+	private void completeCompactionJob(final CompactionJob compactionJob) {
+		try {
+			finishCompactionJob(compactionJob);
+			
+			if(! compactionJob.isFailed()) {
+				successfulJobs.incrementAndGet();
+			}
+		} catch (StorageManagerException e) {
+			logger.error("Error while merging tables", e);	
+		} finally {
+			finishedJobs.incrementAndGet();
+			releaseTupleStore(compactionJob.getTupleStoreManager().getTupleStoreName());
+		}
+	}
+	
+	/**
+	 * Get the merge strategy for the tuple store
+	 * @param tupleStoreManager
+	 * @return
+	 */
+	private MergeStrategy getMergeStrategy(final TupleStoreManager tupleStoreManager) {
+		final TupleStoreConfiguration configuration = tupleStoreManager.getTupleStoreConfiguration();
+		
+		if(configuration == null) {
+			return MergeStrategyFactory.getInstance(configuration);
+		}
+		
+		return mergeStrategies.computeIfAbsent(configuration.getMergeStrategy(), 
+				s -> MergeStrategyFactory.getInstance(configuration));
 	}
 	
 	/**
@@ -228,28 +529,28 @@ public class SSTableServiceRunnable extends ExceptionSafeRunnable {
 	}
 
 	/**
-	 * Merge multiple facades into a new one
-	 * @param sstableManager 
-	 *
+	 * Create the compaction job for the merge task. Major compactions of 
+	 * big tuple stores are split into disjoint key ranges.
+	 * 
+	 * @param mergeTask
+	 * @param sstableManager
+	 * @return the job or null if nothing needs to be compacted
 	 * @throws StorageManagerException
-	 * @throws InterruptedException 
-	 * @throws ZookeeperException 
-	 * @throws BBoxDBException 
 	 */
-	private void executeCompactTask(final MergeTask mergeTask, final TupleStoreManager sstableManager) 
-			throws StorageManagerException, BBoxDBException, InterruptedException {
+	private CompactionJob createCompactionJob(final MergeTask mergeTask, 
+			final TupleStoreManager sstableManager) throws StorageManagerException {
 		
 		if(mergeTask.getTaskType() == MergeTaskType.UNKNOWN) {
-			return;
+			return null;
 		}
 		
 		final List<SSTableFacade> facades = mergeTask.getCompactTables();
 	
 		if(facades == null || facades.isEmpty()) {
-			return;
+			return null;
 		}
 		
-		final List<SSTableKeyIndexReader> reader = mergeTask.getCompactTables()
+		final List<SSTableKeyIndexReader> reader = facades
 				.stream()
 				.map(f -> f.getSsTableKeyIndexReader())
 				.collect(Collectors.toList());
@@ -260,19 +561,151 @@ public class SSTableServiceRunnable extends ExceptionSafeRunnable {
 			writeMergeLog(facades, majorCompaction);
 		}
 		
-		// Run the compact process
-		final SSTableCompactor ssTableCompactor = new SSTableCompactor(sstableManager, reader);
-		ssTableCompactor.setMajorCompaction(majorCompaction);
-		ssTableCompactor.executeCompactation();
-		final List<SSTableWriter> newTables = ssTableCompactor.getResultList();
+		final List<String> splitPoints = getSubcompactionSplitPoints(reader, majorCompaction);
+		final List<SSTableCompactor> compactors = new ArrayList<>();
+		
+		for(int i = 0; i <= splitPoints.size(); i++) {
+			final String fromKey = (i == 0) ? null : splitPoints.get(i - 1);
+			final String toKey = (i == splitPoints.size()) ? null : splitPoints.get(i);
+			
+			final SSTableCompactor ssTableCompactor = new SSTableCompactor(sstableManager, reader);
+			ssTableCompactor.setMajorCompaction(majorCompaction);
+			ssTableCompactor.setRateLimiter(rateLimiter);
+			ssTableCompactor.setKeyRange(fromKey, toKey);
+			compactors.add(ssTableCompactor);
+		}
+		
+		final int readAmplification = sstableManager.getSstableFacades().size() 
+				+ sstableManager.getAllInMemoryStorages().size();
+		
+		return new CompactionJob(sstableManager, mergeTask, compactors, readAmplification);
+	}
 
-		final float mergeFactor = (float) ssTableCompactor.getWrittenTuples() / (float) ssTableCompactor.getReadTuples();
+	/**
+	 * Get the split points for the key range subcompactions
+	 * @param reader
+	 * @param majorCompaction
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	private List<String> getSubcompactionSplitPoints(final List<SSTableKeyIndexReader> reader,
+			final boolean majorCompaction) throws StorageManagerException {
+		
+		if(! majorCompaction || compactionThreads < 2) {
+			return new ArrayList<>();
+		}
+		
+		final long tuples = reader
+				.stream()
+				.mapToLong(SSTableKeyIndexReader::getNumberOfEntries)
+				.sum();
+		
+		final long parts = Math.min(compactionThreads, tuples / Math.max(1, subcompactionMinTuples));
+		
+		return CompactorHelper.getKeyRangeSplitPoints(reader, (int) parts);
+	}
+	
+	/**
+	 * Execute the compactors of the job in the compaction executor. The last 
+	 * finished compactor of the job calls the callback, so the results of the 
+	 * job are only registered or deleted, when no compactor is writing anymore.
+	 * 
+	 * @param compactionJob
+	 * @param jobFinishedCallback
+	 */
+	private void submitCompactionJob(final CompactionJob compactionJob, 
+			final Consumer<CompactionJob> jobFinishedCallback) {
 		
-		logger.info("Compactation done. Read {} tuples, wrote {} tuples. Factor {}", 
-				ssTableCompactor.getReadTuples(), ssTableCompactor.getWrittenTuples(), 
-				mergeFactor);
+		runningJobs.add(compactionJob);
 		
-		registerNewFacadeAndDeleteOldInstances(sstableManager, facades, newTables);		
+		for(final SSTableCompactor compactor : compactionJob.getCompactors()) {
+			try {
+				compactionExecutor.execute(() -> runCompactor(compactionJob, compactor, jobFinishedCallback));
+			} catch(RejectedExecutionException e) {
+				// The executor is shut down, finish the job without work
+				compactionJob.setFailure(e);
+				runCompactor(compactionJob, compactor, jobFinishedCallback);
+			}
+		}
+	}
+	
+	/**
+	 * Stop the compactors of the jobs. The compactors that are not started are 
+	 * skipped, the running compactors are interrupted.
+	 * 
+	 * @param compactionJobs
+	 */
+	private void stopCompactors(final Collection<CompactionJob> compactionJobs) {
+		final StorageManagerException failure 
+			= new StorageManagerException("Compaction is interrupted");
+		
+		compactionJobs.forEach(j -> j.setFailure(failure));
+		
+		compactorThreads.forEach((thread, job) -> {
+			if(compactionJobs.contains(job)) {
+				thread.interrupt();
+			}
+		});
+	}
+
+	/**
+	 * Run the compactor of the job. The last compactor of the job calls the callback.
+	 * @param compactionJob
+	 * @param compactor
+	 * @param jobFinishedCallback
+	 */
+	private void runCompactor(final CompactionJob compactionJob, final SSTableCompactor compactor,
+			final Consumer<CompactionJob> jobFinishedCallback) {
+		
+		compactorThreads.put(Thread.currentThread(), compactionJob);
+		
+		try {
+			// Don't start new compactors, when another compactor of the job is failed
+			if(compactionJob.getFailure() == null) {
+				compactor.executeCompactation();
+			}
+		} catch (Exception e) {
+			compactionJob.setFailure(e);
+		} finally {
+			compactorThreads.remove(Thread.currentThread());
+			
+			// Clear the interrupt of a stopped compactor before the results are handled
+			Thread.interrupted();
+		}
+		
+		if(compactionJob.compactorFinished()) {
+			runningJobs.remove(compactionJob);
+			jobFinishedCallback.accept(compactionJob);
+		}
+	}
+	
+	/**
+	 * Register the result of the job or delete the written tables if the job is failed
+	 * @param compactionJob
+	 * @throws StorageManagerException
+	 */
+	private void finishCompactionJob(final CompactionJob compactionJob) throws StorageManagerException {
+		
+		if(compactionJob.isFailed()) {
+			compactionJob.deleteResults();
+			
+			if(compactionJob.getFailure() != null) {
+				throw new StorageManagerException(compactionJob.getFailure());
+			}
+			
+			logger.info("Compactation canceled for {}", compactionJob);
+			return;
+		}
+		
+		final float mergeFactor = (float) compactionJob.getWrittenTuples() 
+				/ (float) compactionJob.getReadTuples();
+		
+		logger.info("Compactation done. Read {} tuples, wrote {} tuples. Factor {} (key ranges {})", 
+				compactionJob.getReadTuples(), compactionJob.getWrittenTuples(), 
+				mergeFactor, compactionJob.getCompactors().size());
+		
+		registerNewFacadeAndDeleteOldInstances(compactionJob.getTupleStoreManager(), 
+				compactionJob.getMergeTask().getCompactTables(), compactionJob.getResults());		
 	}
 
 	/**
@@ -388,10 +821,83 @@ public class SSTableServiceRunnable extends ExceptionSafeRunnable {
 		
 		logger.info("Force major compact for {}", sstableManager.getTupleStoreName().getFullname());
 		
-		final MergeTask mergeTask = new MergeTask();
-		mergeTask.setTaskType(MergeTaskType.MAJOR);
-		mergeTask.setCompactTables(getAllTupleStores(sstableManager));
-		executeCompactTask(mergeTask, sstableManager);
+		final TupleStoreName tupleStoreName = sstableManager.getTupleStoreName();
+		
+		// Wait for the running compaction of the tuple store
+		waitAndClaimTupleStore(tupleStoreName);
+		
+		try {
+			final MergeTask mergeTask = new MergeTask();
+			mergeTask.setTaskType(MergeTaskType.MAJOR);
+			mergeTask.setCompactTables(getAllTupleStores(sstableManager));
+			
+			final CompactionJob compactionJob = createCompactionJob(mergeTask, sstableManager);
+			
+			if(compactionJob == null) {
+				return;
+			}
+			
+			final CompletableFuture<Void> result = new CompletableFuture<>();
+			
+			submitCompactionJob(compactionJob, (j) -> {
+				try {
+					finishCompactionJob(j);
+					result.complete(null);
+				} catch (StorageManagerException e) {
+					result.completeExceptionally(e);
+				}
+			});
+			
+			waitForCompactionJob(compactionJob, result);
+		} finally {
+			releaseTupleStore(tupleStoreName);
+		}
+	}
+	
+	/**
+	 * Wait until the job is finished. On an interrupt, the compactors of the 
+	 * job are stopped, but the method waits until they are terminated.
+	 * 
+	 * @param compactionJob
+	 * @param result
+	 * @throws StorageManagerException
+	 * @throws InterruptedException
+	 */
+	private void waitForCompactionJob(final CompactionJob compactionJob, 
+			final CompletableFuture<Void> result) throws StorageManagerException, InterruptedException {
+		
+		boolean interrupted = false;
+		
+		while(true) {
+			try {
+				result.get();
+				break;
+			} catch (InterruptedException e) {
+				if(! interrupted) {
+					interrupted = true;
+					stopCompactors(Arrays.asList(compactionJob));
+				}
+			} catch (ExecutionException e) {
+				if(interrupted) {
+					break;
+				}
+				
+				throw new StorageManagerException(e.getCause());
+			}
+		}
+		
+		if(interrupted) {
+			throw new InterruptedException("Interrupted while waiting for the compactors");
+		}
+	}
+	
+	/**
+	 * Set the min number of tuples per key range subcompaction
+	 * @param subcompactionMinTuples
+	 */
+	@VisibleForTesting
+	public void setSubcompactionMinTuples(final long subcompactionMinTuples) {
+		this.subcompactionMinTuples = subcompactionMinTuples;
 	}
 
 	/**
@@ -128,8 +128,12 @@ public class SimpleMergeStrategy implements MergeStrategy {
 	}
 	
 	@Override
-	public long getCompactorDelay() {
-		return SSTableConst.COMPACT_THREAD_DELAY;
+	public long getPendingCompactionBytes(final List<SSTableFacade> sstables) {
+		return getMergeTask(sstables)
+				.getCompactTables()
+				.stream()
+				.mapToLong(SSTableFacade::getSize)
+				.sum();
 	}
 
 }
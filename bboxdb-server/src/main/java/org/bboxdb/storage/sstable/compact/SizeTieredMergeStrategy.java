@@ -0,0 +1,156 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.sstable.compact;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.bboxdb.misc.BBoxDBConfiguration;
+import org.bboxdb.misc.BBoxDBConfigurationManager;
+import org.bboxdb.storage.sstable.reader.SSTableFacade;
+
+/**
+ * Size tiered compaction. The SSTables are grouped into buckets of tables 
+ * with a similar size. When a bucket contains enough tables, the tables of 
+ * the bucket are merged into a table of the next bigger tier. Each tuple is 
+ * rewritten once per tier, so no big merges of the whole table are needed.
+ */
+public class SizeTieredMergeStrategy implements MergeStrategy {
+	
+	/**
+	 * The min number of tables in a bucket to start a merge
+	 */
+	protected final static int MIN_MERGE_TABLES = 4;
+	
+	/**
+	 * The max number of tables per merge task
+	 */
+	protected final static int MAX_MERGE_TABLES = 32;
+	
+	/**
+	 * Tables that are smaller as the bucket average * BUCKET_LOW don't belong to the bucket
+	 */
+	protected final static double BUCKET_LOW = 0.5;
+	
+	/**
+	 * Tables that are bigger as the bucket average * BUCKET_HIGH don't belong to the bucket
+	 */
+	protected final static double BUCKET_HIGH = 1.5;
+
+	@Override
+	public MergeTask getMergeTask(final List<SSTableFacade> sstables) {
+		
+		final MergeTask mergeTask = new MergeTask();
+		
+		// Merge the bucket with the smallest tables first, this 
+		// reduces the number of tables with the lowest costs
+		final List<SSTableFacade> mergeTables = getBuckets(sstables)
+				.stream()
+				.filter(b -> b.size() >= MIN_MERGE_TABLES)
+				.findFirst()
+				.orElse(new ArrayList<>());
+		
+		if(mergeTables.isEmpty()) {
+			return mergeTask;
+		}
+		
+		final List<SSTableFacade> compactTables = mergeTables
+				.stream()
+				.limit(MAX_MERGE_TABLES)
+				.collect(Collectors.toList());
+		
+		if(compactTables.size() == sstables.size()) {
+			// All tables are included, handle as major compact
+			mergeTask.setTaskType(MergeTaskType.MAJOR);
+		} else {
+			mergeTask.setTaskType(MergeTaskType.MINOR);
+		}
+		
+		mergeTask.setCompactTables(compactTables);
+		
+		return mergeTask;
+	}
+	
+	@Override
+	public long getPendingCompactionBytes(final List<SSTableFacade> sstables) {
+		return getBuckets(sstables)
+				.stream()
+				.filter(b -> b.size() >= MIN_MERGE_TABLES)
+				.flatMap(b -> b.stream())
+				.mapToLong(SSTableFacade::getSize)
+				.sum();
+	}
+
+	/**
+	 * Group the tables into buckets of similar size. All tables below the 
+	 * min table size belong to the first bucket. The buckets are ordered by 
+	 * the size of the tables.
+	 * 
+	 * @param sstables
+	 * @return
+	 */
+	protected List<List<SSTableFacade>> getBuckets(final List<SSTableFacade> sstables) {
+		
+		final List<SSTableFacade> sortedTables = new ArrayList<>(sstables);
+		sortedTables.sort(Comparator.comparingLong(SSTableFacade::getSize));
+		
+		final long minTableSize = getMinTableSize();
+		final List<List<SSTableFacade>> buckets = new ArrayList<>();
+		
+		List<SSTableFacade> bucket = new ArrayList<>();
+		long bucketBytes = 0;
+		
+		for(final SSTableFacade facade : sortedTables) {
+			final long tableSize = facade.getSize();
+			
+			if(! bucket.isEmpty()) {
+				final double average = (double) bucketBytes / (double) bucket.size();
+				
+				final boolean smallTables = tableSize <= minTableSize && average <= minTableSize;
+				final boolean similarSize = tableSize >= average * BUCKET_LOW 
+						&& tableSize <= average * BUCKET_HIGH;
+				
+				if(! smallTables && ! similarSize) {
+					buckets.add(bucket);
+					bucket = new ArrayList<>();
+					bucketBytes = 0;
+				}
+			}
+			
+			bucket.add(facade);
+			bucketBytes = bucketBytes + tableSize;
+		}
+		
+		if(! bucket.isEmpty()) {
+			buckets.add(bucket);
+		}
+		
+		return buckets;
+	}
+
+	/**
+	 * The tables below this size are handled as one bucket (e.g., the flushed memtables)
+	 * @return
+	 */
+	protected long getMinTableSize() {
+		final BBoxDBConfiguration configuration = BBoxDBConfigurationManager.getConfiguration();
+		return configuration.getMemtableSizeMax();
+	}
+}
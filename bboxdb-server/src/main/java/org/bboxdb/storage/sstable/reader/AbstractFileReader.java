@@ -20,7 +20,10 @@ package org.bboxdb.storage.sstable.reader;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
 import java.util.Arrays;
 
@@ -64,12 +67,17 @@ public abstract class AbstractFileReader implements BBoxDBService, AcquirableRes
 	/**
 	 * The file to read
 	 */
-	protected RandomAccessFile randomAccessFile;
+	protected volatile RandomAccessFile randomAccessFile;
 
 	/**
 	 * The corresponding fileChanel
 	 */
-	protected FileChannel fileChannel;
+	protected volatile FileChannel fileChannel;
+
+	/**
+	 * The lock to reopen the file channel
+	 */
+	private final Object fileChannelLock = new Object();
 
 	/**
 	 * Service state
@@ -116,22 +124,101 @@ public abstract class AbstractFileReader implements BBoxDBService, AcquirableRes
 	/**
 	 * Open a stored SSTable and read the magic bytes
 	 *
-	 * @return a InputStream or null
 	 * @throws StorageManagerException
+	 * @throws IOException 
 	 */
-	protected void validateFile() throws StorageManagerException {
+	protected void validateFile() throws StorageManagerException, IOException {
 
 		final byte[] expectedMagicBytes = getMagicBytes();
 
 		// Validate file - read the magic from the beginning
-		final byte[] magicBytes = new byte[expectedMagicBytes.length];
-
-		memory.get(magicBytes, 0, expectedMagicBytes.length);
+		final ByteBuffer magicBytes = ByteBuffer.allocate(expectedMagicBytes.length);
+		
+		while(magicBytes.hasRemaining()) {
+			if(fileChannel.read(magicBytes, magicBytes.position()) < 0) {
+				break;
+			}
+		}
 
-		if(! Arrays.equals(magicBytes, expectedMagicBytes)) {
+		if(! Arrays.equals(magicBytes.array(), expectedMagicBytes)) {
 			throw new StorageManagerException("File " + file + " does not contain the magic bytes");
 		}
 	}
+	
+	/**
+	 * Read the remaining bytes of the buffer from the given file position.
+	 * 
+	 * The file channel is shared by all readers. A file channel is closed when a 
+	 * reading thread is interrupted, so the channel is reopened for the other readers.
+	 * 
+	 * @param buffer
+	 * @param position
+	 * @throws IOException
+	 */
+	protected void readFully(final ByteBuffer buffer, final long position) throws IOException {
+		final int startPosition = buffer.position();
+		
+		while(buffer.hasRemaining()) {
+			final FileChannel channel = fileChannel;
+			
+			if(channel == null) {
+				throw new ClosedChannelException();
+			}
+			
+			try {
+				final int read = channel.read(buffer, position + buffer.position() - startPosition);
+				
+				if(read < 0) {
+					throw new IOException("Unexpected end of file " + file + " at position " 
+							+ (position + buffer.position() - startPosition));
+				}
+			} catch(ClosedByInterruptException e) {
+				// This thread was interrupted, keep the channel usable for the other readers
+				reopenFileChannel(channel);
+				throw e;
+			} catch(ClosedChannelException e) {
+				// The channel was closed by the interrupt of an other reader
+				if(! reopenFileChannel(channel)) {
+					throw e;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Reopen the file channel, when the given channel is closed
+	 * @param closedChannel
+	 * @return
+	 */
+	private boolean reopenFileChannel(final FileChannel closedChannel) {
+		synchronized (fileChannelLock) {
+			
+			// Already reopened by an other reader or closed by the shutdown
+			if(fileChannel != closedChannel) {
+				return fileChannel != null;
+			}
+			
+			try {
+				logger.debug("Reopen the closed file channel of {}", file);
+				final RandomAccessFile closedFile = randomAccessFile;
+				randomAccessFile = new RandomAccessFile(file, "r");
+				fileChannel = randomAccessFile.getChannel();
+				closedFile.close();
+				return true;
+			} catch (IOException e) {
+				logger.error("Unable to reopen the file channel of " + file, e);
+				return false;
+			}
+		}
+	}
+	
+	/**
+	 * Should the file be mapped into memory on init?
+	 * @return
+	 */
+	protected boolean isMemoryMapped() {
+		return true;
+	}
 
 	/**
 	 * Get the magic bytes for the file
@@ -140,11 +227,19 @@ public abstract class AbstractFileReader implements BBoxDBService, AcquirableRes
 	protected abstract byte[] getMagicBytes();
 
 	/**
-	 * Reset the position to the first element
+	 * Get a private view on the memory region, positioned at the given offset.
+	 * 
+	 * The view shares the mapped content but has its own position and limit. 
+	 * So, readers don't need to synchronize on the shared buffer position.
+	 * 
+	 * @param position
+	 * @return
 	 */
-	protected void resetPosition() {
-		final byte[] magicBytes = getMagicBytes();
-		memory.position(magicBytes.length);
+	protected ByteBuffer getMemoryView(final int position) {
+		final ByteBuffer view = memory.duplicate();
+		view.order(Const.APPLICATION_BYTE_ORDER);
+		view.position(position);
+		return view;
 	}
 
 	/**
@@ -161,9 +256,12 @@ public abstract class AbstractFileReader implements BBoxDBService, AcquirableRes
 
 			randomAccessFile = new RandomAccessFile(file, "r");
 			fileChannel = randomAccessFile.getChannel();
-			memory = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
-			memory.order(Const.APPLICATION_BYTE_ORDER);
 			validateFile();
+			
+			if(isMemoryMapped()) {
+				memory = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+				memory.order(Const.APPLICATION_BYTE_ORDER);
+			}
 
 			serviceState.dispatchToRunning();
 		} catch (Exception e) {
@@ -188,9 +286,13 @@ public abstract class AbstractFileReader implements BBoxDBService, AcquirableRes
 		// Wait until nobody uses the instance
 		serviceState.waitUntilUnused();
 
-		shutdownFileChannel();
-		shutdownRandomAccessFile();
+		synchronized (fileChannelLock) {
+			shutdownFileChannel();
+			shutdownRandomAccessFile();
+		}
+
 		shutdownMemory();
+		memory = null;
 
 		serviceState.dispatchToTerminated();
 	}
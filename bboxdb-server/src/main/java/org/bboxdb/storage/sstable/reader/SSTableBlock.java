@@ -0,0 +1,141 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *******************************************************************************/
+package org.bboxdb.storage.sstable.reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.bboxdb.commons.io.DataEncoderHelper;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.util.TupleHelper;
+
+public class SSTableBlock {
+
+	/**
+	 * The uncompressed payload of the block
+	 */
+	private final ByteBuffer payload;
+
+	/**
+	 * The number of tuples in the block
+	 */
+	private final int tuples;
+
+	/**
+	 * The number of the first tuple in the block
+	 */
+	private final int firstTupleNumber;
+
+	public SSTableBlock(final byte[] payload, final int firstTupleNumber) {
+		this.payload = ByteBuffer.wrap(payload).order(DataEncoderHelper.APPLICATION_BYTE_ORDER);
+		this.tuples = this.payload.getInt(0);
+		this.firstTupleNumber = firstTupleNumber;
+	}
+
+	/**
+	 * Get the number of tuples in the block
+	 * @return
+	 */
+	public int getNumberOfTuples() {
+		return tuples;
+	}
+
+	/**
+	 * Get the number of the first tuple in the block
+	 * @return
+	 */
+	public int getFirstTupleNumber() {
+		return firstTupleNumber;
+	}
+
+	/**
+	 * Get the payload offset of the n-th tuple from the in-block key directory
+	 * @param tuple
+	 * @return
+	 */
+	private int getTupleOffset(final int tuple) {
+		return payload.getInt(DataEncoderHelper.INT_BYTES * (tuple + 1));
+	}
+
+	/**
+	 * Decode the n-th tuple of the block
+	 * @param tuple
+	 * @return
+	 * @throws IOException
+	 */
+	public Tuple getTuple(final int tuple) throws IOException {
+		final ByteBuffer view = payload.duplicate();
+		view.order(DataEncoderHelper.APPLICATION_BYTE_ORDER);
+		view.position(getTupleOffset(tuple));
+
+		final Tuple result = TupleHelper.decodeTuple(view);
+
+		SSTableReader.readTuplesTotal.inc();
+		SSTableReader.readTuplesBytes.inc(view.position() - getTupleOffset(tuple));
+
+		return result;
+	}
+
+	/**
+	 * Decode only the key of the n-th tuple of the block
+	 * @param tuple
+	 * @return
+	 */
+	public String getKey(final int tuple) {
+		final int position = getTupleOffset(tuple);
+		final short keyLength = payload.getShort(position);
+
+		final int keyPosition = position
+				+ DataEncoderHelper.SHORT_BYTES						// Key-Length
+				+ DataEncoderHelper.INT_BYTES						// BBOX-Length
+				+ DataEncoderHelper.INT_BYTES 						// Data-Length
+				+ DataEncoderHelper.LONG_BYTES						// Version Timestamp
+				+ DataEncoderHelper.LONG_BYTES;						// Received Timetamp
+
+		SSTableReader.readTupleKeysTotal.inc();
+
+		return new String(payload.array(), keyPosition, keyLength);
+	}
+
+	/**
+	 * Find the first tuple in the block with a key >= the given key
+	 * @param key
+	 * @return the tuple number in the block or getNumberOfTuples() when all keys are smaller
+	 */
+	public int findFirstTupleWithKey(final String key) {
+		int low = 0;
+		int high = tuples;
+
+		while(low < high) {
+			final int middle = (low + high) >>> 1;
+
+			if(getKey(middle).compareTo(key) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+
+	@Override
+	public String toString() {
+		return "SSTableBlock [tuples=" + tuples + ", firstTupleNumber=" + firstTupleNumber + "]";
+	}
+}
@@ -21,9 +21,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 import org.bboxdb.commons.math.Hyperrectangle;
 import org.bboxdb.misc.BBoxDBException;
@@ -34,7 +36,6 @@ import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.entity.TupleStoreMetaData;
 import org.bboxdb.storage.entity.TupleStoreName;
 import org.bboxdb.storage.sstable.SSTableHelper;
-import org.bboxdb.storage.sstable.spatialindex.SpatialIndexEntry;
 import org.bboxdb.storage.sstable.spatialindex.SpatialIndexReader;
 import org.bboxdb.storage.sstable.spatialindex.SpatialIndexReaderFactory;
 import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
@@ -80,6 +81,11 @@ public class SSTableFacade implements BBoxDBService, ReadOnlyTupleStore {
 	 */
 	protected BloomFilter<String> bloomfilter;
 	
+	/**
+	 * The time index (null for SSTables without time index)
+	 */
+	protected final SSTableTimeIndexReader timeIndexReader;
+	
 	/**
 	 * The number of the table
 	 */
@@ -116,6 +122,13 @@ public class SSTableFacade implements BBoxDBService, ReadOnlyTupleStore {
 		ssTableReader = new SSTableReader(directory, tablename, tablenumber);
 		ssTableKeyIndexReader = new SSTableKeyIndexReader(ssTableReader);
 		
+		// Time index, SSTables of older versions are written without a time index
+		if(getTimeIndexFile(directory, tablename, tablenumber).exists()) {
+			timeIndexReader = new SSTableTimeIndexReader(directory, tablename, tablenumber);
+		} else {
+			timeIndexReader = null;
+		}
+		
 		// Meta data
 		final File metadataFile = getMetadataFile(directory, tablename, tablenumber);
 		ssTableMetadata = TupleStoreMetaData.importFromYamlFile(metadataFile);
@@ -138,6 +151,18 @@ public class SSTableFacade implements BBoxDBService, ReadOnlyTupleStore {
 		return spatialIndexFile;
 	}
 
+	/**
+	 * Get the time index file
+	 * @param directory
+	 * @param tablename
+	 * @param tablenumber
+	 * @return
+	 */
+	protected File getTimeIndexFile(final String directory, final TupleStoreName tablename, final int tablenumber) {
+		final String timeIndexFileName = SSTableHelper.getSSTableTimeIndexFilename(directory, tablename, tablenumber);
+		return new File(timeIndexFileName);
+	}
+
 	/**
 	 * Get the bloomfilter file
 	 * @param directory
@@ -222,6 +247,11 @@ public class SSTableFacade implements BBoxDBService, ReadOnlyTupleStore {
 			final File spatialIndexFile = getSpatialIndexFile(directory, tablename, tablenumber);
 			loadSpatialIndex(spatialIndexFile); 
 			
+			// Time index
+			if(timeIndexReader != null) {
+				timeIndexReader.init();
+			}
+			
 			// Bloom filter
 			final File bloomFilterFile = getBloomFilterFile(directory, tablename, tablenumber);
 			loadBloomFilter(bloomFilterFile);
@@ -243,6 +273,10 @@ public class SSTableFacade implements BBoxDBService, ReadOnlyTupleStore {
 		if(spatialIndex != null) {
 			spatialIndex.close();
 		}
+		
+		if(timeIndexReader != null) {
+			timeIndexReader.shutdown();
+		}
 	}
 
 	@Override
@@ -331,6 +365,11 @@ public class SSTableFacade implements BBoxDBService, ReadOnlyTupleStore {
 			final File spatialIndexFile = getSpatialIndexFile(directory, tablename, tablenumber);
 			spatialIndexFile.delete();
 			
+			// Delete time index
+			if(timeIndexReader != null) {
+				timeIndexReader.delete();
+			}
+			
 			// Delete bloom filter
 			final File bloomFilterFile = getBloomFilterFile(directory, tablename, tablenumber);
 			bloomFilterFile.delete();
@@ -401,7 +440,7 @@ public class SSTableFacade implements BBoxDBService, ReadOnlyTupleStore {
 		final List<Integer> positions = ssTableKeyIndexReader.getPositionsForTuple(key);
 		
 		for(final Integer position : positions) {
-			resultList.add(ssTableReader.getTupleAtPosition(position));
+			resultList.add(ssTableKeyIndexReader.getTupleAtPosition(position));
 		}
 		
 		return resultList;
@@ -447,35 +486,123 @@ public class SSTableFacade implements BBoxDBService, ReadOnlyTupleStore {
 	public Iterator<Tuple> getAllTuplesInBoundingBox(final Hyperrectangle boundingBox) {
 		assert (usage.get() > 0);
 
-		List<SpatialIndexEntry> entries;
+		final IntStream.Builder positions = IntStream.builder();
 		
 		try {
-			entries = spatialIndex.getEntriesForRegion(boundingBox);
+			spatialIndex.forEachValueInRegion(boundingBox, positions::add);
 		} catch (StorageManagerException e) {
 			throw new RuntimeException(e);
 		}
 		
-		final Iterator<SpatialIndexEntry> entryIterator = entries.iterator();
-		
-		return new Iterator<Tuple>() {
+		return ssTableKeyIndexReader.getTuplesAtPositions(positions.build().toArray());
+	}
 
-			@Override
-			public boolean hasNext() {
-				return entryIterator.hasNext();
+	/**
+	 * Get the tuples that are newer as the given timestamps and intersect the
+	 * bounding box. The tuple numbers of the time index and the spatial index 
+	 * are intersected, so only the tuples that match both indexes are read.
+	 * 
+	 * A timestamp of Long.MIN_VALUE disables the corresponding time restriction. 
+	 * SSTables without a time index return all tuples of the bounding box.
+	 * 
+	 * @param boundingBox
+	 * @param versionTimestamp
+	 * @param insertedTimestamp
+	 * @return
+	 */
+	public Iterator<Tuple> getAllTuplesNewerAs(final Hyperrectangle boundingBox, 
+			final long versionTimestamp, final long insertedTimestamp) {
+		
+		assert (usage.get() > 0);
+		
+		if(! hasTimeIndex()) {
+			return getAllTuplesInRegion(boundingBox);
+		}
+		
+		int[] positions = null;
+		
+		if(versionTimestamp != Long.MIN_VALUE) {
+			positions = timeIndexReader.getTupleNumbersNewerAsVersionTime(versionTimestamp);
+			Arrays.sort(positions);
+		}
+		
+		if(insertedTimestamp != Long.MIN_VALUE) {
+			final int[] insertedPositions = timeIndexReader.getTupleNumbersNewerAsInsertedTime(insertedTimestamp);
+			Arrays.sort(insertedPositions);
+			positions = (positions == null) ? insertedPositions : intersect(positions, insertedPositions);
+		}
+		
+		if(positions == null) {
+			return getAllTuplesInRegion(boundingBox);
+		}
+		
+		// Tuples without a bounding box are not part of the spatial index
+		if(positions.length > 0 && ! Hyperrectangle.FULL_SPACE.equals(boundingBox)) {
+			final IntStream.Builder spatialPositions = IntStream.builder();
+			
+			try {
+				spatialIndex.forEachValueInRegion(boundingBox, spatialPositions::add);
+			} catch (StorageManagerException e) {
+				throw new RuntimeException(e);
 			}
-
-			@Override
-			public Tuple next() {
-				final SpatialIndexEntry entry = entryIterator.next();
-				final int tuplePosition = entry.getValue();
-				
-				try {
-					return ssTableReader.getTupleAtPosition(tuplePosition);
-				} catch (StorageManagerException e) {
-					throw new RuntimeException(e);
-				}
+			
+			positions = intersect(positions, spatialPositions.build().sorted().toArray());
+		}
+		
+		return ssTableKeyIndexReader.getTuplesAtPositions(positions);
+	}
+	
+	/**
+	 * Get the tuples that intersect the bounding box. Tuples without a bounding box 
+	 * and deletion markers are not part of the spatial index, so all tuples are 
+	 * returned for the full space.
+	 * 
+	 * @param boundingBox
+	 * @return
+	 */
+	private Iterator<Tuple> getAllTuplesInRegion(final Hyperrectangle boundingBox) {
+		
+		if(Hyperrectangle.FULL_SPACE.equals(boundingBox)) {
+			return iterator();
+		}
+		
+		return getAllTuplesInBoundingBox(boundingBox);
+	}
+	
+	/**
+	 * Intersect two sorted arrays
+	 * @param values1
+	 * @param values2
+	 * @return
+	 */
+	private static int[] intersect(final int[] values1, final int[] values2) {
+		final int[] result = new int[Math.min(values1.length, values2.length)];
+		int resultLength = 0;
+		int pos1 = 0;
+		int pos2 = 0;
+		
+		while(pos1 < values1.length && pos2 < values2.length) {
+			if(values1[pos1] < values2[pos2]) {
+				pos1++;
+			} else if(values1[pos1] > values2[pos2]) {
+				pos2++;
+			} else {
+				result[resultLength] = values1[pos1];
+				resultLength++;
+				pos1++;
+				pos2++;
 			}
-		};
+		}
+		
+		return Arrays.copyOf(result, resultLength);
+	}
+	
+	/**
+	 * Is a time index for the SSTable available
+	 * @return
+	 */
+	public boolean hasTimeIndex() {
+		return timeIndexReader != null && timeIndexReader.isReady();
 	}
 
 	@Override
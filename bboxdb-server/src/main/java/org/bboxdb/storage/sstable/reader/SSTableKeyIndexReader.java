@@ -19,11 +19,15 @@ package org.bboxdb.storage.sstable.reader;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 
+import org.bboxdb.commons.io.DataEncoderHelper;
+import org.bboxdb.misc.Const;
 import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.sstable.SSTableConst;
@@ -47,6 +51,36 @@ public class SSTableKeyIndexReader extends AbstractFileReader implements Iterabl
 	 */
 	protected LoadingCache<Long, String> keyCache;
 
+	/**
+	 * The cache for the decoded blocks (version 2)
+	 */
+	protected final LoadingCache<Integer, SSTableBlock> blockCache;
+
+	/**
+	 * The format version of the index
+	 */
+	protected short formatVersion;
+	
+	/**
+	 * The positions of the blocks in the SSTable (version 2)
+	 */
+	protected long[] blockPositions;
+	
+	/**
+	 * The number of the first tuple per block (version 2)
+	 */
+	protected int[] blockFirstTuples;
+	
+	/**
+	 * The first key per block (version 2)
+	 */
+	protected String[] blockFirstKeys;
+	
+	/**
+	 * The total number of tuples (version 2)
+	 */
+	protected int numberOfTuples;
+
 	/**
 	 * The Logger
 	 */
@@ -55,6 +89,16 @@ public class SSTableKeyIndexReader extends AbstractFileReader implements Iterabl
 	public SSTableKeyIndexReader(final SSTableReader sstableReader) throws StorageManagerException {
 		super(sstableReader.getDirectory(), sstableReader.getName(), sstableReader.getTablebumber());
 		this.sstableReader = sstableReader;
+		
+		this.blockCache = CacheBuilder.newBuilder()
+				.maximumSize(SSTableConst.BLOCK_CACHE_ENTRIES)
+				.build(new CacheLoader<Integer, SSTableBlock>() {
+
+			@Override
+			public SSTableBlock load(final Integer blockNumber) throws Exception {
+				return sstableReader.readBlock(blockPositions[blockNumber], blockFirstTuples[blockNumber]);
+			}
+		});
 	}
 
 	@Override
@@ -97,6 +141,10 @@ public class SSTableKeyIndexReader extends AbstractFileReader implements Iterabl
 	 * @throws StorageManagerException
 	 */
 	public List<Integer> getPositionsForTuple(final String key) throws StorageManagerException {
+		
+		if(formatVersion != SSTableConst.SST_VERSION_1) {
+			return getPositionsForTupleFromBlocks(key);
+		}
 
 		try {
 			int firstEntry = 0;
@@ -154,6 +202,121 @@ public class SSTableKeyIndexReader extends AbstractFileReader implements Iterabl
 		return new ArrayList<>();
 	}
 
+	/**
+	 * Get the positions of the tuple. Only the blocks that can contain the 
+	 * key are read. The duplicates of a key can span multiple blocks.
+	 * 
+	 * @param key
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	protected List<Integer> getPositionsForTupleFromBlocks(final String key) throws StorageManagerException {
+		final List<Integer> positions = new ArrayList<>();
+		
+		// The last block that can contain the key
+		final int lastBlock = findLastBlockWithFirstKey(key, true);
+		
+		// Not found
+		if(lastBlock < 0) {
+			return positions;
+		}
+		
+		// The first block that can contain the key
+		final int firstBlock = Math.max(0, findLastBlockWithFirstKey(key, false));
+		
+		for(int blockNumber = firstBlock; blockNumber <= lastBlock; blockNumber++) {
+			final SSTableBlock block = readBlock(blockNumber);
+			
+			for(int i = block.findFirstTupleWithKey(key); i < block.getNumberOfTuples(); i++) {
+				if(! block.getKey(i).equals(key)) {
+					break;
+				}
+				
+				positions.add(block.getFirstTupleNumber() + i);
+			}
+		}
+		
+		return positions;
+	}
+	
+	/**
+	 * Find the last block with a first key lower than the given key 
+	 * (or lower or equal if inclusive is set)
+	 * 
+	 * @param key
+	 * @param inclusive
+	 * @return the block number or -1
+	 */
+	protected int findLastBlockWithFirstKey(final String key, final boolean inclusive) {
+		int low = 0;
+		int high = blockFirstKeys.length;
+		
+		while(low < high) {
+			final int middle = (low + high) >>> 1;
+			final int compareResult = blockFirstKeys[middle].compareTo(key);
+			
+			if(compareResult < 0 || (inclusive && compareResult == 0)) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		
+		return low - 1;
+	}
+	
+	/**
+	 * Find the block that contains the given tuple number
+	 * @param tupleNumber
+	 * @return
+	 */
+	protected int findBlockForTupleNumber(final long tupleNumber) {
+		int low = 0;
+		int high = blockFirstTuples.length;
+		
+		while(low < high) {
+			final int middle = (low + high) >>> 1;
+			
+			if(blockFirstTuples[middle] <= tupleNumber) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		
+		return low - 1;
+	}
+	
+	/**
+	 * Read the given block
+	 * @param blockNumber
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	protected SSTableBlock readBlock(final int blockNumber) throws StorageManagerException {
+		try {
+			return blockCache.get(blockNumber);
+		} catch (ExecutionException e) {
+			throw new StorageManagerException(e);
+		}
+	}
+	
+	/**
+	 * Read the block that contains the given tuple number
+	 * @param tupleNumber
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	protected SSTableBlock readBlockForTupleNumber(final long tupleNumber) throws StorageManagerException {
+		
+		if(tupleNumber < 0 || tupleNumber >= numberOfTuples) {
+			throw new StorageManagerException("Requesting wrong tuple: " + tupleNumber 
+					+ " of " + numberOfTuples);
+		}
+		
+		return readBlock(findBlockForTupleNumber(tupleNumber));
+	}
+
 	/**
 	 * The SSTable can contain duplicates, so we nee to scan up and down from
 	 * the given position to retrive all keys
@@ -208,6 +371,34 @@ public class SSTableKeyIndexReader extends AbstractFileReader implements Iterabl
 		return positions;
 	}
 
+	/**
+	 * Get the first index entry with a key that is not lower than the given key
+	 * 
+	 * @param key
+	 * @return the index entry or the number of entries if all keys are lower
+	 * @throws StorageManagerException
+	 */
+	public int getFirstIndexEntryForKey(final String key) throws StorageManagerException {
+		int low = 0;
+		int high = getNumberOfEntries();
+		
+		try {
+			while(low < high) {
+				final int middle = (low + high) >>> 1;
+				
+				if(getKeyForIndexEntry(middle).compareTo(key) < 0) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+		} catch (IOException e) {
+			throw new StorageManagerException("Error while reading index file", e);
+		}
+		
+		return low;
+	}
+
 	/**
 	 * Get the string key for index entry
 	 * @param entry
@@ -235,6 +426,16 @@ public class SSTableKeyIndexReader extends AbstractFileReader implements Iterabl
 	 * @throws IOException
 	 */
 	protected String readKeyFromBytePos(final long entry) throws IOException {
+		
+		if(formatVersion != SSTableConst.SST_VERSION_1) {
+			try {
+				final SSTableBlock block = readBlockForTupleNumber(entry);
+				return block.getKey((int) (entry - block.getFirstTupleNumber()));
+			} catch (StorageManagerException e) {
+				throw new IOException(e);
+			}
+		}
+		
 		final int position = convertEntryToPosition(entry);
 		return sstableReader.decodeOnlyKeyFromTupleAtPosition(position);
 	}
@@ -247,9 +448,95 @@ public class SSTableKeyIndexReader extends AbstractFileReader implements Iterabl
 	 * @throws StorageManagerException
 	 */
 	public Tuple getTupleForIndexEntry(final long entry) throws IOException, StorageManagerException {
+		
+		if(formatVersion != SSTableConst.SST_VERSION_1) {
+			final SSTableBlock block = readBlockForTupleNumber(entry);
+			return block.getTuple((int) (entry - block.getFirstTupleNumber()));
+		}
+		
 		final int position = convertEntryToPosition(entry);
 		return sstableReader.getTupleAtPosition(position);
 	}
+	
+	/**
+	 * Get the tuple for the given position. The positions are returned by
+	 * getPositionsForTuple() and are stored in the spatial index. For version 1
+	 * SSTables, the position is the byte offset in the SSTable. For newer 
+	 * SSTables, the position is the number of the tuple.
+	 * 
+	 * @param position
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	public Tuple getTupleAtPosition(final int position) throws StorageManagerException {
+		
+		if(formatVersion == SSTableConst.SST_VERSION_1) {
+			return sstableReader.getTupleAtPosition(position);
+		}
+		
+		try {
+			return getTupleForIndexEntry(position);
+		} catch (IOException e) {
+			throw new StorageManagerException(e);
+		}
+	}
+	
+	/**
+	 * Get the tuples for the given positions. The positions are sorted, so 
+	 * tuples that are stored in the same block are decoded from one block read.
+	 * 
+	 * @param positions
+	 * @return
+	 */
+	public Iterator<Tuple> getTuplesAtPositions(final List<Integer> positions) {
+		return getTuplesAtPositions(positions.stream().mapToInt(i -> i).toArray());
+	}
+	
+	/**
+	 * Get the tuples for the given positions. The positions are sorted, 
+	 * the given array is not modified.
+	 * 
+	 * @param positions
+	 * @return
+	 */
+	public Iterator<Tuple> getTuplesAtPositions(final int[] positions) {
+		
+		final int[] sortedPositions = positions.clone();
+		Arrays.sort(sortedPositions);
+		
+		return new Iterator<Tuple>() {
+			
+			protected int entry = 0;
+			
+			protected SSTableBlock block = null;
+
+			@Override
+			public boolean hasNext() {
+				return entry < sortedPositions.length;
+			}
+
+			@Override
+			public Tuple next() {
+				final int position = sortedPositions[entry];
+				entry++;
+				
+				try {
+					if(formatVersion == SSTableConst.SST_VERSION_1) {
+						return sstableReader.getTupleAtPosition(position);
+					}
+					
+					if(block == null || position < block.getFirstTupleNumber() 
+							|| position >= block.getFirstTupleNumber() + block.getNumberOfTuples()) {
+						block = readBlockForTupleNumber(position);
+					}
+					
+					return block.getTuple(position - block.getFirstTupleNumber());
+				} catch (StorageManagerException | IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+	}
 
 	/**
 	 * Convert the index entry to index file position
@@ -257,24 +544,22 @@ public class SSTableKeyIndexReader extends AbstractFileReader implements Iterabl
 	 * @return
 	 * @throws IOException
 	 */
-	protected synchronized int convertEntryToPosition(final long entry) throws IOException {
-		if(! acquire()) {
-			throw new IOException("Unable to aquire");
-		}
-
+	protected int convertEntryToPosition(final long entry) throws IOException {
+		
 		// Memory was unmapped
-		if(! serviceState.isInRunningState()) {
+		if(! acquire()) {
 			throw new IOException("Not in running state");
 		}
 
-		final byte[] magicBytes = getMagicBytes();
-
-		memory.position((int) ((entry * SSTableConst.INDEX_ENTRY_BYTES) + magicBytes.length));
-		final int position = memory.getInt();
-
-		release();
-
-		return position;
+		try {
+			final byte[] magicBytes = getMagicBytes();
+			final int indexPosition = (int) ((entry * SSTableConst.INDEX_ENTRY_BYTES) + magicBytes.length);
+			
+			// Absolute read, the shared buffer position is not modified
+			return memory.getInt(indexPosition);
+		} finally {
+			release();
+		}
 	}
 
 	/**
@@ -282,6 +567,11 @@ public class SSTableKeyIndexReader extends AbstractFileReader implements Iterabl
 	 * @return
 	 */
 	public int getNumberOfEntries() {
+		
+		if(formatVersion != SSTableConst.SST_VERSION_1) {
+			return numberOfTuples;
+		}
+		
 		try {
 			if(fileChannel == null) {
 				logger.warn("getNumberOfEntries() called on closed sstableindexreader for relation: {}", name);
@@ -311,6 +601,10 @@ public class SSTableKeyIndexReader extends AbstractFileReader implements Iterabl
 	 */
 	@Override
 	public Iterator<Tuple> iterator() {
+		
+		if(formatVersion != SSTableConst.SST_VERSION_1) {
+			return blockIterator();
+		}
 
 		return new Iterator<Tuple>() {
 
@@ -351,6 +645,189 @@ public class SSTableKeyIndexReader extends AbstractFileReader implements Iterabl
 		};
 	}
 
+	/**
+	 * Iterate over the tuples with a key in the range [fromKey, toKey)
+	 * 
+	 * @param fromKey - the first key or null for no lower bound
+	 * @param toKey - the first key after the range or null for no upper bound
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	public Iterator<Tuple> iterator(final String fromKey, final String toKey) 
+			throws StorageManagerException {
+		
+		final int firstEntry = (fromKey == null) ? 0 : getFirstIndexEntryForKey(fromKey);
+		final int lastEntry = (toKey == null) ? getNumberOfEntries() : getFirstIndexEntryForKey(toKey);
+		
+		return new Iterator<Tuple>() {
+			
+			protected int entry = firstEntry;
+
+			@Override
+			public boolean hasNext() {
+				return entry < lastEntry;
+			}
+
+			@Override
+			public Tuple next() {
+				
+				if(entry >= lastEntry) {
+					throw new IllegalStateException("Requesting wrong entry: " + entry + " of " + lastEntry);
+				}
+				
+				try {
+					final Tuple tuple = getTupleForIndexEntry(entry);
+					entry++;
+					return tuple;
+				} catch (StorageManagerException | IOException e) {
+					if(sstableReader.isReady()) {
+						logger.error("Got exception while iterating (requesting entry " + entry 
+								+ " of " + lastEntry + ")", e);
+					} else {
+						logger.debug("Catching exception on non ready reader", e);
+					}
+				}
+				
+				return null;
+			}
+			
+			@Override
+			public void remove() {
+				throw new IllegalStateException("Remove is not supported");
+			}
+		};
+	}
+
+	/**
+	 * Iterate over the tuples of the sstable block by block
+	 * @return
+	 */
+	protected Iterator<Tuple> blockIterator() {
+		
+		return new Iterator<Tuple>() {
+			
+			protected int blockNumber = 0;
+			
+			protected int tupleInBlock = 0;
+			
+			protected SSTableBlock block = null;
+
+			@Override
+			public boolean hasNext() {
+				
+				if(block != null && tupleInBlock < block.getNumberOfTuples()) {
+					return true;
+				}
+				
+				return blockNumber < blockPositions.length;
+			}
+
+			@Override
+			public Tuple next() {
+				
+				try {
+					if(block == null || tupleInBlock >= block.getNumberOfTuples()) {
+						
+						if(blockNumber >= blockPositions.length) {
+							throw new IllegalStateException("Requesting wrong block: " + blockNumber 
+									+ " of " + blockPositions.length);
+						}
+						
+						block = readBlock(blockNumber);
+						blockNumber++;
+						tupleInBlock = 0;
+					}
+					
+					final Tuple tuple = block.getTuple(tupleInBlock);
+					tupleInBlock++;
+					return tuple;
+				} catch (StorageManagerException | IOException e) {
+					if(sstableReader.isReady()) {
+						logger.error("Got exception while iterating (requesting block " + blockNumber 
+								+ " of " + blockPositions.length + ")", e);
+					} else {
+						logger.debug("Catching exception on non ready reader", e);
+					}
+				}
+				
+				return null;
+			}
+
+			@Override
+			public void remove() {
+				throw new IllegalStateException("Remove is not supported");
+			}
+		};
+	}
+	
+	/**
+	 * Validate the file, determine the format version and load the sparse index
+	 */
+	@Override
+	protected void validateFile() throws StorageManagerException, IOException {
+		super.validateFile();
+		
+		formatVersion = SSTableHelper.getSSTableFormatVersion(file);
+		
+		if(formatVersion == SSTableConst.SST_VERSION_2) {
+			loadSparseIndex();
+		} else if(formatVersion != SSTableConst.SST_VERSION_1) {
+			throw new StorageManagerException("Unsupported index version " + formatVersion 
+					+ " in file " + file);
+		}
+	}
+	
+	/**
+	 * Load the sparse index (one entry per block) into memory
+	 * @throws IOException
+	 */
+	protected void loadSparseIndex() throws IOException {
+		final int headerLength = getMagicBytes().length + DataEncoderHelper.SHORT_BYTES;
+		final ByteBuffer buffer = ByteBuffer.allocate((int) (fileChannel.size() - headerLength));
+		buffer.order(Const.APPLICATION_BYTE_ORDER);
+		readFully(buffer, headerLength);
+		buffer.flip();
+		
+		final List<Long> positions = new ArrayList<>();
+		final List<Integer> firstTuples = new ArrayList<>();
+		final List<String> firstKeys = new ArrayList<>();
+		int tuples = 0;
+		
+		while(buffer.hasRemaining()) {
+			positions.add(buffer.getLong());
+			final int firstTuple = buffer.getInt();
+			firstTuples.add(firstTuple);
+			final int tuplesInBlock = buffer.getInt();
+			final short keyLength = buffer.getShort();
+			final byte[] keyBytes = new byte[keyLength];
+			buffer.get(keyBytes);
+			firstKeys.add(new String(keyBytes));
+			tuples = firstTuple + tuplesInBlock;
+		}
+		
+		blockPositions = positions.stream().mapToLong(l -> l).toArray();
+		blockFirstTuples = firstTuples.stream().mapToInt(i -> i).toArray();
+		blockFirstKeys = firstKeys.toArray(new String[0]);
+		numberOfTuples = tuples;
+	}
+	
+	/**
+	 * Only version 1 indices are mapped into memory, the 
+	 * sparse index of newer versions is kept on the heap
+	 */
+	@Override
+	protected boolean isMemoryMapped() {
+		return formatVersion == SSTableConst.SST_VERSION_1;
+	}
+	
+	/**
+	 * Get the format version of the index
+	 * @return
+	 */
+	public short getFormatVersion() {
+		return formatVersion;
+	}
+	
 	@Override
 	public String getServicename() {
 		return "SSTable key index reader";
@@ -19,11 +19,14 @@ package org.bboxdb.storage.sstable.reader;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.bboxdb.commons.io.DataEncoderHelper;
+import org.bboxdb.misc.Const;
 import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.sstable.SSTableCompression;
 import org.bboxdb.storage.sstable.SSTableConst;
 import org.bboxdb.storage.sstable.SSTableHelper;
 import org.bboxdb.storage.util.TupleHelper;
@@ -55,6 +58,18 @@ public class SSTableReader extends AbstractFileReader {
 			.name("bboxdb_read_tuple_bytes")
 			.help("Total read tuple bytes").register();
 	
+	/**
+	 * The total read blocks counter
+	 */
+	protected final static Counter readBlocksTotal = Counter.build()
+			.name("bboxdb_read_block_total")
+			.help("Total read SSTable blocks").register();
+	
+	/**
+	 * The format version of the SSTable
+	 */
+	protected short formatVersion;
+	
 	/**
 	 * The Logger
 	 */
@@ -71,18 +86,22 @@ public class SSTableReader extends AbstractFileReader {
 	 * @return the tuple or null	
 	 * @throws StorageManagerException 
 	 */
-	public synchronized Tuple scanForTuple(final String key) throws StorageManagerException {
+	public Tuple scanForTuple(final String key) throws StorageManagerException {
 		logger.info("Scanning table " + tablenumber + " for " + key);
+		
+		if(formatVersion != SSTableConst.SST_VERSION_1) {
+			return scanBlocksForTuple(key);
+		}
 
+		if(! acquire()) {
+			throw new StorageManagerException("Unable to aquire");
+		}
+		
 		try {
-			if(! acquire()) {
-				throw new IOException("Unable to aquire");
-			}
-			
-			resetPosition();
+			final ByteBuffer view = getMemoryView(getMagicBytes().length);
 			
-			while(memory.hasRemaining()) {
-				final Tuple tuple = TupleHelper.decodeTuple(memory);
+			while(view.hasRemaining()) {
+				final Tuple tuple = TupleHelper.decodeTuple(view);
 
 				// The keys are stored in lexicographical order. If the
 				// next key of the sstable is greater then our search key,
@@ -106,74 +125,203 @@ public class SSTableReader extends AbstractFileReader {
 	}
 	
 	/**
-	 * Get tuple at the given position
+	 * Scan all blocks of the SSTable for the tuple
+	 * @param key
+	 * @return the tuple or null
+	 * @throws StorageManagerException
+	 */
+	private Tuple scanBlocksForTuple(final String key) throws StorageManagerException {
+		long blockPosition = getFirstBlockPosition();
+		final long fileSize = getSize();
+		int firstTupleNumber = 0;
+		
+		try {
+			while(blockPosition < fileSize) {
+				final SSTableBlock block = readBlock(blockPosition, firstTupleNumber);
+				
+				for(int i = 0; i < block.getNumberOfTuples(); i++) {
+					final String tupleKey = block.getKey(i);
+					
+					if(tupleKey.compareTo(key) > 0) {
+						return null;
+					}
+					
+					if(tupleKey.equals(key)) {
+						return block.getTuple(i);
+					}
+				}
+				
+				blockPosition = blockPosition + getBlockLength(blockPosition);
+				firstTupleNumber = firstTupleNumber + block.getNumberOfTuples();
+			}
+		} catch (IOException e) {
+			throw new StorageManagerException(e);
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Get tuple at the given position (version 1 SSTables only, the tuples
+	 * of newer SSTables are read via blocks)
 	 * 
 	 * @param position
 	 * @return The tuple
 	 * @throws StorageManagerException
 	 */
-	public synchronized Tuple getTupleAtPosition(final int position) throws StorageManagerException {
+	public Tuple getTupleAtPosition(final int position) throws StorageManagerException {
+		
+		if(formatVersion != SSTableConst.SST_VERSION_1) {
+			throw new StorageManagerException("Positional reads are not supported for SSTable version " 
+					+ formatVersion);
+		}
+		
+		// The memory was unmapped
+		if(! acquire()) {
+			logger.warn("Read request to unmapped memory for relation: " + name);
+			return null;
+		}
 		
 		try {
-			// The memory was unmapped
-			if(! serviceState.isInRunningState()) {
-				logger.warn("Read request to unmapped memory for relation: " + name);
-				return null;
-			}
-			
-			acquire();
-			memory.position(position);
+			final ByteBuffer view = getMemoryView(position);
 			
-			final Tuple tuple = TupleHelper.decodeTuple(memory);
-			final int newPosition = memory.position();
-			final int readBytes = newPosition - position;
+			final Tuple tuple = TupleHelper.decodeTuple(view);
+			final int readBytes = view.position() - position;
 
 			readTuplesTotal.inc();
 			readTuplesBytes.inc(readBytes);
 			
 			return tuple;
 		} catch (Exception e) {
-			try {
-				throw new StorageManagerException("Exception while decoding Position: " + position +  " Size "  + fileChannel.size(), e);
-			} catch (IOException e1) {
-				throw new StorageManagerException(e);
-			} 
+			throw new StorageManagerException("Exception while decoding Position: " + position 
+					+  " Size "  + memory.capacity(), e);
+		} finally {
+			release();
+		}
+	}
+	
+	/**
+	 * Read and decompress the block at the given position (version 2 SSTables)
+	 * 
+	 * The block is read with positional reads on the file channel, so
+	 * concurrent readers don't interfere with each other.
+	 * 
+	 * @param blockPosition
+	 * @param firstTupleNumber
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	public SSTableBlock readBlock(final long blockPosition, final int firstTupleNumber) 
+			throws StorageManagerException {
+		
+		if(! acquire()) {
+			throw new StorageManagerException("Unable to aquire");
+		}
+		
+		try {
+			final ByteBuffer header = readFully(blockPosition, SSTableConst.BLOCK_HEADER_BYTES);
+			final SSTableCompression compression = SSTableCompression.fromByte(header.get());
+			final int uncompressedLength = header.getInt();
+			final int storedLength = header.getInt();
+			
+			final ByteBuffer storedPayload = readFully(blockPosition + SSTableConst.BLOCK_HEADER_BYTES, 
+					storedLength);
+			
+			final byte[] payload = compression.decompress(storedPayload.array(), uncompressedLength);
+			
+			readBlocksTotal.inc();
+			
+			return new SSTableBlock(payload, firstTupleNumber);
+		} catch (IOException e) {
+			throw new StorageManagerException("Exception while reading block at: " + blockPosition, e);
 		} finally {
 			release();
 		}
 	}
 	
+	/**
+	 * Get the length of the block at the given position (including the header)
+	 * @param blockPosition
+	 * @return
+	 * @throws IOException
+	 */
+	private long getBlockLength(final long blockPosition) throws IOException {
+		final ByteBuffer header = readFully(blockPosition, SSTableConst.BLOCK_HEADER_BYTES);
+		// Skip the compression and the uncompressed length
+		final int storedLength = header.getInt(1 + DataEncoderHelper.INT_BYTES);
+		return SSTableConst.BLOCK_HEADER_BYTES + storedLength;
+	}
+	
+	/**
+	 * Read the given amount of bytes at the given position
+	 * @param position
+	 * @param length
+	 * @return
+	 * @throws IOException
+	 */
+	private ByteBuffer readFully(final long position, final int length) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(length);
+		buffer.order(Const.APPLICATION_BYTE_ORDER);
+		readFully(buffer, position);
+		buffer.flip();
+		return buffer;
+	}
+	
+	/**
+	 * Get the position of the first block
+	 * @return
+	 */
+	public long getFirstBlockPosition() {
+		return getMagicBytes().length + DataEncoderHelper.SHORT_BYTES;
+	}
+	
+	/**
+	 * Get the format version of the SSTable
+	 * @return
+	 */
+	public short getFormatVersion() {
+		return formatVersion;
+	}
+	
 	/**
 	 * Decode only the key of the tuple
+	 * 
+	 * The key is read with absolute offsets, the position of the 
+	 * shared memory buffer is not changed.
+	 * 
 	 * @return
 	 * @throws IOException 
 	 */
-	public synchronized String decodeOnlyKeyFromTupleAtPosition(final int position) throws IOException {
+	public String decodeOnlyKeyFromTupleAtPosition(final int position) throws IOException {
+		
+		if(formatVersion != SSTableConst.SST_VERSION_1) {
+			throw new IOException("Positional reads are not supported for SSTable version " 
+					+ formatVersion);
+		}
 		
 		if(! acquire()) {
 			throw new IOException("Unable to aquire");
 		}
 		
 		try {
-			memory.position(position);
-			
-			final short keyLength = memory.getShort();
+			final short keyLength = memory.getShort(position);
 	
-			final int sizeToSkip = DataEncoderHelper.INT_BYTES			// BBOX-Length
+			final int keyPosition = position 
+					+ DataEncoderHelper.SHORT_BYTES						// Key-Length
+					+ DataEncoderHelper.INT_BYTES						// BBOX-Length
 					+ DataEncoderHelper.INT_BYTES 						// Data-Length
 					+ DataEncoderHelper.LONG_BYTES						// Version Timestamp
 					+ DataEncoderHelper.LONG_BYTES;						// Received Timetamp		
 			
-			memory.position(memory.position() + sizeToSkip);
-			
 			final byte[] keyBytes = new byte[keyLength];
-			memory.get(keyBytes, 0, keyBytes.length);
+			
+			for(int i = 0; i < keyLength; i++) {
+				keyBytes[i] = memory.get(keyPosition + i);
+			}
 			
 			readTupleKeysTotal.inc();
 			
 			return new String(keyBytes);
-		} catch(Exception e) {
-			throw e;
 		} finally {
 			release();
 		}
@@ -202,6 +350,31 @@ public class SSTableReader extends AbstractFileReader {
 		return new File(filename);
 	}
 
+	/**
+	 * Validate the file and determine the format version of the SSTable
+	 */
+	@Override
+	protected void validateFile() throws StorageManagerException, IOException {
+		super.validateFile();
+		
+		final String indexFilename = SSTableHelper.getSSTableIndexFilename(directory, name, tablenumber);
+		formatVersion = SSTableHelper.getSSTableFormatVersion(new File(indexFilename));
+		
+		if(formatVersion != SSTableConst.SST_VERSION_1 && formatVersion != SSTableConst.SST_VERSION_2) {
+			throw new StorageManagerException("Unsupported SSTable version " + formatVersion 
+					+ " in file " + file);
+		}
+	}
+	
+	/**
+	 * Only version 1 SSTables are mapped into memory, newer 
+	 * versions are read block wise
+	 */
+	@Override
+	protected boolean isMemoryMapped() {
+		return formatVersion == SSTableConst.SST_VERSION_1;
+	}
+
 	@Override
 	protected byte[] getMagicBytes() {
 		return SSTableConst.MAGIC_BYTES_SSTABLE;
@@ -0,0 +1,215 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *******************************************************************************/
+package org.bboxdb.storage.sstable.reader;
+
+import java.io.File;
+
+import org.bboxdb.commons.io.DataEncoderHelper;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.sstable.SSTableConst;
+import org.bboxdb.storage.sstable.SSTableHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class SSTableTimeIndexReader extends AbstractFileReader {
+
+	/**
+	 * The number of entries per section
+	 */
+	protected int numberOfEntries;
+
+	/**
+	 * Every n-th version timestamp of the version time section
+	 */
+	protected long[] versionTimeDirectory;
+
+	/**
+	 * Every n-th inserted timestamp of the inserted time section
+	 */
+	protected long[] insertedTimeDirectory;
+
+	/**
+	 * The Logger
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(SSTableTimeIndexReader.class);
+
+	public SSTableTimeIndexReader(final String directory, final TupleStoreName tablename,
+			final int tablenumber) throws StorageManagerException {
+
+		super(directory, tablename, tablenumber);
+	}
+
+	@Override
+	public void init() throws InterruptedException {
+		super.init();
+
+		if(! isReady()) {
+			return;
+		}
+
+		numberOfEntries = memory.getInt(getMagicBytes().length);
+		versionTimeDirectory = readDirectory(getVersionTimeSectionOffset());
+		insertedTimeDirectory = readDirectory(getInsertedTimeSectionOffset());
+
+		logger.debug("Opened time index for relation: {} with {} entries",
+				name.getFullname(), numberOfEntries);
+	}
+
+	/**
+	 * Read every n-th timestamp of the section into memory
+	 * @param sectionOffset
+	 * @return
+	 */
+	private long[] readDirectory(final int sectionOffset) {
+		final int interval = SSTableConst.TIME_INDEX_DIRECTORY_INTERVAL;
+		final long[] directory = new long[(numberOfEntries + interval - 1) / interval];
+
+		for(int i = 0; i < directory.length; i++) {
+			directory[i] = getTimestamp(sectionOffset, i * interval);
+		}
+
+		return directory;
+	}
+
+	/**
+	 * Get the numbers of the tuples with a newer version timestamp
+	 *
+	 * @param timestamp
+	 * @return
+	 */
+	public int[] getTupleNumbersNewerAsVersionTime(final long timestamp) {
+		return getTupleNumbersNewerAs(getVersionTimeSectionOffset(), versionTimeDirectory, timestamp);
+	}
+
+	/**
+	 * Get the numbers of the tuples with a newer inserted timestamp
+	 *
+	 * @param timestamp
+	 * @return
+	 */
+	public int[] getTupleNumbersNewerAsInsertedTime(final long timestamp) {
+		return getTupleNumbersNewerAs(getInsertedTimeSectionOffset(), insertedTimeDirectory, timestamp);
+	}
+
+	/**
+	 * Search the first entry with a newer timestamp and return the
+	 * tuple numbers of all following entries of the section. The
+	 * directory is used to determine the range of entries that
+	 * needs to be read from the file.
+	 *
+	 * @param sectionOffset
+	 * @param directory
+	 * @param timestamp
+	 * @return
+	 */
+	private int[] getTupleNumbersNewerAs(final int sectionOffset, final long[] directory,
+			final long timestamp) {
+
+		// The amount of directory entries that are not newer as the timestamp
+		int low = 0;
+		int high = directory.length;
+
+		while(low < high) {
+			final int middle = (low + high) >>> 1;
+
+			if(directory[middle] <= timestamp) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		final int interval = SSTableConst.TIME_INDEX_DIRECTORY_INTERVAL;
+		int firstEntry = Math.max(0, low - 1) * interval;
+		final int lastCandidate = Math.min(numberOfEntries, low * interval);
+
+		while(firstEntry < lastCandidate && getTimestamp(sectionOffset, firstEntry) <= timestamp) {
+			firstEntry++;
+		}
+
+		final int[] tupleNumbers = new int[numberOfEntries - firstEntry];
+
+		for(int i = 0; i < tupleNumbers.length; i++) {
+			final int entryOffset = getEntryOffset(sectionOffset, firstEntry + i);
+			tupleNumbers[i] = memory.getInt(entryOffset + DataEncoderHelper.LONG_BYTES);
+		}
+
+		return tupleNumbers;
+	}
+
+	/**
+	 * Get the timestamp of the entry
+	 * @param sectionOffset
+	 * @param entry
+	 * @return
+	 */
+	private long getTimestamp(final int sectionOffset, final int entry) {
+		return memory.getLong(getEntryOffset(sectionOffset, entry));
+	}
+
+	/**
+	 * Get the position of the entry in the file
+	 * @param sectionOffset
+	 * @param entry
+	 * @return
+	 */
+	private int getEntryOffset(final int sectionOffset, final int entry) {
+		return sectionOffset + (entry * SSTableConst.TIME_INDEX_ENTRY_SIZE);
+	}
+
+	/**
+	 * Get the position of the version time section
+	 * @return
+	 */
+	private int getVersionTimeSectionOffset() {
+		return getMagicBytes().length + DataEncoderHelper.INT_BYTES;
+	}
+
+	/**
+	 * Get the position of the inserted time section
+	 * @return
+	 */
+	private int getInsertedTimeSectionOffset() {
+		return getVersionTimeSectionOffset() + (numberOfEntries * SSTableConst.TIME_INDEX_ENTRY_SIZE);
+	}
+
+	/**
+	 * Get the number of entries per section
+	 * @return
+	 */
+	public int getNumberOfEntries() {
+		return numberOfEntries;
+	}
+
+	@Override
+	protected File constructFileToRead() {
+		final String filename = SSTableHelper.getSSTableTimeIndexFilename(directory, name, tablenumber);
+		return new File(filename);
+	}
+
+	@Override
+	protected byte[] getMagicBytes() {
+		return SSTableConst.MAGIC_BYTES_TIME_INDEX;
+	}
+
+	@Override
+	public String getServicename() {
+		return "SSTable time index reader";
+	}
+}
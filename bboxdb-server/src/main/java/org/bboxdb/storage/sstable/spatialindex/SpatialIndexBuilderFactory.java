@@ -19,6 +19,8 @@ package org.bboxdb.storage.sstable.spatialindex;
 
 import org.bboxdb.misc.BBoxDBConfiguration;
 import org.bboxdb.misc.BBoxDBConfigurationManager;
+import org.bboxdb.storage.sstable.spatialindex.rtree.RTreeBuilder;
+import org.bboxdb.storage.sstable.spatialindex.rtree.RTreeSTRBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,5 +61,23 @@ public class SpatialIndexBuilderFactory {
 			throw new RuntimeException(e);
 		} 
 	}
+
+	/**
+	 * Get an instance of the configured factory for an index where all entries
+	 * are inserted before the index is read or written (e.g., the index of a new 
+	 * SSTable). The R-tree is replaced by the bulk loading R-tree.
+	 * 
+	 * @return
+	 */
+	public static SpatialIndexBuilder getBulkLoadingInstance() {
+		final SpatialIndexBuilder spatialIndexBuilder = getInstance();
+		
+		if(spatialIndexBuilder.getClass() == RTreeBuilder.class) {
+			final int maxNodeSize = ((RTreeBuilder) spatialIndexBuilder).getMaxNodeSize();
+			return new RTreeSTRBuilder(maxNodeSize);
+		}
+		
+		return spatialIndexBuilder;
+	}
 	
 }
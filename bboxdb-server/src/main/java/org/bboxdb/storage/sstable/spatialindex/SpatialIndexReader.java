@@ -20,6 +20,7 @@ package org.bboxdb.storage.sstable.spatialindex;
 import java.io.Closeable;
 import java.io.RandomAccessFile;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 import org.bboxdb.commons.math.Hyperrectangle;
 import org.bboxdb.storage.StorageManagerException;
@@ -44,4 +45,13 @@ public interface SpatialIndexReader extends Closeable {
 	 * @return
 	 */
 	public List<SpatialIndexEntry> getEntriesForRegion(final Hyperrectangle boundingBox) throws StorageManagerException;
+	
+	/**
+	 * Pass the values of the entries for the given region to the consumer,
+	 * without materializing the entries
+	 * @param boundingBox
+	 * @param consumer
+	 */
+	public void forEachValueInRegion(final Hyperrectangle boundingBox, final IntConsumer consumer) 
+			throws StorageManagerException;
 }
@@ -20,7 +20,7 @@ package org.bboxdb.storage.sstable.spatialindex.rtree;
 import java.util.List;
 
 import org.bboxdb.commons.Pair;
-import org.bboxdb.commons.math.Hyperrectangle;
+import org.bboxdb.commons.math.GeometryKernel;
 import org.bboxdb.storage.sstable.spatialindex.BoundingBoxEntity;
 
 public class QuadraticSeedPicker<T extends BoundingBoxEntity> {
@@ -44,14 +44,13 @@ public class QuadraticSeedPicker<T extends BoundingBoxEntity> {
 					continue;
 				}
 				
-				final Hyperrectangle boundingBox1 = box1.getBoundingBox();
-				final Hyperrectangle boundingBox2 = box2.getBoundingBox();
+				final double[] boundingBox1 = box1.getBoundingBox().toDoubleArray();
+				final double[] boundingBox2 = box2.getBoundingBox().toDoubleArray();
 				
-				final double coveringArea 
-					= Hyperrectangle.getCoveringBox(boundingBox1, boundingBox2).getVolume();
+				final double coveringArea = GeometryKernel.coveringVolume(boundingBox1, boundingBox2);
 				
-				final double waste = coveringArea - boundingBox1.getVolume()
-						- boundingBox2.getVolume();
+				final double waste = coveringArea - GeometryKernel.volume(boundingBox1)
+						- GeometryKernel.volume(boundingBox2);
 				
 				if(waste < maxWaste) {
 					result = new Pair<T,T>(box1, box2);
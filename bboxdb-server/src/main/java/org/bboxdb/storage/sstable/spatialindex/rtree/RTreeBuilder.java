@@ -231,6 +231,53 @@ public class RTreeBuilder implements SpatialIndexBuilder {
 		return rootNode.getEntriesForRegion(boundingBox);
 	}
 
+	/**
+	 * Delete the given entry from the tree. Underfull nodes are kept, 
+	 * only the bounding boxes on the path to the entry are adjusted.
+	 * @param entry
+	 * @return
+	 */
+	public boolean delete(final SpatialIndexEntry entry) {
+
+		if(entry.getBoundingBox() == null || entry.getBoundingBox() == Hyperrectangle.FULL_SPACE) {
+			return false;
+		}
+
+		return delete(rootNode, entry);
+	}
+
+	/**
+	 * Delete the given entry from the base node or below
+	 * @param deleteBaseNode
+	 * @param entry
+	 * @return
+	 */
+	protected boolean delete(final RTreeDirectoryNode deleteBaseNode, final SpatialIndexEntry entry) {
+
+		if(deleteBaseNode.isLeafNode()) {
+			if(! deleteBaseNode.removeIndexEntry(entry)) {
+				return false;
+			}
+			
+			deleteBaseNode.updateBoundingBox();
+			return true;
+		}
+
+		for(final RTreeDirectoryNode childNode : deleteBaseNode.getDirectoryNodeChilds()) {
+			
+			if(! childNode.getBoundingBox().intersects(entry.getBoundingBox())) {
+				continue;
+			}
+			
+			if(delete(childNode, entry)) {
+				deleteBaseNode.updateBoundingBox();
+				return true;
+			}
+		}
+
+		return false;
+	}
+
 	/**
 	 * Distribute the leaf data
 	 * @param nodeToSplit
@@ -20,6 +20,7 @@ package org.bboxdb.storage.sstable.spatialindex.rtree;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.bboxdb.commons.math.GeometryKernel;
 import org.bboxdb.commons.math.Hyperrectangle;
 import org.bboxdb.storage.sstable.spatialindex.BoundingBoxEntity;
 import org.bboxdb.storage.sstable.spatialindex.SpatialIndexEntry;
@@ -139,10 +140,43 @@ public class RTreeDirectoryNode implements BoundingBoxEntity {
 	 * Recalculate the bounding box of all entries
 	 */
 	public void updateBoundingBox() {
-		final List<Hyperrectangle> boundingBoxes = getAllChildBoundingBoxes();
 
-		// Calculate bounding box
-		this.boundingBox = Hyperrectangle.getCoveringBox(boundingBoxes);
+		// Calculate bounding box without creating intermediate boxes
+		double[] coverBox = null;
+
+		for(final RTreeDirectoryNode node : directoryNodeChilds) {
+			coverBox = mergeBoundingBox(coverBox, node.getBoundingBox());
+		}
+
+		for(final SpatialIndexEntry node : indexEntries) {
+			coverBox = mergeBoundingBox(coverBox, node.getBoundingBox());
+		}
+
+		if(coverBox == null) {
+			this.boundingBox = Hyperrectangle.FULL_SPACE;
+		} else {
+			this.boundingBox = new Hyperrectangle(coverBox);
+		}
+	}
+
+	/**
+	 * Merge the bounding box into the cover box
+	 * @param coverBox - the cover box or null
+	 * @param boundingBox
+	 * @return
+	 */
+	private static double[] mergeBoundingBox(final double[] coverBox, final Hyperrectangle boundingBox) {
+
+		if(boundingBox == Hyperrectangle.FULL_SPACE) {
+			return coverBox;
+		}
+
+		if(coverBox == null) {
+			return boundingBox.toDoubleArray().clone();
+		}
+
+		GeometryKernel.mergeInto(coverBox, boundingBox.toDoubleArray());
+		return coverBox;
 	}
 
 	/**
@@ -175,8 +209,7 @@ public class RTreeDirectoryNode implements BoundingBoxEntity {
 		double bestEnlargement = -1;
 
 		for(final RTreeDirectoryNode node : directoryNodeChilds) {
-			final Hyperrectangle nodeBoundingBox = node.getBoundingBox();
-			final double nodeEnlargement = nodeBoundingBox.calculateEnlargement(entryBox);
+			final double nodeEnlargement = getEnlargement(node.getBoundingBox(), entryBox);
 
 			if(bestNode == null) {
 				bestNode = node;
@@ -202,6 +235,21 @@ public class RTreeDirectoryNode implements BoundingBoxEntity {
 		return bestNode;
 	}
 
+	/**
+	 * Get the enlargement of the node box that is needed to cover the entry box
+	 * @param nodeBox
+	 * @param entryBox
+	 * @return
+	 */
+	private static double getEnlargement(final Hyperrectangle nodeBox, final Hyperrectangle entryBox) {
+
+		if(nodeBox == Hyperrectangle.FULL_SPACE || entryBox == Hyperrectangle.FULL_SPACE) {
+			return 0;
+		}
+
+		return GeometryKernel.enlargement(nodeBox.toDoubleArray(), entryBox.toDoubleArray());
+	}
+
 	/**
 	 * Get all entries for a given region
 	 * @param boundingBox
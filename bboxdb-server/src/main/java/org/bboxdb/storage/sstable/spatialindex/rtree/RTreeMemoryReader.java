@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.concurrent.LinkedTransferQueue;
+import java.util.function.IntConsumer;
 
 import org.bboxdb.commons.io.DataEncoderHelper;
 import org.bboxdb.commons.math.Hyperrectangle;
@@ -168,6 +169,13 @@ public class RTreeMemoryReader extends AbstractRTreeReader {
 		return rootNode.getEntriesForRegion(boundingBox);
 	}
 	
+	@Override
+	public void forEachValueInRegion(final Hyperrectangle boundingBox, final IntConsumer consumer) {
+		for(final SpatialIndexEntry entry : rootNode.getEntriesForRegion(boundingBox)) {
+			consumer.accept(entry.getValue());
+		}
+	}
+	
 
 	@Override
 	public void close() {
@@ -0,0 +1,241 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.storage.sstable.spatialindex.rtree;
+
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.bboxdb.commons.math.Hyperrectangle;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.sstable.spatialindex.BoundingBoxEntity;
+import org.bboxdb.storage.sstable.spatialindex.SpatialIndexEntry;
+
+/**
+ * A R-tree that is packed with the sort-tile-recursive (STR) algorithm. 
+ * 
+ * The inserted entries are collected and the tree is packed on the first 
+ * read or write access (or directly by a bulk insert into the empty tree). 
+ * Entries that are inserted after the tree is packed are inserted into the 
+ * packed tree like in the RTreeBuilder. The tree is written in the same 
+ * format as the RTreeBuilder, so the existing readers can be used.
+ */
+public class RTreeSTRBuilder extends RTreeBuilder {
+
+	/**
+	 * The entries that are not inserted into the tree
+	 */
+	protected final List<SpatialIndexEntry> pendingEntries;
+
+	public RTreeSTRBuilder() {
+		this(DEFAULT_NODE_SIZE);
+	}
+
+	public RTreeSTRBuilder(final int maxNodeSize) {
+		super(maxNodeSize);
+		this.pendingEntries = new ArrayList<>();
+	}
+
+	@Override
+	public boolean bulkInsert(final List<SpatialIndexEntry> elements) {
+		boolean result = true;
+
+		for(final SpatialIndexEntry entry : elements) {
+			final boolean insertResult = insert(entry);
+
+			if(! insertResult) {
+				result = false;
+			}
+		}
+
+		packPendingEntries();
+
+		return result;
+	}
+
+	@Override
+	public boolean insert(final SpatialIndexEntry entry) {
+
+		if(entry.getBoundingBox() == null || entry.getBoundingBox() == Hyperrectangle.FULL_SPACE) {
+			return false;
+		}
+
+		pendingEntries.add(entry);
+
+		return true;
+	}
+
+	@Override
+	public void writeToFile(final RandomAccessFile randomAccessFile) throws StorageManagerException {
+		packPendingEntries();
+		super.writeToFile(randomAccessFile);
+	}
+
+	@Override
+	public List<? extends SpatialIndexEntry> getEntriesForRegion(final Hyperrectangle boundingBox) {
+		packPendingEntries();
+		return super.getEntriesForRegion(boundingBox);
+	}
+
+	@Override
+	public void testCovering() {
+		packPendingEntries();
+		super.testCovering();
+	}
+
+	/**
+	 * Insert the pending entries into the tree. The entries are packed, when the 
+	 * tree is empty and all entries have the same dimension. Otherwise, the 
+	 * entries are inserted one by one.
+	 */
+	protected void packPendingEntries() {
+
+		if(pendingEntries.isEmpty()) {
+			return;
+		}
+
+		if(rootNode.getSize() != 0 || ! isDimensionEqual(pendingEntries)) {
+			for(final SpatialIndexEntry entry : pendingEntries) {
+				super.insert(entry);
+			}
+		} else {
+			packTree(pendingEntries);
+		}
+
+		pendingEntries.clear();
+	}
+
+	/**
+	 * Have all entries the same (non zero) dimension
+	 * @param entries
+	 * @return
+	 */
+	private boolean isDimensionEqual(final List<SpatialIndexEntry> entries) {
+		final int dimension = entries.get(0).getBoundingBox().getDimension();
+
+		if(dimension == 0) {
+			return false;
+		}
+
+		return entries.stream()
+				.allMatch(e -> e.getBoundingBox().getDimension() == dimension);
+	}
+
+	/**
+	 * Build the tree bottom up
+	 * @param entries
+	 */
+	private void packTree(final List<SpatialIndexEntry> entries) {
+		final int dimension = entries.get(0).getBoundingBox().getDimension();
+
+		// Build the leaf nodes
+		final List<List<SpatialIndexEntry>> leafGroups = new ArrayList<>();
+		tile(new ArrayList<>(entries), 0, entries.size(), 0, dimension, leafGroups);
+
+		List<RTreeDirectoryNode> nodes = new ArrayList<>(leafGroups.size());
+
+		for(final List<SpatialIndexEntry> group : leafGroups) {
+			final RTreeDirectoryNode node = nodeFactory.buildDirectoryNode();
+			node.getIndexEntries().addAll(group);
+			node.updateBoundingBox();
+			nodes.add(node);
+		}
+
+		// Build the directory levels
+		while(nodes.size() > 1) {
+			final List<List<RTreeDirectoryNode>> nodeGroups = new ArrayList<>();
+			tile(nodes, 0, nodes.size(), 0, dimension, nodeGroups);
+
+			final List<RTreeDirectoryNode> parentNodes = new ArrayList<>(nodeGroups.size());
+
+			for(final List<RTreeDirectoryNode> group : nodeGroups) {
+				final RTreeDirectoryNode parentNode = nodeFactory.buildDirectoryNode();
+
+				for(final RTreeDirectoryNode childNode : group) {
+					parentNode.addDirectoryNodeChild(childNode);
+					childNode.setParentNode(parentNode);
+				}
+
+				parentNode.updateBoundingBox();
+				parentNodes.add(parentNode);
+			}
+
+			nodes = parentNodes;
+		}
+
+		rootNode = nodes.get(0);
+		rootNode.setParentNode(RTreeDirectoryNode.PARENT_ROOT);
+	}
+
+	/**
+	 * Sort the elements in the given range by the given dimension, cut them 
+	 * into slabs and tile the slabs recursively by the next dimension. The groups
+	 * of the last dimension contain up to maxNodeSize elements.
+	 * 
+	 * @param elements
+	 * @param from
+	 * @param to
+	 * @param dimension
+	 * @param dimensions
+	 * @param groups
+	 */
+	private <T extends BoundingBoxEntity> void tile(final List<T> elements, final int from, final int to, 
+			final int dimension, final int dimensions, final List<List<T>> groups) {
+
+		final List<T> range = elements.subList(from, to);
+		range.sort(getCenterComparator(dimension));
+
+		final int numberOfElements = to - from;
+
+		if(dimension >= dimensions - 1 || numberOfElements <= maxNodeSize) {
+			for(int i = 0; i < numberOfElements; i += maxNodeSize) {
+				final int end = Math.min(i + maxNodeSize, numberOfElements);
+				groups.add(new ArrayList<>(range.subList(i, end)));
+			}
+			return;
+		}
+
+		// The number of nodes and slabs that are needed for the elements
+		final int nodes = (int) Math.ceil(numberOfElements / (double) maxNodeSize);
+		final int slabs = (int) Math.ceil(Math.pow(nodes, 1.0 / (dimensions - dimension)));
+		final int slabSize = maxNodeSize * (int) Math.ceil(nodes / (double) slabs);
+
+		for(int i = from; i < to; i += slabSize) {
+			tile(elements, i, Math.min(i + slabSize, to), dimension + 1, dimensions, groups);
+		}
+	}
+
+	/**
+	 * Get the comparator for the center of the given dimension
+	 * @param dimension
+	 * @return
+	 */
+	private static Comparator<BoundingBoxEntity> getCenterComparator(final int dimension) {
+		return (e1, e2) -> {
+			final Hyperrectangle box1 = e1.getBoundingBox();
+			final Hyperrectangle box2 = e2.getBoundingBox();
+
+			// The center * 2 has the same order as the center
+			final double center1 = box1.getCoordinateLow(dimension) + box1.getCoordinateHigh(dimension);
+			final double center2 = box2.getCoordinateLow(dimension) + box2.getCoordinateHigh(dimension);
+
+			return Double.compare(center1, center2);
+		};
+	}
+}
@@ -23,9 +23,7 @@ import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.LinkedTransferQueue;
-import java.util.stream.Collectors;
+import java.util.function.IntConsumer;
 
 import org.bboxdb.commons.io.DataEncoderHelper;
 import org.bboxdb.commons.io.UnsafeMemoryHelper;
@@ -34,15 +32,22 @@ import org.bboxdb.misc.Const;
 import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.sstable.spatialindex.SpatialIndexEntry;
 import org.bboxdb.storage.sstable.spatialindex.rtree.AbstractRTreeReader;
+import org.bboxdb.storage.sstable.spatialindex.rtree.RTreeBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Reads the R-tree directly from the memory mapped index file. The nodes 
+ * are not decoded, the bounding boxes are compared with absolute reads 
+ * on the mapped buffer. Absolute reads don't modify the buffer, so 
+ * concurrent queries don't need to be synchronized.
+ */
 public class RTreeMMFReader extends AbstractRTreeReader {
 
 	/**
 	 * The mapped memory
 	 */
-	private MappedByteBuffer memory;
+	private volatile MappedByteBuffer memory;
 	
 	/**
 	 * The file channel
@@ -54,6 +59,18 @@ public class RTreeMMFReader extends AbstractRTreeReader {
 	 */
 	private int firstNodePos;
 	
+	/**
+	 * The marker for a following index entry
+	 */
+	private final static int CHILD_NODE_FOLLOWING 
+		= DataEncoderHelper.readIntFromByte(RTreeBuilder.MAGIC_CHILD_NODE_FOLLOWING);
+	
+	/**
+	 * The marker for a not existing index entry or child node
+	 */
+	private final static int CHILD_NODE_NOT_EXISTING 
+		= DataEncoderHelper.readIntFromByte(RTreeBuilder.MAGIC_CHILD_NODE_NOT_EXISTING);
+	
 	/**
 	 * The Logger
 	 */
@@ -71,8 +88,9 @@ public class RTreeMMFReader extends AbstractRTreeReader {
 			
 			fileChannel = randomAccessFile.getChannel();
 			final long size = fileChannel.size();
-			memory = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
-			memory.order(Const.APPLICATION_BYTE_ORDER);
+			final MappedByteBuffer mappedMemory = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			mappedMemory.order(Const.APPLICATION_BYTE_ORDER);
+			memory = mappedMemory;
 		} catch (IOException e) {
 			throw new StorageManagerException(e);
 		}
@@ -97,39 +115,250 @@ public class RTreeMMFReader extends AbstractRTreeReader {
 	}
 
 	@Override
-	public synchronized List<SpatialIndexEntry> getEntriesForRegion(final Hyperrectangle boundingBox) 
+	public List<SpatialIndexEntry> getEntriesForRegion(final Hyperrectangle boundingBox) 
 			throws StorageManagerException {
 		
 		final List<SpatialIndexEntry> resultList = new ArrayList<>();
-		final Queue<Integer> readTasks = new LinkedTransferQueue<>();
-		readTasks.add(firstNodePos);
+		final MappedByteBuffer mappedMemory = getMappedMemory();
 		
-		try {
+		final RegionTraversal traversal = new RegionTraversal(mappedMemory, boundingBox,
+				(value, boxPosition, boxLength) -> {
+					final Hyperrectangle entryBox = readBoundingBox(mappedMemory, boxPosition, boxLength);
+					resultList.add(new SpatialIndexEntry(entryBox, value));
+				});
+		
+		traversal.run();
+		
+		return resultList;
+	}
+	
+	@Override
+	public void forEachValueInRegion(final Hyperrectangle boundingBox, final IntConsumer consumer) 
+			throws StorageManagerException {
+		
+		final RegionTraversal traversal = new RegionTraversal(getMappedMemory(), boundingBox,
+				(value, boxPosition, boxLength) -> consumer.accept(value));
+		
+		traversal.run();
+	}
+	
+	/**
+	 * Get the mapped memory
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	private MappedByteBuffer getMappedMemory() throws StorageManagerException {
+		final MappedByteBuffer mappedMemory = memory;
+		
+		if(mappedMemory == null) {
+			throw new StorageManagerException("The spatial index is not mapped");
+		}
+		
+		return mappedMemory;
+	}
+	
+	/**
+	 * Decode the bounding box at the given position
+	 * @param mappedMemory
+	 * @param boxPosition
+	 * @param boxLength
+	 * @return
+	 */
+	private static Hyperrectangle readBoundingBox(final MappedByteBuffer mappedMemory,
+			final int boxPosition, final int boxLength) {
+		
+		final double[] values = new double[boxLength / DataEncoderHelper.DOUBLE_BYTES];
+		
+		for(int i = 0; i < values.length; i++) {
+			values[i] = mappedMemory.getDouble(boxPosition + i * DataEncoderHelper.DOUBLE_BYTES);
+		}
+		
+		if(values.length == 0) {
+			return Hyperrectangle.FULL_SPACE;
+		}
+		
+		return new Hyperrectangle(values);
+	}
+	
+	@FunctionalInterface
+	private interface EntryVisitor {
+		
+		/**
+		 * Visit a matching index entry
+		 * @param value
+		 * @param boxPosition
+		 * @param boxLength
+		 */
+		public void visit(final int value, final int boxPosition, final int boxLength);
+	}
+	
+	/**
+	 * The state of one region query. Each query uses its own traversal, 
+	 * the shared buffer is only accessed with absolute reads.
+	 */
+	private final class RegionTraversal {
+		
+		/**
+		 * The mapped memory
+		 */
+		private final MappedByteBuffer mappedMemory;
+		
+		/**
+		 * The query box
+		 */
+		private final Hyperrectangle queryBox;
+		
+		/**
+		 * The coordinates of the query box
+		 */
+		private final double[] queryValues;
+		
+		/**
+		 * Are all points of the query box included, in this case
+		 * the coordinates are compared directly on the buffer
+		 */
+		private final boolean queryClosed;
+		
+		/**
+		 * The visitor for the matching entries
+		 */
+		private final EntryVisitor visitor;
+
+		public RegionTraversal(final MappedByteBuffer mappedMemory, final Hyperrectangle queryBox, 
+				final EntryVisitor visitor) {
+			
+			this.mappedMemory = mappedMemory;
+			this.queryBox = queryBox;
+			this.queryValues = queryBox == null ? null : queryBox.toDoubleArray();
+			this.queryClosed = queryBox != null && isClosed(queryBox);
+			this.visitor = visitor;
+		}
+
+		/**
+		 * Run the traversal
+		 * @throws StorageManagerException 
+		 */
+		public void run() throws StorageManagerException {
+			
+			// Null does overlap with nothing
+			if(queryBox == null) {
+				return;
+			}
+			
+			final int rootBoxLength = mappedMemory.getInt(firstNodePos + DataEncoderHelper.INT_BYTES);
+			
+			if(intersects(firstNodePos + 2 * DataEncoderHelper.INT_BYTES, rootBoxLength)) {
+				visitNode(firstNodePos);
+			}
+		}
+		
+		/**
+		 * Visit the node at the given position. The node is only visited 
+		 * if the bounding box of the node intersects the query box.
+		 * 
+		 * @param nodePosition
+		 * @throws StorageManagerException 
+		 */
+		private void visitNode(final int nodePosition) throws StorageManagerException {
 			
-			while(! readTasks.isEmpty()) {
+			// Skip the node id and the bounding box of the node
+			final int nodeBoxLength = mappedMemory.getInt(nodePosition + DataEncoderHelper.INT_BYTES);
+			int position = nodePosition + 2 * DataEncoderHelper.INT_BYTES + nodeBoxLength;
 			
-				final int position = readTasks.remove();
-				memory.position(position);
-				final DirectoryNode directoryNode = new DirectoryNode();
-				directoryNode.initFromByteBuffer(memory, maxNodeSize);
+			// Index entries: marker, value, box length, box
+			for(int i = 0; i < maxNodeSize; i++) {
+				final int marker = mappedMemory.getInt(position);
+				position = position + DataEncoderHelper.INT_BYTES;
 				
-				if(directoryNode.getBoundingBox().intersects(boundingBox)) {
-					readTasks.addAll(directoryNode.getChildNodes());
-					
-					final List<SpatialIndexEntry> foundEntries = 
-						directoryNode.getIndexEntries()
-						.stream()
-						.filter(e -> e.getBoundingBox().intersects(boundingBox))
-						.collect(Collectors.toList());
-					
-					resultList.addAll(foundEntries);
+				if(marker == CHILD_NODE_NOT_EXISTING) {
+					continue;
 				}
+				
+				if(marker != CHILD_NODE_FOLLOWING) {
+					throw new StorageManagerException("Unknown node type following: " + marker);
+				}
+				
+				final int value = mappedMemory.getInt(position);
+				final int boxLength = mappedMemory.getInt(position + DataEncoderHelper.INT_BYTES);
+				final int boxPosition = position + 2 * DataEncoderHelper.INT_BYTES;
+				
+				if(intersects(boxPosition, boxLength)) {
+					visitor.visit(value, boxPosition, boxLength);
+				}
+				
+				position = boxPosition + boxLength;
 			}
 			
-			return resultList;
-		} catch (IOException e) {
-			throw new StorageManagerException(e);
+			// Child node pointer
+			for(int i = 0; i < maxNodeSize; i++) {
+				final int childPosition = mappedMemory.getInt(position);
+				position = position + DataEncoderHelper.INT_BYTES;
+				
+				if(childPosition == CHILD_NODE_NOT_EXISTING) {
+					continue;
+				}
+				
+				final int childBoxLength = mappedMemory.getInt(childPosition + DataEncoderHelper.INT_BYTES);
+
+				if(intersects(childPosition + 2 * DataEncoderHelper.INT_BYTES, childBoxLength)) {
+					visitNode(childPosition);
+				}
+			}
+		}
+		
+		/**
+		 * Does the bounding box at the given position intersect the query box.
+		 * Follows the semantics of Hyperrectangle.intersects
+		 * 
+		 * @param boxPosition
+		 * @param boxLength
+		 * @return
+		 */
+		private boolean intersects(final int boxPosition, final int boxLength) {
+			
+			// The full space box overlaps everything
+			if(boxLength == 0 || queryValues.length == 0) {
+				return true;
+			}
+			
+			// Dimensions are not equal
+			if(boxLength != queryValues.length * DataEncoderHelper.DOUBLE_BYTES) {
+				return false;
+			}
+			
+			// Open intervals are rare, use the exact interval semantics
+			if(! queryClosed) {
+				return readBoundingBox(mappedMemory, boxPosition, boxLength).intersects(queryBox);
+			}
+			
+			for(int i = 0; i < queryValues.length; i = i + 2) {
+				final int offset = boxPosition + i * DataEncoderHelper.DOUBLE_BYTES;
+				
+				if(mappedMemory.getDouble(offset) > queryValues[i + 1]) {
+					return false;
+				}
+				
+				if(queryValues[i] > mappedMemory.getDouble(offset + DataEncoderHelper.DOUBLE_BYTES)) {
+					return false;
+				}
+			}
+			
+			return true;
 		}
 	}
-
+	
+	/**
+	 * Are all points of the bounding box included
+	 * @param boundingBox
+	 * @return
+	 */
+	private static boolean isClosed(final Hyperrectangle boundingBox) {
+		for(int d = 0; d < boundingBox.getDimension(); d++) {
+			if(! boundingBox.isLowPointIncluded(d) || ! boundingBox.isHighPointIncluded(d)) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
 }
@@ -23,7 +23,7 @@ import java.util.Collections;
 import java.util.List;
 
 import org.bboxdb.storage.StorageManagerException;
-import org.bboxdb.storage.memtable.Memtable;
+import org.bboxdb.storage.memtable.MemtableTupleStore;
 import org.bboxdb.storage.sstable.reader.SSTableFacade;
 import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
 import org.slf4j.Logger;
@@ -39,12 +39,12 @@ public class TupleStoreInstanceManager {
 	/**
 	 * The active memtable
 	 */
-	private Memtable memtable;
+	private MemtableTupleStore memtable;
 	
 	/**
 	 * The unflushed memtables
 	 */
-	private final List<Memtable> unflushedMemtables;
+	private final List<MemtableTupleStore> unflushedMemtables;
 	
 	/**
 	 * The reader for existing SSTables
@@ -75,13 +75,13 @@ public class TupleStoreInstanceManager {
 	 * @param newMemtable
 	 * @return 
 	 */
-	public synchronized Memtable activateNewMemtable(final Memtable newMemtable) {
+	public synchronized MemtableTupleStore activateNewMemtable(final MemtableTupleStore newMemtable) {
 		
 		if(memtable != null) {
 			unflushedMemtables.add(memtable);
 		}	
 		
-		final Memtable oldMemtable = memtable;
+		final MemtableTupleStore oldMemtable = memtable;
 		memtable = newMemtable;
 		
 		return oldMemtable;
@@ -92,7 +92,7 @@ public class TupleStoreInstanceManager {
 	 * @param memtable
 	 * @param sstableFacade
 	 */
-	public synchronized void replaceMemtableWithSSTable(final Memtable memtable, 
+	public synchronized void replaceMemtableWithSSTable(final MemtableTupleStore memtable, 
 			final SSTableFacade sstableFacade) {
 		
 		//logger.debug("Replacing memtable {} with sstable {}", memtable, sstableFacade);
@@ -182,7 +182,7 @@ public class TupleStoreInstanceManager {
 	 * Get the active memtable
 	 * @return
 	 */
-	public Memtable getMemtable() {
+	public MemtableTupleStore getMemtable() {
 		return memtable;
 	}
 	
@@ -212,7 +212,7 @@ public class TupleStoreInstanceManager {
 	 * @throws InterruptedException 
 	 * @throws StorageManagerException 
 	 */
-	public synchronized void waitForMemtableFlush(final Memtable memtable) 
+	public synchronized void waitForMemtableFlush(final MemtableTupleStore memtable) 
 			throws InterruptedException, StorageManagerException {
 		
 		//logger.info("Waiting for flush {} / {}", memtable.getInternalName(), unflushedMemtables);
@@ -22,7 +22,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 
 import org.bboxdb.commons.DuplicateResolver;
@@ -40,12 +43,14 @@ import org.bboxdb.misc.BBoxDBConfiguration;
 import org.bboxdb.misc.BBoxDBException;
 import org.bboxdb.misc.BBoxDBService;
 import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.entity.DeletedTuple;
 import org.bboxdb.storage.entity.DistributionGroupMetadata;
 import org.bboxdb.storage.entity.MemtableAndTupleStoreManagerPair;
 import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.entity.TupleStoreConfiguration;
 import org.bboxdb.storage.entity.TupleStoreName;
-import org.bboxdb.storage.memtable.Memtable;
+import org.bboxdb.storage.memtable.MemtableFactory;
+import org.bboxdb.storage.memtable.MemtableTupleStore;
 import org.bboxdb.storage.sstable.SSTableConst;
 import org.bboxdb.storage.sstable.SSTableHelper;
 import org.bboxdb.storage.sstable.duplicateresolver.TupleDuplicateResolverFactory;
@@ -54,6 +59,7 @@ import org.bboxdb.storage.tuplestore.DiskStorage;
 import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
 import org.bboxdb.storage.wal.WriteAheadLogManager;
 import org.bboxdb.storage.wal.WriteAheadLogReader;
+import org.bboxdb.storage.wal.WriteAheadLogRecovery;
 import org.bboxdb.storage.wal.WriteAheadLogWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -102,6 +108,12 @@ public class TupleStoreManager implements BBoxDBService {
 	 */
 	protected final List<Consumer<Tuple>> insertCallbacks;
 
+	/**
+	 * Concurrent writes into the active memtable hold the read lock,
+	 * the exchange of the active memtable holds the write lock
+	 */
+	protected final ReadWriteLock memtableLock;
+
 	/**
 	 * The get performance counter
 	 */
@@ -109,6 +121,13 @@ public class TupleStoreManager implements BBoxDBService {
 			.name("bboxdb_request_get_latency_seconds")
 			.help("Get request latency in seconds.").register();
 
+	/**
+	 * The amount of tuple stores that are read for a key lookup
+	 */
+	private final static Summary readAmplification = Summary.build()
+			.name("bboxdb_read_amplification")
+			.help("Number of tuple stores that are read for a key lookup.").register();
+
 	/**
 	 * The logger
 	 */
@@ -117,12 +136,13 @@ public class TupleStoreManager implements BBoxDBService {
 	public TupleStoreManager(final DiskStorage storage, final TupleStoreName sstablename,
 			final BBoxDBConfiguration configuration) {
 
+		this.memtableLock = new ReentrantReadWriteLock();
 		this.storage = storage;
 		this.configuration = configuration;
 		this.tupleStoreName = sstablename;
 		this.nextFreeTableNumber = new AtomicInteger();
 		this.tupleStoreInstances = new TupleStoreInstanceManager();
-		this.insertCallbacks = new ArrayList<>();
+		this.insertCallbacks = new CopyOnWriteArrayList<>();
 
 		// Close open resources when the failed state is entered
 		this.serviceState = new ServiceState();
@@ -152,15 +172,16 @@ public class TupleStoreManager implements BBoxDBService {
 
 			tupleStoreInstances.clear();
 
-			initNewMemtable();
 			scanForExistingTables();
 			loadTuplstoreMetaData();
 
 			nextFreeTableNumber.set(getLastSequencenumberFromReader() + 1);
-			tupleStoreInstances.setReadWrite();
 
-			// Apply WAL after write access is possible
-			applyWal();
+			// Recover the old WAL files before the new memtable creates its own WAL
+			recoverWriteAheadLogs();
+
+			initNewMemtable();
+			tupleStoreInstances.setReadWrite();
 
 			// Set to ready before the threads are started
 			serviceState.dispatchToRunning();
@@ -224,7 +245,7 @@ public class TupleStoreManager implements BBoxDBService {
 	 * @return
 	 */
 	public boolean flush() {
-		final Memtable activeMemtable = tupleStoreInstances.getMemtable();
+		final MemtableTupleStore activeMemtable = tupleStoreInstances.getMemtable();
 
 		if(activeMemtable == null) {
 			return true;
@@ -248,27 +269,37 @@ public class TupleStoreManager implements BBoxDBService {
 	}
 
 	/**
-	 * Apply the old write ahead logs
+	 * Write the old write ahead logs into new SSTables
 	 */
-	private void applyWal() {
+	private void recoverWriteAheadLogs() {
 		final String storageDir = storage.getBasedir().getAbsolutePath();
 		final String baseDir = SSTableHelper.getSSTableDir(storageDir, tupleStoreName);
 
 		final List<File> walFiles = WriteAheadLogManager.getAllWalFiles(new File(baseDir));
-		logger.debug("Apply old WAL files {}", walFiles);
+		logger.debug("Recover old WAL files {}", walFiles);
 
 		for(final File walFile: walFiles) {
 			try(
 					final WriteAheadLogReader reader = new WriteAheadLogReader(walFile);
 			){
-				for(final Tuple tuple : reader) {
-					put(tuple);
+				final int tableNumber = increaseTableNumber();
+
+				final int tuples = WriteAheadLogRecovery.writeToSSTable(reader, storageDir,
+						tupleStoreName, tableNumber);
+
+				if(tuples > 0) {
+					final SSTableFacade facade = new SSTableFacade(storageDir, tupleStoreName,
+							tableNumber, configuration.getSstableKeyCacheEntries());
+					facade.init();
+					tupleStoreInstances.addNewDetectedSSTable(facade);
 				}
 
-				reader.close();
 				reader.deleteFile();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
 			} catch (Exception e) {
-				logger.error("Got an exception while applying WAL", e);
+				logger.error("Got an exception while recovering WAL " + walFile, e);
 			}
 		}
 	}
@@ -543,6 +574,9 @@ public class TupleStoreManager implements BBoxDBService {
 		} else if(SSTableHelper.isFileNameSpatialIndex(filename)) {
 			logger.info("Deleting spatial index file: {}", file);
 			file.delete();
+		} else if(SSTableHelper.isFileNameTimeIndex(filename)) {
+			logger.info("Deleting time index file: {}", file);
+			file.delete();
 		} else if(SSTableHelper.isFileNameWAL(filename)) {
 			logger.info("Deleting WAL file: {}", file);
 			file.delete();
@@ -569,7 +603,10 @@ public class TupleStoreManager implements BBoxDBService {
 		final List<Tuple> tupleList = new ArrayList<>();
 
 		try(final TupleStoreAquirer tupleStoreAquirer = new TupleStoreAquirer(this)) {
-			for(final ReadOnlyTupleStore tupleStorage : tupleStoreAquirer.getTupleStores()) {
+			final List<ReadOnlyTupleStore> tupleStores = tupleStoreAquirer.getTupleStores();
+			readAmplification.observe(tupleStores.size());
+			
+			for(final ReadOnlyTupleStore tupleStorage : tupleStores) {
 				final List<Tuple> resultTuples = tupleStorage.get(key);
 				tupleList.addAll(resultTuples);
 			}
@@ -623,14 +660,21 @@ public class TupleStoreManager implements BBoxDBService {
 
 		final WriteAheadLogWriter walWriter = getWriteAheadLogWriter();
 
-		final Memtable memtable = new Memtable(tupleStoreName,
-				configuration.getMemtableEntriesMax(),
-				configuration.getMemtableSizeMax(), walWriter);
+		final MemtableTupleStore memtable = MemtableFactory.getInstance(configuration,
+				tupleStoreName, walWriter);
 
 		memtable.acquire();
 		memtable.init();
 
-		final Memtable oldMemtable = tupleStoreInstances.activateNewMemtable(memtable);
+		final MemtableTupleStore oldMemtable;
+
+		// Wait for all concurrent writes into the old memtable
+		memtableLock.writeLock().lock();
+		try {
+			oldMemtable = tupleStoreInstances.activateNewMemtable(memtable);
+		} finally {
+			memtableLock.writeLock().unlock();
+		}
 
 		if(oldMemtable != null) {
 			final MemtableAndTupleStoreManagerPair memtableTask
@@ -656,7 +700,8 @@ public class TupleStoreManager implements BBoxDBService {
 		final String ssTableDir = SSTableHelper.getSSTableDir(storageDir, tupleStoreName);
 
 		try {
-			return new WriteAheadLogWriter(new File(ssTableDir), System.currentTimeMillis());
+			return new WriteAheadLogWriter(new File(ssTableDir), System.currentTimeMillis(),
+					configuration);
 		} catch (IOException e) {
 			logger.error("Unable to create write ahead log writer", e);
 			return null;
@@ -682,13 +727,8 @@ public class TupleStoreManager implements BBoxDBService {
 		}
 
 		try {
-			// Ensure that only one memtable is newly created
-			synchronized (this) {
-				if(getMemtable().isFull()) {
-					initNewMemtable();
-				}
-
-				getMemtable().put(tuple);
+			if(! putConcurrent(tuple)) {
+				putLocked(tuple);
 			}
 
 			// Notify callbacks
@@ -700,6 +740,127 @@ public class TupleStoreManager implements BBoxDBService {
 		}
 	}
 
+	/**
+	 * Store a batch of tuples. The state checks are performed once and the
+	 * tuples are added in one step to the active memtable(s)
+	 * @param tuples
+	 * @throws StorageManagerException
+	 * @throws RejectedException
+	 */
+	public void put(final Collection<Tuple> tuples) throws StorageManagerException, RejectedException {
+
+		if(! serviceState.isInRunningState()) {
+			throw new StorageManagerException("Storage manager is not ready: "
+					+ tupleStoreName.getFullname()
+					+ " state: " + serviceState);
+		}
+
+		if(tupleStoreInstances.getState() == TupleStoreManagerState.READ_ONLY) {
+			throw new RejectedException("Storage manager is in read only state: " + tupleStoreName);
+		}
+
+		try {
+			final List<Tuple> tupleList = (tuples instanceof List) 
+					? (List<Tuple>) tuples : new ArrayList<>(tuples);
+
+			final int storedTuples = putConcurrent(tupleList);
+
+			// The memtable does not support concurrent writes or became full
+			if(storedTuples < tupleList.size()) {
+				synchronized (this) {
+					for(final Tuple tuple : tupleList.subList(storedTuples, tupleList.size())) {
+						putLocked(tuple);
+					}
+				}
+			}
+
+			// Notify callbacks
+			if(! insertCallbacks.isEmpty()) {
+				for(final Tuple tuple : tuples) {
+					insertCallbacks.forEach(c -> c.accept(tuple));
+				}
+			}
+
+		} catch (StorageManagerException e) {
+			serviceState.dispatchToFailed(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Store the tuples without locking the tuple store manager, until
+	 * the active memtable is full.
+	 * @param tuples
+	 * @return the number of stored tuples
+	 * @throws StorageManagerException
+	 */
+	private int putConcurrent(final List<Tuple> tuples) throws StorageManagerException {
+		memtableLock.readLock().lock();
+
+		try {
+			final MemtableTupleStore memtable = getMemtable();
+
+			if(! memtable.isConcurrentWriteSupported()) {
+				return 0;
+			}
+
+			int storedTuples = 0;
+
+			while(storedTuples < tuples.size() && ! memtable.isFull()) {
+				if(! memtable.tryPut(tuples.get(storedTuples))) {
+					break;
+				}
+
+				storedTuples++;
+			}
+
+			return storedTuples;
+		} finally {
+			memtableLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Store the tuple without locking the tuple store manager. This is only
+	 * possible when the active memtable supports concurrent writes and is not full.
+	 * @param tuple
+	 * @return the tuple is stored or not
+	 * @throws StorageManagerException
+	 */
+	private boolean putConcurrent(final Tuple tuple) throws StorageManagerException {
+		memtableLock.readLock().lock();
+
+		try {
+			final MemtableTupleStore memtable = getMemtable();
+
+			if(! memtable.isConcurrentWriteSupported() || memtable.isFull()) {
+				return false;
+			}
+
+			return memtable.tryPut(tuple);
+		} finally {
+			memtableLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Store the tuple and replace the memtable if it is full. Concurrent writers 
+	 * can use the free slots of the active memtable at the same time, so a memtable 
+	 * that is not full can reject the tuple.
+	 * @param tuple
+	 * @throws StorageManagerException
+	 */
+	private synchronized void putLocked(final Tuple tuple) throws StorageManagerException {
+		final MemtableTupleStore memtable = getMemtable();
+
+		if(! memtable.isFull() && memtable.tryPut(tuple)) {
+			return;
+		}
+
+		initNewMemtable();
+		getMemtable().put(tuple);
+	}
+
 	/**
 	 * Delete the given tuple
 	 * @param key
@@ -718,14 +879,11 @@ public class TupleStoreManager implements BBoxDBService {
 			throw new RejectedException("Storage manager is in read only state: " + tupleStoreName);
 		}
 
-		// Ensure that only one memtable is newly created
 		try {
-			synchronized (this) {
-				if(getMemtable().isFull()) {
-					initNewMemtable();
-				}
+			final Tuple deletedTuple = new DeletedTuple(key, timestamp);
 
-				getMemtable().delete(key, timestamp);
+			if(! putConcurrent(deletedTuple)) {
+				putLocked(deletedTuple);
 			}
 		} catch (StorageManagerException e) {
 			serviceState.dispatchToFailed(e);
@@ -740,7 +898,7 @@ public class TupleStoreManager implements BBoxDBService {
 	 * @param sstableFacade
 	 * @throws RejectedException
 	 */
-	public void replaceMemtableWithSSTable(final Memtable memtable, final SSTableFacade sstableFacade)
+	public void replaceMemtableWithSSTable(final MemtableTupleStore memtable, final SSTableFacade sstableFacade)
 			throws RejectedException {
 
 		if(tupleStoreInstances.getState() == TupleStoreManagerState.READ_ONLY) {
@@ -794,7 +952,7 @@ public class TupleStoreManager implements BBoxDBService {
 	 * Get the active memtable
 	 * @return
 	 */
-	public Memtable getMemtable() {
+	public MemtableTupleStore getMemtable() {
 		return tupleStoreInstances.getMemtable();
 	}
 
@@ -903,8 +1061,10 @@ public class TupleStoreManager implements BBoxDBService {
 
 		try(final TupleStoreAquirer tupleStoreAquirer = new TupleStoreAquirer(this)) {
 			final List<Tuple> resultTuples = new ArrayList<>();
+			final List<ReadOnlyTupleStore> tupleStores = tupleStoreAquirer.getTupleStores();
+			readAmplification.observe(tupleStores.size());
 
-			for(final ReadOnlyTupleStore readOnlyTupleStorage : tupleStoreAquirer.getTupleStores()) {
+			for(final ReadOnlyTupleStore readOnlyTupleStorage : tupleStores) {
 				final List<Tuple> possibleTuples = readOnlyTupleStorage.get(key);
 				resultTuples.addAll(possibleTuples);
 			}
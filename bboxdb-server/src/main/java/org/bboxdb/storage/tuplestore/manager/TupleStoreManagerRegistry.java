@@ -21,12 +21,18 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -42,9 +48,12 @@ import org.bboxdb.storage.entity.TupleStoreName;
 import org.bboxdb.storage.sstable.SSTableHelper;
 import org.bboxdb.storage.tuplestore.DiskStorage;
 import org.bboxdb.storage.tuplestore.TupleStoreLocator;
+import org.bboxdb.storage.wal.WriteAheadLogManager;
+import org.bboxdb.storage.wal.WriteAheadLogRecovery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
 
@@ -138,9 +147,74 @@ public class TupleStoreManagerRegistry implements BBoxDBService {
 			}
 		}
 
+		recoverWriteAheadLogs();
+
 		serviceState.dispatchToRunning();
 	}
 
+	/**
+	 * Open all tuple stores with old write ahead logs in parallel. Opening
+	 * the tuple store writes the logs into new SSTables.
+	 * @throws InterruptedException
+	 */
+	private void recoverWriteAheadLogs() throws InterruptedException {
+		final Map<TupleStoreName, Integer> walFilesPerTable = new HashMap<>();
+
+		for(final Entry<TupleStoreName, String> entry : tupleStoreLocations.entrySet()) {
+			final String ssTableDir = SSTableHelper.getSSTableDir(entry.getValue(), entry.getKey());
+			final int walFiles = WriteAheadLogManager.getAllWalFiles(new File(ssTableDir)).size();
+
+			if(walFiles > 0) {
+				walFilesPerTable.put(entry.getKey(), walFiles);
+			}
+		}
+
+		if(walFilesPerTable.isEmpty()) {
+			return;
+		}
+
+		final int totalFiles = walFilesPerTable.values().stream().mapToInt(i -> i).sum();
+		final AtomicInteger recoveredFiles = new AtomicInteger(0);
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+
+		logger.info("Recovering {} WAL files of {} tuple stores", totalFiles, walFilesPerTable.size());
+		WriteAheadLogRecovery.addPendingFiles(totalFiles);
+
+		final int threads = Math.max(1, Math.min(walFilesPerTable.size(),
+				configuration.getStorageWriteAheadLogRecoveryThreads()));
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+		for(final Entry<TupleStoreName, Integer> entry : walFilesPerTable.entrySet()) {
+			executor.submit(() -> {
+				final TupleStoreName tupleStoreName = entry.getKey();
+
+				try {
+					final DiskStorage storage = storages.get(tupleStoreLocations.get(tupleStoreName));
+					final TupleStoreManager tupleStoreManager = new TupleStoreManager(storage,
+							tupleStoreName, configuration);
+
+					tupleStoreManager.init();
+
+					if(tupleStoreManager.getServiceState().isInRunningState()) {
+						managerInstances.put(tupleStoreName, tupleStoreManager);
+					}
+				} catch(Exception e) {
+					logger.error("Unable to recover the WAL files of " + tupleStoreName, e);
+				} finally {
+					WriteAheadLogRecovery.removePendingFiles(entry.getValue());
+					final int done = recoveredFiles.addAndGet(entry.getValue());
+					logger.info("WAL recovery: {} of {} files processed", done, totalFiles);
+				}
+			});
+		}
+
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+		logger.info("Recovered {} WAL files in {} ms", totalFiles, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+	}
+
 	/**
 	 * Get the storage manager for a given table. If the storage manager does not
 	 * exist, it will be created
@@ -18,7 +18,9 @@
 package org.bboxdb.storage.wal;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
 import org.bboxdb.storage.sstable.SSTableConst;
@@ -38,13 +40,37 @@ public class WriteAheadLogManager {
 	}
 	
 	/**
-	 * Get all WAL files from the given basedir
+	 * Get all WAL files from the given basedir, ordered by the memtable number
 	 * @param basedir
 	 * @return
 	 */
 	public static List<File> getAllWalFiles(final File basedir) {
 		final File[] files = basedir.listFiles((d, n) -> SSTableHelper.isFileNameWAL(n));
-		return Arrays.asList(files);
+		
+		if(files == null) {
+			return new ArrayList<>();
+		}
+		
+		final List<File> walFiles = new ArrayList<>(Arrays.asList(files));
+		walFiles.sort(Comparator.comparingLong(f -> getMemtableNumber(f)));
+		return walFiles;
+	}
+	
+	/**
+	 * Get the memtable number of the WAL file
+	 * @param walFile
+	 * @return
+	 */
+	public static long getMemtableNumber(final File walFile) {
+		final String filename = walFile.getName();
+		final String number = filename.substring("wal_".length(), 
+				filename.length() - SSTableConst.MEMTABLE_WAL_SUFFIX.length());
+		
+		try {
+			return Long.parseLong(number);
+		} catch(NumberFormatException e) {
+			return -1;
+		}
 	}
 	
 }
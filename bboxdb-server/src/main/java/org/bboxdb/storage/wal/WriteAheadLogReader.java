@@ -17,14 +17,19 @@
  *******************************************************************************/
 package org.bboxdb.storage.wal;
 
-import java.io.BufferedInputStream;
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.zip.CRC32;
 
+import org.bboxdb.commons.io.DataEncoderHelper;
+import org.bboxdb.commons.io.UnsafeMemoryHelper;
 import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.sstable.SSTableConst;
@@ -32,20 +37,23 @@ import org.bboxdb.storage.util.TupleHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.io.ByteStreams;
-
 public class WriteAheadLogReader implements Closeable, Iterable<Tuple> {
 
 	/**
-	 * The input stream
+	 * The memory mapped file
 	 */
-	private BufferedInputStream inputStream;
+	private MappedByteBuffer memory;
 
 	/**
 	 * The file
 	 */
 	private final File file;
 
+	/**
+	 * Does the file contain CRC checked records
+	 */
+	private final boolean recordsChecked;
+
 	/**
 	 * The Logger
 	 */
@@ -56,11 +64,25 @@ public class WriteAheadLogReader implements Closeable, Iterable<Tuple> {
 	 */
 	private final class TupleIterator implements Iterator<Tuple> {
 
+		/**
+		 * The buffer of this iterator
+		 */
+		private final ByteBuffer buffer;
+
 		/**
 		 * The next tuple
 		 */
 		private Tuple nextTuple = null;
 
+		/**
+		 * Is the end of the log reached
+		 */
+		private boolean endReached = false;
+
+		public TupleIterator(final ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
 		@Override
 		public boolean hasNext() {
 
@@ -69,20 +91,19 @@ public class WriteAheadLogReader implements Closeable, Iterable<Tuple> {
 				return true;
 			}
 
-			try {
-				final int availableBytes = inputStream.available();
+			if(endReached || memory == null || ! buffer.hasRemaining()) {
+				return false;
+			}
 
-				if(availableBytes == 0) {
-					return false;
-				}
+			if(recordsChecked) {
+				nextTuple = readRecord();
+			} else {
+				nextTuple = readUncheckedTuple();
+			}
 
-				nextTuple = TupleHelper.decodeTuple(inputStream);
+			endReached = (nextTuple == null);
 
-				return true;
-			} catch (IOException e) {
-				logger.error("Got IO exception", e);
-				return false;
-			}
+			return ! endReached;
 		}
 
 		@Override
@@ -97,6 +118,61 @@ public class WriteAheadLogReader implements Closeable, Iterable<Tuple> {
 			nextTuple = null;
 			return tupleToReturn;
 		}
+
+		/**
+		 * Read the next CRC checked record. The end of the log is reached
+		 * on a zero length (preallocated space) or on a torn record.
+		 * @return the tuple or null
+		 */
+		private Tuple readRecord() {
+
+			if(buffer.remaining() < WriteAheadLogWriter.RECORD_HEADER_BYTES) {
+				return null;
+			}
+
+			final int length = buffer.getInt();
+
+			if(length <= 0) {
+				return null;
+			}
+
+			if(length > buffer.remaining() - DataEncoderHelper.INT_BYTES) {
+				logger.warn("Write ahead log {} ends with an incomplete record", file);
+				return null;
+			}
+
+			final int expectedCrc = buffer.getInt();
+			final byte[] tupleBytes = new byte[length];
+			buffer.get(tupleBytes);
+
+			final CRC32 crc = new CRC32();
+			crc.update(tupleBytes);
+
+			if((int) crc.getValue() != expectedCrc) {
+				logger.warn("CRC mismatch in write ahead log {}, ignoring the remaining records", file);
+				return null;
+			}
+
+			try {
+				return TupleHelper.decodeTuple(ByteBuffer.wrap(tupleBytes));
+			} catch (IOException e) {
+				logger.error("Unable to decode tuple from write ahead log " + file, e);
+				return null;
+			}
+		}
+
+		/**
+		 * Read the next tuple of a log without record checksums
+		 * @return the tuple or null
+		 */
+		private Tuple readUncheckedTuple() {
+			try {
+				return TupleHelper.decodeTuple(buffer);
+			} catch (IOException | RuntimeException e) {
+				logger.warn("Write ahead log {} ends with an incomplete tuple", file);
+				return null;
+			}
+		}
 	}
 
 	public WriteAheadLogReader(final File basedir, final int memtableNumber) throws IOException, StorageManagerException {
@@ -110,33 +186,62 @@ public class WriteAheadLogReader implements Closeable, Iterable<Tuple> {
 		}
 
 		this.file = file;
-		this.inputStream = new BufferedInputStream(new FileInputStream(file));
+
+		try (
+				final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+				final FileChannel fileChannel = randomAccessFile.getChannel();
+		) {
+			this.memory = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+			this.memory.order(DataEncoderHelper.APPLICATION_BYTE_ORDER);
+		}
 
 		// Validate file - read the magic from the beginning
-		final byte[] expectedMagic = SSTableConst.MAGIC_BYTES_WAL;
-		final byte[] magicBytes = new byte[expectedMagic.length];
+		final byte[] magicBytes = new byte[SSTableConst.MAGIC_BYTES_WAL.length];
 
-		ByteStreams.readFully(inputStream, magicBytes, 0, expectedMagic.length);
+		if(memory.remaining() >= magicBytes.length) {
+			memory.get(magicBytes, 0, magicBytes.length);
+		}
 
-		if(! Arrays.equals(magicBytes, expectedMagic)) {
+		if(Arrays.equals(magicBytes, SSTableConst.MAGIC_BYTES_WAL_V2)) {
+			recordsChecked = true;
+		} else if(Arrays.equals(magicBytes, SSTableConst.MAGIC_BYTES_WAL)) {
+			recordsChecked = false;
+		} else {
+			close();
 			throw new StorageManagerException("File " + file + " does not contain the magic bytes");
 		}
 	}
 
+	/**
+	 * Get the size of the log in bytes
+	 * @return
+	 */
+	public long getSize() {
+		return file.length();
+	}
+
 	/**
 	 * Close the WAL reader
 	 */
 	@Override
 	public void close() throws IOException {
-		if(inputStream != null) {
-			inputStream.close();
-			inputStream = null;
+		if(memory != null) {
+			UnsafeMemoryHelper.unmapMemory(memory);
+			memory = null;
 		}
 	}
 
 	@Override
 	public Iterator<Tuple> iterator() {
-		return new TupleIterator();
+
+		if(memory == null) {
+			throw new IllegalStateException("The reader for " + file + " is closed");
+		}
+
+		final ByteBuffer buffer = memory.duplicate();
+		buffer.order(DataEncoderHelper.APPLICATION_BYTE_ORDER);
+
+		return new TupleIterator(buffer);
 	}
 
 	/**
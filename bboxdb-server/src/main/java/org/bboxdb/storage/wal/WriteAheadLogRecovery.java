@@ -0,0 +1,131 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *******************************************************************************/
+package org.bboxdb.storage.wal;
+
+import java.util.List;
+
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.sstable.SSTableWriter;
+import org.bboxdb.storage.util.TupleHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Summary;
+
+public class WriteAheadLogRecovery {
+
+	/**
+	 * The WAL files waiting for recovery
+	 */
+	private final static Gauge pendingFiles = Gauge.build()
+			.name("bboxdb_wal_recovery_pending_files")
+			.help("WAL files waiting for recovery.").register();
+
+	/**
+	 * The recovered tuples
+	 */
+	private final static Counter recoveredTuples = Counter.build()
+			.name("bboxdb_wal_recovered_tuples_total")
+			.help("Total tuples recovered from WAL files.").register();
+
+	/**
+	 * The recovered bytes
+	 */
+	private final static Counter recoveredBytes = Counter.build()
+			.name("bboxdb_wal_recovered_bytes_total")
+			.help("Total bytes of recovered WAL files.").register();
+
+	/**
+	 * The recovery latency
+	 */
+	private final static Summary recoveryLatency = Summary.build()
+			.name("bboxdb_wal_recovery_seconds")
+			.help("Time to recover a WAL file in seconds.").register();
+
+	/**
+	 * The Logger
+	 */
+	private final static Logger logger = LoggerFactory.getLogger(WriteAheadLogRecovery.class);
+
+	/**
+	 * Register WAL files that will be recovered
+	 * @param files
+	 */
+	public static void addPendingFiles(final int files) {
+		pendingFiles.inc(files);
+	}
+
+	/**
+	 * Mark WAL files as recovered (or failed)
+	 * @param files
+	 */
+	public static void removePendingFiles(final int files) {
+		pendingFiles.dec(files);
+	}
+
+	/**
+	 * Write the tuples of the WAL into a new SSTable. The tuples of one log
+	 * (at most one memtable) are sorted in memory and written
+	 * without passing the memtable and the flush threads.
+	 *
+	 * @param reader
+	 * @param storageDir
+	 * @param tupleStoreName
+	 * @param tableNumber
+	 * @return the number of written tuples
+	 * @throws StorageManagerException
+	 */
+	public static int writeToSSTable(final WriteAheadLogReader reader, final String storageDir,
+			final TupleStoreName tupleStoreName, final int tableNumber) throws StorageManagerException {
+
+		final Summary.Timer timer = recoveryLatency.startTimer();
+
+		try {
+			final List<Tuple> tuples = Lists.newArrayList(reader);
+
+			if(tuples.isEmpty()) {
+				return 0;
+			}
+
+			tuples.sort(TupleHelper.TUPLE_KEY_AND_VERSION_COMPARATOR);
+
+			try (final SSTableWriter ssTableWriter = new SSTableWriter(storageDir,
+					tupleStoreName, tableNumber, tuples.size())) {
+
+				ssTableWriter.open();
+				ssTableWriter.addTuples(tuples);
+			}
+
+			recoveredTuples.inc(tuples.size());
+			recoveredBytes.inc(reader.getSize());
+
+			logger.info("Recovered {} tuples of {} into SSTable number {}",
+					tuples.size(), tupleStoreName.getFullname(), tableNumber);
+
+			return tuples.size();
+		} finally {
+			timer.observeDuration();
+		}
+	}
+}
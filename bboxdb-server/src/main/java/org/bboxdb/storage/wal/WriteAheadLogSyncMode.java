@@ -0,0 +1,77 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *******************************************************************************/
+package org.bboxdb.storage.wal;
+
+public enum WriteAheadLogSyncMode {
+
+	/**
+	 * The records are written to the file, the OS decides when they reach the disk
+	 */
+	NONE("none"),
+
+	/**
+	 * The file is forced to disk periodically
+	 */
+	INTERVAL("interval"),
+
+	/**
+	 * The records of concurrent writers are grouped and forced to disk together
+	 */
+	BATCH("batch"),
+
+	/**
+	 * Each record is forced to disk on its own
+	 */
+	EVERY_WRITE("every-write");
+
+	/**
+	 * The string representation
+	 */
+	protected final String stringValue;
+
+	private WriteAheadLogSyncMode(final String stringValue) {
+		this.stringValue = stringValue;
+	}
+
+	/**
+	 * Get the string representation
+	 * @return
+	 */
+	public String getStringValue() {
+		return stringValue;
+	}
+
+	/**
+	 * Convert the string value into an enum
+	 * @param stringValue
+	 * @return
+	 */
+	public static WriteAheadLogSyncMode fromString(final String stringValue) {
+		if (stringValue == null) {
+			throw new RuntimeException("stringValue is null");
+		}
+
+		for(final WriteAheadLogSyncMode syncMode : WriteAheadLogSyncMode.values()) {
+			if(stringValue.equals(syncMode.getStringValue())) {
+				return syncMode;
+			}
+		}
+
+		throw new RuntimeException("Unable to convert " + stringValue + " into enum");
+	}
+}
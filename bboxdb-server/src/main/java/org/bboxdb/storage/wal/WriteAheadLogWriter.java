@@ -17,30 +17,175 @@
  *******************************************************************************/
 package org.bboxdb.storage.wal;
 
-import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
 
+import org.bboxdb.commons.io.DataEncoderHelper;
+import org.bboxdb.misc.BBoxDBConfiguration;
+import org.bboxdb.misc.BBoxDBConfigurationManager;
 import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.sstable.SSTableConst;
 import org.bboxdb.storage.util.TupleHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import io.prometheus.client.Counter;
+import io.prometheus.client.Summary;
+
+/**
+ * The write ahead log writer. Records of concurrent writers are collected
+ * and written (and forced to disk, depending on the sync mode) by the
+ * first waiting writer as one group commit.
+ *
+ * Format of a record:
+ *
+ * +---------------------------------+
+ * | Length |  CRC32  |    Tuple     |
+ * | 4 Byte |  4 Byte |    n Byte    |
+ * +---------------------------------+
+ *
+ */
 public class WriteAheadLogWriter implements Closeable {
 
 	/**
-	 * The file writer
+	 * The file channel
 	 */
-	private BufferedOutputStream os;
+	private FileChannel fileChannel;
 
 	/**
 	 * The file
 	 */
 	private final File file;
 
+	/**
+	 * The sync mode
+	 */
+	private final WriteAheadLogSyncMode syncMode;
+
+	/**
+	 * The size of the preallocated segments
+	 */
+	private final long segmentSize;
+
+	/**
+	 * The records that are not written
+	 */
+	private List<ByteBuffer> pendingRecords;
+
+	/**
+	 * The sequence number of the last appended record
+	 */
+	private long appendSequence;
+
+	/**
+	 * The lock for the pending records
+	 */
+	private final Object appendLock = new Object();
+
+	/**
+	 * The commit lock
+	 */
+	private final ReentrantLock commitLock = new ReentrantLock();
+
+	/**
+	 * The sequence number of the last committed record
+	 */
+	private volatile long committedSequence;
+
+	/**
+	 * The write position in the file
+	 */
+	private long writePosition;
+
+	/**
+	 * The end of the preallocated space
+	 */
+	private long preallocatedPosition;
+
+	/**
+	 * Is the file metadata changed since the last sync
+	 */
+	private boolean metadataChanged;
+
+	/**
+	 * Are written records not synced
+	 */
+	private boolean unsyncedRecords;
+
+	/**
+	 * The periodical sync task
+	 */
+	private ScheduledFuture<?> syncTask;
+
+	/**
+	 * The scheduler for the interval sync mode
+	 */
+	private final static ScheduledExecutorService syncScheduler;
+
+	/**
+	 * The buffer for the preallocation
+	 */
+	private final static byte[] ZERO_BYTES = new byte[64 * 1024];
+
+	/**
+	 * The size of the record header (length and crc)
+	 */
+	public final static int RECORD_HEADER_BYTES = 2 * DataEncoderHelper.INT_BYTES;
+
+	/**
+	 * The commit latency
+	 */
+	private final static Summary commitLatency = Summary.build()
+			.name("bboxdb_wal_commit_latency_seconds")
+			.help("WAL commit latency in seconds.").register();
+
+	/**
+	 * The commit batch size
+	 */
+	private final static Summary commitBatchSize = Summary.build()
+			.name("bboxdb_wal_commit_batch_records")
+			.help("Records per WAL commit.").register();
+
+	/**
+	 * The amount of syncs
+	 */
+	private final static Counter syncTotal = Counter.build()
+			.name("bboxdb_wal_sync_total")
+			.help("Total WAL syncs.").register();
+
+	/**
+	 * The Logger
+	 */
+	private final static Logger logger = LoggerFactory.getLogger(WriteAheadLogWriter.class);
+
+	static {
+		syncScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			final Thread thread = new Thread(r, "WAL sync thread");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
 	public WriteAheadLogWriter(final File basedir, final long memtableNumber) throws IOException {
+		this(basedir, memtableNumber, BBoxDBConfigurationManager.getConfiguration());
+	}
+
+	public WriteAheadLogWriter(final File basedir, final long memtableNumber,
+			final BBoxDBConfiguration configuration) throws IOException {
 
 		this.file = WriteAheadLogManager.getFileForWal(basedir, memtableNumber);
 
@@ -48,34 +193,279 @@ public class WriteAheadLogWriter implements Closeable {
 			throw new RuntimeException("File " + file + " does already exist");
 		}
 
-		this.os = new BufferedOutputStream(new FileOutputStream(file));
+		this.syncMode = WriteAheadLogSyncMode.fromString(configuration.getStorageWriteAheadLogSyncMode());
+		this.segmentSize = configuration.getStorageWriteAheadLogSegmentSize();
+		this.pendingRecords = new ArrayList<>();
+		this.appendSequence = 0;
+		this.committedSequence = 0;
+
+		this.fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.WRITE);
 
-		os.write(SSTableConst.MAGIC_BYTES_WAL);
+		writeHeader();
+
+		if(syncMode == WriteAheadLogSyncMode.INTERVAL) {
+			final long interval = configuration.getStorageWriteAheadLogSyncInterval();
+			syncTask = syncScheduler.scheduleAtFixedRate(() -> syncUnsyncedRecords(),
+					interval, interval, TimeUnit.MILLISECONDS);
+		}
 	}
 
 	/**
-	 * Add a tuple to the WAL
-	 * @param tuple
+	 * Write the magic bytes
 	 * @throws IOException
 	 */
+	private void writeHeader() throws IOException {
+		final ByteBuffer header = ByteBuffer.wrap(SSTableConst.MAGIC_BYTES_WAL_V2);
+
+		writePosition = 0;
+		preallocatedPosition = 0;
+		writeRecords(Arrays.asList(header));
+		sync();
+	}
+
+	/**
+	 * Add a tuple to the WAL. Depending on the sync mode, the method
+	 * returns after the tuple is written to the file or forced to disk.
+	 * @param tuple
+	 * @throws StorageManagerException
+	 */
 	public void addTuple(final Tuple tuple) throws StorageManagerException {
+		final ByteBuffer record = encodeRecord(tuple);
+
+		if(syncMode == WriteAheadLogSyncMode.EVERY_WRITE) {
+			commitLock.lock();
+			try {
+				commitRecords(Arrays.asList(record));
+			} finally {
+				commitLock.unlock();
+			}
+			return;
+		}
+
+		final long sequence;
+
+		synchronized (appendLock) {
+			pendingRecords.add(record);
+			appendSequence++;
+			sequence = appendSequence;
+		}
+
+		commit(sequence);
+	}
+
+	/**
+	 * Commit all pending records until the given sequence is committed. When another
+	 * writer has committed the sequence while we are waiting for the lock,
+	 * nothing is to do.
+	 * @param sequence
+	 * @throws StorageManagerException
+	 */
+	private void commit(final long sequence) throws StorageManagerException {
+		commitLock.lock();
+
 		try {
-			assert (os != null) : "Writer can not be null";
-			TupleHelper.writeTupleToStream(tuple, os);
-			os.flush();
+			if(committedSequence >= sequence) {
+				return;
+			}
+
+			final List<ByteBuffer> batch;
+			final long lastSequence;
+
+			synchronized (appendLock) {
+				batch = pendingRecords;
+				lastSequence = appendSequence;
+				pendingRecords = new ArrayList<>();
+			}
+
+			commitRecords(batch);
+			committedSequence = lastSequence;
+		} finally {
+			commitLock.unlock();
+		}
+	}
+
+	/**
+	 * Write the given records and sync them according to the sync mode
+	 * @param records
+	 * @throws StorageManagerException
+	 */
+	private void commitRecords(final List<ByteBuffer> records) throws StorageManagerException {
+
+		assert (commitLock.isHeldByCurrentThread());
+
+		if(fileChannel == null) {
+			throw new StorageManagerException("The write ahead log " + file + " is closed");
+		}
+
+		final Summary.Timer timer = commitLatency.startTimer();
+
+		try {
+			writeRecords(records);
+
+			switch(syncMode) {
+			case BATCH:
+			case EVERY_WRITE:
+				sync();
+				break;
+			case INTERVAL:
+				unsyncedRecords = true;
+				break;
+			default:
+				break;
+			}
+		} catch (IOException e) {
+			throw new StorageManagerException(e);
+		} finally {
+			timer.observeDuration();
+			commitBatchSize.observe(records.size());
+		}
+	}
+
+	/**
+	 * Write the records to the file
+	 * @param records
+	 * @throws IOException
+	 */
+	private void writeRecords(final List<ByteBuffer> records) throws IOException {
+		long bytes = 0;
+
+		for(final ByteBuffer record : records) {
+			bytes = bytes + record.remaining();
+		}
+
+		preallocate(writePosition + bytes);
+
+		final ByteBuffer[] buffers = records.toArray(new ByteBuffer[records.size()]);
+		fileChannel.position(writePosition);
+
+		long written = 0;
+		while(written < bytes) {
+			written = written + fileChannel.write(buffers);
+		}
+
+		writePosition = writePosition + bytes;
+	}
+
+	/**
+	 * Preallocate the file in segments, so the file size does
+	 * not change on most of the syncs
+	 * @param position
+	 * @throws IOException
+	 */
+	private void preallocate(final long position) throws IOException {
+
+		if(segmentSize <= 0) {
+			metadataChanged = true;
+			return;
+		}
+
+		while(preallocatedPosition < position) {
+			final long segmentEnd = preallocatedPosition + segmentSize;
+
+			while(preallocatedPosition < segmentEnd) {
+				final int length = (int) Math.min(ZERO_BYTES.length, segmentEnd - preallocatedPosition);
+				final ByteBuffer zeroBuffer = ByteBuffer.wrap(ZERO_BYTES, 0, length);
+
+				while(zeroBuffer.hasRemaining()) {
+					preallocatedPosition = preallocatedPosition
+							+ fileChannel.write(zeroBuffer, preallocatedPosition);
+				}
+			}
+
+			metadataChanged = true;
+		}
+	}
+
+	/**
+	 * Force the written data to disk
+	 * @throws IOException
+	 */
+	private void sync() throws IOException {
+		fileChannel.force(metadataChanged);
+		metadataChanged = false;
+		unsyncedRecords = false;
+		syncTotal.inc();
+	}
+
+	/**
+	 * Sync the written records (interval mode)
+	 */
+	private void syncUnsyncedRecords() {
+		commitLock.lock();
+
+		try {
+			if(fileChannel != null && unsyncedRecords) {
+				sync();
+			}
+		} catch (IOException e) {
+			logger.error("Unable to sync write ahead log " + file, e);
+		} finally {
+			commitLock.unlock();
+		}
+	}
+
+	/**
+	 * Encode the tuple as a record
+	 * @param tuple
+	 * @return
+	 * @throws StorageManagerException
+	 */
+	public static ByteBuffer encodeRecord(final Tuple tuple) throws StorageManagerException {
+		try {
+			final byte[] tupleBytes = TupleHelper.tupleToBytes(tuple);
+
+			final CRC32 crc = new CRC32();
+			crc.update(tupleBytes);
+
+			final ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + tupleBytes.length);
+			record.order(DataEncoderHelper.APPLICATION_BYTE_ORDER);
+			record.putInt(tupleBytes.length);
+			record.putInt((int) crc.getValue());
+			record.put(tupleBytes);
+			record.flip();
+
+			return record;
 		} catch (IOException e) {
 			throw new StorageManagerException(e);
 		}
 	}
 
 	/**
-	 * Close the WAL writer
+	 * Close the WAL writer. Pending records are written and
+	 * the preallocated space is released.
 	 */
 	@Override
 	public void close() throws IOException {
-		if(os != null) {
-			os.close();
-			os = null;
+		commitLock.lock();
+
+		try {
+			if(syncTask != null) {
+				syncTask.cancel(false);
+				syncTask = null;
+			}
+
+			if(fileChannel == null) {
+				return;
+			}
+
+			synchronized (appendLock) {
+				writeRecords(pendingRecords);
+				pendingRecords = new ArrayList<>();
+				committedSequence = appendSequence;
+			}
+
+			fileChannel.truncate(writePosition);
+
+			if(syncMode != WriteAheadLogSyncMode.NONE) {
+				metadataChanged = true;
+				sync();
+			}
+
+			fileChannel.close();
+			fileChannel = null;
+		} finally {
+			commitLock.unlock();
 		}
 	}
 
@@ -87,6 +477,14 @@ public class WriteAheadLogWriter implements Closeable {
 		return file;
 	}
 
+	/**
+	 * Get the sync mode
+	 * @return
+	 */
+	public WriteAheadLogSyncMode getSyncMode() {
+		return syncMode;
+	}
+
 	/**
 	 * Delete the base file
 	 * @throws IOException
@@ -19,6 +19,8 @@ package org.bboxdb.test;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 import org.bboxdb.network.client.BBoxDBConnection;
@@ -147,6 +149,47 @@ public class TestFuture {
 		Assert.assertTrue(executions1 == totalRetries || executions2 == totalRetries);
 	}
 
+	@Test(timeout=60000)
+	public void testCompletionCallback1() throws InterruptedException {
+		final NetworkOperationFutureImpl networkFuture = getReadyNetworkFuture();
+
+		final OperationFutureImpl<Boolean> future = new OperationFutureImpl<>(() -> Arrays.asList(networkFuture),
+				FutureRetryPolicy.RETRY_POLICY_NONE);
+
+		Assert.assertTrue(future.isDone());
+
+		// Callback on a done future is executed directly
+		final AtomicInteger calls = new AtomicInteger(0);
+		future.addCompletionCallback(f -> {
+			Assert.assertFalse(f.isFailed());
+			calls.incrementAndGet();
+		});
+
+		Assert.assertEquals(1, calls.get());
+	}
+
+	@Test(timeout=60000)
+	public void testCompletionCallback2() throws InterruptedException {
+		final NetworkOperationFutureImpl networkFuture = getFailingNetworkFuture();
+
+		final OperationFutureImpl<Boolean> future = new OperationFutureImpl<>(() -> Arrays.asList(networkFuture),
+				FutureRetryPolicy.RETRY_POLICY_ONE_FUTURE);
+
+		final CountDownLatch latch = new CountDownLatch(1);
+		final AtomicInteger calls = new AtomicInteger(0);
+
+		future.addCompletionCallback(f -> {
+			Assert.assertTrue(f.isFailed());
+			calls.incrementAndGet();
+			latch.countDown();
+		});
+
+		latch.await();
+		future.waitForCompletion();
+		Assert.assertEquals(1, calls.get());
+		Assert.assertEquals(OperationFuture.TOTAL_RETRIES + 1, networkFuture.getExecutions());
+	}
+
 	/**
 	 * Get a failing network future
 	 *
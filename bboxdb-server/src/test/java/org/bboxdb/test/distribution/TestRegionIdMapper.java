@@ -18,7 +18,10 @@
 package org.bboxdb.test.distribution;
 
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -283,4 +286,59 @@ public class TestRegionIdMapper {
 		
 		regionIdMapper.waitUntilMappingDisappears(3, 5, TimeUnit.SECONDS);
 	}
+	
+	/**
+	 * Test the lookup with many regions against a linear scan
+	 */
+	@Test(timeout=60000)
+	public void testManyRegions() {
+		final DistributionRegionIdMapper regionIdMapper = new DistributionRegionIdMapper(DISTRIBUTION_REGION_NAME);
+		
+		for(int x = 0; x < 30; x++) {
+			for(int y = 0; y < 30; y++) {
+				regionIdMapper.addMapping(x * 30 + y, new Hyperrectangle((double) x, x + 1d, (double) y, y + 1d));
+			}
+		}
+		
+		final Random random = new Random(1);
+		
+		for(int i = 0; i < 100; i++) {
+			// Remove and re-add some regions between the queries
+			final long regionId = random.nextInt(900);
+			final Hyperrectangle regionBox = regionIdMapper.getSpaceForRegionId(regionId);
+			regionIdMapper.removeMapping(regionId);
+			
+			final double x = random.nextDouble() * 30;
+			final double y = random.nextDouble() * 30;
+			final Hyperrectangle query = new Hyperrectangle(x, x + random.nextDouble() * 5, 
+					y, y + random.nextDouble() * 5);
+			
+			final Set<Long> expected = new HashSet<>();
+			for(final long id : regionIdMapper.getAllRegionIds()) {
+				if(regionIdMapper.getSpaceForRegionId(id).intersects(query)) {
+					expected.add(id);
+				}
+			}
+			
+			Assert.assertEquals(expected, regionIdMapper.getRegionIdsForRegion(query));
+			Assert.assertFalse(regionIdMapper.getRegionIdsForRegion(regionBox).contains(regionId));
+			
+			regionIdMapper.addMapping(regionId, regionBox);
+			Assert.assertTrue(regionIdMapper.getRegionIdsForRegion(regionBox).contains(regionId));
+		}
+	}
+	
+	/**
+	 * Test the mapping of the full space
+	 */
+	@Test(timeout=60000)
+	public void testFullSpaceMapping() {
+		final DistributionRegionIdMapper regionIdMapper = new DistributionRegionIdMapper(DISTRIBUTION_REGION_NAME);
+		regionIdMapper.addMapping(1, Hyperrectangle.FULL_SPACE);
+		regionIdMapper.addMapping(2, new Hyperrectangle(10d, 20d, 10d, 20d));
+		
+		Assert.assertEquals(2, regionIdMapper.getRegionIdsForRegion(new Hyperrectangle(15d, 16d, 15d, 16d)).size());
+		Assert.assertEquals(1, regionIdMapper.getRegionIdsForRegion(new Hyperrectangle(1d, 2d, 1d, 2d)).size());
+		Assert.assertEquals(2, regionIdMapper.getRegionIdsForRegion(Hyperrectangle.FULL_SPACE).size());
+	}
 }
@@ -123,6 +123,8 @@ public class TestTupleStoreAdapter {
 		final TupleStoreConfiguration tupleStoreConfiguration = TupleStoreConfigurationBuilder.create()
 				.withSpatialIndexReader("reader")
 				.withSpatialIndexWriter("writer")
+				.withMergeStrategy("merge")
+				.withKeyIndex(true)
 				.build();
 		
 		final TupleStoreName tupleStoreName = new TupleStoreName("dg_table1");
@@ -266,6 +266,51 @@ public class NetworkQueryHelper {
 		System.out.println("=== End testBoundingBoxQueryContinous 2");
 	}
 
+	/**
+	 * Insert a batch of tuples and read them back
+	 * @param bboxDBClient
+	 * @param distributionGroup
+	 * @throws BBoxDBException
+	 * @throws InterruptedException
+	 */
+	public static void executeBatchInsert(final BBoxDB bboxDBClient, final String distributionGroup)
+			throws BBoxDBException, InterruptedException {
+
+		final String table = distributionGroup + "_relation9991";
+
+		// Create table
+		final EmptyResultFuture resultCreateTable = bboxDBClient.createTable(table, new TupleStoreConfiguration());
+		resultCreateTable.waitForCompletion();
+		Assert.assertFalse(resultCreateTable.isFailed());
+
+		final List<Tuple> tuples = new ArrayList<>();
+
+		for(int i = 0; i < 100; i++) {
+			final double pos = i * 10d;
+			final Hyperrectangle bbox = new Hyperrectangle(pos, pos + 1, pos, pos + 1);
+			tuples.add(new Tuple("key" + i, bbox, ("value" + i).getBytes()));
+		}
+
+		final EmptyResultFuture insertResult = bboxDBClient.insertTuples(table, tuples);
+		insertResult.waitForCompletion();
+		Assert.assertFalse(insertResult.isFailed());
+		Assert.assertTrue(insertResult.isDone());
+
+		final TupleListFuture future = bboxDBClient.queryRectangle(table, new Hyperrectangle(-1d, 95d, -1d, 95d));
+		future.waitForCompletion();
+		Assert.assertFalse(future.isFailed());
+		final List<Tuple> resultList = Lists.newArrayList(future.iterator());
+
+		Assert.assertEquals(10, resultList.size());
+		Assert.assertTrue(resultList.containsAll(tuples.subList(0, 10)));
+
+		final TupleListFuture keyFuture = bboxDBClient.queryKey(table, "key99");
+		keyFuture.waitForCompletion();
+		final List<Tuple> keyResultList = Lists.newArrayList(keyFuture.iterator());
+		Assert.assertEquals(1, keyResultList.size());
+		Assert.assertEquals(tuples.get(99), keyResultList.get(0));
+	}
+
 	/**
 	 * Insert and delete tuple
 	 * @param bboxDBConnection
@@ -18,6 +18,9 @@
 package org.bboxdb.test.network;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
 import org.bboxdb.BBoxDBMain;
@@ -28,15 +31,22 @@ import org.bboxdb.network.client.BBoxDB;
 import org.bboxdb.network.client.BBoxDBCluster;
 import org.bboxdb.network.client.future.EmptyResultFuture;
 import org.bboxdb.network.client.future.JoinedTupleListFuture;
+import org.bboxdb.network.client.future.TupleListFuture;
+import org.bboxdb.network.client.tools.KeyIndexHelper;
 import org.bboxdb.network.query.ContinuousConstQueryPlan;
+import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.entity.TupleStoreConfiguration;
+import org.bboxdb.storage.entity.TupleStoreConfigurationBuilder;
 import org.bboxdb.storage.util.EnvironmentHelper;
+import org.bboxdb.storage.util.TupleHelper;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
+
 public class TestBBoxDBCluster {
 
 
@@ -162,6 +172,19 @@ public class TestBBoxDBCluster {
 		disconnect(bboxdbClient);
 	}
 
+	/**
+	 * Insert a batch of tuples
+	 * @throws BBoxDBException
+	 * @throws InterruptedException
+	 */
+	@Test(timeout=60000)
+	public void testBatchInsert() throws InterruptedException, BBoxDBException {
+		final BBoxDB bboxDBClient = EnvironmentHelper.connectToServer();
+
+		NetworkQueryHelper.executeBatchInsert(bboxDBClient, DISTRIBUTION_GROUP);
+		disconnect(bboxDBClient);
+	}
+
 	/**
 	 * Execute the version time query
 	 * @throws BBoxDBException
@@ -228,6 +251,72 @@ public class TestBBoxDBCluster {
 		disconnect(bboxDBClient);
 	}
 
+	/**
+	 * Test the key index
+	 * @throws BBoxDBException
+	 * @throws InterruptedException
+	 */
+	@Test(timeout=60000)
+	public void testKeyIndex() throws BBoxDBException, InterruptedException {
+		final BBoxDBCluster bboxDBClient = EnvironmentHelper.connectToServer();
+
+		final String table = DISTRIBUTION_GROUP + "_relation9992";
+		final String key = "key1";
+
+		final TupleStoreConfiguration configuration = TupleStoreConfigurationBuilder.create()
+				.withKeyIndex(true)
+				.build();
+
+		final EmptyResultFuture resultCreateTable = bboxDBClient.createTable(table, configuration);
+		resultCreateTable.waitForCompletion();
+		Assert.assertFalse(resultCreateTable.isFailed());
+
+		final KeyIndexHelper keyIndexHelper = new KeyIndexHelper(bboxDBClient);
+		Assert.assertFalse(keyIndexHelper.getRegionsForKey(table, key).isPresent());
+
+		final Tuple tuple = new Tuple(key, new Hyperrectangle(1d, 2d, 1d, 2d), "abc".getBytes());
+		final EmptyResultFuture insertResult = bboxDBClient.insertTuple(table, tuple);
+		insertResult.waitForCompletion();
+		Assert.assertFalse(insertResult.isFailed());
+
+		// The index is updated before the insert is acknowledged
+		Optional<Set<Long>> regions = keyIndexHelper.getRegionsForKey(table, key);
+		Assert.assertTrue(regions.isPresent());
+		Assert.assertEquals(1, regions.get().size());
+		Assert.assertFalse(keyIndexHelper.getRegionsForKey(table, "key2").isPresent());
+
+		final TupleListFuture queryResult = bboxDBClient.queryKey(table, key);
+		queryResult.waitForCompletion();
+		Assert.assertFalse(queryResult.isFailed());
+		Assert.assertEquals(Arrays.asList(tuple), Lists.newArrayList(queryResult.iterator()));
+
+		final EmptyResultFuture deleteResult = bboxDBClient.deleteTuple(table, key);
+		deleteResult.waitForCompletion();
+		Assert.assertFalse(deleteResult.isFailed());
+
+		regions = keyIndexHelper.getRegionsForKey(table, key);
+		Assert.assertFalse(regions.isPresent());
+
+		final TupleListFuture queryResult2 = bboxDBClient.queryKey(table, key);
+		queryResult2.waitForCompletion();
+		Assert.assertFalse(queryResult2.isFailed());
+		queryResult2.iterator().forEachRemaining(t -> Assert.assertTrue(TupleHelper.isDeletedTuple(t)));
+
+		disconnect(bboxDBClient);
+	}
+
+	/**
+	 * Test the keys of the key index entries
+	 */
+	@Test(timeout=60000)
+	public void testKeyIndexEntryKeys() {
+		final String indexKey = KeyIndexHelper.getIndexEntryKey("key#1", 12);
+		Assert.assertEquals(12, KeyIndexHelper.getRegionForIndexEntry("key#1", indexKey).getAsLong());
+		Assert.assertFalse(KeyIndexHelper.getRegionForIndexEntry("key", indexKey).isPresent());
+		Assert.assertFalse(KeyIndexHelper.getRegionForIndexEntry("key#12", indexKey).isPresent());
+		Assert.assertFalse(KeyIndexHelper.getRegionForIndexEntry("key#1", "key#1").isPresent());
+	}
+
 	/**
 	 * Test misc methods
 	 * @throws InterruptedException
@@ -0,0 +1,228 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.test.network;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.bboxdb.misc.Const;
+import org.bboxdb.network.NetworkConst;
+import org.bboxdb.network.capabilities.PeerCapabilities;
+import org.bboxdb.network.compression.AdaptiveCompressionPolicy;
+import org.bboxdb.network.compression.CompressionCodec;
+import org.bboxdb.network.compression.CompressionCodecFactory;
+import org.bboxdb.network.packages.PackageEncodeException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+public class TestCompressionCodec {
+
+	/**
+	 * Test the gzip codec
+	 * @throws IOException
+	 * @throws PackageEncodeException
+	 */
+	@Test(timeout=60000)
+	public void testGZipCodec() throws IOException, PackageEncodeException {
+		final CompressionCodec codec = CompressionCodecFactory.getCodec(NetworkConst.COMPRESSION_TYPE_GZIP);
+		Assert.assertEquals(NetworkConst.COMPRESSION_TYPE_GZIP, codec.getCompressionType());
+		testCodec(codec);
+
+		// The data can be read by the gzip stream
+		final byte[] data = getTestData(100000);
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		codec.compress(data, 0, data.length, bos);
+
+		final GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(bos.toByteArray()));
+		Assert.assertArrayEquals(data, ByteStreams.toByteArray(inputStream));
+	}
+
+	/**
+	 * Test the fast deflate codec
+	 * @throws IOException
+	 * @throws PackageEncodeException
+	 */
+	@Test(timeout=60000)
+	public void testDeflateCodec() throws IOException, PackageEncodeException {
+		final CompressionCodec codec = CompressionCodecFactory.getCodec(NetworkConst.COMPRESSION_TYPE_DEFLATE_FAST);
+		Assert.assertEquals(NetworkConst.COMPRESSION_TYPE_DEFLATE_FAST, codec.getCompressionType());
+		testCodec(codec);
+	}
+
+	/**
+	 * Test truncated data
+	 * @throws IOException
+	 * @throws PackageEncodeException
+	 */
+	@Test(expected=IOException.class)
+	public void testDeflateCodecTruncated() throws IOException, PackageEncodeException {
+		final CompressionCodec codec = CompressionCodecFactory.getCodec(NetworkConst.COMPRESSION_TYPE_DEFLATE_FAST);
+		final byte[] data = getTestData(100000);
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		codec.compress(data, 0, data.length, bos);
+
+		final byte[] compressedBytes = bos.toByteArray();
+		codec.uncompress(compressedBytes, 0, compressedBytes.length / 2);
+	}
+
+	/**
+	 * Test an uncompressed length above the package size limit
+	 * @throws IOException
+	 * @throws PackageEncodeException
+	 */
+	@Test(expected=IOException.class)
+	public void testDeflateCodecTooLarge() throws IOException, PackageEncodeException {
+		final CompressionCodec codec = CompressionCodecFactory.getCodec(NetworkConst.COMPRESSION_TYPE_DEFLATE_FAST);
+		final ByteBuffer compressedBytes = ByteBuffer.allocate(16);
+		compressedBytes.order(Const.APPLICATION_BYTE_ORDER);
+		compressedBytes.putInt(NetworkConst.MAX_PACKAGE_BYTES + 1);
+
+		codec.uncompress(compressedBytes.array(), 0, compressedBytes.capacity());
+	}
+
+	/**
+	 * Test unknown compression types
+	 * @throws PackageEncodeException
+	 */
+	@Test(expected=PackageEncodeException.class)
+	public void testUnknownCodec() throws PackageEncodeException {
+		CompressionCodecFactory.getCodec((byte) 0x7f);
+	}
+
+	/**
+	 * Test the codec negotiation
+	 */
+	@Test(timeout=60000)
+	public void testCodecNegotiation() {
+		final int version = NetworkConst.PROTOCOL_VERSION;
+		final PeerCapabilities peerCapabilities = new PeerCapabilities();
+		Assert.assertNull(CompressionCodecFactory.getCodecForCapabilities(peerCapabilities, version));
+
+		peerCapabilities.setGZipCompression();
+		Assert.assertEquals(NetworkConst.COMPRESSION_TYPE_GZIP,
+				CompressionCodecFactory.getCodecForCapabilities(peerCapabilities, version).getCompressionType());
+
+		peerCapabilities.setFastCompression();
+		Assert.assertEquals(NetworkConst.COMPRESSION_TYPE_DEFLATE_FAST,
+				CompressionCodecFactory.getCodecForCapabilities(peerCapabilities, version).getCompressionType());
+
+		final PeerCapabilities supportedCapabilities
+			= CompressionCodecFactory.getSupportedCapabilities(peerCapabilities, version);
+		Assert.assertEquals(peerCapabilities, supportedCapabilities);
+
+		// An old peer echoes the fast compression bit
+		Assert.assertEquals(NetworkConst.COMPRESSION_TYPE_GZIP,
+				CompressionCodecFactory.getCodecForCapabilities(peerCapabilities, 0x01).getCompressionType());
+		Assert.assertFalse(CompressionCodecFactory.getSupportedCapabilities(peerCapabilities, 0x01)
+				.hasFastCompression());
+
+		peerCapabilities.clearFastCompression();
+		peerCapabilities.clearGZipCompression();
+		Assert.assertNull(CompressionCodecFactory.getCodecForCapabilities(peerCapabilities, version));
+	}
+
+	/**
+	 * Test the adaptive compression policy
+	 */
+	@Test(timeout=60000)
+	public void testAdaptivePolicy() {
+		final AdaptiveCompressionPolicy policy = new AdaptiveCompressionPolicy();
+		Assert.assertEquals(1.0, policy.getCompressionRatio(), 0.0001);
+
+		// Small batches are not compressed
+		Assert.assertFalse(policy.shouldCompress(AdaptiveCompressionPolicy.MIN_COMPRESSION_BYTES - 1));
+		Assert.assertTrue(policy.shouldCompress(AdaptiveCompressionPolicy.MIN_COMPRESSION_BYTES));
+
+		// Good compression ratio
+		policy.recordCompression(1000, 100, 10);
+		Assert.assertTrue(policy.shouldCompress(1000));
+		Assert.assertEquals(0.1, policy.getCompressionRatio(), 0.0001);
+
+		// Not compressible, skip the next batch
+		policy.recordCompression(1000, 1000, 10);
+		Assert.assertFalse(policy.shouldCompress(1000));
+		Assert.assertTrue(policy.shouldCompress(1000));
+
+		// Not compressible again, skip the next two batches
+		policy.recordCompression(1000, 1000, 10);
+		Assert.assertFalse(policy.shouldCompress(1000));
+		Assert.assertFalse(policy.shouldCompress(1000));
+		Assert.assertTrue(policy.shouldCompress(1000));
+
+		// Compressible again, reset the backoff
+		policy.recordCompression(1000, 100, 10);
+		policy.recordCompression(1000, 1000, 10);
+		Assert.assertFalse(policy.shouldCompress(1000));
+		Assert.assertTrue(policy.shouldCompress(1000));
+
+		Assert.assertEquals(5, policy.getCompressedBatches());
+		Assert.assertEquals(5000, policy.getUncompressedBytes());
+		Assert.assertEquals(3200, policy.getCompressedBytes());
+		Assert.assertEquals(50, policy.getCompressionTimeNanos());
+		Assert.assertTrue(policy.toString().length() > 10);
+	}
+
+	/**
+	 * Compress and uncompress data with the codec
+	 * @param codec
+	 * @throws IOException
+	 */
+	private void testCodec(final CompressionCodec codec) throws IOException {
+		for(final int size : new int[] {0, 1, 1000, 100000, 1000000}) {
+			final byte[] data = getTestData(size);
+
+			// Write the data with an offset
+			final byte[] input = new byte[size + 10];
+			System.arraycopy(data, 0, input, 5, size);
+
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			bos.write(new byte[3]);
+			codec.compress(input, 5, size, bos);
+
+			final byte[] compressedBytes = bos.toByteArray();
+			final byte[] uncompressedBytes = codec.uncompress(compressedBytes, 3, compressedBytes.length - 3);
+			Assert.assertArrayEquals(data, uncompressedBytes);
+
+			if(size >= 1000) {
+				Assert.assertTrue(compressedBytes.length < size);
+			}
+		}
+	}
+
+	/**
+	 * Get compressible test data
+	 * @param size
+	 * @return
+	 */
+	private byte[] getTestData(final int size) {
+		final Random random = new Random(size);
+		final byte[] data = new byte[size];
+
+		for(int i = 0; i < size; i++) {
+			data[i] = (byte) ('a' + random.nextInt(8));
+		}
+
+		return data;
+	}
+}
@@ -20,6 +20,7 @@ package org.bboxdb.test.network;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -32,8 +33,10 @@ import org.bboxdb.misc.Const;
 import org.bboxdb.network.NetworkConst;
 import org.bboxdb.network.NetworkPackageDecoder;
 import org.bboxdb.network.capabilities.PeerCapabilities;
+import org.bboxdb.network.compression.AdaptiveCompressionPolicy;
 import org.bboxdb.network.client.SequenceNumberGenerator;
 import org.bboxdb.network.packages.NetworkPackage;
+import org.bboxdb.network.packages.NetworkRequestPackage;
 import org.bboxdb.network.packages.PackageEncodeException;
 import org.bboxdb.network.packages.request.CancelRequest;
 import org.bboxdb.network.packages.request.CompressionEnvelopeRequest;
@@ -44,6 +47,7 @@ import org.bboxdb.network.packages.request.DeleteTableRequest;
 import org.bboxdb.network.packages.request.DisconnectRequest;
 import org.bboxdb.network.packages.request.HelloRequest;
 import org.bboxdb.network.packages.request.InsertTupleRequest;
+import org.bboxdb.network.packages.request.InsertTuplesRequest;
 import org.bboxdb.network.packages.request.KeepAliveRequest;
 import org.bboxdb.network.packages.request.LockTupleRequest;
 import org.bboxdb.network.packages.request.NextPageRequest;
@@ -175,6 +179,38 @@ public class TestNetworkClasses {
 		Assert.assertTrue(TupleHelper.isDeletedTuple(decodedPackage.getTuple()));
 	}
 	
+	/**
+	 * The the encoding and decoding of an insert tuples package
+	 * @throws IOException 
+	 * @throws PackageEncodeException 
+	 */
+	@Test(timeout=60000)
+	public void encodeAndDecodeInsertTuples() throws IOException, PackageEncodeException {
+		final List<Tuple> tuples = new ArrayList<>();
+		tuples.add(new Tuple("key1", Hyperrectangle.FULL_SPACE, "abc".getBytes(), 12));
+		tuples.add(new Tuple("key2", new Hyperrectangle(1.5d, 2.5d, 3.5d, 4.5d), "def".getBytes(), 13));
+		tuples.add(new DeletedTuple("key3", 14));
+
+		final short sequenceNumber = sequenceNumberGenerator.getNextSequenceNummber();
+
+		final InsertTuplesRequest insertPackage = new InsertTuplesRequest(sequenceNumber, 
+				ROUTING_HEADER_UNROUTED, new TupleStoreName("test"), tuples);
+		
+		byte[] encodedVersion = networkPackageToByte(insertPackage);
+		Assert.assertNotNull(encodedVersion);
+
+		final ByteBuffer bb = NetworkPackageDecoder.encapsulateBytes(encodedVersion);
+		final InsertTuplesRequest decodedPackage = InsertTuplesRequest.decodeTuple(bb);
+				
+		Assert.assertEquals(insertPackage.getTuples(), decodedPackage.getTuples());
+		Assert.assertEquals(insertPackage.getTable(), decodedPackage.getTable());
+		Assert.assertEquals(insertPackage.getRoutingHeader(), new RoutingHeader(false));
+		Assert.assertEquals(insertPackage, decodedPackage);
+		Assert.assertEquals(insertPackage.hashCode(), decodedPackage.hashCode());
+		Assert.assertEquals(insertPackage.toString(), decodedPackage.toString());
+		Assert.assertTrue(TupleHelper.isDeletedTuple(decodedPackage.getTuples().get(2)));
+	}
+	
 	/**
 	 * The the encoding and decoding of an insert tuple package
 	 * @throws IOException 
@@ -462,6 +498,8 @@ public class TestNetworkClasses {
 				.withVersions(666)
 				.withSpatialIndexReader("reader")
 				.withSpatialIndexWriter("writer")
+				.withMergeStrategy("merge")
+				.withKeyIndex(true)
 				.build();
 		
 		final CreateTableRequest createPackage = new CreateTableRequest(sequenceNumber, "test", ssTableConfiguration);
@@ -480,6 +518,75 @@ public class TestNetworkClasses {
 		Assert.assertEquals(createPackage.toString(), decodedPackage.toString());
 	}
 	
+	/**
+	 * Decode a create table package in the encoding without the merge strategy
+	 * @throws IOException 
+	 * @throws PackageEncodeException 
+	 */
+	@Test(timeout=60000)
+	public void decodeCreateTableWithoutMergeStrategy() throws IOException, PackageEncodeException {
+		final short sequenceNumber = sequenceNumberGenerator.getNextSequenceNummber();
+		final byte[] tableBytes = "test".getBytes();
+		final byte[] readerBytes = "reader".getBytes();
+		final byte[] writerBytes = "writer".getBytes();
+		
+		final NetworkRequestPackage oldPackage = new NetworkRequestPackage(sequenceNumber) {
+			
+			@Override
+			public long writeToOutputStream(final OutputStream outputStream) throws PackageEncodeException {
+				final ByteBuffer bb = ByteBuffer.allocate(20);
+				bb.putShort((short) tableBytes.length);
+				bb.put((byte) 0x01);
+				bb.put((byte) 0x01);
+				bb.putLong(10);
+				bb.putInt(666);
+				bb.putShort((short) readerBytes.length);
+				bb.putShort((short) writerBytes.length);
+				
+				final long bodyLength = bb.capacity() + tableBytes.length 
+						+ readerBytes.length + writerBytes.length;
+				
+				try {
+					final long headerLength = appendRequestPackageHeader(bodyLength, outputStream);
+					outputStream.write(bb.array());
+					outputStream.write(tableBytes);
+					outputStream.write(readerBytes);
+					outputStream.write(writerBytes);
+					return headerLength + bodyLength;
+				} catch (IOException e) {
+					throw new PackageEncodeException(e);
+				}
+			}
+			
+			@Override
+			public byte getPackageType() {
+				return NetworkConst.REQUEST_TYPE_CREATE_TABLE;
+			}
+		};
+		
+		final byte[] encodedVersion = networkPackageToByte(oldPackage);
+		final ByteBuffer bb = NetworkPackageDecoder.encapsulateBytes(encodedVersion);
+		final CreateTableRequest decodedPackage = CreateTableRequest.decodeTuple(bb);
+		
+		final TupleStoreConfiguration ssTableConfiguration = TupleStoreConfigurationBuilder
+				.create()
+				.allowDuplicates(true)
+				.withTTL(10, TimeUnit.MILLISECONDS)
+				.withVersions(666)
+				.withSpatialIndexReader("reader")
+				.withSpatialIndexWriter("writer")
+				.withKeyIndex(true)
+				.build();
+		
+		Assert.assertEquals(TupleStoreConfiguration.DEFAULT_MERGE_STRATEGY, 
+				decodedPackage.getTupleStoreConfiguration().getMergeStrategy());
+		Assert.assertEquals(ssTableConfiguration, decodedPackage.getTupleStoreConfiguration());
+		
+		// The default merge strategy is encoded like before
+		final CreateTableRequest createPackage = new CreateTableRequest(sequenceNumber, "test", ssTableConfiguration);
+		Assert.assertArrayEquals(encodedVersion, networkPackageToByte(createPackage));
+	}
+	
 	/**
 	 * Test decoding and encoding of the key query
 	 * @throws IOException 
@@ -1129,6 +1236,64 @@ public class TestNetworkClasses {
 		Assert.assertTrue(insertPackage.toString().length() > 10);
 	}
 	
+	/**
+	 * Test the decoding and the encoding of a fast compressed request package
+	 * @throws IOException
+	 * @throws PackageEncodeException 
+	 */
+	@Test(timeout=60000)
+	public void testCompressionFastRequest() throws IOException, PackageEncodeException {
+		final Tuple tuple = new Tuple("key", Hyperrectangle.FULL_SPACE, "abcabcabcabcabcabcabc".getBytes(), 12);
+		final short sequenceNumber = sequenceNumberGenerator.getNextSequenceNummber();
+
+		final InsertTupleRequest insertPackage = new InsertTupleRequest(sequenceNumber, 
+				ROUTING_HEADER_ROUTED, new TupleStoreName("test"), tuple);
+		
+		final CompressionEnvelopeRequest compressionPackage = new CompressionEnvelopeRequest(
+				NetworkConst.COMPRESSION_TYPE_DEFLATE_FAST, Arrays.asList(insertPackage));
+		
+		final byte[] encodedVersion = networkPackageToByte(compressionPackage);
+		final ByteBuffer bb = NetworkPackageDecoder.encapsulateBytes(encodedVersion);
+		Assert.assertEquals(NetworkConst.REQUEST_TYPE_COMPRESSION, NetworkPackageDecoder.getPackageTypeFromRequest(bb));
+
+		final InputStream uncompressedByteStream = CompressionEnvelopeRequest.decodePackage(bb);
+		final byte[] uncompressedBytes = ByteStreams.toByteArray(uncompressedByteStream);
+		final byte[] expectedBytes = networkPackageToByte(insertPackage);
+		Assert.assertArrayEquals(expectedBytes, uncompressedBytes);
+		
+		final ByteBuffer uncompressedByteBuffer = NetworkPackageDecoder.encapsulateBytes(uncompressedBytes);
+		final InsertTupleRequest decodedPackage = InsertTupleRequest.decodeTuple(uncompressedByteBuffer);
+		Assert.assertEquals(insertPackage, decodedPackage);
+	}
+	
+	/**
+	 * Small batches are written without compression envelope
+	 * @throws IOException
+	 * @throws PackageEncodeException 
+	 */
+	@Test(timeout=60000)
+	public void testCompressionSkipSmallBatch() throws IOException, PackageEncodeException {
+		final Tuple tuple = new Tuple("key", Hyperrectangle.FULL_SPACE, "abc".getBytes(), 12);
+		final short sequenceNumber = sequenceNumberGenerator.getNextSequenceNummber();
+
+		final InsertTupleRequest insertPackage = new InsertTupleRequest(sequenceNumber, 
+				ROUTING_HEADER_ROUTED, new TupleStoreName("test"), tuple);
+		
+		final AdaptiveCompressionPolicy policy = new AdaptiveCompressionPolicy();
+		
+		final CompressionEnvelopeRequest compressionPackage = new CompressionEnvelopeRequest(
+				NetworkConst.COMPRESSION_TYPE_DEFLATE_FAST, policy, Arrays.asList(insertPackage));
+		
+		final byte[] encodedVersion = networkPackageToByte(compressionPackage);
+		Assert.assertArrayEquals(networkPackageToByte(insertPackage), encodedVersion);
+		Assert.assertEquals(1, policy.getSkippedBatches());
+		Assert.assertEquals(0, policy.getCompressedBatches());
+		
+		final ByteBuffer bb = NetworkPackageDecoder.encapsulateBytes(encodedVersion);
+		final InsertTupleRequest decodedPackage = InsertTupleRequest.decodeTuple(bb);
+		Assert.assertEquals(insertPackage, decodedPackage);
+	}
+	
 	/**
 	 * Test the compression response
 	 * @throws IOException 
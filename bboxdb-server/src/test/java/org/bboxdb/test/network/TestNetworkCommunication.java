@@ -425,6 +425,20 @@ public class TestNetworkCommunication {
 		disconnect(bboxDBClient);
 	}
 
+	/**
+	 * Insert a batch of tuples
+	 * @throws InterruptedException
+	 * @throws BBoxDBException
+	 */
+	@Test(timeout=60000)
+	public void testBatchInsert() throws InterruptedException, BBoxDBException {
+		final BBoxDBConnection bboxdbConnection = connectToServer();
+		final BBoxDBClient bboxDBClient = bboxdbConnection.getBboxDBClient();
+
+		NetworkQueryHelper.executeBatchInsert(bboxDBClient, DISTRIBUTION_GROUP);
+		disconnect(bboxDBClient);
+	}
+
 	/**
 	 * Start a bounding box query without inserted tuples
 	 * @throws ExecutionException
@@ -664,6 +678,22 @@ public class TestNetworkCommunication {
 		final List<Tuple> resultList5 = Lists.newArrayList(future5.iterator());
 		Assert.assertEquals(5, resultList5.size());
 
+		// With paging (tuples per page 1, one page in flight)
+		System.out.println("Pages = 1, pages in flight = 1");
+		bboxDBClient.setPagesInFlight(1);
+		final TupleListFuture future6 = bboxDBClient.queryRectangle(table, new Hyperrectangle(-10d, 10d, -10d, 10d));
+		future6.waitForCompletion();
+		final List<Tuple> resultList6 = Lists.newArrayList(future6.iterator());
+		Assert.assertEquals(5, resultList6.size());
+
+		// With paging (tuples per page 1, more pages in flight than pages available)
+		System.out.println("Pages = 1, pages in flight = 10");
+		bboxDBClient.setPagesInFlight(10);
+		final TupleListFuture future7 = bboxDBClient.queryRectangle(table, new Hyperrectangle(-10d, 10d, -10d, 10d));
+		future7.waitForCompletion();
+		final List<Tuple> resultList7 = Lists.newArrayList(future7.iterator());
+		Assert.assertEquals(5, resultList7.size());
+
 		System.out.println("=== End testPaging");
 		disconnect(bboxDBClient);
 	}
@@ -790,10 +820,14 @@ public class TestNetworkCommunication {
 
 		if(compressPackages()) {
 			bboxDBClient.getClientCapabilities().setGZipCompression();
+			bboxDBClient.getClientCapabilities().setFastCompression();
 			Assert.assertTrue(bboxDBClient.getClientCapabilities().hasGZipCompression());
+			Assert.assertTrue(bboxDBClient.getClientCapabilities().hasFastCompression());
 		} else {
 			bboxDBClient.getClientCapabilities().clearGZipCompression();
+			bboxDBClient.getClientCapabilities().clearFastCompression();
 			Assert.assertFalse(bboxDBClient.getClientCapabilities().hasGZipCompression());
+			Assert.assertFalse(bboxDBClient.getClientCapabilities().hasFastCompression());
 		}
 
 		Assert.assertFalse(bboxDBClient.isConnected());
@@ -803,8 +837,10 @@ public class TestNetworkCommunication {
 
 		if(compressPackages()) {
 			Assert.assertTrue(bboxDBClient.getConnectionCapabilities().hasGZipCompression());
+			Assert.assertTrue(bboxDBClient.getConnectionCapabilities().hasFastCompression());
 		} else {
 			Assert.assertFalse(bboxDBClient.getConnectionCapabilities().hasGZipCompression());
+			Assert.assertFalse(bboxDBClient.getConnectionCapabilities().hasFastCompression());
 		}
 
 		return bboxDBClient;
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.test.network;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.bboxdb.commons.RejectedException;
+import org.bboxdb.commons.math.Hyperrectangle;
+import org.bboxdb.misc.BBoxDBException;
+import org.bboxdb.network.server.ParallelRegionScan;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.entity.JoinedTuple;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreConfiguration;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.queryprocessor.OperatorTreeBuilder;
+import org.bboxdb.storage.queryprocessor.operator.FullTablescanOperator;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManagerRegistry;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestParallelRegionScan {
+
+	/**
+	 * The regions of the table
+	 */
+	private final static List<TupleStoreName> REGIONS = Arrays.asList(
+			new TupleStoreName("junitgroup_parallelscan_1"),
+			new TupleStoreName("junitgroup_parallelscan_2"),
+			new TupleStoreName("junitgroup_parallelscan_3"),
+			new TupleStoreName("junitgroup_parallelscan_4"));
+
+	/**
+	 * The amount of tuples per region
+	 */
+	private final static int TUPLES_PER_REGION = 2000;
+
+	/**
+	 * The operator tree builder
+	 */
+	private final static OperatorTreeBuilder TABLESCAN = (s) -> new FullTablescanOperator(s.get(0));
+
+	/**
+	 * The storage registry
+	 */
+	private static TupleStoreManagerRegistry storageRegistry;
+
+	@BeforeClass
+	public static void beforeClass() throws InterruptedException, BBoxDBException, 
+			StorageManagerException, RejectedException {
+		storageRegistry = new TupleStoreManagerRegistry();
+		storageRegistry.init();
+
+		// Write more tuples as the scan is able to buffer
+		final byte[] value = new byte[1024];
+		int key = 0;
+
+		for(final TupleStoreName region : REGIONS) {
+			storageRegistry.deleteTable(region);
+			storageRegistry.createTable(region, new TupleStoreConfiguration());
+			final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(region);
+
+			for(int i = 0; i < TUPLES_PER_REGION; i++) {
+				storageManager.put(new Tuple(Integer.toString(key++), Hyperrectangle.FULL_SPACE, value));
+			}
+		}
+	}
+
+	@AfterClass
+	public static void afterClass() {
+		if(storageRegistry != null) {
+			storageRegistry.shutdown();
+			storageRegistry = null;
+		}
+	}
+
+	/**
+	 * Get the regions of the scan
+	 * @return
+	 */
+	private static List<List<TupleStoreName>> getRegions() {
+		final List<List<TupleStoreName>> regions = new ArrayList<>();
+		REGIONS.forEach(r -> regions.add(Arrays.asList(r)));
+		return regions;
+	}
+
+	/**
+	 * All tuples of all regions are returned
+	 * @throws InterruptedException
+	 */
+	@Test(timeout=60000)
+	public void testScanAllRegions() throws InterruptedException {
+		final ExecutorService queryPool = Executors.newFixedThreadPool(2);
+
+		final ParallelRegionScan regionScan = new ParallelRegionScan(TABLESCAN, storageRegistry,
+				queryPool, getRegions());
+
+		regionScan.start(2);
+
+		final Set<String> keys = new HashSet<>();
+
+		while(regionScan.hasNext()) {
+			final JoinedTuple tuple = regionScan.next();
+			Assert.assertTrue(keys.add(tuple.convertToSingleTupleIfPossible().getKey()));
+		}
+
+		Assert.assertEquals(REGIONS.size() * TUPLES_PER_REGION, keys.size());
+		Assert.assertFalse(regionScan.hasNext());
+		regionScan.close();
+
+		queryPool.shutdown();
+		Assert.assertTrue(queryPool.awaitTermination(10, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * The tasks of a closed scan are stopped
+	 * @throws InterruptedException
+	 */
+	@Test(timeout=60000)
+	public void testCloseScan() throws InterruptedException {
+		final ExecutorService queryPool = Executors.newFixedThreadPool(4);
+
+		final ParallelRegionScan regionScan = new ParallelRegionScan(TABLESCAN, storageRegistry,
+				queryPool, getRegions());
+
+		regionScan.start(4);
+
+		for(int i = 0; i < 10; i++) {
+			Assert.assertTrue(regionScan.hasNext());
+			regionScan.next();
+		}
+
+		regionScan.close();
+		Assert.assertFalse(regionScan.hasNext());
+
+		queryPool.shutdown();
+		Assert.assertTrue(queryPool.awaitTermination(10, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * No tasks are started for an empty scan
+	 */
+	@Test(timeout=60000)
+	public void testEmptyScan() {
+		final ExecutorService queryPool = Executors.newFixedThreadPool(1);
+
+		final ParallelRegionScan regionScan = new ParallelRegionScan(TABLESCAN, storageRegistry,
+				queryPool, new ArrayList<>());
+
+		regionScan.start(4);
+		Assert.assertFalse(regionScan.hasNext());
+		regionScan.close();
+
+		queryPool.shutdown();
+	}
+}
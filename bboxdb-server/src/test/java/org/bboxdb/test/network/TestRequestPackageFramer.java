@@ -0,0 +1,178 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.test.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bboxdb.commons.math.Hyperrectangle;
+import org.bboxdb.distribution.membership.BBoxDBInstance;
+import org.bboxdb.network.packages.NetworkPackage;
+import org.bboxdb.network.packages.PackageEncodeException;
+import org.bboxdb.network.packages.request.InsertTupleRequest;
+import org.bboxdb.network.packages.request.KeepAliveRequest;
+import org.bboxdb.network.routing.RoutingHeader;
+import org.bboxdb.network.routing.RoutingHop;
+import org.bboxdb.network.server.connection.RequestPackageFramer;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestRequestPackageFramer {
+
+	/**
+	 * A routing header - routed
+	 */
+	protected final RoutingHeader ROUTING_HEADER_ROUTED = new RoutingHeader((short) 0,
+			Arrays.asList(new RoutingHop(new BBoxDBInstance("127.0.0.1:8080"), Arrays.asList(1l, 6l))));
+
+	/**
+	 * Encode the test packages
+	 * @return
+	 * @throws PackageEncodeException
+	 * @throws IOException
+	 */
+	private List<byte[]> getEncodedPackages() throws PackageEncodeException, IOException {
+		final List<byte[]> result = new ArrayList<>();
+
+		final Tuple tuple = new Tuple("key", new Hyperrectangle(1d, 2d, 3d, 4d), "abc".getBytes());
+		final InsertTupleRequest insertRequest = new InsertTupleRequest((short) 1, ROUTING_HEADER_ROUTED,
+				new TupleStoreName("test_relation"), tuple);
+
+		result.add(encodePackage(insertRequest));
+		result.add(encodePackage(new KeepAliveRequest((short) 2)));
+		result.add(encodePackage(insertRequest));
+
+		return result;
+	}
+
+	/**
+	 * Encode the given request
+	 * @param request
+	 * @return
+	 * @throws PackageEncodeException
+	 * @throws IOException
+	 */
+	private byte[] encodePackage(final NetworkPackage request)
+			throws PackageEncodeException, IOException {
+
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		request.writeToOutputStream(bos);
+		bos.close();
+		return bos.toByteArray();
+	}
+
+	/**
+	 * Decode the bytes in chunks of the given size
+	 * @param bytes
+	 * @param chunkSize
+	 * @return
+	 * @throws PackageEncodeException
+	 */
+	private List<byte[]> decodeInChunks(final byte[] bytes, final int chunkSize)
+			throws PackageEncodeException {
+
+		final RequestPackageFramer framer = new RequestPackageFramer();
+		final List<byte[]> result = new ArrayList<>();
+
+		for(int pos = 0; pos < bytes.length; pos = pos + chunkSize) {
+			final int length = Math.min(chunkSize, bytes.length - pos);
+			final ByteBuffer chunk = ByteBuffer.wrap(bytes, pos, length);
+
+			framer.decode(chunk, (p) -> {
+				Assert.assertEquals(0, p.position());
+				result.add(Arrays.copyOf(p.array(), p.limit()));
+			});
+
+			Assert.assertFalse(chunk.hasRemaining());
+		}
+
+		Assert.assertFalse(framer.isPackagePending());
+
+		return result;
+	}
+
+	/**
+	 * Test the decoding of concatenated and split packages
+	 * @throws PackageEncodeException
+	 * @throws IOException
+	 */
+	@Test(timeout=60000)
+	public void testDecodePackages() throws PackageEncodeException, IOException {
+		final List<byte[]> packages = getEncodedPackages();
+
+		final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		for(final byte[] encodedPackage : packages) {
+			bos.write(encodedPackage);
+		}
+
+		final byte[] allBytes = bos.toByteArray();
+
+		for(final int chunkSize : Arrays.asList(1, 7, 18, 100, allBytes.length)) {
+			final List<byte[]> decodedPackages = decodeInChunks(allBytes, chunkSize);
+
+			Assert.assertEquals(packages.size(), decodedPackages.size());
+
+			for(int i = 0; i < packages.size(); i++) {
+				Assert.assertArrayEquals(packages.get(i), decodedPackages.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Test the pending state of the framer
+	 * @throws PackageEncodeException
+	 * @throws IOException
+	 */
+	@Test(timeout=60000)
+	public void testPendingPackage() throws PackageEncodeException, IOException {
+		final byte[] encodedPackage = getEncodedPackages().get(0);
+		final RequestPackageFramer framer = new RequestPackageFramer();
+		final List<ByteBuffer> result = new ArrayList<>();
+
+		Assert.assertFalse(framer.isPackagePending());
+		framer.decode(ByteBuffer.wrap(encodedPackage, 0, 5), (p) -> result.add(p));
+		Assert.assertTrue(framer.isPackagePending());
+		Assert.assertTrue(result.isEmpty());
+
+		framer.decode(ByteBuffer.wrap(encodedPackage, 5, encodedPackage.length - 5), (p) -> result.add(p));
+		Assert.assertFalse(framer.isPackagePending());
+		Assert.assertEquals(1, result.size());
+	}
+
+	/**
+	 * Test an invalid routing header
+	 * @throws PackageEncodeException
+	 * @throws IOException
+	 */
+	@Test(expected=PackageEncodeException.class)
+	public void testInvalidRoutingHeader() throws PackageEncodeException, IOException {
+		final byte[] encodedPackage = getEncodedPackages().get(1);
+
+		// Invalid routing type
+		encodedPackage[12] = 0x05;
+
+		final RequestPackageFramer framer = new RequestPackageFramer();
+		framer.decode(ByteBuffer.wrap(encodedPackage), (p) -> {});
+	}
+}
@@ -0,0 +1,254 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.test.query;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import org.bboxdb.commons.math.Hyperrectangle;
+import org.bboxdb.network.server.ContinuousClientQuery;
+import org.bboxdb.network.server.ContinuousQueryEngine;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+public class TestContinuousQueryEngine {
+
+	/**
+	 * Create a query mock with the given index region
+	 * @param region
+	 * @return
+	 */
+	private ContinuousClientQuery getQuery(final Hyperrectangle region) {
+		final ContinuousClientQuery query = Mockito.mock(ContinuousClientQuery.class);
+		Mockito.when(query.getIndexRegion()).thenReturn(region);
+		return query;
+	}
+
+	/**
+	 * Create a tuple store manager mock
+	 * @return
+	 */
+	private TupleStoreManager getTupleStoreManager() {
+		return getTupleStoreManager("testgroup_table1");
+	}
+
+	/**
+	 * Create a tuple store manager mock for the given table
+	 * @param table
+	 * @return
+	 */
+	private TupleStoreManager getTupleStoreManager(final String table) {
+		final TupleStoreManager tupleStoreManager = Mockito.mock(TupleStoreManager.class);
+		Mockito.when(tupleStoreManager.getTupleStoreName())
+			.thenReturn(new TupleStoreName(table));
+		return tupleStoreManager;
+	}
+
+	/**
+	 * Get the amount of running dispatcher threads for the table
+	 * @param table
+	 * @return
+	 */
+	private long getDispatcherThreads(final String table) {
+		return Thread.getAllStackTraces().keySet().stream()
+				.filter(t -> t.getName().endsWith("dispatcher for " + table))
+				.filter(t -> t.isAlive())
+				.count();
+	}
+
+	/**
+	 * Get the registered insert callback
+	 * @param tupleStoreManager
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	private Consumer<Tuple> getInsertCallback(final TupleStoreManager tupleStoreManager) {
+		final ArgumentCaptor<Consumer<Tuple>> captor = ArgumentCaptor.forClass(Consumer.class);
+		Mockito.verify(tupleStoreManager).registerInsertCallback(captor.capture());
+		return captor.getValue();
+	}
+
+	@Test(timeout=60_000)
+	public void testRegisterAndRemove() {
+		final TupleStoreManager tupleStoreManager = getTupleStoreManager();
+		final ContinuousClientQuery query1 = getQuery(new Hyperrectangle(0d, 10d, 0d, 10d));
+		final ContinuousClientQuery query2 = getQuery(Hyperrectangle.FULL_SPACE);
+
+		final ContinuousQueryEngine engine1 = ContinuousQueryEngine.registerQuery(tupleStoreManager, query1);
+		final ContinuousQueryEngine engine2 = ContinuousQueryEngine.registerQuery(tupleStoreManager, query2);
+		Assert.assertTrue(engine1 == engine2);
+		Assert.assertEquals(2, engine1.getNumberOfQueries());
+
+		// Only one callback for all queries
+		final Consumer<Tuple> callback = getInsertCallback(tupleStoreManager);
+
+		ContinuousQueryEngine.removeQuery(tupleStoreManager, query1);
+		Assert.assertEquals(1, engine1.getNumberOfQueries());
+		Mockito.verify(tupleStoreManager, Mockito.never()).removeInsertCallback(callback);
+
+		ContinuousQueryEngine.removeQuery(tupleStoreManager, query2);
+		Assert.assertEquals(0, engine1.getNumberOfQueries());
+		Mockito.verify(tupleStoreManager).removeInsertCallback(callback);
+
+		// Unknown queries are ignored
+		ContinuousQueryEngine.removeQuery(tupleStoreManager, query2);
+	}
+
+	@Test(timeout=60_000)
+	public void testDispatchTuples() {
+		final TupleStoreManager tupleStoreManager = getTupleStoreManager();
+		final ContinuousClientQuery query1 = getQuery(new Hyperrectangle(0d, 10d, 0d, 10d));
+		final ContinuousClientQuery query2 = getQuery(new Hyperrectangle(20d, 30d, 20d, 30d));
+		final ContinuousClientQuery query3 = getQuery(Hyperrectangle.FULL_SPACE);
+
+		ContinuousQueryEngine.registerQuery(tupleStoreManager, query1);
+		ContinuousQueryEngine.registerQuery(tupleStoreManager, query2);
+		ContinuousQueryEngine.registerQuery(tupleStoreManager, query3);
+
+		final Consumer<Tuple> callback = getInsertCallback(tupleStoreManager);
+
+		final Tuple tuple1 = new Tuple("1", new Hyperrectangle(1d, 2d, 1d, 2d), "".getBytes());
+		final Tuple tuple2 = new Tuple("2", new Hyperrectangle(21d, 22d, 21d, 22d), "".getBytes());
+		final Tuple tuple3 = new Tuple("3", new Hyperrectangle(51d, 52d, 51d, 52d), "".getBytes());
+		final Tuple tuple4 = new Tuple("4", Hyperrectangle.FULL_SPACE, "".getBytes());
+
+		callback.accept(tuple1);
+		callback.accept(tuple2);
+		callback.accept(tuple3);
+		callback.accept(tuple4);
+
+		// The unindexed query gets all tuples
+		Mockito.verify(query3, Mockito.timeout(10_000)).processTuple(tuple1);
+		Mockito.verify(query3, Mockito.timeout(10_000)).processTuple(tuple2);
+		Mockito.verify(query3, Mockito.timeout(10_000)).processTuple(tuple3);
+		Mockito.verify(query3, Mockito.timeout(10_000)).processTuple(tuple4);
+
+		// Tuples without bounding box are evaluated by all queries
+		Mockito.verify(query1).processTuple(tuple1);
+		Mockito.verify(query1).processTuple(tuple4);
+		Mockito.verify(query2).processTuple(tuple2);
+		Mockito.verify(query2).processTuple(tuple4);
+		Mockito.verifyNoMoreInteractions(ignoreIndexRegion(query1), ignoreIndexRegion(query2));
+
+		ContinuousQueryEngine.removeQuery(tupleStoreManager, query1);
+		ContinuousQueryEngine.removeQuery(tupleStoreManager, query2);
+		ContinuousQueryEngine.removeQuery(tupleStoreManager, query3);
+	}
+
+	@Test(timeout=60_000)
+	public void testFailingQuery() {
+		final TupleStoreManager tupleStoreManager = getTupleStoreManager();
+		final ContinuousClientQuery query1 = getQuery(Hyperrectangle.FULL_SPACE);
+		final ContinuousClientQuery query2 = getQuery(Hyperrectangle.FULL_SPACE);
+
+		final Tuple tuple = new Tuple("1", new Hyperrectangle(1d, 2d, 1d, 2d), "".getBytes());
+		Mockito.doThrow(new IllegalArgumentException()).when(query1).processTuple(tuple);
+
+		ContinuousQueryEngine.registerQuery(tupleStoreManager, query1);
+		ContinuousQueryEngine.registerQuery(tupleStoreManager, query2);
+
+		getInsertCallback(tupleStoreManager).accept(tuple);
+
+		// The exception of the first query does not affect the second query
+		Mockito.verify(query2, Mockito.timeout(10_000)).processTuple(tuple);
+
+		ContinuousQueryEngine.removeQuery(tupleStoreManager, query1);
+		ContinuousQueryEngine.removeQuery(tupleStoreManager, query2);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test(timeout=60_000)
+	public void testRegisterAfterRemove() throws InterruptedException {
+		final String table = "testgroup_reregister";
+		final TupleStoreManager tupleStoreManager = getTupleStoreManager(table);
+		final ContinuousClientQuery query1 = getQuery(Hyperrectangle.FULL_SPACE);
+		final ContinuousClientQuery query2 = getQuery(Hyperrectangle.FULL_SPACE);
+
+		ContinuousQueryEngine.registerQuery(tupleStoreManager, query1);
+		ContinuousQueryEngine.removeQuery(tupleStoreManager, query1);
+		ContinuousQueryEngine.registerQuery(tupleStoreManager, query2);
+
+		final ArgumentCaptor<Consumer<Tuple>> captor = ArgumentCaptor.forClass(Consumer.class);
+		Mockito.verify(tupleStoreManager, Mockito.times(2)).registerInsertCallback(captor.capture());
+
+		final Tuple tuple = new Tuple("1", new Hyperrectangle(1d, 2d, 1d, 2d), "".getBytes());
+		captor.getValue().accept(tuple);
+
+		// The new dispatcher has waited for the old one
+		Mockito.verify(query2, Mockito.timeout(10_000)).processTuple(tuple);
+		Mockito.verify(query1, Mockito.never()).processTuple(tuple);
+		Assert.assertEquals(1, getDispatcherThreads(table));
+
+		ContinuousQueryEngine.removeQuery(tupleStoreManager, query2);
+
+		while(getDispatcherThreads(table) > 0) {
+			Thread.sleep(10);
+		}
+	}
+
+	@Test(timeout=60_000)
+	public void testBackPressure() throws InterruptedException {
+		final TupleStoreManager tupleStoreManager = getTupleStoreManager("testgroup_backpressure");
+		final ContinuousClientQuery query = getQuery(Hyperrectangle.FULL_SPACE);
+		final CountDownLatch evaluationLatch = new CountDownLatch(1);
+
+		Mockito.doAnswer(i -> {
+			evaluationLatch.await();
+			return null;
+		}).when(query).processTuple(Mockito.any(Tuple.class));
+
+		ContinuousQueryEngine.registerQuery(tupleStoreManager, query);
+		final Consumer<Tuple> callback = getInsertCallback(tupleStoreManager);
+
+		// One tuple is evaluated, the others fill the queue
+		final int tuples = 1024 + 2;
+		final Tuple tuple = new Tuple("1", new Hyperrectangle(1d, 2d, 1d, 2d), "".getBytes());
+		final Thread insertThread = new Thread(() -> {
+			for(int i = 0; i < tuples; i++) {
+				callback.accept(tuple);
+			}
+		});
+
+		insertThread.start();
+
+		// The insert is blocked but no tuple is dropped
+		insertThread.join(1000);
+		Assert.assertTrue(insertThread.isAlive());
+
+		evaluationLatch.countDown();
+		insertThread.join();
+		Mockito.verify(query, Mockito.timeout(10_000).times(tuples)).processTuple(tuple);
+
+		ContinuousQueryEngine.removeQuery(tupleStoreManager, query);
+	}
+
+	/**
+	 * The index region is read by the engine, ignore these calls
+	 * @param query
+	 * @return
+	 */
+	private ContinuousClientQuery ignoreIndexRegion(final ContinuousClientQuery query) {
+		Mockito.verify(query, Mockito.atLeastOnce()).getIndexRegion();
+		return query;
+	}
+}
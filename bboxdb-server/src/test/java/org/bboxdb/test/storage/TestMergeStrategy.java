@@ -0,0 +1,159 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.test.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.bboxdb.misc.BBoxDBConfigurationManager;
+import org.bboxdb.storage.entity.TupleStoreConfiguration;
+import org.bboxdb.storage.entity.TupleStoreConfigurationBuilder;
+import org.bboxdb.storage.sstable.compact.LeveledMergeStrategy;
+import org.bboxdb.storage.sstable.compact.MergeStrategy;
+import org.bboxdb.storage.sstable.compact.MergeStrategyFactory;
+import org.bboxdb.storage.sstable.compact.MergeTask;
+import org.bboxdb.storage.sstable.compact.MergeTaskType;
+import org.bboxdb.storage.sstable.compact.SimpleMergeStrategy;
+import org.bboxdb.storage.sstable.compact.SizeTieredMergeStrategy;
+import org.bboxdb.storage.sstable.reader.SSTableFacade;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class TestMergeStrategy {
+	
+	/**
+	 * The size of a flushed memtable
+	 */
+	private final static long MEMTABLE_SIZE 
+		= BBoxDBConfigurationManager.getConfiguration().getMemtableSizeMax();
+
+	/**
+	 * Test the creation of the strategies
+	 */
+	@Test(timeout=60000)
+	public void testMergeStrategyFactory() {
+		final TupleStoreConfiguration configuration1 = TupleStoreConfigurationBuilder.create().build();
+		final MergeStrategy strategy1 = MergeStrategyFactory.getInstance(configuration1);
+		Assert.assertTrue(strategy1 instanceof SimpleMergeStrategy);
+		
+		final TupleStoreConfiguration configuration2 = TupleStoreConfigurationBuilder.create()
+				.withMergeStrategy(SizeTieredMergeStrategy.class.getName())
+				.build();
+		final MergeStrategy strategy2 = MergeStrategyFactory.getInstance(configuration2);
+		Assert.assertTrue(strategy2 instanceof SizeTieredMergeStrategy);
+		
+		final TupleStoreConfiguration configuration3 = TupleStoreConfigurationBuilder.create()
+				.withMergeStrategy(LeveledMergeStrategy.class.getName())
+				.build();
+		final MergeStrategy strategy3 = MergeStrategyFactory.getInstance(configuration3);
+		Assert.assertTrue(strategy3 instanceof LeveledMergeStrategy);
+		
+		// Unknown strategy, fallback to the default strategy
+		final TupleStoreConfiguration configuration4 = TupleStoreConfigurationBuilder.create()
+				.withMergeStrategy("org.bboxdb.unknown")
+				.build();
+		final MergeStrategy strategy4 = MergeStrategyFactory.getInstance(configuration4);
+		Assert.assertTrue(strategy4 instanceof SimpleMergeStrategy);
+	}
+	
+	/**
+	 * Test the size tiered strategy
+	 */
+	@Test(timeout=60000)
+	public void testSizeTieredMergeStrategy() {
+		final MergeStrategy mergeStrategy = new SizeTieredMergeStrategy();
+		
+		// Not enough tables in the bucket
+		final List<SSTableFacade> tables = new ArrayList<>(Arrays.asList(
+				getFacade(MEMTABLE_SIZE), getFacade(MEMTABLE_SIZE), getFacade(MEMTABLE_SIZE),
+				getFacade(MEMTABLE_SIZE * 100)));
+		
+		Assert.assertEquals(MergeTaskType.UNKNOWN, mergeStrategy.getMergeTask(tables).getTaskType());
+		Assert.assertEquals(0, mergeStrategy.getPendingCompactionBytes(tables));
+		
+		// The small tables are merged, the big table is untouched
+		final SSTableFacade smallTable = getFacade(MEMTABLE_SIZE / 2);
+		tables.add(smallTable);
+		
+		final MergeTask mergeTask = mergeStrategy.getMergeTask(tables);
+		Assert.assertEquals(MergeTaskType.MINOR, mergeTask.getTaskType());
+		Assert.assertEquals(4, mergeTask.getCompactTables().size());
+		Assert.assertTrue(mergeTask.getCompactTables().contains(smallTable));
+		Assert.assertEquals(MEMTABLE_SIZE * 3 + MEMTABLE_SIZE / 2, 
+				mergeStrategy.getPendingCompactionBytes(tables));
+		
+		// Tables of a similar size are merged
+		final List<SSTableFacade> bigTables = Arrays.asList(
+				getFacade(MEMTABLE_SIZE * 100), getFacade(MEMTABLE_SIZE * 110), 
+				getFacade(MEMTABLE_SIZE * 90), getFacade(MEMTABLE_SIZE * 120));
+		
+		final MergeTask mergeTask2 = mergeStrategy.getMergeTask(bigTables);
+		Assert.assertEquals(MergeTaskType.MAJOR, mergeTask2.getTaskType());
+		Assert.assertEquals(4, mergeTask2.getCompactTables().size());
+	}
+	
+	/**
+	 * Test the leveled strategy
+	 */
+	@Test(timeout=60000)
+	public void testLeveledMergeStrategy() {
+		final MergeStrategy mergeStrategy = new LeveledMergeStrategy();
+		
+		final SSTableFacade level1Table = getFacade(MEMTABLE_SIZE * 5);
+		final SSTableFacade level2Table = getFacade(MEMTABLE_SIZE * 50);
+		
+		final List<SSTableFacade> tables = new ArrayList<>(Arrays.asList(
+				getFacade(MEMTABLE_SIZE), getFacade(MEMTABLE_SIZE), getFacade(MEMTABLE_SIZE),
+				level1Table, level2Table));
+
+		Assert.assertEquals(MergeTaskType.UNKNOWN, mergeStrategy.getMergeTask(tables).getTaskType());
+		Assert.assertEquals(0, mergeStrategy.getPendingCompactionBytes(tables));
+		
+		// Level 0 is merged into level 1
+		tables.add(getFacade(MEMTABLE_SIZE));
+		
+		final MergeTask mergeTask = mergeStrategy.getMergeTask(tables);
+		Assert.assertEquals(MergeTaskType.MINOR, mergeTask.getTaskType());
+		Assert.assertEquals(5, mergeTask.getCompactTables().size());
+		Assert.assertTrue(mergeTask.getCompactTables().contains(level1Table));
+		Assert.assertFalse(mergeTask.getCompactTables().contains(level2Table));
+		Assert.assertEquals(MEMTABLE_SIZE * 4, mergeStrategy.getPendingCompactionBytes(tables));
+		
+		// Two tables on level 2
+		final List<SSTableFacade> tables2 = Arrays.asList(level1Table, level2Table, 
+				getFacade(MEMTABLE_SIZE * 60));
+		
+		final MergeTask mergeTask2 = mergeStrategy.getMergeTask(tables2);
+		Assert.assertEquals(MergeTaskType.MINOR, mergeTask2.getTaskType());
+		Assert.assertEquals(2, mergeTask2.getCompactTables().size());
+		Assert.assertFalse(mergeTask2.getCompactTables().contains(level1Table));
+	}
+	
+	/**
+	 * Get a facade with the given size
+	 * @param size
+	 * @return
+	 */
+	private SSTableFacade getFacade(final long size) {
+		final SSTableFacade facade = Mockito.mock(SSTableFacade.class);
+		Mockito.when(facade.getSize()).thenReturn(size);
+		return facade;
+	}
+}
@@ -0,0 +1,319 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *******************************************************************************/
+package org.bboxdb.test.storage;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.bboxdb.commons.math.Hyperrectangle;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.entity.DeletedTuple;
+import org.bboxdb.storage.entity.Tuple;
+import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.memtable.OffHeapArena;
+import org.bboxdb.storage.memtable.OffHeapMemtable;
+import org.bboxdb.storage.util.TupleHelper;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class TestOffHeapMemtable {
+
+	/**
+	 * The table name
+	 */
+	private static final TupleStoreName MEMTABLE_TABLE_NAME = new TupleStoreName("3_mygroup_test");
+
+	/**
+	 * The max amount of entries
+	 */
+	private static final int MEMTABLE_MAX_ENTRIES = 10000;
+
+	/**
+	 * The max size of a memtable
+	 */
+	private static final int MEMTABLE_MAX_SIZE = 1024 * 1024;
+
+	/**
+	 * The memtable reference
+	 */
+	private OffHeapMemtable memtable;
+
+	@Before
+	public void before() {
+		memtable = new OffHeapMemtable(MEMTABLE_TABLE_NAME, MEMTABLE_MAX_ENTRIES, MEMTABLE_MAX_SIZE, null);
+		memtable.init();
+		memtable.acquire();
+	}
+
+	@After
+	public void after() {
+		if(memtable != null) {
+			memtable.deleteOnClose();
+			memtable.release();
+			memtable.shutdown();
+			memtable = null;
+		}
+	}
+
+	/**
+	 * Test insert and read
+	 * @throws StorageManagerException
+	 */
+	@Test(timeout=60000)
+	public void testInsertElements() throws StorageManagerException {
+		Assert.assertTrue(memtable.isEmpty());
+		Assert.assertTrue(memtable.get("1").isEmpty());
+
+		final Tuple tuple = new Tuple("1", new Hyperrectangle(1d, 2d), "abc".getBytes(), 1);
+		memtable.put(tuple);
+
+		Assert.assertFalse(memtable.isEmpty());
+		Assert.assertEquals(1, memtable.getNumberOfTuples());
+		Assert.assertEquals(tuple, memtable.get("1").get(0));
+		Assert.assertEquals(tuple, memtable.getTupleAtPosition(0));
+		Assert.assertTrue(memtable.get("2").isEmpty());
+		Assert.assertTrue(memtable.getAllocatedOffHeapBytes() > 0);
+	}
+
+	/**
+	 * Test the deletion of tuples
+	 * @throws StorageManagerException
+	 */
+	@Test(timeout=60000)
+	public void testTupleDelete() throws StorageManagerException {
+		final Tuple tuple = new Tuple("1", Hyperrectangle.FULL_SPACE, "abc".getBytes(), 1);
+		memtable.put(tuple);
+		memtable.delete("1", 2);
+
+		final List<Tuple> tuples = memtable.get("1");
+		Assert.assertEquals(2, tuples.size());
+		Assert.assertEquals(tuple, tuples.get(0));
+		Assert.assertTrue(tuples.get(1) instanceof DeletedTuple);
+		Assert.assertEquals(1, memtable.getOldestTupleVersionTimestamp());
+		Assert.assertEquals(2, memtable.getNewestTupleVersionTimestamp());
+	}
+
+	/**
+	 * The sorted list should be ordered by key and version
+	 * @throws StorageManagerException
+	 */
+	@Test(timeout=60000)
+	public void testSortedList() throws StorageManagerException {
+		final List<Tuple> insertedTuples = new ArrayList<>();
+
+		for(int i = 0; i < 1000; i++) {
+			final String key = Integer.toString(999 - i);
+			final Tuple tuple = new Tuple(key, Hyperrectangle.FULL_SPACE, key.getBytes(), 1000 - i);
+			insertedTuples.add(tuple);
+			memtable.put(tuple);
+		}
+
+		Assert.assertEquals(insertedTuples, Lists.newArrayList(memtable.iterator()));
+
+		insertedTuples.sort(TupleHelper.TUPLE_KEY_AND_VERSION_COMPARATOR);
+		Assert.assertEquals(insertedTuples, memtable.getSortedTupleList());
+	}
+
+	/**
+	 * Test the spatial index
+	 * @throws StorageManagerException
+	 */
+	@Test(timeout=60000)
+	public void testBoundingBoxQuery() throws StorageManagerException {
+		final Tuple tuple1 = new Tuple("1", new Hyperrectangle(1d, 2d, 1d, 2d), "abc".getBytes());
+		final Tuple tuple2 = new Tuple("2", new Hyperrectangle(10d, 20d, 10d, 20d), "abc".getBytes());
+		memtable.put(tuple1);
+		memtable.put(tuple2);
+
+		final List<Tuple> result = Lists.newArrayList(
+				memtable.getAllTuplesInBoundingBox(new Hyperrectangle(0d, 5d, 0d, 5d)));
+
+		Assert.assertEquals(1, result.size());
+		Assert.assertEquals(tuple1, result.get(0));
+	}
+
+	/**
+	 * Test the full memtable
+	 * @throws StorageManagerException
+	 */
+	@Test(timeout=60000)
+	public void testIsFull() throws StorageManagerException {
+		for(int i = 0; i < MEMTABLE_MAX_ENTRIES; i++) {
+			Assert.assertFalse(memtable.isFull());
+			memtable.put(new Tuple(Integer.toString(i), Hyperrectangle.FULL_SPACE, "abc".getBytes()));
+		}
+
+		Assert.assertTrue(memtable.isFull());
+
+		// Concurrent writers can use the reserve
+		for(int i = 0; i < OffHeapMemtable.CONCURRENT_WRITE_RESERVE; i++) {
+			Assert.assertTrue(memtable.tryPut(new Tuple("abc", Hyperrectangle.FULL_SPACE, "abc".getBytes())));
+		}
+
+		// No slots available, the tuple is rejected before it is stored
+		final long storedTuples = memtable.getNumberOfTuples();
+		Assert.assertFalse(memtable.tryPut(new Tuple("def", Hyperrectangle.FULL_SPACE, "abc".getBytes())));
+		Assert.assertEquals(storedTuples, memtable.getNumberOfTuples());
+		Assert.assertTrue(memtable.get("def").isEmpty());
+
+		memtable.clear();
+		Assert.assertTrue(memtable.isEmpty());
+		Assert.assertFalse(memtable.isFull());
+	}
+
+	/**
+	 * No references can be acquired after the memtable is released
+	 * @throws StorageManagerException
+	 */
+	@Test(timeout=60000)
+	public void testAcquireAfterDelete() throws StorageManagerException {
+		memtable.put(new Tuple("1", Hyperrectangle.FULL_SPACE, "abc".getBytes()));
+		memtable.put(new Tuple("2", Hyperrectangle.FULL_SPACE, "abc".getBytes()));
+
+		// A second reader
+		Assert.assertTrue(memtable.acquire());
+
+		memtable.deleteOnClose();
+		Assert.assertFalse(memtable.acquire());
+
+		// The memory is still readable by the reader
+		memtable.release();
+		Assert.assertEquals(2, Lists.newArrayList(memtable.iterator()).size());
+
+		// The last reader releases the memtable
+		memtable.release();
+		Assert.assertFalse(memtable.acquire());
+		Assert.assertEquals(0, memtable.getNumberOfTuples());
+
+		memtable = null;
+	}
+
+	/**
+	 * The direct memory is freed when the memtable is released
+	 * @throws StorageManagerException
+	 */
+	@Test(timeout=60000)
+	public void testReleaseDirectMemory() throws StorageManagerException {
+		final BufferPoolMXBean directPool = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)
+				.stream()
+				.filter(p -> "direct".equals(p.getName()))
+				.findFirst()
+				.get();
+
+		final byte[] data = new byte[1024];
+
+		for(int i = 0; i < 500; i++) {
+			memtable.put(new Tuple(Integer.toString(i), Hyperrectangle.FULL_SPACE, data));
+		}
+
+		final long allocatedBytes = memtable.getAllocatedOffHeapBytes();
+		final long usedBytes = directPool.getMemoryUsed();
+		Assert.assertTrue(allocatedBytes > 0);
+
+		// The last reader releases the memtable, the memory is freed without a GC run
+		memtable.deleteOnClose();
+		memtable.release();
+
+		Assert.assertEquals(0, memtable.getAllocatedOffHeapBytes());
+		Assert.assertTrue(directPool.getMemoryUsed() <= usedBytes - allocatedBytes);
+
+		memtable = null;
+	}
+
+	/**
+	 * Test tuples that are larger than an arena chunk
+	 * @throws StorageManagerException
+	 */
+	@Test(timeout=60000)
+	public void testBigTuples() throws StorageManagerException {
+		final byte[] smallData = "abc".getBytes();
+		final byte[] bigData = new byte[OffHeapArena.DEFAULT_CHUNK_SIZE + 100];
+		bigData[bigData.length - 1] = 1;
+
+		final Tuple tuple1 = new Tuple("1", Hyperrectangle.FULL_SPACE, smallData);
+		final Tuple tuple2 = new Tuple("2", Hyperrectangle.FULL_SPACE, bigData);
+		final Tuple tuple3 = new Tuple("3", Hyperrectangle.FULL_SPACE, smallData);
+
+		memtable.put(tuple1);
+		memtable.put(tuple2);
+		memtable.put(tuple3);
+
+		Assert.assertEquals(tuple1, memtable.get("1").get(0));
+		Assert.assertEquals(tuple2, memtable.get("2").get(0));
+		Assert.assertEquals(tuple3, memtable.get("3").get(0));
+	}
+
+	/**
+	 * Insert tuples from multiple threads
+	 * @throws Exception
+	 */
+	@Test(timeout=60000)
+	public void testConcurrentInsert() throws Exception {
+		final int threads = 8;
+		final int tuplesPerThread = MEMTABLE_MAX_ENTRIES / threads;
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final List<Future<?>> futures = new ArrayList<>();
+
+		for(int thread = 0; thread < threads; thread++) {
+			final int threadNumber = thread;
+			futures.add(executor.submit(() -> {
+				for(int i = 0; i < tuplesPerThread; i++) {
+					final String key = threadNumber + "_" + i;
+					memtable.put(new Tuple(key, Hyperrectangle.FULL_SPACE, key.getBytes()));
+				}
+				return null;
+			}));
+		}
+
+		for(final Future<?> future : futures) {
+			future.get();
+		}
+
+		executor.shutdown();
+
+		Assert.assertEquals(threads * tuplesPerThread, memtable.getNumberOfTuples());
+
+		final List<Tuple> sortedTuples = memtable.getSortedTupleList();
+		Assert.assertEquals(threads * tuplesPerThread, sortedTuples.size());
+
+		final Set<String> keys = new HashSet<>();
+
+		for(int i = 0; i < sortedTuples.size(); i++) {
+			final Tuple tuple = sortedTuples.get(i);
+			Assert.assertEquals(tuple.getKey(), new String(tuple.getDataBytes()));
+			keys.add(tuple.getKey());
+
+			if(i > 0) {
+				Assert.assertTrue(sortedTuples.get(i - 1).getKey().compareTo(tuple.getKey()) < 0);
+			}
+		}
+
+		Assert.assertEquals(threads * tuplesPerThread, keys.size());
+	}
+}
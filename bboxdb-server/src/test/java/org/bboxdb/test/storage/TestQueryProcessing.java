@@ -18,10 +18,14 @@
 package org.bboxdb.test.storage;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 
+import org.bboxdb.commons.CloseableHelper;
+import org.bboxdb.commons.MicroSecondTimestampProvider;
 import org.bboxdb.commons.RejectedException;
 import org.bboxdb.commons.math.Hyperrectangle;
 import org.bboxdb.misc.BBoxDBException;
@@ -29,14 +33,21 @@ import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.JoinedTuple;
 import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.entity.TupleStoreConfiguration;
+import org.bboxdb.storage.entity.TupleStoreConfigurationBuilder;
 import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.queryprocessor.JoinOperatorPlanner;
 import org.bboxdb.storage.queryprocessor.operator.BoundingBoxSelectOperator;
 import org.bboxdb.storage.queryprocessor.operator.FullTablescanOperator;
 import org.bboxdb.storage.queryprocessor.operator.IndexedSpatialJoinOperator;
+import org.bboxdb.storage.queryprocessor.operator.NewerAsInsertTimeSeclectionOperator;
+import org.bboxdb.storage.queryprocessor.operator.NewerAsVersionTimeSelectionOperator;
 import org.bboxdb.storage.queryprocessor.operator.Operator;
 import org.bboxdb.storage.queryprocessor.operator.SpatialIndexReadOperator;
+import org.bboxdb.storage.queryprocessor.operator.SpatialSweepJoinOperator;
+import org.bboxdb.storage.queryprocessor.operator.TimeIndexReadOperator;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManager;
 import org.bboxdb.storage.tuplestore.manager.TupleStoreManagerRegistry;
+import org.bboxdb.storage.util.TupleHelper;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Before;
@@ -45,6 +56,8 @@ import org.junit.Test;
 
 import com.google.common.collect.Lists;
 
+import io.prometheus.client.CollectorRegistry;
+
 
 public class TestQueryProcessing {
 
@@ -456,4 +469,425 @@ public class TestQueryProcessing {
 		Assert.assertEquals(2, resultList.get(0).getBoundingBox().getDimension());
 		Assert.assertEquals(new Hyperrectangle(4.0d, 5.0d, 4.0d, 5.0d), resultList.get(0).getBoundingBox());
 	}
+	
+	/** 
+	 * Sweep join
+	 * @throws StorageManagerException
+	 * @throws RejectedException 
+	 */
+	@Test(timeout=60000)
+	public void testSweepJoin() throws StorageManagerException, RejectedException {
+		final TupleStoreManager storageManager1 = storageRegistry.getTupleStoreManager(TABLE_1);
+		final TupleStoreManager storageManager2 = storageRegistry.getTupleStoreManager(TABLE_2);
+
+		final Tuple tuple1 = new Tuple("1a", new Hyperrectangle(1.0, 2.0, 1.0, 2.0), "value1".getBytes());
+		final Tuple tuple2 = new Tuple("2a", new Hyperrectangle(4.0, 5.0, 4.0, 5.0), "value2".getBytes());
+		
+		// Tuple 3 and tuple 4 have the same key
+		final Tuple tuple3 = new Tuple("1b", new Hyperrectangle(1.5, 2.5, 1.5, 2.5), "value3".getBytes());
+		final Tuple tuple4 = new Tuple("1b", new Hyperrectangle(2.5, 5.5, 2.5, 5.5), "value4".getBytes());
+		final Tuple tuple5 = new Tuple("2b", new Hyperrectangle(4.5, 6.5, 1.0, 4.5), "value5".getBytes());
+		
+		storageManager1.put(tuple1);
+		storageManager1.put(tuple2);
+		storageManager2.put(tuple3);
+		storageManager2.put(tuple4);
+		storageManager2.put(tuple5);
+		
+		final SpatialIndexReadOperator operator1 = new SpatialIndexReadOperator(storageManager1, Hyperrectangle.FULL_SPACE);
+		final SpatialIndexReadOperator operator2 = new SpatialIndexReadOperator(storageManager2, Hyperrectangle.FULL_SPACE);
+
+		final SpatialSweepJoinOperator joinQueryProcessor = new SpatialSweepJoinOperator(operator1, operator2);
+		final List<JoinedTuple> resultList = Lists.newArrayList(joinQueryProcessor.iterator());
+		joinQueryProcessor.close();
+		
+		Assert.assertEquals(2, resultList.size());
+		
+		final List<String> resultKeys = resultList.stream()
+				.map(t -> t.getTuple(0).getKey() + t.getTuple(1).getKey())
+				.sorted()
+				.collect(Collectors.toList());
+		
+		Assert.assertEquals(Lists.newArrayList("2a1b", "2a2b"), resultKeys);
+		Assert.assertEquals(TABLE_2.getFullnameWithoutPrefix(), resultList.get(0).getTupleStoreName(1));
+	}
+	
+	/** 
+	 * Sweep join with partitioned inputs, the result is compared with the 
+	 * result of the indexed join
+	 * @throws StorageManagerException
+	 * @throws RejectedException 
+	 */
+	@Test(timeout=60000)
+	public void testPartitionedSweepJoin() throws StorageManagerException, RejectedException {
+		final TupleStoreManager storageManager1 = storageRegistry.getTupleStoreManager(TABLE_1);
+		final TupleStoreManager storageManager2 = storageRegistry.getTupleStoreManager(TABLE_2);
+		final TupleStoreManager storageManager3 = storageRegistry.getTupleStoreManager(TABLE_3);
+
+		final Random random = new Random(42);
+		final int tuples = SpatialSweepJoinOperator.TUPLES_PER_CELL * 3;
+		
+		for(int i = 0; i < tuples; i++) {
+			final double x = random.nextDouble() * 100.0;
+			final double y = random.nextDouble() * 100.0;
+			final double size = random.nextDouble() * 2.0;
+			final Hyperrectangle box = new Hyperrectangle(x, x + size, y, y + size);
+			
+			if(i % 2 == 0) {
+				storageManager1.put(new Tuple(Integer.toString(i), box, "value".getBytes()));
+			} else {
+				storageManager2.put(new Tuple(Integer.toString(i), box, "value".getBytes()));
+			}
+		}
+		
+		// Only a few tuples for the indexed join
+		for(int i = 0; i < 50; i++) {
+			final double x = random.nextDouble() * 100.0;
+			final double y = random.nextDouble() * 100.0;
+			final Hyperrectangle box = new Hyperrectangle(x, x + 5.0, y, y + 5.0);
+			storageManager3.put(new Tuple(Integer.toString(i), box, "value".getBytes()));
+		}
+		
+		// Partitioned sweep join (table 1 + table 2) and sweep join with table 3
+		final Operator sweepJoin = new SpatialSweepJoinOperator(
+				new SpatialSweepJoinOperator(
+						new SpatialIndexReadOperator(storageManager1, Hyperrectangle.FULL_SPACE),
+						new SpatialIndexReadOperator(storageManager2)), 
+				new SpatialIndexReadOperator(storageManager3));
+		
+		final List<String> sweepResult = Lists.newArrayList(sweepJoin.iterator())
+				.stream()
+				.map(t -> t.getTuples().stream().map(Tuple::getKey).collect(Collectors.joining("/")))
+				.sorted()
+				.collect(Collectors.toList());
+		
+		CloseableHelper.closeWithoutException(sweepJoin);
+		
+		// Indexed join, start with the small table
+		final Operator indexedJoin = new IndexedSpatialJoinOperator(
+				new IndexedSpatialJoinOperator(
+						new SpatialIndexReadOperator(storageManager3, Hyperrectangle.FULL_SPACE),
+						new SpatialIndexReadOperator(storageManager1)), 
+				new SpatialIndexReadOperator(storageManager2));
+		
+		final List<String> indexedResult = Lists.newArrayList(indexedJoin.iterator())
+				.stream()
+				.map(t -> t.getTuple(1).getKey() + "/" + t.getTuple(2).getKey() + "/" + t.getTuple(0).getKey())
+				.sorted()
+				.collect(Collectors.toList());
+		
+		CloseableHelper.closeWithoutException(indexedJoin);
+		
+		Assert.assertFalse(indexedResult.isEmpty());
+		Assert.assertEquals(indexedResult, sweepResult);
+	}
+	
+	/**
+	 * Test the join operator planner
+	 */
+	@Test(timeout=60000)
+	public void testJoinOperatorPlanner() throws StorageManagerException {
+		Assert.assertTrue(JoinOperatorPlanner.isSweepJoinPreferred(1_000_000, 1_000_000));
+		Assert.assertTrue(JoinOperatorPlanner.isSweepJoinPreferred(100, 100));
+		Assert.assertFalse(JoinOperatorPlanner.isSweepJoinPreferred(10, 1_000_000));
+		Assert.assertFalse(JoinOperatorPlanner.isSweepJoinPreferred(-1, 100));
+		
+		final TupleStoreManager storageManager1 = storageRegistry.getTupleStoreManager(TABLE_1);
+		final TupleStoreManager storageManager2 = storageRegistry.getTupleStoreManager(TABLE_2);
+		final TupleStoreManager storageManager3 = storageRegistry.getTupleStoreManager(TABLE_3);
+		
+		final Operator operator = JoinOperatorPlanner.buildJoinOperatorTree(
+				Arrays.asList(storageManager1, storageManager2, storageManager3), Hyperrectangle.FULL_SPACE);
+		
+		final List<JoinedTuple> resultList = Lists.newArrayList(operator.iterator());
+		CloseableHelper.closeWithoutException(operator);
+		Assert.assertTrue(resultList.isEmpty());
+	}
+	
+	/** 
+	 * Spatial query - the newer version of the tuple is moved
+	 * out of the query region
+	 * @throws StorageManagerException
+	 * @throws RejectedException 
+	 * @throws IOException 
+	 */
+	@Test(timeout=60000)
+	public void testBBoxQueryMovedTuple() throws StorageManagerException, RejectedException, IOException {
+		final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(TABLE_1);
+
+		final Tuple tuple1 = new Tuple("1", new Hyperrectangle(1.0, 2.0, 1.0, 2.0), "value1".getBytes());
+		final Tuple tuple2 = new Tuple("2", new Hyperrectangle(1.5, 2.5, 1.5, 2.5), "value2".getBytes());
+		final Tuple tuple3 = new Tuple("1", new Hyperrectangle(10.0, 12.0, 10.0, 12.0), "value3".getBytes());
+
+		storageManager.put(tuple1);
+		storageManager.put(tuple2);
+		storageManager.flush();
+		
+		// Memtable and SSTable
+		storageManager.put(tuple3);
+		
+		final Hyperrectangle queryBoundingBox = new Hyperrectangle(0.0, 5.0, 0.0, 5.0);
+		final List<Tuple> resultList1 = executeSpatialQuery(storageManager, queryBoundingBox);
+		Assert.assertEquals(Lists.newArrayList(tuple2), resultList1);
+		
+		// Two SSTables
+		storageManager.flush();
+		final List<Tuple> resultList2 = executeSpatialQuery(storageManager, queryBoundingBox);
+		Assert.assertEquals(Lists.newArrayList(tuple2), resultList2);
+
+		final List<Tuple> resultList3 = executeSpatialQuery(storageManager, 
+				new Hyperrectangle(11.0, 15.0, 11.0, 15.0));
+		Assert.assertEquals(Lists.newArrayList(tuple3), resultList3);
+	}
+	
+	/** 
+	 * Spatial query - the tuple is deleted 
+	 * @throws StorageManagerException
+	 * @throws RejectedException 
+	 * @throws IOException 
+	 */
+	@Test(timeout=60000)
+	public void testBBoxQueryDeletedTuple() throws StorageManagerException, RejectedException, IOException {
+		final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(TABLE_1);
+
+		final Tuple tuple1 = new Tuple("1", new Hyperrectangle(1.0, 2.0, 1.0, 2.0), "value1".getBytes());
+		final Tuple tuple2 = new Tuple("2", new Hyperrectangle(1.5, 2.5, 1.5, 2.5), "value2".getBytes());
+
+		storageManager.put(tuple1);
+		storageManager.put(tuple2);
+		storageManager.flush();
+		storageManager.delete("1", MicroSecondTimestampProvider.getNewTimestamp());
+		
+		final Hyperrectangle queryBoundingBox = new Hyperrectangle(0.0, 5.0, 0.0, 5.0);
+		final List<Tuple> resultList = executeSpatialQuery(storageManager, queryBoundingBox);
+		
+		Assert.assertEquals(2, resultList.size());
+		Assert.assertFalse(resultList.contains(tuple1));
+		Assert.assertTrue(resultList.contains(tuple2));
+		Assert.assertTrue(resultList.stream().anyMatch(t -> TupleHelper.isDeletedTuple(t)));
+	}
+	
+	/** 
+	 * Full table scan on a table with versions
+	 * @throws StorageManagerException
+	 * @throws RejectedException 
+	 * @throws IOException 
+	 */
+	@Test(timeout=60000)
+	public void testFullTablescanWithVersions() throws StorageManagerException, RejectedException, IOException {
+		storageRegistry.deleteTable(TABLE_1);
+		
+		final TupleStoreConfiguration configuration = TupleStoreConfigurationBuilder.create()
+				.allowDuplicates(true)
+				.withVersions(3)
+				.build();
+		
+		storageRegistry.createTable(TABLE_1, configuration);
+		final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(TABLE_1);
+
+		final Tuple tuple1 = new Tuple("1", new Hyperrectangle(1.0, 2.0, 1.0, 2.0), "value1".getBytes());
+		final Tuple tuple2 = new Tuple("1", new Hyperrectangle(1.5, 2.5, 1.5, 2.5), "value2".getBytes());
+		final Tuple tuple3 = new Tuple("2", new Hyperrectangle(1.0, 2.0, 1.0, 2.0), "value3".getBytes());
+
+		storageManager.put(tuple1);
+		storageManager.flush();
+		storageManager.put(tuple2);
+		storageManager.put(tuple3);
+		
+		final Operator queryPlan = new FullTablescanOperator(storageManager);
+		final List<JoinedTuple> resultList = Lists.newArrayList(queryPlan.iterator());
+		queryPlan.close();
+		
+		final List<Tuple> resultTupleList = resultList.stream()
+				.map(t -> t.convertToSingleTupleIfPossible())
+				.collect(Collectors.toList());
+
+		Assert.assertEquals(3, resultTupleList.size());
+		Assert.assertTrue(resultTupleList.contains(tuple1));
+		Assert.assertTrue(resultTupleList.contains(tuple2));
+		Assert.assertTrue(resultTupleList.contains(tuple3));
+	}
+	
+	/** 
+	 * Spatial query - SSTables outside of the query region are pruned
+	 * @throws StorageManagerException
+	 * @throws RejectedException 
+	 * @throws IOException 
+	 */
+	@Test(timeout=60000)
+	public void testBBoxQueryPruning() throws StorageManagerException, RejectedException, IOException {
+		final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(TABLE_1);
+
+		final Tuple tuple1 = new Tuple("1", new Hyperrectangle(1.0, 2.0, 1.0, 2.0), "value1".getBytes());
+		final Tuple tuple2 = new Tuple("2", new Hyperrectangle(10.0, 12.0, 10.0, 12.0), "value2".getBytes());
+
+		storageManager.put(tuple1);
+		storageManager.flush();
+		storageManager.put(tuple2);
+		storageManager.flush();
+		
+		final double prunedBefore = getPrunedTupleStores();
+		final List<Tuple> resultList = executeSpatialQuery(storageManager, 
+				new Hyperrectangle(0.0, 5.0, 0.0, 5.0));
+		
+		Assert.assertEquals(Lists.newArrayList(tuple1), resultList);
+		Assert.assertTrue(getPrunedTupleStores() >= prunedBefore + 1);
+	}
+	
+	/** 
+	 * Version time query - SSTables with older tuples are pruned
+	 * @throws StorageManagerException
+	 * @throws RejectedException 
+	 * @throws IOException 
+	 */
+	@Test(timeout=60000)
+	public void testVersionTimePruning() throws StorageManagerException, RejectedException, IOException {
+		final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(TABLE_1);
+
+		final Tuple tuple1 = new Tuple("1", new Hyperrectangle(1.0, 2.0, 1.0, 2.0), "value1".getBytes());
+		storageManager.put(tuple1);
+		storageManager.flush();
+		
+		final long timestamp = MicroSecondTimestampProvider.getNewTimestamp();
+		final Tuple tuple2 = new Tuple("2", new Hyperrectangle(1.0, 2.0, 1.0, 2.0), "value2".getBytes());
+		final Tuple tuple3 = new Tuple("1", new Hyperrectangle(1.0, 2.0, 1.0, 2.0), "value3".getBytes());
+		storageManager.put(tuple2);
+		storageManager.put(tuple3);
+		storageManager.flush();
+		
+		final double prunedBefore = getPrunedTupleStores();
+		
+		final Operator queryPlan = new NewerAsVersionTimeSelectionOperator(timestamp, 
+				new FullTablescanOperator(storageManager));
+		final List<JoinedTuple> resultList = Lists.newArrayList(queryPlan.iterator());
+		queryPlan.close();
+		
+		final List<Tuple> resultTupleList = resultList.stream()
+				.map(t -> t.convertToSingleTupleIfPossible())
+				.collect(Collectors.toList());
+		
+		Assert.assertEquals(2, resultTupleList.size());
+		Assert.assertTrue(resultTupleList.contains(tuple2));
+		Assert.assertTrue(resultTupleList.contains(tuple3));
+		Assert.assertTrue(getPrunedTupleStores() >= prunedBefore + 1);
+	}
+	
+	/**
+	 * Version time query with the time index
+	 * @throws StorageManagerException
+	 * @throws RejectedException
+	 * @throws IOException
+	 */
+	@Test(timeout=60000)
+	public void testVersionTimeIndexQuery() throws StorageManagerException, RejectedException, IOException {
+		final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(TABLE_1);
+
+		final Tuple tuple1 = new Tuple("1", new Hyperrectangle(1.0, 2.0, 1.0, 2.0), "value1".getBytes());
+		final Tuple tuple2 = new Tuple("2", new Hyperrectangle(1.0, 2.0, 1.0, 2.0), "value2".getBytes());
+		storageManager.put(tuple1);
+		storageManager.put(tuple2);
+		storageManager.flush();
+		
+		final long timestamp = MicroSecondTimestampProvider.getNewTimestamp();
+		final Tuple tuple3 = new Tuple("3", new Hyperrectangle(1.0, 2.0, 1.0, 2.0), "value3".getBytes());
+		final Tuple tuple4 = new Tuple("1", new Hyperrectangle(1.0, 2.0, 1.0, 2.0), "value4".getBytes());
+		storageManager.put(tuple3);
+		storageManager.put(tuple4);
+		storageManager.flush();
+		
+		final Tuple tuple5 = new Tuple("5", new Hyperrectangle(1.0, 2.0, 1.0, 2.0), "value5".getBytes());
+		storageManager.put(tuple5);
+		
+		final Operator queryPlan = new NewerAsVersionTimeSelectionOperator(timestamp, 
+				new TimeIndexReadOperator(storageManager));
+		final List<JoinedTuple> resultList = Lists.newArrayList(queryPlan.iterator());
+		queryPlan.close();
+		
+		final List<Tuple> resultTupleList = resultList.stream()
+				.map(t -> t.convertToSingleTupleIfPossible())
+				.collect(Collectors.toList());
+		
+		Assert.assertEquals(3, resultTupleList.size());
+		Assert.assertTrue(resultTupleList.contains(tuple3));
+		Assert.assertTrue(resultTupleList.contains(tuple4));
+		Assert.assertTrue(resultTupleList.contains(tuple5));
+	}
+	
+	/**
+	 * Bounding box and inserted time query with the time index
+	 * @throws StorageManagerException
+	 * @throws RejectedException
+	 * @throws IOException
+	 */
+	@Test(timeout=60000)
+	public void testBoundingBoxTimeIndexQuery() throws StorageManagerException, RejectedException, IOException {
+		final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(TABLE_1);
+		final Hyperrectangle queryBoundingBox = new Hyperrectangle(0.0, 5.0, 0.0, 5.0);
+
+		final Tuple tuple1 = new Tuple("1", new Hyperrectangle(1.0, 2.0, 1.0, 2.0), "value1".getBytes());
+		storageManager.put(tuple1);
+		storageManager.flush();
+		
+		final long timestamp = MicroSecondTimestampProvider.getNewTimestamp();
+		final Tuple tuple2 = new Tuple("2", new Hyperrectangle(1.0, 2.0, 1.0, 2.0), "value2".getBytes());
+		final Tuple tuple3 = new Tuple("3", new Hyperrectangle(1.0, 2.0, 1.0, 2.0), "value3".getBytes());
+		final Tuple tuple4 = new Tuple("4", new Hyperrectangle(10.0, 12.0, 10.0, 12.0), "value4".getBytes());
+		storageManager.put(tuple2);
+		storageManager.put(tuple3);
+		storageManager.put(tuple4);
+		storageManager.flush();
+		
+		// Move tuple 3 out of the query bounding box
+		final Tuple tuple5 = new Tuple("3", new Hyperrectangle(10.0, 12.0, 10.0, 12.0), "value5".getBytes());
+		final Tuple tuple6 = new Tuple("6", new Hyperrectangle(1.0, 2.0, 1.0, 2.0), "value6".getBytes());
+		storageManager.put(tuple5);
+		storageManager.put(tuple6);
+		
+		final Operator queryPlan = new NewerAsInsertTimeSeclectionOperator(timestamp, 
+				new TimeIndexReadOperator(storageManager, queryBoundingBox));
+		final List<JoinedTuple> resultList = Lists.newArrayList(queryPlan.iterator());
+		queryPlan.close();
+		
+		final List<Tuple> resultTupleList = resultList.stream()
+				.map(t -> t.convertToSingleTupleIfPossible())
+				.collect(Collectors.toList());
+		
+		Assert.assertEquals(2, resultTupleList.size());
+		Assert.assertTrue(resultTupleList.contains(tuple2));
+		Assert.assertTrue(resultTupleList.contains(tuple6));
+	}
+	
+	/**
+	 * Get the amount of pruned tuple stores
+	 * @return
+	 */
+	private double getPrunedTupleStores() {
+		final Double value = CollectorRegistry.defaultRegistry.getSampleValue("bboxdb_query_pruned_tuplestores_sum");
+		
+		// Metric is registered on the first usage of the operator
+		if(value == null) {
+			return 0;
+		}
+		
+		return value;
+	}
+	
+	/**
+	 * Execute a spatial query on the tuple store
+	 * @param storageManager
+	 * @param queryBoundingBox
+	 * @return
+	 * @throws IOException 
+	 */
+	private List<Tuple> executeSpatialQuery(final TupleStoreManager storageManager, 
+			final Hyperrectangle queryBoundingBox) throws IOException {
+		
+		final Operator queryPlan = new SpatialIndexReadOperator(storageManager, queryBoundingBox);
+		final List<JoinedTuple> resultList = Lists.newArrayList(queryPlan.iterator());
+		queryPlan.close();
+		
+		return resultList.stream()
+				.map(t -> t.convertToSingleTupleIfPossible())
+				.collect(Collectors.toList());
+	}
 }
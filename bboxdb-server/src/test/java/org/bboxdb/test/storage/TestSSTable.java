@@ -17,25 +17,48 @@
  *******************************************************************************/
 package org.bboxdb.test.storage;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import org.bboxdb.commons.io.DataEncoderHelper;
 import org.bboxdb.commons.io.FileUtil;
 import org.bboxdb.commons.math.Hyperrectangle;
+import org.bboxdb.misc.BBoxDBConfiguration;
 import org.bboxdb.misc.BBoxDBConfigurationManager;
+import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.DeletedTuple;
 import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.entity.TupleStoreName;
+import org.bboxdb.storage.sstable.SSTableCompression;
+import org.bboxdb.storage.sstable.SSTableConst;
 import org.bboxdb.storage.sstable.SSTableHelper;
 import org.bboxdb.storage.sstable.SSTableWriter;
+import org.bboxdb.storage.sstable.reader.SSTableBlock;
 import org.bboxdb.storage.sstable.reader.SSTableFacade;
 import org.bboxdb.storage.sstable.reader.SSTableKeyIndexReader;
 import org.bboxdb.storage.sstable.reader.SSTableReader;
+import org.bboxdb.storage.sstable.reader.SSTableTimeIndexReader;
+import org.bboxdb.storage.sstable.spatialindex.SpatialIndexBuilder;
+import org.bboxdb.storage.sstable.spatialindex.SpatialIndexBuilderFactory;
+import org.bboxdb.storage.sstable.spatialindex.SpatialIndexEntry;
 import org.bboxdb.storage.tuplestore.ReadOnlyTupleStore;
+import org.bboxdb.storage.util.TupleHelper;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
+import com.google.common.io.CountingOutputStream;
+
 public class TestSSTable {
 	
 	/**
@@ -157,6 +180,134 @@ public class TestSSTable {
 		Assert.assertEquals(tupleList.size(), tupleCounter);
 	}
 
+	/**
+	 * Test a compressed SSTable with multiple blocks and duplicate 
+	 * keys that span multiple blocks
+	 * @throws Exception
+	 */
+	@Test(timeout=60000)
+	public void testMultipleCompressedBlocks() throws Exception {
+		final BBoxDBConfiguration configuration = BBoxDBConfigurationManager.getConfiguration();
+		final int oldBlockSize = configuration.getStorageSSTableBlockSize();
+		final String oldCompression = configuration.getStorageSSTableCompression();
+		
+		try {
+			configuration.setStorageSSTableBlockSize(256);
+			configuration.setStorageSSTableCompression(SSTableCompression.DEFLATE.getStringValue());
+			
+			final String relationDirectory = SSTableHelper.getSSTableDir(STORAGE_DIRECTORY, TEST_RELATION);
+			final File relationDirectoryFile = new File(relationDirectory);
+			FileUtil.deleteRecursive(relationDirectoryFile.toPath());
+			relationDirectoryFile.mkdirs();
+			
+			final List<Tuple> tupleList = new ArrayList<>();
+			
+			for(int i = 0; i < 500; i++) {
+				final String key = String.format("%05d", i);
+				tupleList.add(new Tuple(key, Hyperrectangle.FULL_SPACE, key.getBytes(), 1));
+				
+				// Duplicate keys
+				if(i % 100 == 0) {
+					for(int version = 2; version < 20; version++) {
+						tupleList.add(new Tuple(key, Hyperrectangle.FULL_SPACE, key.getBytes(), version));
+					}
+				}
+			}
+			
+			final SSTableWriter ssTableWriter = new SSTableWriter(STORAGE_DIRECTORY, TEST_RELATION, 1, tupleList.size());
+			ssTableWriter.open();
+			ssTableWriter.addTuples(tupleList);
+			ssTableWriter.close();
+			
+			final SSTableReader sstableReader = new SSTableReader(STORAGE_DIRECTORY, TEST_RELATION, 1);
+			sstableReader.init();
+			final SSTableKeyIndexReader ssTableIndexReader = new SSTableKeyIndexReader(sstableReader);
+			ssTableIndexReader.init();
+			
+			Assert.assertEquals(SSTableConst.SST_VERSION_2, ssTableIndexReader.getFormatVersion());
+			Assert.assertEquals(tupleList.size(), ssTableIndexReader.getNumberOfEntries());
+			
+			int tupleCounter = 0;
+			for(final Tuple tuple : ssTableIndexReader) {
+				Assert.assertEquals(tupleList.get(tupleCounter), tuple);
+				tupleCounter++;
+			}
+			Assert.assertEquals(tupleList.size(), tupleCounter);
+			
+			for(int i = 0; i < tupleList.size(); i++) {
+				Assert.assertEquals(tupleList.get(i), ssTableIndexReader.getTupleForIndexEntry(i));
+			}
+			
+			Assert.assertEquals(19, ssTableIndexReader.getPositionsForTuple("00000").size());
+			Assert.assertEquals(19, ssTableIndexReader.getPositionsForTuple("00300").size());
+			Assert.assertEquals(1, ssTableIndexReader.getPositionsForTuple("00301").size());
+			Assert.assertEquals(1, ssTableIndexReader.getPositionsForTuple("00499").size());
+			Assert.assertTrue(ssTableIndexReader.getPositionsForTuple("0").isEmpty());
+			Assert.assertTrue(ssTableIndexReader.getPositionsForTuple("00250a").isEmpty());
+			Assert.assertTrue(ssTableIndexReader.getPositionsForTuple("1").isEmpty());
+			
+			for(final Integer position : ssTableIndexReader.getPositionsForTuple("00300")) {
+				Assert.assertEquals("00300", ssTableIndexReader.getTupleAtPosition(position).getKey());
+			}
+			
+			// The positions of the caller are not modified
+			final int[] positions = new int[] {400, 3, 250, 7};
+			final List<Tuple> positionTuples = Lists.newArrayList(ssTableIndexReader.getTuplesAtPositions(positions));
+			Assert.assertArrayEquals(new int[] {400, 3, 250, 7}, positions);
+			Assert.assertEquals(Lists.newArrayList(tupleList.get(3), tupleList.get(7), 
+					tupleList.get(250), tupleList.get(400)), positionTuples);
+			
+			Assert.assertEquals("00499", sstableReader.scanForTuple("00499").getKey());
+			Assert.assertNull(sstableReader.scanForTuple("1"));
+			
+			ssTableIndexReader.shutdown();
+			sstableReader.shutdown();
+		} finally {
+			configuration.setStorageSSTableBlockSize(oldBlockSize);
+			configuration.setStorageSSTableCompression(oldCompression);
+		}
+	}
+
+	/**
+	 * The interrupt of a reading thread closes the shared file channel,
+	 * the channel has to be reopened for the other readers
+	 * @throws Exception
+	 */
+	@Test(timeout=60000)
+	public void testReadAfterInterrupt() throws Exception {
+		final String relationDirectory = SSTableHelper.getSSTableDir(STORAGE_DIRECTORY, TEST_RELATION);
+		final File relationDirectoryFile = new File(relationDirectory);
+		FileUtil.deleteRecursive(relationDirectoryFile.toPath());
+		relationDirectoryFile.mkdirs();
+		
+		final List<Tuple> tupleList = createTupleList();
+		final SSTableWriter ssTableWriter = new SSTableWriter(STORAGE_DIRECTORY, TEST_RELATION, 1, tupleList.size());
+		ssTableWriter.open();
+		ssTableWriter.addTuples(tupleList);
+		ssTableWriter.close();
+		
+		final SSTableReader sstableReader = new SSTableReader(STORAGE_DIRECTORY, TEST_RELATION, 1);
+		sstableReader.init();
+		final long blockPosition = sstableReader.getFirstBlockPosition();
+		
+		Thread.currentThread().interrupt();
+		
+		try {
+			sstableReader.readBlock(blockPosition, 0);
+			Assert.fail("Read should fail after the interrupt");
+		} catch(StorageManagerException e) {
+			// Expected
+		}
+		
+		Assert.assertTrue(Thread.interrupted());
+		
+		// The next read uses the reopened channel
+		final SSTableBlock block = sstableReader.readBlock(blockPosition, 0);
+		Assert.assertNotNull(block);
+		
+		sstableReader.shutdown();
+	}
+
 	/**
 	 * Helper method for creating some test tuples
 	 * 
@@ -172,6 +323,234 @@ public class TestSSTable {
 		return tupleList;
 	}
 	
+	/**
+	 * Test reading a SSTable in the format version 1 (one index entry per 
+	 * tuple and byte positions in the spatial index)
+	 * @throws Exception
+	 */
+	@Test(timeout=60000)
+	public void testReadVersion1SSTable() throws Exception {
+		final String relationDirectory = SSTableHelper.getSSTableDir(STORAGE_DIRECTORY, TEST_RELATION);
+		final File relationDirectoryFile = new File(relationDirectory);
+		FileUtil.deleteRecursive(relationDirectoryFile.toPath());
+		relationDirectoryFile.mkdirs();
+		
+		final List<Tuple> tupleList = new ArrayList<>();
+		
+		for(int i = 0; i < 100; i++) {
+			final Hyperrectangle boundingBox = new Hyperrectangle((double) i, (double) i + 1);
+			tupleList.add(new Tuple(String.format("%04d", i), boundingBox, "abc".getBytes()));
+		}
+		
+		writeVersion1SSTable(tupleList);
+		
+		final SSTableFacade ssTableFacade = new SSTableFacade(STORAGE_DIRECTORY, TEST_RELATION, 1, 0);
+		ssTableFacade.init();
+		ssTableFacade.acquire();
+		
+		final SSTableKeyIndexReader keyIndexReader = ssTableFacade.getSsTableKeyIndexReader();
+		Assert.assertEquals(SSTableConst.SST_VERSION_1, ssTableFacade.getSsTableReader().getFormatVersion());
+		Assert.assertEquals(SSTableConst.SST_VERSION_1, keyIndexReader.getFormatVersion());
+		Assert.assertFalse(ssTableFacade.hasTimeIndex());
+		
+		// Full scan
+		Assert.assertEquals(tupleList, Lists.newArrayList(keyIndexReader.iterator()));
+		
+		// Point lookups
+		for(final Tuple tuple : tupleList) {
+			Assert.assertEquals(Lists.newArrayList(tuple), ssTableFacade.get(tuple.getKey()));
+		}
+		
+		Assert.assertTrue(ssTableFacade.get("9999").isEmpty());
+		
+		// Spatial query
+		final Hyperrectangle queryBox = new Hyperrectangle(10.5, 20.5);
+		
+		final List<Tuple> expectedTuples = tupleList.stream()
+				.filter(t -> t.getBoundingBox().intersects(queryBox))
+				.collect(Collectors.toList());
+		
+		final List<Tuple> readTuples = Lists.newArrayList(ssTableFacade.getAllTuplesInBoundingBox(queryBox));
+		readTuples.sort((t1, t2) -> t1.getKey().compareTo(t2.getKey()));
+		Assert.assertEquals(expectedTuples, readTuples);
+		
+		ssTableFacade.release();
+		ssTableFacade.shutdown();
+	}
+	
+	/**
+	 * Test a time query on a SSTable without a time index, the result needs to contain 
+	 * the tuples without a bounding box and the deletion markers
+	 * @throws Exception
+	 */
+	@Test(timeout=60000)
+	public void testTimeQueryWithoutTimeIndex() throws Exception {
+		final String relationDirectory = SSTableHelper.getSSTableDir(STORAGE_DIRECTORY, TEST_RELATION);
+		final File relationDirectoryFile = new File(relationDirectory);
+		FileUtil.deleteRecursive(relationDirectoryFile.toPath());
+		relationDirectoryFile.mkdirs();
+		
+		final List<Tuple> tupleList = new ArrayList<>();
+		tupleList.add(new Tuple("0001", new Hyperrectangle(1d, 2d), "abc".getBytes(), 1000));
+		tupleList.add(new Tuple("0002", Hyperrectangle.FULL_SPACE, "abc".getBytes(), 2000));
+		tupleList.add(new DeletedTuple("0003", 3000));
+		tupleList.add(new Tuple("0004", new Hyperrectangle(4d, 5d), "abc".getBytes(), 4000));
+		
+		writeVersion1SSTable(tupleList);
+		
+		final SSTableFacade ssTableFacade = new SSTableFacade(STORAGE_DIRECTORY, TEST_RELATION, 1, 0);
+		ssTableFacade.init();
+		ssTableFacade.acquire();
+		Assert.assertFalse(ssTableFacade.hasTimeIndex());
+		
+		// Without a time index, all tuples of the region are returned and filtered by the caller
+		final List<Tuple> readTuples = Lists.newArrayList(
+				ssTableFacade.getAllTuplesNewerAs(Hyperrectangle.FULL_SPACE, 1500, Long.MIN_VALUE));
+		
+		Assert.assertEquals(tupleList, readTuples);
+		
+		final List<Tuple> newerTuples = readTuples.stream()
+				.filter(t -> t.getVersionTimestamp() > 1500)
+				.collect(Collectors.toList());
+		
+		Assert.assertEquals(tupleList.subList(1, 4), newerTuples);
+		
+		// A region query returns only the indexed tuples
+		final List<Tuple> regionTuples = Lists.newArrayList(
+				ssTableFacade.getAllTuplesNewerAs(new Hyperrectangle(3d, 6d), 1500, Long.MIN_VALUE));
+		
+		Assert.assertEquals(tupleList.subList(3, 4), regionTuples);
+		
+		ssTableFacade.release();
+		ssTableFacade.shutdown();
+	}
+	
+	/**
+	 * Write the tuples as SSTable in the format version 1. The bloom filter and 
+	 * the metadata are taken from the current writer, the data, key index and 
+	 * spatial index files are replaced and the time index is removed.
+	 * 
+	 * @param tupleList
+	 * @throws Exception
+	 */
+	protected void writeVersion1SSTable(final List<Tuple> tupleList) throws Exception {
+		final SSTableWriter ssTableWriter = new SSTableWriter(STORAGE_DIRECTORY, TEST_RELATION, 1, tupleList.size());
+		ssTableWriter.open();
+		ssTableWriter.addTuples(tupleList);
+		ssTableWriter.close();
+		
+		ssTableWriter.getTimeIndexFile().delete();
+		
+		final SpatialIndexBuilder spatialIndex = SpatialIndexBuilderFactory.getInstance();
+		
+		try (	final CountingOutputStream sstableOutputStream = new CountingOutputStream(
+					new BufferedOutputStream(new FileOutputStream(ssTableWriter.getSstableFile())));
+				final OutputStream indexOutputStream = new BufferedOutputStream(
+					new FileOutputStream(ssTableWriter.getSstableIndexFile()));
+			) {
+			
+			sstableOutputStream.write(SSTableConst.MAGIC_BYTES_SSTABLE);
+			indexOutputStream.write(SSTableConst.MAGIC_BYTES_INDEX);
+			
+			for(final Tuple tuple : tupleList) {
+				final int position = (int) sstableOutputStream.getCount();
+				indexOutputStream.write(DataEncoderHelper.intToByteBuffer(position).array());
+				TupleHelper.writeTupleToStream(tuple, sstableOutputStream);
+				spatialIndex.insert(new SpatialIndexEntry(tuple.getBoundingBox(), position));
+			}
+		}
+		
+		final String spatialIndexFilename = SSTableHelper.getSSTableSpatialIndexFilename(
+				STORAGE_DIRECTORY, TEST_RELATION, 1);
+		
+		try (final RandomAccessFile file = new RandomAccessFile(spatialIndexFilename, "rw")) {
+			file.setLength(0);
+			spatialIndex.writeToFile(file);
+		}
+	}
+	
+	/**
+	 * Test the time index
+	 * @throws Exception
+	 */
+	@Test(timeout=60000)
+	public void testTimeIndex() throws Exception {
+		final String relationDirectory = SSTableHelper.getSSTableDir(STORAGE_DIRECTORY, TEST_RELATION);
+		final File relationDirectoryFile = new File(relationDirectory);
+		FileUtil.deleteRecursive(relationDirectoryFile.toPath());
+		relationDirectoryFile.mkdirs();
+		
+		final Random random = new Random(42);
+		final List<Tuple> tupleList = new ArrayList<>();
+		
+		// The keys are written in lexicographical order, the timestamps are random
+		for(int i = 0; i < 1000; i++) {
+			final String key = String.format("%04d", i);
+			final Hyperrectangle boundingBox = new Hyperrectangle((double) i, (double) i + 1);
+			tupleList.add(new Tuple(key, boundingBox, "abc".getBytes(), 
+					random.nextInt(10000), random.nextInt(10000)));
+		}
+		
+		final SSTableWriter ssTableWriter = new SSTableWriter(STORAGE_DIRECTORY, TEST_RELATION, 1, tupleList.size());
+		ssTableWriter.open();
+		ssTableWriter.addTuples(tupleList);
+		ssTableWriter.close();
+		
+		Assert.assertTrue(ssTableWriter.getTimeIndexFile().exists());
+		
+		final SSTableTimeIndexReader timeIndexReader = new SSTableTimeIndexReader(STORAGE_DIRECTORY, TEST_RELATION, 1);
+		timeIndexReader.init();
+		Assert.assertEquals(tupleList.size(), timeIndexReader.getNumberOfEntries());
+		
+		for(final long timestamp : new long[] {-1, 0, 1, 500, 4711, 9998, 9999, 10000}) {
+			final Set<Integer> expectedVersion = new HashSet<>();
+			final Set<Integer> expectedInserted = new HashSet<>();
+			
+			for(int i = 0; i < tupleList.size(); i++) {
+				if(tupleList.get(i).getVersionTimestamp() > timestamp) {
+					expectedVersion.add(i);
+				}
+				
+				if(tupleList.get(i).getReceivedTimestamp() > timestamp) {
+					expectedInserted.add(i);
+				}
+			}
+			
+			final int[] versionResult = timeIndexReader.getTupleNumbersNewerAsVersionTime(timestamp);
+			Assert.assertEquals(expectedVersion.size(), versionResult.length);
+			Assert.assertEquals(expectedVersion, IntStream.of(versionResult).boxed().collect(Collectors.toSet()));
+			
+			final int[] insertedResult = timeIndexReader.getTupleNumbersNewerAsInsertedTime(timestamp);
+			Assert.assertEquals(expectedInserted.size(), insertedResult.length);
+			Assert.assertEquals(expectedInserted, IntStream.of(insertedResult).boxed().collect(Collectors.toSet()));
+		}
+		
+		timeIndexReader.shutdown();
+		
+		// Combine the time index and the spatial index
+		final SSTableFacade ssTableFacade = new SSTableFacade(STORAGE_DIRECTORY, TEST_RELATION, 1, 0);
+		ssTableFacade.init();
+		ssTableFacade.acquire();
+		Assert.assertTrue(ssTableFacade.hasTimeIndex());
+		
+		final Hyperrectangle queryBox = new Hyperrectangle(100.5, 300.5);
+		
+		final List<Tuple> expectedTuples = tupleList.stream()
+				.filter(t -> t.getVersionTimestamp() > 2000)
+				.filter(t -> t.getReceivedTimestamp() > 5000)
+				.filter(t -> t.getBoundingBox().intersects(queryBox))
+				.collect(Collectors.toList());
+		
+		final List<Tuple> readTuples = Lists.newArrayList(
+				ssTableFacade.getAllTuplesNewerAs(queryBox, 2000, 5000));
+		
+		Assert.assertFalse(expectedTuples.isEmpty());
+		Assert.assertEquals(expectedTuples, readTuples);
+		
+		ssTableFacade.release();
+		ssTableFacade.shutdown();
+	}
+	
 	/**
 	 * Test delayed deletion
 	 * @throws Exception
@@ -28,6 +28,7 @@ import org.bboxdb.commons.RejectedException;
 import org.bboxdb.commons.entity.PersonEntity;
 import org.bboxdb.commons.math.Hyperrectangle;
 import org.bboxdb.misc.BBoxDBException;
+import org.bboxdb.misc.BBoxDBConfigurationManager;
 import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.DeletedTuple;
 import org.bboxdb.storage.entity.Tuple;
@@ -133,6 +134,29 @@ public class TestStorageManager {
 		Assert.assertEquals(person1, readPerson1);
 	}
 	
+	@Test(timeout=60000)
+	public void testInsertBatch() throws Exception {
+		final List<Tuple> receivedTuples = new ArrayList<>();
+		final Consumer<Tuple> callback = ((t) -> receivedTuples.add(t));
+		storageManager.registerInsertCallback(callback);
+
+		// More tuples than fit into one memtable
+		final int numberOfTuples = BBoxDBConfigurationManager.getConfiguration().getMemtableEntriesMax() + 100;
+		final List<Tuple> tuples = new ArrayList<>();
+
+		for(int i = 0; i < numberOfTuples; i++) {
+			tuples.add(new Tuple(Integer.toString(i), Hyperrectangle.FULL_SPACE, Integer.toString(i).getBytes()));
+		}
+
+		storageManager.put(tuples);
+		storageManager.removeInsertCallback(callback);
+
+		Assert.assertEquals(numberOfTuples, receivedTuples.size());
+		Assert.assertEquals(tuples.get(0), storageManager.get("0").get(0));
+		Assert.assertEquals(tuples.get(numberOfTuples - 1),
+				storageManager.get(Integer.toString(numberOfTuples - 1)).get(0));
+	}
+
 	@Test(timeout=60000)
 	public void getNonExisting() throws Exception {
 		Assert.assertTrue(storageManager.get("1").isEmpty());
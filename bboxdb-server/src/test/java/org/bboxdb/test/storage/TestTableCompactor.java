@@ -36,6 +36,7 @@ import org.bboxdb.storage.entity.TupleStoreConfiguration;
 import org.bboxdb.storage.entity.TupleStoreName;
 import org.bboxdb.storage.sstable.SSTableHelper;
 import org.bboxdb.storage.sstable.SSTableWriter;
+import org.bboxdb.storage.sstable.compact.CompactorHelper;
 import org.bboxdb.storage.sstable.compact.SSTableCompactor;
 import org.bboxdb.storage.sstable.compact.SSTableServiceRunnable;
 import org.bboxdb.storage.sstable.reader.SSTableFacade;
@@ -484,4 +485,90 @@ public class TestTableCompactor {
 	
 		ssTableCompactorRunnable.handleCompactException(tupleStorages);
 	}
+	
+	/**
+	 * Test the compaction of a key range
+	 * @throws StorageManagerException
+	 * @throws InterruptedException
+	 */
+	@Test(timeout=60000)
+	public void testCompactKeyRange() throws StorageManagerException, InterruptedException {
+		final List<Tuple> tupleList1 = new ArrayList<Tuple>();
+		final List<Tuple> tupleList2 = new ArrayList<Tuple>();
+		
+		for(int i = 0; i < 50; i++) {
+			tupleList1.add(new Tuple("key" + (i * 2), Hyperrectangle.FULL_SPACE, "abc".getBytes()));
+			tupleList2.add(new Tuple("key" + (i * 2 + 1), Hyperrectangle.FULL_SPACE, "def".getBytes()));
+		}
+		
+		final SSTableKeyIndexReader reader1 = addTuplesToFileAndGetReader(tupleList1, 1);
+		final SSTableKeyIndexReader reader2 = addTuplesToFileAndGetReader(tupleList2, 2);
+		
+		storageRegistry.deleteTable(TEST_RELATION);
+		storageRegistry.createTable(TEST_RELATION, new TupleStoreConfiguration());
+		final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(TEST_RELATION);
+		
+		final List<SSTableKeyIndexReader> readers = Arrays.asList(reader1, reader2);
+		final List<String> splitPoints = CompactorHelper.getKeyRangeSplitPoints(readers, 2);
+		Assert.assertEquals(1, splitPoints.size());
+		
+		final SSTableCompactor compactor1 = new SSTableCompactor(storageManager, readers);
+		compactor1.setKeyRange(null, splitPoints.get(0));
+		compactor1.executeCompactation();
+		
+		final SSTableCompactor compactor2 = new SSTableCompactor(storageManager, readers);
+		compactor2.setKeyRange(splitPoints.get(0), null);
+		compactor2.executeCompactation();
+		
+		Assert.assertEquals(100, compactor1.getReadTuples() + compactor2.getReadTuples());
+		Assert.assertEquals(100, compactor1.getWrittenTuples() + compactor2.getWrittenTuples());
+		Assert.assertTrue(compactor1.getWrittenTuples() > 0);
+		Assert.assertTrue(compactor2.getWrittenTuples() > 0);
+		
+		final List<SSTableWriter> resultWriter = new ArrayList<>(compactor1.getResultList());
+		resultWriter.addAll(compactor2.getResultList());
+		Assert.assertEquals(2, resultWriter.size());
+		
+		for(final SSTableWriter writer : resultWriter) {
+			writer.close();
+		}
+	}
+	
+	/**
+	 * Test the major compaction with key range subcompactions
+	 * @throws RejectedException 
+	 * @throws StorageManagerException 
+	 * @throws InterruptedException 
+	 * @throws BBoxDBException 
+	 */
+	@Test(timeout=60000)
+	public void testSubcompaction() throws StorageManagerException, 
+		RejectedException, BBoxDBException, InterruptedException {
+		
+		storageRegistry.createTable(TEST_RELATION, new TupleStoreConfiguration());
+		final TupleStoreManager storageManager = storageRegistry.getTupleStoreManager(TEST_RELATION);
+
+		for(int file = 0; file < 3; file++) {
+			for(int i = 0; i < 1000; i++) {
+				storageManager.put(new Tuple(Integer.toString(i), Hyperrectangle.FULL_SPACE, 
+						Integer.toString(file).getBytes()));
+			}
+			storageManager.flush();
+		}
+		
+		final List<DiskStorage> storages = storageRegistry.getAllStorages();
+		final SSTableServiceRunnable ssTableCompactorRunnable = new SSTableServiceRunnable(storages.get(0));
+		ssTableCompactorRunnable.setSubcompactionMinTuples(100);
+		ssTableCompactorRunnable.forceMajorCompact(storageManager);
+		
+		final int threads = storageRegistry.getConfiguration().getStorageCompactionThreads();
+		Assert.assertEquals(Math.max(1, threads), storageManager.getSstableFacades().size());
+		Assert.assertEquals(1000, storageManager.getNumberOfTuples());
+		
+		for(int i = 0; i < 1000; i++) {
+			final List<Tuple> tuples = storageManager.get(Integer.toString(i));
+			Assert.assertEquals(1, tuples.size());
+			Assert.assertEquals("2", new String(tuples.get(0).getDataBytes()));
+		}
+	}
 }
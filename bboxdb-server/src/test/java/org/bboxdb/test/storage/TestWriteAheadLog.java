@@ -22,18 +22,31 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.bboxdb.commons.io.FileUtil;
 import org.bboxdb.commons.math.Hyperrectangle;
+import org.bboxdb.misc.BBoxDBConfiguration;
 import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.entity.DeletedTuple;
 import org.bboxdb.storage.entity.Tuple;
 import org.bboxdb.storage.entity.TupleStoreName;
 import org.bboxdb.storage.memtable.Memtable;
+import org.bboxdb.storage.sstable.SSTableConst;
+import org.bboxdb.storage.sstable.SSTableHelper;
+import org.bboxdb.storage.sstable.reader.SSTableFacade;
 import org.bboxdb.storage.util.TupleHelper;
 import org.bboxdb.storage.wal.WriteAheadLogManager;
 import org.bboxdb.storage.wal.WriteAheadLogReader;
+import org.bboxdb.storage.wal.WriteAheadLogRecovery;
+import org.bboxdb.storage.wal.WriteAheadLogSyncMode;
 import org.bboxdb.storage.wal.WriteAheadLogWriter;
 import org.junit.After;
 import org.junit.Assert;
@@ -250,4 +263,188 @@ public class TestWriteAheadLog {
 		
 		Assert.assertFalse(walFile.exists());
 	}
+	
+	@Test
+	public void testCorruptedRecord() throws IOException, StorageManagerException {
+		final WriteAheadLogWriter walWriter = new WriteAheadLogWriter(tempDir, 1);
+		walWriter.addTuple(TUPLE_A);
+		walWriter.addTuple(TUPLE_B);
+		walWriter.close();
+		
+		// Flip one byte of the payload of the second record
+		final int firstRecordLength = WriteAheadLogWriter.encodeRecord(TUPLE_A).remaining();
+		final long position = SSTableConst.MAGIC_BYTES_WAL_V2.length + firstRecordLength 
+				+ WriteAheadLogWriter.RECORD_HEADER_BYTES + 1;
+		
+		try(final RandomAccessFile file = new RandomAccessFile(walWriter.getFile(), "rw")) {
+			file.seek(position);
+			final int value = file.read();
+			file.seek(position);
+			file.write(value ^ 0xFF);
+		}
+		
+		final WriteAheadLogReader reader = new WriteAheadLogReader(walWriter.getFile());
+		final List<Tuple> myList = Lists.newArrayList(reader.iterator());
+		Assert.assertEquals(1, myList.size());
+		Assert.assertEquals(TUPLE_A, myList.get(0));
+		reader.close();
+	}
+	
+	@Test
+	public void testLegacyFormat() throws IOException, StorageManagerException {
+		final File writtenFile = new File(tempDir + File.separator + "test");
+		
+		final BufferedOutputStream os = new BufferedOutputStream(new FileOutputStream(writtenFile));
+		os.write(SSTableConst.MAGIC_BYTES_WAL);
+		TupleHelper.writeTupleToStream(TUPLE_A, os);
+		TupleHelper.writeTupleToStream(TUPLE_B, os);
+		os.close();
+		
+		final WriteAheadLogReader reader = new WriteAheadLogReader(writtenFile);
+		final List<Tuple> myList = Lists.newArrayList(reader.iterator());
+		Assert.assertEquals(Lists.newArrayList(TUPLE_A, TUPLE_B), myList);
+		reader.close();
+	}
+	
+	@Test
+	public void testSyncModes() throws IOException, StorageManagerException {
+		for(final WriteAheadLogSyncMode syncMode : WriteAheadLogSyncMode.values()) {
+			final BBoxDBConfiguration configuration = new BBoxDBConfiguration();
+			configuration.setStorageWriteAheadLogSyncMode(syncMode.getStringValue());
+			configuration.setStorageWriteAheadLogSyncInterval(10);
+			configuration.setStorageWriteAheadLogSegmentSize(1024);
+			
+			final WriteAheadLogWriter walWriter = new WriteAheadLogWriter(tempDir, 
+					syncMode.ordinal(), configuration);
+			
+			Assert.assertEquals(syncMode, walWriter.getSyncMode());
+			
+			for(int i = 0; i < 100; i++) {
+				walWriter.addTuple(new Tuple(Integer.toString(i), Hyperrectangle.FULL_SPACE, "abc".getBytes()));
+			}
+			
+			// Readable without closing the writer
+			final WriteAheadLogReader reader1 = new WriteAheadLogReader(walWriter.getFile());
+			Assert.assertEquals(100, Lists.newArrayList(reader1.iterator()).size());
+			reader1.close();
+			
+			walWriter.close();
+			
+			final WriteAheadLogReader reader2 = new WriteAheadLogReader(walWriter.getFile());
+			Assert.assertEquals(100, Lists.newArrayList(reader2.iterator()).size());
+			reader2.close();
+			
+			walWriter.deleteFile();
+		}
+	}
+	
+	@Test(expected=StorageManagerException.class)
+	public void testWriteAfterClose() throws IOException, StorageManagerException {
+		final WriteAheadLogWriter walWriter = new WriteAheadLogWriter(tempDir, 1);
+		walWriter.close();
+		walWriter.addTuple(TUPLE_A);
+	}
+	
+	@Test(timeout=60000)
+	public void testConcurrentWriters() throws Exception {
+		final int threads = 8;
+		final int tuplesPerThread = 500;
+		
+		final WriteAheadLogWriter walWriter = new WriteAheadLogWriter(tempDir, 1);
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final List<Future<?>> futures = new ArrayList<>();
+		
+		for(int thread = 0; thread < threads; thread++) {
+			final int threadNumber = thread;
+			futures.add(executor.submit(() -> {
+				for(int i = 0; i < tuplesPerThread; i++) {
+					final String key = threadNumber + "_" + i;
+					walWriter.addTuple(new Tuple(key, Hyperrectangle.FULL_SPACE, key.getBytes()));
+				}
+				return null;
+			}));
+		}
+		
+		for(final Future<?> future : futures) {
+			future.get();
+		}
+		
+		executor.shutdown();
+		walWriter.close();
+		
+		final WriteAheadLogReader reader = new WriteAheadLogReader(walWriter.getFile());
+		final Set<String> keys = new HashSet<>();
+		
+		for(final Tuple tuple : reader) {
+			Assert.assertEquals(tuple.getKey(), new String(tuple.getDataBytes()));
+			keys.add(tuple.getKey());
+		}
+		
+		reader.close();
+		
+		Assert.assertEquals(threads * tuplesPerThread, keys.size());
+	}
+	
+	@Test(timeout=60000)
+	public void testRecoverToSSTable() throws Exception {
+		final TupleStoreName tupleStoreName = new TupleStoreName("abc_def");
+		final String storageDir = tempDir.getAbsolutePath();
+		final File tableDir = new File(SSTableHelper.getSSTableDir(storageDir, tupleStoreName));
+		tableDir.mkdirs();
+		
+		final WriteAheadLogWriter walWriter = new WriteAheadLogWriter(tableDir, 1);
+		
+		for(int i = 100; i > 0; i--) {
+			walWriter.addTuple(new Tuple(Integer.toString(i), Hyperrectangle.FULL_SPACE, "abc".getBytes(), i));
+		}
+		
+		walWriter.addTuple(new DeletedTuple("50", 1000));
+		walWriter.close();
+		
+		Assert.assertEquals(1, WriteAheadLogManager.getAllWalFiles(tableDir).size());
+		
+		final WriteAheadLogReader reader = new WriteAheadLogReader(walWriter.getFile());
+		final int tuples = WriteAheadLogRecovery.writeToSSTable(reader, storageDir, tupleStoreName, 1);
+		reader.deleteFile();
+		
+		Assert.assertEquals(101, tuples);
+		Assert.assertEquals(0, WriteAheadLogManager.getAllWalFiles(tableDir).size());
+		
+		final SSTableFacade facade = new SSTableFacade(storageDir, tupleStoreName, 1, 0);
+		facade.init();
+		facade.acquire();
+		
+		Assert.assertEquals(101, facade.getNumberOfTuples());
+		Assert.assertEquals(1, facade.get("1").size());
+		Assert.assertEquals(2, facade.get("50").size());
+		
+		facade.release();
+		facade.shutdown();
+	}
+	
+	@Test
+	public void testRecoverEmptyLog() throws Exception {
+		final WriteAheadLogWriter walWriter = new WriteAheadLogWriter(tempDir, 1);
+		walWriter.close();
+		
+		final WriteAheadLogReader reader = new WriteAheadLogReader(walWriter.getFile());
+		final int tuples = WriteAheadLogRecovery.writeToSSTable(reader, tempDir.getAbsolutePath(), 
+				new TupleStoreName("abc_def"), 1);
+		reader.close();
+		
+		Assert.assertEquals(0, tuples);
+	}
+	
+	@Test
+	public void testWalFileOrder() throws IOException {
+		for(final long number : new long[] {100, 5, 20}) {
+			new WriteAheadLogWriter(tempDir, number).close();
+		}
+		
+		final List<File> walFiles = WriteAheadLogManager.getAllWalFiles(tempDir);
+		Assert.assertEquals(3, walFiles.size());
+		Assert.assertEquals(5, WriteAheadLogManager.getMemtableNumber(walFiles.get(0)));
+		Assert.assertEquals(20, WriteAheadLogManager.getMemtableNumber(walFiles.get(1)));
+		Assert.assertEquals(100, WriteAheadLogManager.getMemtableNumber(walFiles.get(2)));
+	}
 }
@@ -90,6 +90,32 @@ public class TestRTreeIndex {
 		RTreeTestHelper.queryIndex(tupleList, index);
 	}
 	
+	/**
+	 * Test to delete entries from the index
+	 */
+	@Test(timeout=60000)
+	public void testDelete() {
+		final List<SpatialIndexEntry> tupleList = RTreeTestHelper.generateRandomTupleList(2);
+		
+		final RTreeBuilder index = new RTreeBuilder(4);
+		index.bulkInsert(tupleList);
+		
+		final List<SpatialIndexEntry> deletedEntries = tupleList.subList(0, tupleList.size() / 2);
+		final List<SpatialIndexEntry> remainingEntries = tupleList.subList(tupleList.size() / 2, tupleList.size());
+		
+		for(final SpatialIndexEntry entry : deletedEntries) {
+			Assert.assertTrue(index.delete(entry));
+			Assert.assertFalse(index.delete(entry));
+		}
+		
+		for(final SpatialIndexEntry entry : deletedEntries) {
+			Assert.assertFalse(index.getEntriesForRegion(entry.getBoundingBox()).contains(entry));
+		}
+		
+		RTreeTestHelper.queryIndex(remainingEntries, index);
+		index.testCovering();
+	}
+	
 	/**
 	 * Test to query the index
 	 */
@@ -21,8 +21,17 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
+import org.bboxdb.commons.math.DoubleInterval;
 import org.bboxdb.commons.math.Hyperrectangle;
 import org.bboxdb.storage.StorageManagerException;
 import org.bboxdb.storage.sstable.spatialindex.SpatialIndexBuilder;
@@ -166,5 +175,119 @@ public class TestRTreeMemoryDeserializer {
 		RTreeTestHelper.queryIndex(tupleList, indexRead);
 	}
 	
+	/**
+	 * Compare the region queries of the reader with a full scan
+	 * @throws StorageManagerException 
+	 * @throws IOException 
+	 * @throws InterruptedException 
+	 */
+	@Test(timeout=60000)
+	public void testRegionQuery() throws StorageManagerException, IOException, InterruptedException {
+		final List<SpatialIndexEntry> tupleList = RTreeTestHelper.generateRandomTupleList(2);
+		final AbstractRTreeReader indexRead = writeAndReadIndex(tupleList);
+		
+		final Random random = new Random();
+		
+		for(int i = 0; i < 100; i++) {
+			final double begin1 = random.nextInt() % 1000;
+			final double begin2 = random.nextInt() % 1000;
+			final Hyperrectangle queryBox = new Hyperrectangle(begin1, begin1 + random.nextInt(500), 
+					begin2, begin2 + random.nextInt(500));
+			
+			assertQueryResult(tupleList, indexRead, queryBox);
+		}
+		
+		// Query boxes with open intervals and the full space
+		final List<DoubleInterval> intervals = new ArrayList<>();
+		intervals.add(new DoubleInterval(-200, 300, false, false));
+		intervals.add(new DoubleInterval(0, 600, true, false));
+		assertQueryResult(tupleList, indexRead, new Hyperrectangle(intervals));
+		assertQueryResult(tupleList, indexRead, Hyperrectangle.FULL_SPACE);
+		
+		indexRead.close();
+	}
+	
+	/**
+	 * Query the reader from multiple threads
+	 * @throws Exception 
+	 */
+	@Test(timeout=60000)
+	public void testConcurrentQueries() throws Exception {
+		final List<SpatialIndexEntry> tupleList = RTreeTestHelper.generateRandomTupleList(3);
+		final AbstractRTreeReader indexRead = writeAndReadIndex(tupleList);
+		
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		final List<Future<?>> futures = new ArrayList<>();
+		
+		for(int i = 0; i < 4; i++) {
+			futures.add(executor.submit(() -> {
+				RTreeTestHelper.queryIndex(tupleList, indexRead);
+				return null;
+			}));
+		}
+		
+		for(final Future<?> future : futures) {
+			future.get();
+		}
+		
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+		indexRead.close();
+	}
+	
+	/**
+	 * Compare the result of both query methods with a full scan
+	 * @param tupleList
+	 * @param indexRead
+	 * @param queryBox
+	 * @throws StorageManagerException
+	 */
+	private void assertQueryResult(final List<SpatialIndexEntry> tupleList, 
+			final AbstractRTreeReader indexRead, final Hyperrectangle queryBox) 
+					throws StorageManagerException {
+		
+		final Set<SpatialIndexEntry> expected = tupleList.stream()
+				.filter(e -> e.getBoundingBox().intersects(queryBox))
+				.collect(Collectors.toSet());
+		
+		final Set<SpatialIndexEntry> entries = new HashSet<>(indexRead.getEntriesForRegion(queryBox));
+		Assert.assertEquals(expected, entries);
+		
+		final Set<Integer> values = new HashSet<>();
+		indexRead.forEachValueInRegion(queryBox, v -> values.add(v));
+		
+		final Set<Integer> expectedValues = expected.stream()
+				.map(e -> e.getValue())
+				.collect(Collectors.toSet());
+		
+		Assert.assertEquals(expectedValues, values);
+	}
 
+	/**
+	 * Write the entries into a index file and read the file with the reader
+	 * @param tupleList
+	 * @return
+	 * @throws IOException
+	 * @throws StorageManagerException
+	 * @throws InterruptedException
+	 */
+	private AbstractRTreeReader writeAndReadIndex(final List<SpatialIndexEntry> tupleList)
+			throws IOException, StorageManagerException, InterruptedException {
+		
+		final SpatialIndexBuilder index = new RTreeBuilder();
+		index.bulkInsert(tupleList);
+		
+		final File tempFile = File.createTempFile("rtree-", "-test");
+		tempFile.deleteOnExit();
+		final RandomAccessFile raf = new RandomAccessFile(tempFile, "rw");		
+		index.writeToFile(raf);
+		raf.close();
+		
+		final AbstractRTreeReader indexRead = getRTreeReader();
+		final RandomAccessFile rafRead = new RandomAccessFile(tempFile, "r");
+		indexRead.readFromFile(rafRead);
+		rafRead.close();
+		
+		return indexRead;
+	}
 }
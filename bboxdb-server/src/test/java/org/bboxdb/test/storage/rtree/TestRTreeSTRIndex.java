@@ -0,0 +1,237 @@
+/*******************************************************************************
+ *
+ *    Copyright (C) 2015-2018 the BBoxDB project
+ *  
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License. 
+ *    
+ *******************************************************************************/
+package org.bboxdb.test.storage.rtree;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.bboxdb.commons.math.Hyperrectangle;
+import org.bboxdb.storage.StorageManagerException;
+import org.bboxdb.storage.sstable.spatialindex.SpatialIndexBuilder;
+import org.bboxdb.storage.sstable.spatialindex.SpatialIndexEntry;
+import org.bboxdb.storage.sstable.spatialindex.rtree.AbstractRTreeReader;
+import org.bboxdb.storage.sstable.spatialindex.rtree.RTreeBuilder;
+import org.bboxdb.storage.sstable.spatialindex.rtree.RTreeMemoryReader;
+import org.bboxdb.storage.sstable.spatialindex.rtree.RTreeSTRBuilder;
+import org.bboxdb.storage.sstable.spatialindex.rtree.mmf.RTreeMMFReader;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestRTreeSTRIndex {
+
+	/**
+	 * Test to query the index
+	 */
+	@Test(timeout=60000)
+	public void testBoxQuery1d() {
+		final List<SpatialIndexEntry> tupleList = RTreeTestHelper.getEntryList();
+		
+		final SpatialIndexBuilder index = new RTreeSTRBuilder(4);
+		index.bulkInsert(tupleList);
+		RTreeTestHelper.queryIndex(tupleList, index);
+	}
+	
+	/**
+	 * Test to query the index
+	 */
+	@Test(timeout=60000)
+	public void testBoxQuery2d() {
+		final List<SpatialIndexEntry> tupleList = RTreeTestHelper.generateRandomTupleList(2);
+		
+		final SpatialIndexBuilder index = new RTreeSTRBuilder();
+		index.bulkInsert(tupleList);
+		RTreeTestHelper.queryIndex(tupleList, index);
+	}
+	
+	/**
+	 * Test to query the index
+	 */
+	@Test(timeout=60000)
+	public void testBoxQuery3d() {
+		final List<SpatialIndexEntry> tupleList = RTreeTestHelper.generateRandomTupleList(3);
+		
+		final SpatialIndexBuilder index = new RTreeSTRBuilder(8);
+		tupleList.forEach(e -> index.insert(e));
+		RTreeTestHelper.queryIndex(tupleList, index);
+	}
+	
+	/**
+	 * Test to query the index
+	 */
+	@Test(timeout=60000)
+	public void testBoxQuery5d() {
+		final List<SpatialIndexEntry> tupleList = RTreeTestHelper.generateRandomTupleList(5);
+		
+		final SpatialIndexBuilder index = new RTreeSTRBuilder();
+		index.bulkInsert(tupleList);
+		RTreeTestHelper.queryIndex(tupleList, index);
+	}
+	
+	/**
+	 * Compare the result of region queries with a full scan
+	 */
+	@Test(timeout=60000)
+	public void testRegionQuery() {
+		final List<SpatialIndexEntry> tupleList = RTreeTestHelper.generateRandomTupleList(2);
+		
+		final SpatialIndexBuilder index = new RTreeSTRBuilder();
+		index.bulkInsert(tupleList);
+		
+		final Random random = new Random();
+		
+		for(int i = 0; i < 100; i++) {
+			final double begin1 = random.nextInt() % 1000;
+			final double begin2 = random.nextInt() % 1000;
+			final Hyperrectangle queryBox = new Hyperrectangle(begin1, begin1 + random.nextInt(500), 
+					begin2, begin2 + random.nextInt(500));
+			
+			final Set<Integer> expected = tupleList.stream()
+					.filter(e -> e.getBoundingBox().intersects(queryBox))
+					.map(e -> e.getValue())
+					.collect(Collectors.toSet());
+			
+			final Set<Integer> result = index.getEntriesForRegion(queryBox).stream()
+					.map(e -> e.getValue())
+					.collect(Collectors.toSet());
+			
+			Assert.assertEquals(expected, result);
+		}
+	}
+	
+	/**
+	 * Test the covering of the nodes
+	 */
+	@Test(timeout=60000)
+	public void testCovering() {
+		final List<SpatialIndexEntry> tupleList = RTreeTestHelper.generateRandomTupleList(3);
+		
+		final RTreeSTRBuilder index = new RTreeSTRBuilder(8);
+		index.bulkInsert(tupleList);
+		
+		index.testCovering();		
+	}
+	
+	/**
+	 * Insert entries after the tree is packed
+	 */
+	@Test(timeout=60000)
+	public void testInsertAfterPack() {
+		final List<SpatialIndexEntry> tupleList1 = RTreeTestHelper.generateRandomTupleList(2);
+		final List<SpatialIndexEntry> tupleList2 = RTreeTestHelper.generateRandomTupleList(2)
+				.stream()
+				.map(e -> new SpatialIndexEntry(e.getBoundingBox(), e.getValue() + tupleList1.size()))
+				.collect(Collectors.toList());
+
+		final RTreeSTRBuilder index = new RTreeSTRBuilder(8);
+		index.bulkInsert(tupleList1);
+		tupleList2.forEach(e -> index.insert(e));
+		
+		index.testCovering();
+		RTreeTestHelper.queryIndex(tupleList1, index);
+		RTreeTestHelper.queryIndex(tupleList2, index);
+	}
+	
+	/**
+	 * Entries with different dimensions are inserted one by one
+	 */
+	@Test(timeout=60000)
+	public void testMixedDimensions() {
+		final List<SpatialIndexEntry> tupleList = new ArrayList<>();
+		tupleList.add(new SpatialIndexEntry(new Hyperrectangle(1d, 2d), 1));
+		tupleList.add(new SpatialIndexEntry(new Hyperrectangle(1d, 2d, 1d, 2d), 2));
+		tupleList.add(new SpatialIndexEntry(Hyperrectangle.FULL_SPACE, 3));
+
+		final SpatialIndexBuilder index = new RTreeSTRBuilder();
+		Assert.assertFalse(index.bulkInsert(tupleList));
+		
+		final Set<Integer> result = index.getEntriesForRegion(Hyperrectangle.FULL_SPACE).stream()
+				.map(e -> e.getValue())
+				.collect(Collectors.toSet());
+		
+		Assert.assertEquals(new HashSet<>(Arrays.asList(1, 2)), result);
+	}
+	
+	/**
+	 * Test the empty tree
+	 */
+	@Test(timeout=60000)
+	public void testEmptyTree() {
+		final SpatialIndexBuilder index = new RTreeSTRBuilder();
+		Assert.assertTrue(index.getEntriesForRegion(Hyperrectangle.FULL_SPACE).isEmpty());
+	}
+	
+	/**
+	 * Test the serialization with both readers, the packed tree is smaller
+	 * than the tree created by single inserts
+	 * 
+	 * @throws StorageManagerException
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	@Test(timeout=60000)
+	public void testSerializeIndex() throws StorageManagerException, IOException, InterruptedException {
+		final List<SpatialIndexEntry> tupleList = RTreeTestHelper.generateRandomTupleList(3);
+		
+		final SpatialIndexBuilder index = new RTreeSTRBuilder();
+		tupleList.forEach(e -> index.insert(e));
+		final File tempFile = writeIndexToFile(index);
+		
+		final SpatialIndexBuilder dynamicIndex = new RTreeBuilder();
+		dynamicIndex.bulkInsert(tupleList);
+		final File dynamicTempFile = writeIndexToFile(dynamicIndex);
+		
+		Assert.assertTrue(tempFile.length() < dynamicTempFile.length());
+
+		final List<AbstractRTreeReader> readers = new ArrayList<>();
+		readers.add(new RTreeMemoryReader());
+		readers.add(new RTreeMMFReader());
+		
+		for(final AbstractRTreeReader indexRead : readers) {
+			final RandomAccessFile rafRead = new RandomAccessFile(tempFile, "r");
+			indexRead.readFromFile(rafRead);
+			rafRead.close();
+			
+			RTreeTestHelper.queryIndex(tupleList, indexRead);
+			indexRead.close();
+		}
+	}
+
+	/**
+	 * Write the index into a temp file
+	 * @param index
+	 * @return
+	 * @throws IOException
+	 * @throws StorageManagerException
+	 */
+	private File writeIndexToFile(final SpatialIndexBuilder index) throws IOException, StorageManagerException {
+		final File tempFile = File.createTempFile("rtree-", "-test");
+		tempFile.deleteOnExit();
+		final RandomAccessFile raf = new RandomAccessFile(tempFile, "rw");		
+		index.writeToFile(raf);
+		raf.close();
+		return tempFile;
+	}
+}
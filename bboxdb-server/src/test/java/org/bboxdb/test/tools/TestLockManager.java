@@ -17,7 +17,12 @@
  *******************************************************************************/
 package org.bboxdb.test.tools;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.bboxdb.network.server.connection.lock.LockEntry;
 import org.bboxdb.network.server.connection.lock.LockManager;
@@ -174,4 +179,61 @@ public class TestLockManager {
 	
 		Assert.assertTrue(removeResult2.isEmpty());
 	}
+	
+	@Test(timeout=60000)
+	public void testLockManager9() {
+		final boolean result1 = lockManager.lockTuple(LOCK_OBJECT_1, (short) 1, "abc", "1234", 12, false);
+		Assert.assertTrue(result1);
+		
+		// Lock of the other object is not removed
+		final List<LockEntry> removeResult1 = lockManager.removeLockForConnectionAndKey(LOCK_OBJECT_2, "abc", "1234");
+		Assert.assertTrue(removeResult1.isEmpty());
+		Assert.assertEquals(1, lockManager.getAllLocksForObject(LOCK_OBJECT_1).size());
+		
+		final List<LockEntry> removeResult2 = lockManager.removeLockForConnectionAndKey(LOCK_OBJECT_1, "abc", "1234");
+		Assert.assertEquals(1, removeResult2.size());
+		Assert.assertTrue(lockManager.getAllLocksForObject(LOCK_OBJECT_1).isEmpty());
+		
+		final boolean result2 = lockManager.lockTuple(LOCK_OBJECT_2, (short) 1, "abc", "1234", 12, false);
+		Assert.assertTrue(result2);
+		Assert.assertEquals(1, lockManager.removeAllLocksForObject(LOCK_OBJECT_2).size());
+		Assert.assertTrue(lockManager.removeAllLocksForObject(LOCK_OBJECT_2).isEmpty());
+	}
+	
+	@Test(timeout=60000)
+	public void testLockManagerConcurrent() throws InterruptedException, ExecutionException {
+		final int threads = 4;
+		final int keys = 1000;
+		
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final List<Future<Integer>> futures = new ArrayList<>();
+		
+		for(int thread = 0; thread < threads; thread++) {
+			final Object lockObject = new Object();
+			
+			futures.add(executor.submit(() -> {
+				int lockedTuples = 0;
+				
+				for(int i = 0; i < keys; i++) {
+					if(lockManager.lockTuple(lockObject, (short) 1, "abc", Integer.toString(i), 1, false)) {
+						lockedTuples++;
+					}
+				}
+				
+				Assert.assertEquals(lockedTuples, lockManager.getAllLocksForObject(lockObject).size());
+				return lockedTuples;
+			}));
+		}
+		
+		int lockedTuples = 0;
+		
+		for(final Future<Integer> future : futures) {
+			lockedTuples = lockedTuples + future.get();
+		}
+		
+		executor.shutdown();
+		
+		// Each key is locked exactly once
+		Assert.assertEquals(keys, lockedTuples);
+	}
 }
@@ -88,6 +88,11 @@ public class CLI implements Runnable, AutoCloseable {
 	 */
 	private final static int MAX_PENDING_FUTURES = 5000;
 
+	/**
+	 * The amount of tuples that are inserted with one request during the import
+	 */
+	private final static int IMPORT_BATCH_SIZE = 100;
+
 	/**
 	 * The Logger
 	 */
@@ -283,6 +288,22 @@ public class CLI implements Runnable, AutoCloseable {
 			ssTableConfigurationBuilder.withSpatialIndexWriter(spatialIndexWriter);
 		}
 
+		// Merge strategy
+		if(line.hasOption(CLIParameter.MERGE_STRATEGY)) {
+			final String mergeStrategy = line.getOptionValue(CLIParameter.MERGE_STRATEGY);
+			ssTableConfigurationBuilder.withMergeStrategy(mergeStrategy);
+		}
+
+		// Key index
+		if(line.hasOption(CLIParameter.KEY_INDEX)) {
+			final String keyIndex = line.getOptionValue(CLIParameter.KEY_INDEX);
+
+			final boolean keyIndexEnabled = MathUtil.tryParseBooleanOrExit(keyIndex,
+					() -> "Unable to parse the bolean value for the key index: " + keyIndex);
+
+			ssTableConfigurationBuilder.withKeyIndex(keyIndexEnabled);
+		}
+
 		final TupleStoreConfiguration configuration = ssTableConfigurationBuilder.build();
 
 		try {
@@ -678,23 +699,24 @@ public class CLI implements Runnable, AutoCloseable {
 		System.out.format("Importing file: %s with padding %f%n", filename, padding);
 
 		final TupleFileReader tupleFile = new TupleFileReader(filename, format, padding);
+		final List<Tuple> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+
 		tupleFile.addTupleListener(t -> {
 
 			if(tupleFile.getProcessedLines() % 1000 == 0) {
 				System.out.format("Read %d lines%n", tupleFile.getProcessedLines());
 			}
 
-			try {
-				final EmptyResultFuture result = bboxDbConnection.insertTuple(table, t);
-				pendingFutures.put(result);
+			batch.add(t);
 
-			} catch (BBoxDBException e) {
-				logger.error("Got exception while inserting tuple", e);
+			if(batch.size() >= IMPORT_BATCH_SIZE) {
+				insertBatch(table, batch);
 			}
 		});
 
 		try {
 			tupleFile.processFile();
+			insertBatch(table, batch);
 			pendingFutures.waitForCompletion();
 			final long skippedLines = tupleFile.getSkippedLines();
 			final long processedLines = tupleFile.getProcessedLines();
@@ -710,6 +732,27 @@ public class CLI implements Runnable, AutoCloseable {
 		}
 	}
 
+	/**
+	 * Insert the tuples of the batch and clear the batch
+	 * @param table
+	 * @param batch
+	 */
+	private void insertBatch(final String table, final List<Tuple> batch) {
+
+		if(batch.isEmpty()) {
+			return;
+		}
+
+		try {
+			final EmptyResultFuture result = bboxDbConnection.insertTuples(table, new ArrayList<>(batch));
+			pendingFutures.put(result);
+		} catch (BBoxDBException e) {
+			logger.error("Got exception while inserting tuples", e);
+		}
+
+		batch.clear();
+	}
+
 	/**
 	 * Delete a distribution group
 	 * @param line
@@ -1058,6 +1101,23 @@ public class CLI implements Runnable, AutoCloseable {
 				.build();
 		options.addOption(versionsForTable);
 
+		// Table merge strategy
+		final Option mergeStrategy = Option.builder(CLIParameter.MERGE_STRATEGY)
+				.hasArg()
+				.argName("mergestrategy")
+				.desc("The merge strategy of the table (e.g., "
+						+ "org.bboxdb.storage.sstable.compact.SizeTieredMergeStrategy)")
+				.build();
+		options.addOption(mergeStrategy);
+
+		// Table key index
+		final Option keyIndex = Option.builder(CLIParameter.KEY_INDEX)
+				.hasArg()
+				.argName("keyindex")
+				.desc("Maintain a global key index for the table, default: false")
+				.build();
+		options.addOption(keyIndex);
+
 		// Filename
 		final Option file = Option.builder(CLIParameter.FILE)
 				.hasArg()
@@ -153,4 +153,14 @@ public class CLIParameter {
 	 * The name of the spatial index reader
 	 */
 	public static final String SPATIAL_INDEX_READER = "sindexreader";
+	
+	/**
+	 * The name of the merge strategy
+	 */
+	public static final String MERGE_STRATEGY = "mergestrategy";
+	
+	/**
+	 * Maintain a key index
+	 */
+	public static final String KEY_INDEX = "keyindex";
 }